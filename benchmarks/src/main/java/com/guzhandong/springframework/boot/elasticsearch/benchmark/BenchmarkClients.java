@@ -0,0 +1,45 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPoolConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchSharedClientPool;
+
+/**
+ * 按模式创建连接池和客户端：pooled（每个池对象一个完整的 client）/ shared（共享传输层）
+ */
+final class BenchmarkClients {
+
+    static final String POOLED = "pooled";
+
+    static final String SHARED = "shared";
+
+    private BenchmarkClients() {
+    }
+
+    static ElasticsearchClientConfigure clientConfigure(String host) {
+        ElasticsearchClientConfigure elasticsearchClientConfigure = new ElasticsearchClientConfigure();
+        elasticsearchClientConfigure.setHosts(new String[]{host});
+        elasticsearchClientConfigure.setMaxConnectNum(256);
+        elasticsearchClientConfigure.setMaxConnectPerRoute(256);
+        return elasticsearchClientConfigure;
+    }
+
+    static ElasticsearchClientPool pool(String mode, String host, int maxTotal) {
+        ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure = new ElasticsearchClientPoolConfigure();
+        elasticsearchClientPoolConfigure.setMaxTotal(maxTotal);
+        elasticsearchClientPoolConfigure.setMaxIdle(maxTotal);
+        elasticsearchClientPoolConfigure.setJmxEnabled(false);
+        ElasticsearchClientFactory elasticsearchClientFactory = new ElasticsearchClientFactory(clientConfigure(host));
+        if (SHARED.equals(mode)) {
+            return new ElasticsearchSharedClientPool(elasticsearchClientFactory, elasticsearchClientPoolConfigure);
+        }
+        return new ElasticsearchClientPool(elasticsearchClientFactory, elasticsearchClientPoolConfigure);
+    }
+
+    static RestHighLevelClient client(ElasticsearchClientPool pool) {
+        return new RestHighLevelClient(pool);
+    }
+}
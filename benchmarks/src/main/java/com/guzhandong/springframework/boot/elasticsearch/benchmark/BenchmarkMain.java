@@ -0,0 +1,35 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口
+ * <p>
+ * 不带参数时按 1 到 128 的线程数依次跑全部基准，并开启 gc profiler（等同 {@code -prof gc}）输出分配速率和 gc 次数；
+ * 带参数时交给 jmh 自己的命令行处理，如 {@code -h} 查看用法
+ */
+public class BenchmarkMain {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(BenchmarkMain.class.getPackage().getName() + ".*Benchmark")
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threads + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
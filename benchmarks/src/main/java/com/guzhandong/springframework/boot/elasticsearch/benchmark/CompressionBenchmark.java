@@ -0,0 +1,145 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.compression.ElasticsearchCompressionConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.compression.HttpCompression;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPoolConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gzip 压缩的 CPU 和传输字节的取舍：level 为 0 时不压缩.
+ * <p>
+ * 耗时见 jmh 结果（本机回环网络下基本都是压缩/解压的 CPU 开销），每次请求的请求体/响应体字节数在每轮结束时打印，
+ * 带宽受限时（如 1GbE 上的 bulk）节省的传输时间约为 节省字节数 / 带宽
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final String[] WORDS = {"order", "payment", "shipped", "pending", "refund", "warehouse", "beijing",
+            "shanghai", "customer", "invoice", "mobile", "desktop", "coupon", "express", "standard", "cancelled"};
+
+    @Param({"0", "1", "6"})
+    public int level;
+
+    @Param({"2000"})
+    public int bulkActions;
+
+    @Param({"200"})
+    public int searchSize;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private HttpCompression httpCompression;
+
+    private RestHighLevelClient client;
+
+    private SearchRequest searchRequest;
+
+    private BulkRequest bulkRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeElasticsearchServer().start();
+        server.setTotalHits(searchSize);
+        server.setDocumentSource(document(new Random(0), 0));
+        ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure = new ElasticsearchClientPoolConfigure();
+        elasticsearchClientPoolConfigure.setMaxTotal(64);
+        elasticsearchClientPoolConfigure.setMaxIdle(64);
+        elasticsearchClientPoolConfigure.setJmxEnabled(false);
+        ElasticsearchClientFactory elasticsearchClientFactory = new ElasticsearchClientFactory(BenchmarkClients.clientConfigure(server.getHost()));
+        if (level > 0) {
+            ElasticsearchCompressionConfigure elasticsearchCompressionConfigure = new ElasticsearchCompressionConfigure();
+            elasticsearchCompressionConfigure.setLevel(level);
+            httpCompression = new HttpCompression(elasticsearchCompressionConfigure);
+            elasticsearchClientFactory.setHttpCompression(httpCompression);
+        }
+        pool = new ElasticsearchClientPool(elasticsearchClientFactory, elasticsearchClientPoolConfigure);
+        client = BenchmarkClients.client(pool);
+        searchRequest = new SearchRequest("bench")
+                .source(new SearchSourceBuilder().query(QueryBuilders.termQuery("status", "shipped")).size(searchSize));
+        Random random = new Random(42);
+        bulkRequest = new BulkRequest();
+        for (int i = 0; i < bulkActions; i++) {
+            bulkRequest.add(new IndexRequest("bench").id(String.valueOf(i)).source(document(random, i), XContentType.JSON));
+        }
+    }
+
+    /**
+     * 类似订单日志的文档，字段名重复、取值部分随机，压缩比接近真实数据
+     */
+    private static String document(Random random, int i) {
+        return "{\"order_id\":\"" + Long.toHexString(random.nextLong()) + "\",\"seq\":" + i
+                + ",\"status\":\"" + WORDS[random.nextInt(WORDS.length)] + "\",\"city\":\"" + WORDS[random.nextInt(WORDS.length)]
+                + "\",\"amount\":" + random.nextInt(100000) / 100.0 + ",\"created_at\":\"2020-11-" + (10 + random.nextInt(18))
+                + "T" + (10 + random.nextInt(14)) + ":" + (10 + random.nextInt(50)) + ":" + (10 + random.nextInt(50)) + "Z\""
+                + ",\"channel\":\"" + WORDS[random.nextInt(WORDS.length)] + "\",\"remark\":\"" + WORDS[random.nextInt(WORDS.length)]
+                + " " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + "\"}";
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        server.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printBytes() {
+        long requests = Math.max(server.getRequestCount(), 1);
+        System.out.printf("%n[level=%d] request body %d bytes/op, response body %d bytes/op%n",
+                level, server.getReceivedBytes() / requests, server.getSentBytes() / requests);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (httpCompression != null && httpCompression.getCompressedRequestCount() > 0) {
+            System.out.printf("[level=%d] compressed requests %d, ratio %.2f%n", level, httpCompression.getCompressedRequestCount(),
+                    (double) httpCompression.getRequestBytes() / httpCompression.getCompressedRequestBytes());
+        }
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public SearchResponse search() throws IOException {
+        return client.search(searchRequest, RequestOptions.DEFAULT);
+    }
+
+    @Benchmark
+    public BulkResponse bulk() throws IOException {
+        return client.bulk(bulkRequest, RequestOptions.DEFAULT);
+    }
+}
@@ -0,0 +1,53 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import org.apache.commons.pool2.PooledObject;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 池对象的创建和销毁开销（每个对象都带一套 io reactor 线程和连接管理器）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FactoryBenchmark {
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientFactory factory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeElasticsearchServer().start();
+        factory = new ElasticsearchClientFactory(BenchmarkClients.clientConfigure(server.getHost()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public void makeDestroy() throws Exception {
+        PooledObject<RestHighLevelClient> pooledObject = factory.makeObject();
+        factory.destroyObject(pooledObject);
+    }
+}
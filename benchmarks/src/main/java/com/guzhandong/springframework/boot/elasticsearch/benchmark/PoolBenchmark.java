@@ -0,0 +1,71 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池借还开销：裸的 borrow/return 对比包装类的 ThreadLocal 绑定/释放
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+    @Param({BenchmarkClients.POOLED, BenchmarkClients.SHARED})
+    public String mode;
+
+    @Param({"8", "64"})
+    public int maxTotal;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private RestHighLevelClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeElasticsearchServer().start();
+        pool = BenchmarkClients.pool(mode, server.getHost(), maxTotal);
+        client = BenchmarkClients.client(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void borrowReturn(Blackhole blackhole) throws Exception {
+        org.elasticsearch.client.RestHighLevelClient restHighLevelClient = pool.borrowObject();
+        blackhole.consume(restHighLevelClient);
+        pool.returnObject(restHighLevelClient);
+    }
+
+    @Benchmark
+    public void wrapperBindRelease(Blackhole blackhole) {
+        blackhole.consume(client.getLowLevelClient());
+        client.releaseClient();
+    }
+}
@@ -0,0 +1,106 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端的 search/bulk 吞吐和耗时分布（SampleTime 输出 p99），对比 pooled 和 shared 两种连接池模式.
+ * 每轮结束时打印 jvm 线程数和堆使用量，配合 {@code -t 64 -prof gc} 对比两种模式在 64 个调用线程下的线程数、堆和 p99
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ThroughputBenchmark {
+
+    @Param({BenchmarkClients.POOLED, BenchmarkClients.SHARED})
+    public String mode;
+
+    @Param({"64"})
+    public int maxTotal;
+
+    @Param({"100"})
+    public int bulkActions;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private RestHighLevelClient client;
+
+    private SearchRequest searchRequest;
+
+    private BulkRequest bulkRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeElasticsearchServer().start();
+        pool = BenchmarkClients.pool(mode, server.getHost(), maxTotal);
+        client = BenchmarkClients.client(pool);
+        searchRequest = new SearchRequest("bench")
+                .source(new SearchSourceBuilder().query(QueryBuilders.termQuery("field", "value")));
+        bulkRequest = new BulkRequest();
+        for (int i = 0; i < bulkActions; i++) {
+            bulkRequest.add(new IndexRequest("bench").id(String.valueOf(i))
+                    .source("{\"field\":\"value\"}", XContentType.JSON));
+        }
+    }
+
+    /**
+     * 每个 client 自带 I/O reactor 线程，pooled 模式的线程数随 maxTotal 增长，shared 模式只有一组
+     */
+    @TearDown(Level.Iteration)
+    public void printThreadsAndHeap() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.println("mode=" + mode
+                + " threads=" + threadMXBean.getThreadCount() + " peakThreads=" + threadMXBean.getPeakThreadCount()
+                + " heapUsedMb=" + heapUsed / (1024 * 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public SearchResponse search() throws IOException {
+        return client.search(searchRequest, RequestOptions.DEFAULT);
+    }
+
+    @Benchmark
+    public BulkResponse bulk() throws IOException {
+        return client.bulk(bulkRequest, RequestOptions.DEFAULT);
+    }
+}
@@ -0,0 +1,36 @@
+package com.guzhandong.springframework.boot.elasticsearch.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 每个基准在当前进程中按每组参数执行一次，只检查 setup/benchmark/teardown 能正常跑完，不关心结果数值
+ */
+public class BenchmarkSmokeTest {
+
+    @Test
+    public void everyBenchmarkRunsOnce() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(BenchmarkMain.class.getPackage().getName() + ".*Benchmark")
+                .forks(0)
+                .mode(Mode.SingleShotTime)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .param("maxTotal", "4")
+                .param("bulkActions", "10")
+                .param("searchSize", "10")
+                .shouldFailOnError(true)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        //Factory 1 + Pool 2 模式 x 2 方法 + Throughput 2 模式 x 2 方法 + Compression 3 级别 x 2 方法
+        assertEquals(1 + 4 + 4 + 6, results.size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定大小的 direct {@link ByteBuffer} 池，供 {@link NdjsonBulkRequest} 复用.
+ * <p>
+ * 空闲 buffer 超过 {@code maxPooledChunks} 时归还的 buffer 直接丢弃，由 GC 回收堆外内存，
+ * 池中常驻的堆外内存最多为 chunkSizeBytes * maxPooledChunks
+ *
+ */
+public class ByteBufferPool {
+
+    private final int chunkSizeBytes;
+
+    private final int maxPooledChunks;
+
+    private final Queue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    private final LongAdder allocatedCount = new LongAdder();
+
+    public ByteBufferPool(ElasticsearchBulkWriterConfigure elasticsearchBulkWriterConfigure) {
+        this(elasticsearchBulkWriterConfigure.getChunkSizeBytes(), elasticsearchBulkWriterConfigure.getMaxPooledChunks());
+    }
+
+    public ByteBufferPool(int chunkSizeBytes, int maxPooledChunks) {
+        if (chunkSizeBytes < 1024) {
+            throw new IllegalArgumentException("chunk size must be at least 1024 bytes but was " + chunkSizeBytes);
+        }
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.maxPooledChunks = Math.max(maxPooledChunks, 0);
+    }
+
+    /**
+     * @return 已清空的 buffer，池为空时新分配
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pooled.poll();
+        if (buffer != null) {
+            pooledCount.decrementAndGet();
+            return buffer;
+        }
+        allocatedCount.increment();
+        return ByteBuffer.allocateDirect(chunkSizeBytes);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != chunkSizeBytes || !buffer.isDirect()) {
+            return;
+        }
+        //先占位再放入，并发归还时池的大小不会超过上限
+        if (pooledCount.incrementAndGet() > maxPooledChunks) {
+            pooledCount.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        pooled.offer(buffer);
+    }
+
+    public int getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    /**
+     * 空闲的 buffer 数
+     */
+    public int getPooledCount() {
+        return pooledCount.get();
+    }
+
+    /**
+     * 累计新分配的 buffer 数，持续增长说明 maxPooledChunks 偏小
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.sum();
+    }
+}
@@ -0,0 +1,139 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 按顺序发送一组 {@link ByteBuffer} 的 entity，非阻塞发送时直接把 buffer 写入连接，不复制到堆内.
+ * <p>
+ * 每次发送使用 buffer 的只读视图，不改变原 buffer，{@link #close()} 后可以重新发送（RestClient 换节点重试、重试策略重试）
+ *
+ */
+class ByteBuffersEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private final List<ByteBuffer> segments;
+
+    private final long contentLength;
+
+    private int index;
+
+    private ByteBuffer cursor;
+
+    ByteBuffersEntity(List<ByteBuffer> segments, long contentLength, ContentType contentType) {
+        this.segments = segments;
+        this.contentLength = contentLength;
+        setContentType(contentType.toString());
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        while (index < segments.size()) {
+            if (cursor == null) {
+                cursor = segments.get(index).asReadOnlyBuffer();
+            }
+            encoder.write(cursor);
+            if (cursor.hasRemaining()) {
+                //连接的发送缓冲已满，等下一次可写
+                return;
+            }
+            cursor = null;
+            index++;
+        }
+        encoder.complete();
+    }
+
+    @Override
+    public void close() {
+        index = 0;
+        cursor = null;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new SegmentsInputStream(segments);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        byte[] copy = null;
+        for (ByteBuffer segment : segments) {
+            if (segment.hasArray()) {
+                outStream.write(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+                continue;
+            }
+            ByteBuffer view = segment.asReadOnlyBuffer();
+            if (copy == null) {
+                copy = new byte[8192];
+            }
+            while (view.hasRemaining()) {
+                int length = Math.min(copy.length, view.remaining());
+                view.get(copy, 0, length);
+                outStream.write(copy, 0, length);
+            }
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    private static final class SegmentsInputStream extends InputStream {
+
+        private final List<ByteBuffer> segments;
+
+        private int index;
+
+        private ByteBuffer current;
+
+        private SegmentsInputStream(List<ByteBuffer> segments) {
+            this.segments = segments;
+        }
+
+        private ByteBuffer current() {
+            while ((current == null || !current.hasRemaining()) && index < segments.size()) {
+                current = segments.get(index++).asReadOnlyBuffer();
+            }
+            return current != null && current.hasRemaining() ? current : null;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int length = Math.min(len, buffer.remaining());
+            buffer.get(b, off, length);
+            return length;
+        }
+    }
+}
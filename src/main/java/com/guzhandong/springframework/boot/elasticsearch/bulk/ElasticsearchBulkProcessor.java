@@ -0,0 +1,194 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 后台批量写入组件，基于官方 {@link BulkProcessor}.
+ * <p>
+ * 调用方逐条提交 {@link IndexRequest}/{@link UpdateRequest}/{@link DeleteRequest}，按条数、字节数或时间间隔合并为一个 bulk 请求提交。
+ * 最多同时有 {@code concurrentRequests} 个 bulk 在途，超过后 {@code add} 阻塞调用方（背压）；
+ * 单条操作被拒绝(429)时按指数退避重试。
+ *
+ */
+public class ElasticsearchBulkProcessor implements DisposableBean {
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final ElasticsearchBulkProcessorConfigure configure;
+
+    private final BulkProcessor bulkProcessor;
+
+    private final AtomicLong submittedActions = new AtomicLong();
+
+    private final AtomicLong flushedActions = new AtomicLong();
+
+    private final AtomicLong succeededActions = new AtomicLong();
+
+    private final AtomicLong failedActions = new AtomicLong();
+
+    private final AtomicLong completedBulks = new AtomicLong();
+
+    private final AtomicLong failedBulks = new AtomicLong();
+
+    private final AtomicLong bulkTookMillis = new AtomicLong();
+
+    private final AtomicInteger inFlightBulks = new AtomicInteger();
+
+    public ElasticsearchBulkProcessor(RestHighLevelClient restHighLevelClient, ElasticsearchBulkProcessorConfigure configure) {
+        this(restHighLevelClient, RequestOptions.DEFAULT, configure);
+    }
+
+    public ElasticsearchBulkProcessor(RestHighLevelClient restHighLevelClient, RequestOptions options,
+                                      ElasticsearchBulkProcessorConfigure configure) {
+        this.configure = configure;
+        //使用连接池版本的 bulkFuture，请求完成后连接自动归还，不占用额外线程
+        BulkProcessor.Builder builder = BulkProcessor.builder((request, listener) -> restHighLevelClient.bulkFuture(request, options)
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        listener.onFailure(throwable instanceof Exception ? (Exception) throwable : new RuntimeException(throwable));
+                    } else {
+                        listener.onResponse(response);
+                    }
+                }), new MetricsListener());
+        builder.setBulkActions(configure.getBulkActions());
+        builder.setBulkSize(configure.getBulkSizeBytes() > 0
+                ? new ByteSizeValue(configure.getBulkSizeBytes(), ByteSizeUnit.BYTES) : new ByteSizeValue(-1));
+        if (configure.getFlushIntervalMillis() > 0) {
+            builder.setFlushInterval(TimeValue.timeValueMillis(configure.getFlushIntervalMillis()));
+        }
+        builder.setConcurrentRequests(configure.getConcurrentRequests());
+        builder.setBackoffPolicy(configure.getBackoffMaxRetries() > 0
+                ? BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(configure.getBackoffInitialDelayMillis()), configure.getBackoffMaxRetries())
+                : BackoffPolicy.noBackoff());
+        this.bulkProcessor = builder.build();
+    }
+
+    public ElasticsearchBulkProcessor add(IndexRequest request) {
+        return add((DocWriteRequest<?>) request);
+    }
+
+    public ElasticsearchBulkProcessor add(UpdateRequest request) {
+        return add((DocWriteRequest<?>) request);
+    }
+
+    public ElasticsearchBulkProcessor add(DeleteRequest request) {
+        return add((DocWriteRequest<?>) request);
+    }
+
+    public ElasticsearchBulkProcessor add(DocWriteRequest<?> request) {
+        submittedActions.incrementAndGet();
+        bulkProcessor.add(request);
+        return this;
+    }
+
+    /**
+     * 立即提交当前累计的操作
+     */
+    public void flush() {
+        bulkProcessor.flush();
+    }
+
+    /**
+     * 已提交的操作数
+     */
+    public long getSubmittedActions() {
+        return submittedActions.get();
+    }
+
+    /**
+     * 已累计但还未发送的操作数
+     */
+    public long getPendingActions() {
+        return submittedActions.get() - flushedActions.get();
+    }
+
+    /**
+     * 在途的 bulk 请求数
+     */
+    public int getInFlightBulks() {
+        return inFlightBulks.get();
+    }
+
+    public long getSucceededActions() {
+        return succeededActions.get();
+    }
+
+    public long getFailedActions() {
+        return failedActions.get();
+    }
+
+    public long getCompletedBulks() {
+        return completedBulks.get();
+    }
+
+    public long getFailedBulks() {
+        return failedBulks.get();
+    }
+
+    /**
+     * 所有完成的 bulk 请求在服务端的累计耗时(ms)
+     */
+    public long getBulkTookMillis() {
+        return bulkTookMillis.get();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (!bulkProcessor.awaitClose(configure.getAwaitCloseMillis(), TimeUnit.MILLISECONDS)) {
+            logUtil.warn("es bulk processor close timeout, pending actions :{}", getPendingActions());
+        }
+    }
+
+    private class MetricsListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            flushedActions.addAndGet(request.numberOfActions());
+            inFlightBulks.incrementAndGet();
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            inFlightBulks.decrementAndGet();
+            completedBulks.incrementAndGet();
+            bulkTookMillis.addAndGet(response.getTook().millis());
+            int failed = 0;
+            if (response.hasFailures()) {
+                for (int i = 0; i < response.getItems().length; i++) {
+                    if (response.getItems()[i].isFailed()) {
+                        failed++;
+                    }
+                }
+                logUtil.warn("es bulk [{}] has {} failed actions :{}", executionId, failed, response.buildFailureMessage());
+            }
+            failedActions.addAndGet(failed);
+            succeededActions.addAndGet(request.numberOfActions() - failed);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            inFlightBulks.decrementAndGet();
+            failedBulks.incrementAndGet();
+            failedActions.addAndGet(request.numberOfActions());
+            logUtil.error("es bulk [{}] failed, {} actions :{}", executionId, request.numberOfActions(), failure.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+public class ElasticsearchBulkProcessorConfigure {
+
+    public static final String PREFIX = "spring.es.bulk";
+
+    private boolean enabled = false;
+
+    /**
+     * 累计多少条操作后提交一次，-1 表示不按条数提交
+     */
+    private int bulkActions = 1000;
+
+    /**
+     * 累计多少字节后提交一次，-1 表示不按大小提交
+     */
+    private long bulkSizeBytes = 5 * 1024 * 1024L;
+
+    /**
+     * 定时提交间隔(ms)，0 表示不定时提交
+     */
+    private long flushIntervalMillis = 5000L;
+
+    /**
+     * 同时在途的 bulk 请求数，达到上限后 add 操作阻塞，0 表示同步提交
+     */
+    private int concurrentRequests = 1;
+
+    /**
+     * 单条操作被拒绝(429)后指数退避重试的初始等待时间(ms)
+     */
+    private long backoffInitialDelayMillis = 50L;
+
+    /**
+     * 单条操作被拒绝(429)后的最大重试次数
+     */
+    private int backoffMaxRetries = 8;
+
+    /**
+     * 关闭时等待剩余操作提交完成的最长时间(ms)
+     */
+    private long awaitCloseMillis = 30000L;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBulkActions() {
+        return bulkActions;
+    }
+
+    public void setBulkActions(int bulkActions) {
+        this.bulkActions = bulkActions;
+    }
+
+    public long getBulkSizeBytes() {
+        return bulkSizeBytes;
+    }
+
+    public void setBulkSizeBytes(long bulkSizeBytes) {
+        this.bulkSizeBytes = bulkSizeBytes;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public void setConcurrentRequests(int concurrentRequests) {
+        this.concurrentRequests = concurrentRequests;
+    }
+
+    public long getBackoffInitialDelayMillis() {
+        return backoffInitialDelayMillis;
+    }
+
+    public void setBackoffInitialDelayMillis(long backoffInitialDelayMillis) {
+        this.backoffInitialDelayMillis = backoffInitialDelayMillis;
+    }
+
+    public int getBackoffMaxRetries() {
+        return backoffMaxRetries;
+    }
+
+    public void setBackoffMaxRetries(int backoffMaxRetries) {
+        this.backoffMaxRetries = backoffMaxRetries;
+    }
+
+    public long getAwaitCloseMillis() {
+        return awaitCloseMillis;
+    }
+
+    public void setAwaitCloseMillis(long awaitCloseMillis) {
+        this.awaitCloseMillis = awaitCloseMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+public class ElasticsearchBulkWriterConfigure {
+
+    public static final String PREFIX = "spring.es.bulk-writer";
+
+    private boolean enabled = false;
+
+    /**
+     * 每个 direct buffer 的字节数
+     */
+    private int chunkSizeBytes = 64 * 1024;
+
+    /**
+     * 池中最多保留的空闲 buffer 数，应能容纳同时在途的 bulk 请求的总大小
+     */
+    private int maxPooledChunks = 256;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    public void setChunkSizeBytes(int chunkSizeBytes) {
+        this.chunkSizeBytes = chunkSizeBytes;
+    }
+
+    public int getMaxPooledChunks() {
+        return maxPooledChunks;
+    }
+
+    public void setMaxPooledChunks(int maxPooledChunks) {
+        this.maxPooledChunks = maxPooledChunks;
+    }
+}
@@ -0,0 +1,317 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 直接写入 direct buffer 的 bulk 请求，不经过 {@link org.elasticsearch.action.bulk.BulkRequest}.
+ * <p>
+ * 官方的 bulk 每个文档要经过 IndexRequest -> BytesReference -> NByteArrayEntity 三次复制；
+ * 这里把 action 行和 _source 直接按 ndjson 写入 {@link ByteBufferPool} 中的 buffer，发送时由 {@link ByteBuffersEntity} 直接写入连接。
+ * <ul>
+ *     <li>byte[] 形式的 _source 复制一次到池中的 buffer</li>
+ *     <li>{@link ByteBuffer} 形式的 _source 不复制，直接作为请求体的一段发送，请求完成之前不能修改</li>
+ * </ul>
+ * _source 必须是单行 json（不能包含换行），这里不做检查。
+ * 请求只能发送一次，通过 {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient#bulk(NdjsonBulkRequest, RequestOptions)}
+ * 发送完成后自动把 buffer 归还到池中；没有发送的请求需要调用 {@link #close()}
+ *
+ */
+public class NdjsonBulkRequest implements Closeable {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final ByteBufferPool byteBufferPool;
+
+    private final List<ByteBuffer> pooledBuffers = new ArrayList<>();
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+
+    private final List<String> indices = new ArrayList<>();
+
+    private final List<String> ids = new ArrayList<>();
+
+    private ByteBuffer current;
+
+    private int segmentStart;
+
+    private long sizeInBytes;
+
+    private String refresh;
+
+    private TimeValue timeout;
+
+    private String pipeline;
+
+    private boolean closed;
+
+    public NdjsonBulkRequest(ByteBufferPool byteBufferPool) {
+        this.byteBufferPool = byteBufferPool;
+    }
+
+    public NdjsonBulkRequest index(String index, String id, byte[] source) {
+        return index(index, id, null, source, 0, source.length);
+    }
+
+    /**
+     * @param id 为 null 时由 es 生成
+     */
+    public NdjsonBulkRequest index(String index, String id, String routing, byte[] source, int offset, int length) {
+        writeAction("index", index, id, routing);
+        writeBytes(source, offset, length);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * _source 不复制，请求完成之前不能修改 source 的内容
+     */
+    public NdjsonBulkRequest index(String index, String id, String routing, ByteBuffer source) {
+        writeAction("index", index, id, routing);
+        writeReference(source);
+        writeByte('\n');
+        return this;
+    }
+
+    public NdjsonBulkRequest create(String index, String id, byte[] source) {
+        return create(index, id, null, source, 0, source.length);
+    }
+
+    public NdjsonBulkRequest create(String index, String id, String routing, byte[] source, int offset, int length) {
+        writeAction("create", index, id, routing);
+        writeBytes(source, offset, length);
+        writeByte('\n');
+        return this;
+    }
+
+    /**
+     * @param body update 的请求体，如 {@code {"doc":{...}}}、{@code {"script":{...}}}
+     */
+    public NdjsonBulkRequest update(String index, String id, byte[] body) {
+        return update(index, id, null, body, 0, body.length);
+    }
+
+    public NdjsonBulkRequest update(String index, String id, String routing, byte[] body, int offset, int length) {
+        if (id == null) {
+            throw new IllegalArgumentException("update requires an id");
+        }
+        writeAction("update", index, id, routing);
+        writeBytes(body, offset, length);
+        writeByte('\n');
+        return this;
+    }
+
+    public NdjsonBulkRequest delete(String index, String id) {
+        return delete(index, id, null);
+    }
+
+    public NdjsonBulkRequest delete(String index, String id, String routing) {
+        if (id == null) {
+            throw new IllegalArgumentException("delete requires an id");
+        }
+        writeAction("delete", index, id, routing);
+        return this;
+    }
+
+    public NdjsonBulkRequest setRefreshPolicy(WriteRequest.RefreshPolicy refreshPolicy) {
+        this.refresh = refreshPolicy == null || refreshPolicy == WriteRequest.RefreshPolicy.NONE ? null : refreshPolicy.getValue();
+        return this;
+    }
+
+    public NdjsonBulkRequest setTimeout(TimeValue timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public NdjsonBulkRequest setPipeline(String pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    public int numberOfActions() {
+        return indices.size();
+    }
+
+    /**
+     * 请求体的字节数
+     */
+    public long estimatedSizeInBytes() {
+        return sizeInBytes + (current == null ? 0 : current.position() - segmentStart);
+    }
+
+    /**
+     * 遍历请求中的每个操作的 index 和 id，id 为 null 表示由 es 生成
+     */
+    public void forEachDocument(BiConsumer<String, String> consumer) {
+        for (int i = 0; i < indices.size(); i++) {
+            consumer.accept(indices.get(i), ids.get(i));
+        }
+    }
+
+    /**
+     * 转换为低级客户端的请求，请求体引用本对象中的 buffer，发送完成之前不能 {@link #close()}
+     */
+    public Request toRequest(RequestOptions options) {
+        ensureOpen();
+        sealSegment();
+        Request request = new Request("POST", "/_bulk");
+        if (refresh != null) {
+            request.addParameter("refresh", refresh);
+        }
+        if (timeout != null) {
+            request.addParameter("timeout", timeout.getStringRep());
+        }
+        if (pipeline != null) {
+            request.addParameter("pipeline", pipeline);
+        }
+        request.setEntity(new ByteBuffersEntity(new ArrayList<>(segments), sizeInBytes, NDJSON));
+        if (options != null) {
+            request.setOptions(options);
+        }
+        return request;
+    }
+
+    /**
+     * 把 buffer 归还到池中，可重复调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer buffer : pooledBuffers) {
+            byteBufferPool.release(buffer);
+        }
+        pooledBuffers.clear();
+        segments.clear();
+        current = null;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("ndjson bulk request is already closed");
+        }
+    }
+
+    private void writeAction(String action, String index, String id, String routing) {
+        ensureOpen();
+        if (index == null) {
+            throw new IllegalArgumentException("index is required for " + action);
+        }
+        indices.add(index);
+        ids.add(id);
+        writeAscii("{\"");
+        writeAscii(action);
+        writeAscii("\":{\"_index\":");
+        writeString(index);
+        if (id != null) {
+            writeAscii(",\"_id\":");
+            writeString(id);
+        }
+        if (routing != null) {
+            writeAscii(",\"routing\":");
+            writeString(routing);
+        }
+        writeAscii("}}\n");
+    }
+
+    private void writeAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    /**
+     * 写入 json 字符串（含引号），按 utf-8 编码
+     */
+    private void writeString(String value) {
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c < 0x20) {
+                writeAscii("\\u00");
+                writeByte(HEX[c >> 4]);
+                writeByte(HEX[c & 0xf]);
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xc0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xf0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            } else {
+                writeByte(0xe0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3f));
+                writeByte(0x80 | (c & 0x3f));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeByte(int b) {
+        if (current == null || !current.hasRemaining()) {
+            nextBuffer();
+        }
+        current.put((byte) b);
+    }
+
+    private void writeBytes(byte[] source, int offset, int length) {
+        while (length > 0) {
+            if (current == null || !current.hasRemaining()) {
+                nextBuffer();
+            }
+            int n = Math.min(length, current.remaining());
+            current.put(source, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void writeReference(ByteBuffer source) {
+        sealSegment();
+        ByteBuffer segment = source.slice();
+        segments.add(segment);
+        sizeInBytes += segment.remaining();
+    }
+
+    private void nextBuffer() {
+        sealSegment();
+        current = byteBufferPool.acquire();
+        pooledBuffers.add(current);
+        segmentStart = 0;
+    }
+
+    /**
+     * 把当前 buffer 中已写入、还没有加入请求体的部分作为一段加入请求体，之后的写入从新的一段开始
+     */
+    private void sealSegment() {
+        if (current == null || current.position() == segmentStart) {
+            return;
+        }
+        ByteBuffer segment = current.duplicate();
+        segment.position(segmentStart);
+        segment.limit(current.position());
+        segments.add(segment.slice());
+        sizeInBytes += current.position() - segmentStart;
+        segmentStart = current.position();
+    }
+}
@@ -0,0 +1,261 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.index.get.GetResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Caffeine（W-TinyLFU 淘汰）的 {@link DocumentCache}，开启方式：{@code spring.es.near-cache.enabled=true}，需要引入 caffeine.
+ * <p>
+ * 缓存以文档(index + id)为单位，一个文档的不同取法(routing/_source 过滤)作为同一个缓存值中的多个条目，
+ * 按估算字节数限制总大小，每个条目各自按写入时间过期。
+ * 失效版本按文档 hash 分段记录，分段冲突只会让少量写入缓存被跳过，不影响正确性。
+ * 命中时返回缓存结果的浅拷贝：_source 的字节共享，{@link GetResponse#getSourceAsMap()} 解析出的 map 不共享
+ *
+ */
+public class CaffeineDocumentCache implements DocumentCache {
+
+    private static final int STAMP_STRIPES = 4096;
+
+    /**
+     * 每个条目除 _source 外的估算开销
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private static final int FIELD_OVERHEAD_BYTES = 64;
+
+    private final Cache<DocumentId, CachedDocument> cache;
+
+    private final long expireAfterWriteNanos;
+
+    private final Set<String> indices;
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    public CaffeineDocumentCache(ElasticsearchDocumentCacheConfigure elasticsearchDocumentCacheConfigure) {
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(elasticsearchDocumentCacheConfigure.getExpireAfterWriteMillis());
+        String[] configuredIndices = elasticsearchDocumentCacheConfigure.getIndices();
+        this.indices = configuredIndices == null || configuredIndices.length == 0
+                ? Collections.emptySet() : new HashSet<>(Arrays.asList(configuredIndices));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(elasticsearchDocumentCacheConfigure.getMaximumWeightBytes())
+                .weigher((DocumentId documentId, CachedDocument cachedDocument) -> cachedDocument.weight)
+                .expireAfterWrite(expireAfterWriteNanos, TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+    }
+
+    private boolean isCached(DocumentCacheKey key) {
+        return key != null && (indices.isEmpty() || indices.contains(key.getIndex()));
+    }
+
+    @Override
+    public DocumentCacheKey keyOf(GetRequest getRequest) {
+        DocumentCacheKey key = DocumentCacheKey.of(getRequest);
+        return isCached(key) ? key : null;
+    }
+
+    @Override
+    public DocumentCacheKey keyOf(MultiGetRequest.Item item) {
+        DocumentCacheKey key = DocumentCacheKey.of(item);
+        return isCached(key) ? key : null;
+    }
+
+    @Override
+    public GetResponse get(DocumentCacheKey key) {
+        CachedDocument cachedDocument = cache.getIfPresent(new DocumentId(key.getIndex(), key.getId()));
+        CachedEntry entry = cachedDocument == null ? null : cachedDocument.entries.get(key);
+        if (entry == null || System.nanoTime() - entry.writeNanos >= expireAfterWriteNanos) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return copy(entry.response);
+    }
+
+    private int stripe(String index, String id) {
+        int hash = 31 * index.hashCode() + id.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    @Override
+    public long stamp(DocumentCacheKey key) {
+        return stamps.get(stripe(key.getIndex(), key.getId()));
+    }
+
+    @Override
+    public void put(DocumentCacheKey key, GetResponse response, long stamp) {
+        if (response == null) {
+            return;
+        }
+        int stripe = stripe(key.getIndex(), key.getId());
+        CachedEntry entry = new CachedEntry(response, System.nanoTime());
+        cache.asMap().compute(new DocumentId(key.getIndex(), key.getId()), (documentId, cachedDocument) -> {
+            //在 compute 中检查，和 invalidate 的 "先加版本再删除" 配合，失效之后不会再写入旧结果
+            if (stamps.get(stripe) != stamp) {
+                return cachedDocument;
+            }
+            return cachedDocument == null ? new CachedDocument(key, entry) : cachedDocument.with(key, entry, expireAfterWriteNanos);
+        });
+    }
+
+    @Override
+    public void invalidate(String index, String id) {
+        if (index == null || id == null) {
+            return;
+        }
+        stamps.incrementAndGet(stripe(index, id));
+        cache.invalidate(new DocumentId(index, id));
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            stamps.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public long getWeightBytes() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    private static GetResponse copy(GetResponse response) {
+        Map<String, DocumentField> documentFields = new HashMap<>();
+        Map<String, DocumentField> metadataFields = new HashMap<>();
+        for (Map.Entry<String, DocumentField> field : response.getFields().entrySet()) {
+            if (field.getValue().isMetadataField()) {
+                metadataFields.put(field.getKey(), field.getValue());
+            } else {
+                documentFields.put(field.getKey(), field.getValue());
+            }
+        }
+        return new GetResponse(new GetResult(response.getIndex(), response.getType(), response.getId(),
+                response.getSeqNo(), response.getPrimaryTerm(), response.getVersion(), response.isExists(),
+                response.getSourceInternal(), documentFields, metadataFields));
+    }
+
+    private static int weigh(DocumentCacheKey key, GetResponse response) {
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * (key.getIndex().length() + key.getId().length());
+        if (response.getSourceInternal() != null) {
+            weight += response.getSourceInternal().length();
+        }
+        weight += (long) FIELD_OVERHEAD_BYTES * response.getFields().size();
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static final class DocumentId {
+
+        private final String index;
+
+        private final String id;
+
+        DocumentId(String index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DocumentId)) {
+                return false;
+            }
+            DocumentId that = (DocumentId) o;
+            return index.equals(that.index) && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * index.hashCode() + id.hashCode();
+        }
+    }
+
+    private static final class CachedEntry {
+
+        private final GetResponse response;
+
+        private final long writeNanos;
+
+        CachedEntry(GetResponse response, long writeNanos) {
+            this.response = response;
+            this.writeNanos = writeNanos;
+        }
+    }
+
+    /**
+     * 一个文档的所有缓存条目，不可变，写入时复制
+     */
+    private static final class CachedDocument {
+
+        private final Map<DocumentCacheKey, CachedEntry> entries;
+
+        private final int weight;
+
+        CachedDocument(DocumentCacheKey key, CachedEntry entry) {
+            this(Collections.singletonMap(key, entry));
+        }
+
+        private CachedDocument(Map<DocumentCacheKey, CachedEntry> entries) {
+            this.entries = entries;
+            long total = 0;
+            for (Map.Entry<DocumentCacheKey, CachedEntry> e : entries.entrySet()) {
+                total += weigh(e.getKey(), e.getValue().response);
+            }
+            this.weight = (int) Math.min(total, Integer.MAX_VALUE);
+        }
+
+        CachedDocument with(DocumentCacheKey key, CachedEntry entry, long expireAfterWriteNanos) {
+            Map<DocumentCacheKey, CachedEntry> copy = new HashMap<>(entries.size() + 1);
+            for (Map.Entry<DocumentCacheKey, CachedEntry> e : entries.entrySet()) {
+                //顺便清理已经过期的条目，整个文档的过期时间会被新写入刷新
+                if (entry.writeNanos - e.getValue().writeNanos < expireAfterWriteNanos) {
+                    copy.put(e.getKey(), e.getValue());
+                }
+            }
+            copy.put(key, entry);
+            return new CachedDocument(copy);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.guzhandong.springframework.boot.elasticsearch.search.ParsedNamedXContents;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.action.search.RestSearchAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 基于 Caffeine 的 {@link SearchCache}，开启方式：{@code spring.es.search-cache.enabled=true}，需要引入 caffeine.
+ * <p>
+ * 按结果数限制大小，每个结果按请求的索引各自的有效时间过期。
+ * 失效时先在写锁中递增失效版本并记录该索引的失效时间，再删除匹配的缓存结果；写入缓存时在读锁中检查请求开始之后
+ * 是否有匹配的失效、或者仍在写入后的 {@code write-grace-millis} 内，两者配合保证失效之后不会再写入旧结果.
+ * <p>
+ * SearchResponse 及其中的 SearchHit 可以被调用方修改，缓存中保存的是 SMILE 编码后的结果，
+ * 每次命中（包括共享同一次调用的并发请求）都解码出一份新的 SearchResponse
+ *
+ */
+public class CaffeineSearchCache implements SearchCache {
+
+    /**
+     * {@link #invalidateAll()} 的记录名称，索引名称不能以 _ 开头，不会冲突
+     */
+    private static final String ALL = "_all";
+
+    private final Cache<SearchCacheKey, CachedSearch> cache;
+
+    /**
+     * 聚合和 suggest 按 type#name 输出，解码时才能还原为对应的 Parsed* 类型
+     */
+    private static final ToXContent.Params TYPED_KEYS = new ToXContent.MapParams(
+            Collections.singletonMap(RestSearchAction.TYPED_KEYS_PARAM, "true"));
+
+    private final ConcurrentMap<SearchCacheKey, CompletableFuture<BytesReference>> inFlight = new ConcurrentHashMap<>();
+
+    private final long expireAfterWriteNanos;
+
+    private final Map<String, Long> indexExpireAfterWriteNanos;
+
+    private final long writeGraceNanos;
+
+    private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final ConcurrentMap<String, Invalidation> invalidations = new ConcurrentHashMap<>();
+
+    private volatile long lastInvalidationNanos;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder sharedCount = new LongAdder();
+
+    public CaffeineSearchCache(ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure) {
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(elasticsearchSearchCacheConfigure.getExpireAfterWriteMillis());
+        this.indexExpireAfterWriteNanos = new LinkedHashMap<>();
+        if (elasticsearchSearchCacheConfigure.getIndexExpireAfterWriteMillis() != null) {
+            elasticsearchSearchCacheConfigure.getIndexExpireAfterWriteMillis().forEach((index, millis) ->
+                    indexExpireAfterWriteNanos.put(index, TimeUnit.MILLISECONDS.toNanos(millis)));
+        }
+        this.writeGraceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(elasticsearchSearchCacheConfigure.getWriteGraceMillis(), 0));
+        this.lastInvalidationNanos = System.nanoTime() - writeGraceNanos - 1;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(elasticsearchSearchCacheConfigure.getMaximumSize())
+                .expireAfter(new Expiry<SearchCacheKey, CachedSearch>() {
+                    @Override
+                    public long expireAfterCreate(SearchCacheKey key, CachedSearch value, long currentTime) {
+                        return value.expireAfterWriteNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(SearchCacheKey key, CachedSearch value, long currentTime, long currentDuration) {
+                        return value.expireAfterWriteNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(SearchCacheKey key, CachedSearch value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 请求涉及的索引中最短的有效时间
+     */
+    private long expireAfterWriteNanos(SearchCacheKey key) {
+        String[] indices = key.getIndices();
+        if (indexExpireAfterWriteNanos.isEmpty() || indices.length == 0) {
+            return expireAfterWriteNanos;
+        }
+        long min = Long.MAX_VALUE;
+        for (String expression : indices) {
+            long nanos = expireAfterWriteNanos;
+            for (Map.Entry<String, Long> entry : indexExpireAfterWriteNanos.entrySet()) {
+                if (Regex.simpleMatch(entry.getKey(), expression)) {
+                    nanos = entry.getValue();
+                    break;
+                }
+            }
+            min = Math.min(min, nanos);
+        }
+        return min;
+    }
+
+    @Override
+    public SearchCacheKey keyOf(SearchRequest searchRequest, RequestOptions options) {
+        SearchCacheKey key = SearchCacheKey.of(searchRequest, options);
+        return key == null || expireAfterWriteNanos(key) <= 0 ? null : key;
+    }
+
+    @Override
+    public CompletableFuture<SearchResponse> getOrLoad(SearchCacheKey key, Supplier<CompletableFuture<SearchResponse>> loader) {
+        CachedSearch cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hitCount.increment();
+            return decodeAsync(cached.bytes);
+        }
+        CompletableFuture<BytesReference> flight = new CompletableFuture<>();
+        CompletableFuture<BytesReference> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            sharedCount.increment();
+            return existing.thenApply(CaffeineSearchCache::decode);
+        }
+        //上一个相同请求可能在 getIfPresent 之后刚写入缓存并退出
+        cached = cache.getIfPresent(key);
+        if (cached != null) {
+            inFlight.remove(key, flight);
+            flight.complete(cached.bytes);
+            hitCount.increment();
+            return decodeAsync(cached.bytes);
+        }
+        missCount.increment();
+        long startEpoch = epoch.get();
+        CompletableFuture<SearchResponse> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        CompletableFuture<SearchResponse> result = new CompletableFuture<>();
+        loaded.whenComplete((response, failure) -> {
+            BytesReference bytes = null;
+            RuntimeException encodeFailure = null;
+            if (failure == null && response != null) {
+                try {
+                    bytes = encode(response);
+                    put(key, bytes, startEpoch);
+                } catch (RuntimeException e) {
+                    encodeFailure = e;
+                }
+            }
+            //先写入缓存再移除在途记录，之后的相同请求要么命中缓存要么等待这次请求
+            inFlight.remove(key, flight);
+            if (failure == null) {
+                if (encodeFailure == null) {
+                    flight.complete(bytes);
+                } else {
+                    flight.completeExceptionally(encodeFailure);
+                }
+                //发起调用的请求直接使用解析出的结果，不需要再解码一次
+                result.complete(response);
+            } else {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                flight.completeExceptionally(cause);
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    private void put(SearchCacheKey key, BytesReference bytes, long startEpoch) {
+        invalidationLock.readLock().lock();
+        try {
+            if (!invalidatedSince(key, startEpoch)) {
+                cache.put(key, new CachedSearch(bytes, expireAfterWriteNanos(key)));
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+    }
+
+    private static BytesReference encode(SearchResponse response) {
+        try (XContentBuilder builder = XContentBuilder.builder(XContentType.SMILE.xContent())) {
+            response.toXContent(builder, TYPED_KEYS);
+            return BytesReference.bytes(builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SearchResponse decode(BytesReference bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (XContentParser parser = XContentType.SMILE.xContent().createParser(ParsedNamedXContents.registry(),
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, bytes.streamInput())) {
+            return SearchResponse.fromXContent(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static CompletableFuture<SearchResponse> decodeAsync(BytesReference bytes) {
+        try {
+            return CompletableFuture.completedFuture(decode(bytes));
+        } catch (RuntimeException e) {
+            CompletableFuture<SearchResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private boolean invalidatedSince(SearchCacheKey key, long startEpoch) {
+        long now = System.nanoTime();
+        if (epoch.get() == startEpoch && now - lastInvalidationNanos >= writeGraceNanos) {
+            return false;
+        }
+        for (Map.Entry<String, Invalidation> entry : invalidations.entrySet()) {
+            Invalidation invalidation = entry.getValue();
+            if ((invalidation.epoch > startEpoch || now - invalidation.nanos < writeGraceNanos)
+                    && (ALL.equals(entry.getKey()) || key.matches(entry.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordInvalidation(String index) {
+        invalidationLock.writeLock().lock();
+        try {
+            long now = System.nanoTime();
+            invalidations.put(index, new Invalidation(epoch.incrementAndGet(), now));
+            lastInvalidationNanos = now;
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(String index) {
+        if (index == null) {
+            return;
+        }
+        recordInvalidation(index);
+        cache.asMap().keySet().removeIf(key -> key.matches(index));
+    }
+
+    @Override
+    public void invalidateAll() {
+        recordInvalidation(ALL);
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    private static final class CachedSearch {
+
+        private final BytesReference bytes;
+
+        private final long expireAfterWriteNanos;
+
+        private CachedSearch(BytesReference bytes, long expireAfterWriteNanos) {
+            this.bytes = bytes;
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+        }
+    }
+
+    private static final class Invalidation {
+
+        private final long epoch;
+
+        private final long nanos;
+
+        private Invalidation(long epoch, long nanos) {
+            this.epoch = epoch;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+
+/**
+ * Get/MultiGet 结果的本地缓存.
+ * <p>
+ * 读取流程：{@link #keyOf} 为 null 时不缓存；命中时直接返回；未命中时先取 {@link #stamp}，
+ * 请求返回后用该 stamp 调用 {@link #put}，期间该文档被 {@link #invalidate} 过时不写入缓存，避免旧结果覆盖写入之后的失效。
+ * 接口本身不依赖缓存实现的类，未引入 caffeine 时 {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient} 也能正常加载
+ *
+ */
+public interface DocumentCache {
+
+    /**
+     * @return 不缓存的请求返回 null
+     */
+    DocumentCacheKey keyOf(GetRequest getRequest);
+
+    /**
+     * @return 不缓存的请求返回 null
+     */
+    DocumentCacheKey keyOf(MultiGetRequest.Item item);
+
+    /**
+     * @return 未命中时返回 null
+     */
+    GetResponse get(DocumentCacheKey key);
+
+    /**
+     * 发出请求之前取得该文档当前的失效版本
+     */
+    long stamp(DocumentCacheKey key);
+
+    /**
+     * 写入缓存，文档在 stamp 之后被失效过时忽略
+     */
+    void put(DocumentCacheKey key, GetResponse response, long stamp);
+
+    /**
+     * 失效一个文档的所有缓存条目
+     */
+    void invalidate(String index, String id);
+
+    void invalidateAll();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    /**
+     * 缓存的文档数
+     */
+    long getSize();
+
+    /**
+     * 缓存的估算字节数
+     */
+    long getWeightBytes();
+}
@@ -0,0 +1,100 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 文档缓存的 key：index/id/routing/stored_fields/_source 过滤条件.
+ * 同一个文档（index + id）的不同取法缓存为不同的条目，写入该文档时一起失效
+ *
+ */
+public final class DocumentCacheKey {
+
+    private final String index;
+
+    private final String id;
+
+    private final String routing;
+
+    private final String[] storedFields;
+
+    private final FetchSourceContext fetchSourceContext;
+
+    private final int hashCode;
+
+    private DocumentCacheKey(String index, String id, String routing, String[] storedFields, FetchSourceContext fetchSourceContext) {
+        this.index = index;
+        this.id = id;
+        this.routing = routing;
+        this.storedFields = storedFields == null ? null : storedFields.clone();
+        this.fetchSourceContext = fetchSourceContext;
+        this.hashCode = Objects.hash(index, id, routing, Arrays.hashCode(this.storedFields), fetchSourceContext);
+    }
+
+    /**
+     * @return 指定了版本、要求 refresh 或者没有 index/id 的请求不缓存，返回 null
+     */
+    public static DocumentCacheKey of(GetRequest getRequest) {
+        if (getRequest.refresh() || getRequest.version() != Versions.MATCH_ANY) {
+            return null;
+        }
+        return of(getRequest.index(), getRequest.id(), getRequest.routing(), getRequest.storedFields(), getRequest.fetchSourceContext());
+    }
+
+    /**
+     * @return 指定了版本或者没有 index/id 的请求不缓存，返回 null
+     */
+    public static DocumentCacheKey of(MultiGetRequest.Item item) {
+        if (item.version() != Versions.MATCH_ANY) {
+            return null;
+        }
+        return of(item.index(), item.id(), item.routing(), item.storedFields(), item.fetchSourceContext());
+    }
+
+    private static DocumentCacheKey of(String index, String id, String routing, String[] storedFields, FetchSourceContext fetchSourceContext) {
+        if (index == null || id == null) {
+            return null;
+        }
+        return new DocumentCacheKey(index, id, routing, storedFields, fetchSourceContext);
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DocumentCacheKey that = (DocumentCacheKey) o;
+        return hashCode == that.hashCode
+                && index.equals(that.index)
+                && id.equals(that.id)
+                && Objects.equals(routing, that.routing)
+                && Arrays.equals(storedFields, that.storedFields)
+                && Objects.equals(fetchSourceContext, that.fetchSourceContext);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + id + (routing == null ? "" : "?routing=" + routing);
+    }
+}
@@ -0,0 +1,55 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+public class ElasticsearchDocumentCacheConfigure {
+
+    public static final String PREFIX = "spring.es.near-cache";
+
+    private boolean enabled = false;
+
+    /**
+     * 缓存的最大估算字节数，按 _source 和字段大小估算
+     */
+    private long maximumWeightBytes = 64L * 1024 * 1024;
+
+    /**
+     * 缓存写入后的有效时间(ms)，不经过本 client 的写入最多在这个时间之后可见
+     */
+    private long expireAfterWriteMillis = 1000L;
+
+    /**
+     * 只缓存这些索引，为空时缓存所有索引；别名和实际索引按不同名称失效，写入请使用和读取相同的名称
+     */
+    private String[] indices = {};
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumWeightBytes() {
+        return maximumWeightBytes;
+    }
+
+    public void setMaximumWeightBytes(long maximumWeightBytes) {
+        this.maximumWeightBytes = maximumWeightBytes;
+    }
+
+    public long getExpireAfterWriteMillis() {
+        return expireAfterWriteMillis;
+    }
+
+    public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    public String[] getIndices() {
+        return indices;
+    }
+
+    public void setIndices(String[] indices) {
+        this.indices = indices;
+    }
+}
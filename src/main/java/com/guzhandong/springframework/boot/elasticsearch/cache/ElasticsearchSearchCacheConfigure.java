@@ -0,0 +1,74 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ElasticsearchSearchCacheConfigure {
+
+    public static final String PREFIX = "spring.es.search-cache";
+
+    private boolean enabled = false;
+
+    /**
+     * 缓存的最大结果数
+     */
+    private long maximumSize = 1000L;
+
+    /**
+     * 缓存写入后的有效时间(ms)，不经过本 client 的写入最多在这个时间之后可见，0 表示默认不缓存；
+     * 写入只按名称失效匹配的搜索结果，别名和实际索引按不同名称失效，写入请使用和搜索相同的名称
+     */
+    private long expireAfterWriteMillis = 5000L;
+
+    /**
+     * 按索引设置有效时间(ms)，key 为索引名称或通配符（如 {@code "[logs-*]"}），和请求中的索引表达式匹配，
+     * 请求多个索引时取最小值，0 表示不缓存该索引
+     */
+    private Map<String, Long> indexExpireAfterWriteMillis = new LinkedHashMap<>();
+
+    /**
+     * 本 client 写入某个索引之后的这段时间(ms)内不缓存该索引的搜索结果，应不小于索引的 refresh_interval，
+     * 否则 refresh 之前搜到的旧结果会在写入之后被缓存
+     */
+    private long writeGraceMillis = 1000L;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getExpireAfterWriteMillis() {
+        return expireAfterWriteMillis;
+    }
+
+    public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    public Map<String, Long> getIndexExpireAfterWriteMillis() {
+        return indexExpireAfterWriteMillis;
+    }
+
+    public void setIndexExpireAfterWriteMillis(Map<String, Long> indexExpireAfterWriteMillis) {
+        this.indexExpireAfterWriteMillis = indexExpireAfterWriteMillis;
+    }
+
+    public long getWriteGraceMillis() {
+        return writeGraceMillis;
+    }
+
+    public void setWriteGraceMillis(long writeGraceMillis) {
+        this.writeGraceMillis = writeGraceMillis;
+    }
+}
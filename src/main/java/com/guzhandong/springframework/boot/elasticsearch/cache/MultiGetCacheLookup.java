@@ -0,0 +1,107 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MultiGet 请求的缓存查找：命中的条目直接使用缓存结果，只把未命中的条目组成新的请求发给集群，
+ * 返回后按原来的顺序合并并写入缓存.
+ * 要求 refresh 的请求和单个 Get 一样不读也不写缓存，原请求整体发给集群
+ *
+ */
+public class MultiGetCacheLookup {
+
+    private final DocumentCache documentCache;
+
+    private final MultiGetItemResponse[] responses;
+
+    private final DocumentCacheKey[] keys;
+
+    private final long[] stamps;
+
+    /**
+     * 未命中条目在原请求中的下标
+     */
+    private final int[] missPositions;
+
+    private final MultiGetRequest missRequest;
+
+    public MultiGetCacheLookup(DocumentCache documentCache, MultiGetRequest multiGetRequest) {
+        this.documentCache = documentCache;
+        List<MultiGetRequest.Item> items = multiGetRequest.getItems();
+        this.responses = new MultiGetItemResponse[items.size()];
+        this.keys = new DocumentCacheKey[items.size()];
+        this.stamps = new long[items.size()];
+        int[] positions = new int[items.size()];
+        int misses = 0;
+        MultiGetRequest request = null;
+        if (multiGetRequest.refresh() && !items.isEmpty()) {
+            for (int i = 0; i < items.size(); i++) {
+                positions[i] = i;
+            }
+            this.missPositions = positions;
+            this.missRequest = multiGetRequest;
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            MultiGetRequest.Item item = items.get(i);
+            DocumentCacheKey key = documentCache.keyOf(item);
+            if (key != null) {
+                GetResponse cached = documentCache.get(key);
+                if (cached != null) {
+                    responses[i] = new MultiGetItemResponse(cached, null);
+                    continue;
+                }
+                keys[i] = key;
+                stamps[i] = documentCache.stamp(key);
+            }
+            if (request == null) {
+                request = new MultiGetRequest()
+                        .preference(multiGetRequest.preference())
+                        .realtime(multiGetRequest.realtime())
+                        .refresh(multiGetRequest.refresh());
+            }
+            request.add(item);
+            positions[misses++] = i;
+        }
+        this.missPositions = misses == positions.length ? positions : Arrays.copyOf(positions, misses);
+        this.missRequest = request;
+    }
+
+    /**
+     * @return 未命中的条目组成的请求，全部命中时返回 null
+     */
+    public MultiGetRequest getMissRequest() {
+        return missRequest;
+    }
+
+    /**
+     * 全部命中时直接返回结果
+     */
+    public MultiGetResponse complete() {
+        return new MultiGetResponse(responses);
+    }
+
+    /**
+     * 合并未命中请求的结果，成功的条目写入缓存.
+     * 开启对冲时可能被调用多次，每次合并到新的数组中
+     */
+    public MultiGetResponse merge(MultiGetResponse missResponse) {
+        MultiGetItemResponse[] merged = responses.clone();
+        MultiGetItemResponse[] missResponses = missResponse.getResponses();
+        for (int j = 0; j < missPositions.length && j < missResponses.length; j++) {
+            int position = missPositions[j];
+            MultiGetItemResponse itemResponse = missResponses[j];
+            merged[position] = itemResponse;
+            if (keys[position] != null && !itemResponse.isFailed()) {
+                documentCache.put(keys[position], itemResponse.getResponse(), stamps[position]);
+            }
+        }
+        return new MultiGetResponse(merged);
+    }
+}
@@ -0,0 +1,55 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Search 结果的本地缓存.
+ * <p>
+ * {@link #keyOf} 为 null 时不缓存；{@link #getOrLoad} 命中时直接返回，未命中时相同 key 的并发请求只有一个会调用 loader，
+ * 其余请求等待同一个结果。请求期间相关索引被 {@link #invalidate} 过时结果只返回给调用方，不写入缓存。
+ * 每次命中和共享同一次调用的每个调用方都得到各自的 {@link SearchResponse} 副本，调用方可以修改其中的内容而不影响缓存和其它调用方。
+ * 接口本身不依赖缓存实现的类，未引入 caffeine 时 {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient} 也能正常加载
+ *
+ */
+public interface SearchCache {
+
+    /**
+     * @return 不缓存的请求返回 null
+     */
+    SearchCacheKey keyOf(SearchRequest searchRequest, RequestOptions options);
+
+    /**
+     * 取缓存结果，未命中时调用 loader（在当前线程中），相同 key 的请求共享一次调用
+     *
+     * @return 每个调用方各自的 future，取消它不影响其它调用方和在途的请求
+     */
+    CompletableFuture<SearchResponse> getOrLoad(SearchCacheKey key, Supplier<CompletableFuture<SearchResponse>> loader);
+
+    /**
+     * 失效可能包含该索引数据的所有缓存结果
+     */
+    void invalidate(String index);
+
+    void invalidateAll();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    /**
+     * 等待其它相同请求结果、没有单独发出请求的次数
+     */
+    long getSharedCount();
+
+    long getEvictionCount();
+
+    /**
+     * 缓存的结果数
+     */
+    long getSize();
+}
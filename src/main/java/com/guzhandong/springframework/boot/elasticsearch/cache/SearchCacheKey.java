@@ -0,0 +1,155 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.apache.http.Header;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 搜索缓存的 key：请求的规范化 JSON 的 128 位 hash.
+ * <p>
+ * 规范化内容包括排序后的 indices、types、routing、preference、search_type、indices_options、request_cache、
+ * allow_partial_search_results、请求头（如认证信息，不同用户的结果可能不同）和 {@code SearchSourceBuilder}。
+ * {@code SearchSourceBuilder} 先序列化为 JSON，再把所有对象的字段按名称排序，数组保持原顺序，
+ * 字段顺序不同但语义相同的请求（如 script params 来自不同的 map）得到相同的 key
+ *
+ */
+public final class SearchCacheKey {
+
+    private static final long HASH_SEED = 0x5eedL;
+
+    private final long hash1;
+
+    private final long hash2;
+
+    private final String[] indices;
+
+    private SearchCacheKey(long hash1, long hash2, String[] indices) {
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+        this.indices = indices;
+    }
+
+    /**
+     * @return scroll 请求和显式关闭 request_cache 的请求不缓存，返回 null
+     */
+    public static SearchCacheKey of(SearchRequest searchRequest, RequestOptions options) {
+        if (searchRequest.scroll() != null || Boolean.FALSE.equals(searchRequest.requestCache())) {
+            return null;
+        }
+        String[] indices = searchRequest.indices().clone();
+        Arrays.sort(indices);
+        try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
+            builder.startObject();
+            builder.array("indices", indices);
+            builder.array("types", searchRequest.types());
+            builder.field("routing", searchRequest.routing());
+            builder.field("preference", searchRequest.preference());
+            builder.field("search_type", searchRequest.searchType().name());
+            builder.field("indices_options", searchRequest.indicesOptions().toString());
+            builder.field("request_cache", searchRequest.requestCache());
+            builder.field("allow_partial_search_results", searchRequest.allowPartialSearchResults());
+            if (options != null && !options.getHeaders().isEmpty()) {
+                List<String> headers = new ArrayList<>(options.getHeaders().size());
+                for (Header header : options.getHeaders()) {
+                    headers.add(header.getName() + ':' + header.getValue());
+                }
+                headers.sort(null);
+                builder.field("headers", headers);
+            }
+            if (searchRequest.source() != null) {
+                XContentBuilder source = XContentFactory.jsonBuilder();
+                searchRequest.source().toXContent(source, ToXContent.EMPTY_PARAMS);
+                Map<String, Object> sourceMap = XContentHelper.convertToMap(BytesReference.bytes(source), false, XContentType.JSON).v2();
+                builder.field("source", canonical(sourceMap));
+            }
+            builder.endObject();
+            BytesRef bytes = BytesReference.bytes(builder).toBytesRef();
+            MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes.bytes, bytes.offset, bytes.length, HASH_SEED, new MurmurHash3.Hash128());
+            return new SearchCacheKey(hash.h1, hash.h2, indices);
+        } catch (IOException e) {
+            //只在内存中序列化，不会发生；无法序列化的请求不缓存
+            return null;
+        }
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), canonical(entry.getValue()));
+            }
+            return sorted;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> canonical = new ArrayList<>(list.size());
+            for (Object item : list) {
+                canonical.add(canonical(item));
+            }
+            return canonical;
+        }
+        return value;
+    }
+
+    /**
+     * @return 请求中的 index/别名/通配符，已排序，为空表示所有索引
+     */
+    public String[] getIndices() {
+        return indices.clone();
+    }
+
+    /**
+     * 写入 index 是否可能影响这个请求的结果：请求没有指定索引、包含 _all、日期表达式或排除表达式时按可能影响处理.
+     * 只按名称和通配符匹配，不解析别名：通过别名搜索、通过实际索引写入（或相反）时不会失效，写入请使用和搜索相同的名称
+     */
+    public boolean matches(String index) {
+        if (indices.length == 0) {
+            return true;
+        }
+        for (String expression : indices) {
+            if (expression.equals(index) || Regex.isMatchAllPattern(expression) || "_all".equals(expression)
+                    || expression.startsWith("<") || expression.startsWith("-") || Regex.simpleMatch(expression, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SearchCacheKey that = (SearchCacheKey) o;
+        return hash1 == that.hash1 && hash2 == that.hash2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash1 ^ (hash1 >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCacheKey{" + Arrays.toString(indices) + ", " + Long.toHexString(hash1) + Long.toHexString(hash2) + '}';
+    }
+}
@@ -4,6 +4,10 @@ public class ElasticsearchClientConfigure {
 
     public static final String PREFIX = "spring.es";
 
+    public static final String NODE_SELECTION_ROUND_ROBIN = "round-robin";
+
+    public static final String NODE_SELECTION_LATENCY_AWARE = "latency-aware";
+
     private String[] hosts;
 
 
@@ -22,6 +26,65 @@ public class ElasticsearchClientConfigure {
 
     private int maxConnectPerRoute;
 
+    /**
+     * I/O reactor 线程数，默认为cpu核数
+     */
+    private int ioThreadCount;
+
+    private boolean soKeepAlive = false;
+
+    private boolean tcpNoDelay = true;
+
+    /**
+     * socket 发送缓冲区大小(byte)，默认使用系统配置
+     */
+    private int sndBufSize;
+
+    /**
+     * socket 接收缓冲区大小(byte)，默认使用系统配置
+     */
+    private int rcvBufSize;
+
+    /**
+     * I/O reactor select 间隔(ms)，默认1000
+     */
+    private long selectInterval;
+
+    /**
+     * 连接最大存活时间(ms)，超过后连接不再复用，默认不限制
+     */
+    private long connectionTimeToLive;
+
+    /**
+     * 空闲连接保活时间(ms)，服务端返回的 Keep-Alive 更短时以服务端为准，默认不限制
+     */
+    private long keepAliveTime;
+
+    /**
+     * 节点选择策略：round-robin(默认，RestClient 自带轮询) / latency-aware(按节点耗时选择)
+     */
+    private String nodeSelection = NODE_SELECTION_ROUND_ROBIN;
+
+    /**
+     * 节点嗅探，开启后定期通过 _nodes/http 发现集群中的所有http节点，需要依赖 elasticsearch-rest-client-sniffer
+     */
+    private boolean sniffEnabled = false;
+
+    /**
+     * 定期嗅探间隔(ms)
+     */
+    private int sniffIntervalMillis = 5 * 60 * 1000;
+
+    /**
+     * 请求失败时立即嗅探
+     */
+    private boolean sniffOnFailure = true;
+
+    /**
+     * 失败嗅探之后下一次嗅探的间隔(ms)
+     */
+    private int sniffAfterFailureDelayMillis = 60 * 1000;
+
 
     public String[] getHosts() {
         return hosts;
@@ -51,6 +114,10 @@ public class ElasticsearchClientConfigure {
         return socketTimeOut;
     }
 
+    public void setSocketTimeOut(int socketTimeOut) {
+        this.socketTimeOut = socketTimeOut;
+    }
+
 
     public int getConnectionRequestTimeOut() {
         return connectionRequestTimeOut;
@@ -76,4 +143,108 @@ public class ElasticsearchClientConfigure {
         this.maxConnectPerRoute = maxConnectPerRoute;
     }
 
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    public void setIoThreadCount(int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    public boolean isSoKeepAlive() {
+        return soKeepAlive;
+    }
+
+    public void setSoKeepAlive(boolean soKeepAlive) {
+        this.soKeepAlive = soKeepAlive;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getSndBufSize() {
+        return sndBufSize;
+    }
+
+    public void setSndBufSize(int sndBufSize) {
+        this.sndBufSize = sndBufSize;
+    }
+
+    public int getRcvBufSize() {
+        return rcvBufSize;
+    }
+
+    public void setRcvBufSize(int rcvBufSize) {
+        this.rcvBufSize = rcvBufSize;
+    }
+
+    public long getSelectInterval() {
+        return selectInterval;
+    }
+
+    public void setSelectInterval(long selectInterval) {
+        this.selectInterval = selectInterval;
+    }
+
+    public long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    public void setConnectionTimeToLive(long connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public void setKeepAliveTime(long keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public String getNodeSelection() {
+        return nodeSelection;
+    }
+
+    public void setNodeSelection(String nodeSelection) {
+        this.nodeSelection = nodeSelection;
+    }
+
+    public boolean isSniffEnabled() {
+        return sniffEnabled;
+    }
+
+    public void setSniffEnabled(boolean sniffEnabled) {
+        this.sniffEnabled = sniffEnabled;
+    }
+
+    public int getSniffIntervalMillis() {
+        return sniffIntervalMillis;
+    }
+
+    public void setSniffIntervalMillis(int sniffIntervalMillis) {
+        this.sniffIntervalMillis = sniffIntervalMillis;
+    }
+
+    public boolean isSniffOnFailure() {
+        return sniffOnFailure;
+    }
+
+    public void setSniffOnFailure(boolean sniffOnFailure) {
+        this.sniffOnFailure = sniffOnFailure;
+    }
+
+    public int getSniffAfterFailureDelayMillis() {
+        return sniffAfterFailureDelayMillis;
+    }
+
+    public void setSniffAfterFailureDelayMillis(int sniffAfterFailureDelayMillis) {
+        this.sniffAfterFailureDelayMillis = sniffAfterFailureDelayMillis;
+    }
+
 }
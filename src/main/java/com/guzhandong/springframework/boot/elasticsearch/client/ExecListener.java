@@ -0,0 +1,27 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+/**
+ * {@link RestHighLevelClient} 执行过程的监听接口，用于统计连接池借出耗时和每个接口的请求耗时.
+ * <p>
+ * 回调可能在调用线程或 I/O 线程上执行，实现需要线程安全且不能阻塞。
+ *
+ */
+public interface ExecListener {
+
+    /**
+     * 从连接池借出 client 完成
+     * @param waitNanos 借出等待耗时
+     */
+    default void onBorrow(long waitNanos) {
+    }
+
+    /**
+     * 一次请求完成
+     * @param operation 接口名称，如 search、bulk
+     * @param elapsedNanos 请求耗时
+     * @param response 请求结果，失败时为 null
+     * @param failure 失败原因，成功时为 null
+     */
+    default void onComplete(String operation, long elapsedNanos, Object response, Throwable failure) {
+    }
+}
@@ -1,10 +1,28 @@
 package com.guzhandong.springframework.boot.elasticsearch.client;
 
+import com.guzhandong.springframework.boot.elasticsearch.bulk.NdjsonBulkRequest;
+import com.guzhandong.springframework.boot.elasticsearch.cache.DocumentCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.DocumentCacheKey;
+import com.guzhandong.springframework.boot.elasticsearch.cache.MultiGetCacheLookup;
+import com.guzhandong.springframework.boot.elasticsearch.cache.SearchCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.SearchCacheKey;
+import com.guzhandong.springframework.boot.elasticsearch.exception.impl.ConcurrencyLimitExceededException;
 import com.guzhandong.springframework.boot.elasticsearch.exception.impl.GetActiveClientException;
+import com.guzhandong.springframework.boot.elasticsearch.hedge.HedgePolicy;
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiter;
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryPolicy;
 import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchSharedClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.routing.LatencyAwareNodeSelector;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeLatencyTracker;
+import com.guzhandong.springframework.boot.elasticsearch.search.StreamingSearchResponse;
 import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -19,18 +37,48 @@ import org.elasticsearch.action.main.MainResponse;
 import org.elasticsearch.action.search.*;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.IndicesClient;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * es 高级客户端连接池版本实现，完全覆盖了官方 ${@link org.elasticsearch.client.RestHighLevelClient} 的public方法.
  * <p>
  * 使用同步接口的使用方式和官方没有任何区别，同步接口在调用完成后会自动调用 {@link #releaseClient} 方法来释放client 到资源池中<br>
  * 其中异步接口完成后需要主动调用 {@link #releaseClient} 方法来释放client 到资源池中，否则将导致大量连接被占用，新的线程获取连接的时候没有可用连接。<br>
- * 在使用同步/异步API的过程中，如果当前线程正在使用client，没有释放，再一次使用API(同步/异步)的时候回主动释放当前线程持有的client资源到连接池，这个请特别注意。
+ * 在使用同步/异步API的过程中，如果当前线程正在使用client，没有释放，再一次使用API(同步/异步)的时候回主动释放当前线程持有的client资源到连接池，这个请特别注意。<br>
+ * 返回 {@link CompletableFuture} 的接口（如 {@link #searchFuture}）不绑定当前线程，请求完成后自动释放client，不需要调用 {@link #releaseClient}。
  *
  */
 public class RestHighLevelClient {
@@ -42,16 +90,178 @@ public class RestHighLevelClient {
     private final ThreadLocal<org.elasticsearch.client.RestHighLevelClient> threadLocal = new ThreadLocal<>();
 
 
+    private NodeLatencyTracker nodeLatencyTracker;
+
+    private final List<ExecListener> execListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private RetryPolicy retryPolicy;
+
+    private HedgePolicy hedgePolicy;
+
+    private DocumentCache documentCache;
+
+    private SearchCache searchCache;
+
     public RestHighLevelClient(ElasticsearchClientPool elasticsearchClientPool) {
         this.elasticsearchClientPool = elasticsearchClientPool;
     }
 
+    /**
+     * 设置节点耗时统计，设置后每次请求结束时减少 {@link LatencyAwareNodeSelector} 选中节点的在途请求数，
+     * 耗时由 {@link com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory} 按实际响应的节点记录
+     * 节点故障时同步方法和返回 {@link CompletableFuture} 的方法换到未尝试过的节点重发，以 {@link ActionListener} 回调的 *Async 方法不重发
+     * @param nodeLatencyTracker
+     */
+    public void setNodeLatencyTracker(NodeLatencyTracker nodeLatencyTracker) {
+        this.nodeLatencyTracker = nodeLatencyTracker;
+    }
+
+    /**
+     * 设置并发限制，设置后在途请求数达到上限时直接抛出 {@link ConcurrencyLimitExceededException}，不再阻塞在连接池上
+     * @param concurrencyLimiter
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * 设置重试策略，设置后策略中配置的接口在临时性失败时按退避重试，见 {@link RetryPolicy}
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 设置对冲策略，设置后策略中配置的读接口超过耗时分位数未返回时向另一个节点发出相同请求，见 {@link HedgePolicy}.
+     * 同步接口开启对冲后改为异步发出请求并等待结果，不再占用当前线程绑定的client.
+     * 对冲请求通过 {@link #setNodeLatencyTracker} 设置的节点耗时统计避开原请求的节点，没有设置时可能发往同一个节点
+     * @param hedgePolicy
+     */
+    public void setHedgePolicy(HedgePolicy hedgePolicy) {
+        if (this.hedgePolicy != null) {
+            execListeners.remove(this.hedgePolicy);
+        }
+        this.hedgePolicy = hedgePolicy;
+        if (hedgePolicy != null) {
+            addExecListener(hedgePolicy);
+        }
+    }
+
+    /**
+     * 设置 Get/MultiGet 结果缓存，设置后 get/multiGet 先查缓存，index/update/delete/bulk 写入时失效对应的文档，见 {@link DocumentCache}
+     * @param documentCache
+     */
+    public void setDocumentCache(DocumentCache documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    /**
+     * 设置 Search 结果缓存，设置后 search/searchFuture 先查缓存，相同的并发请求共享一次调用，
+     * index/update/delete/bulk 写入时失效对应索引的结果，见 {@link SearchCache}
+     * @param searchCache
+     */
+    public void setSearchCache(SearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    /**
+     * 添加执行过程监听，如 metrics 统计
+     * @param execListener
+     */
+    public void addExecListener(ExecListener execListener) {
+        this.execListeners.add(execListener);
+    }
+
+    private org.elasticsearch.client.RestHighLevelClient borrowClient() throws Exception {
+        if (execListeners.isEmpty()) {
+            return elasticsearchClientPool.borrowObject();
+        }
+        long startNanos = System.nanoTime();
+        org.elasticsearch.client.RestHighLevelClient restHighLevelClient = elasticsearchClientPool.borrowObject();
+        long waitNanos = System.nanoTime() - startNanos;
+        for (ExecListener execListener : execListeners) {
+            execListener.onBorrow(waitNanos);
+        }
+        return restHighLevelClient;
+    }
+
+    /**
+     * 已经借到 client、开始执行的请求数，不包括以 {@link ActionListener} 回调的 *Async 方法.
+     * 共享连接模式下不经过连接池，连接池的 active 等统计不反映请求数，以此为准
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * 请求开始执行，和 {@link #fireComplete} 成对调用
+     */
+    private long fireStart() {
+        inFlightRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    private void fireComplete(String operation, long startNanos, Object response, Throwable failure) {
+        inFlightRequests.decrementAndGet();
+        fireListeners(operation, System.nanoTime() - startNanos, response, failure);
+    }
+
+    private void fireListeners(String operation, long elapsedNanos, Object response, Throwable failure) {
+        if (operation == null || execListeners.isEmpty()) {
+            return;
+        }
+        for (ExecListener execListener : execListeners) {
+            try {
+                execListener.onComplete(operation, elapsedNanos, response, failure);
+            } catch (RuntimeException e) {
+                logUtil.debug("es exec listener exception:{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 占用一个并发名额，达到上限时抛出 {@link ConcurrencyLimitExceededException}.
+     * 上限不超过连接池当前的 maxTotal，否则超出的请求仍会阻塞在连接池上
+     * @param operation
+     */
+    private void acquirePermit(String operation) {
+        if (concurrencyLimiter == null) {
+            return;
+        }
+        int maxInFlight = elasticsearchClientPool instanceof ElasticsearchSharedClientPool ? -1 : elasticsearchClientPool.getMaxTotal();
+        if (!concurrencyLimiter.tryAcquire(maxInFlight)) {
+            ConcurrencyLimitExceededException e = new ConcurrencyLimitExceededException(concurrencyLimiter.getLimit(maxInFlight));
+            fireListeners(operation, 0, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 释放并发名额并反馈请求耗时
+     * @param startNanos 为 -1 时只释放不反馈
+     * @param failure
+     */
+    private void releasePermit(long startNanos, Throwable failure) {
+        if (concurrencyLimiter != null) {
+            if (startNanos < 0) {
+                concurrencyLimiter.release();
+            } else {
+                concurrencyLimiter.release(System.nanoTime() - startNanos, failure);
+            }
+        }
+    }
+
     private org.elasticsearch.client.RestHighLevelClient getClient()  {
         if (threadLocal.get()!=null){
             releaseClient();
         }
         try {
-            org.elasticsearch.client.RestHighLevelClient restHighLevelClient = elasticsearchClientPool.borrowObject();
+            org.elasticsearch.client.RestHighLevelClient restHighLevelClient = borrowClient();
             threadLocal.set(restHighLevelClient);
             return restHighLevelClient;
         } catch (Exception e) {
@@ -78,7 +288,18 @@ public class RestHighLevelClient {
      * @return {@link Object}
      */
     public Object exec(Call call){
-        return exec(call,true);
+        return exec(null,call,true);
+    }
+
+    /**
+     *
+     * 执行方法，执行前从连接池获取一个连接，执行完后归还连接到连接池
+     * @param operation 接口名称，用于 {@link ExecListener} 统计
+     * @param call {@link Call}
+     * @return {@link Object}
+     */
+    public Object exec(String operation,Call call){
+        return exec(operation,call,true);
     }
 
     /**
@@ -90,19 +311,201 @@ public class RestHighLevelClient {
      */
 
     public Object exec(Call call,boolean releaseClient){
-        org.elasticsearch.client.RestHighLevelClient restHighLevelClient = getClient();
+        return exec(null,call,releaseClient);
+    }
+
+    /**
+     *
+     * 执行方法，执行前从连接池获取一个连接.
+     * 发生 {@link IOException} 时返回 null，需要区分失败的调用方请使用声明了 {@link IOException} 的具体接口方法
+     * @param operation 接口名称，用于 {@link ExecListener} 统计和 {@link RetryPolicy} 判断是否重试，为 null 时不统计不重试
+     * @param call {@link Call}
+     * @param releaseClient  该方法执行完成后是否释放client到资源池
+     * @return {@link Object}
+     */
+    public Object exec(String operation,Call call,boolean releaseClient){
         try {
-            return call.hanl(restHighLevelClient);
+            return execChecked(operation, call, releaseClient);
         } catch (IOException e) {
+            logUtil.debug("es exec {} io exception:{}", operation, e.getMessage());
             return null;
         }
+    }
+
+    private Object execChecked(String operation,Call call) throws IOException {
+        return execChecked(operation, call, true);
+    }
+
+    /**
+     * 执行读接口，开启对冲时通过异步接口发出请求并等待结果
+     */
+    private <T> Object execRead(String operation,Call call,AsyncCall<T> asyncCall) throws IOException {
+        return execRead(operation, call, asyncCall, true);
+    }
+
+    /**
+     * 执行读接口，见 {@link #execRead(String, Call, AsyncCall)}
+     * @param idempotent 为 false 时不对冲也不重试，如开启 scroll 的搜索每发出一次都会在服务端创建一个 scroll 上下文
+     */
+    private <T> Object execRead(String operation,Call call,AsyncCall<T> asyncCall,boolean idempotent) throws IOException {
+        if (!idempotent) {
+            return execOnce(operation, call, true, null);
+        }
+        HedgePolicy policy = hedgePolicy;
+        if (policy == null || !policy.isHedged(operation)) {
+            return execChecked(operation, call);
+        }
+        return await(operation, execFuture(operation, asyncCall));
+    }
+
+    /**
+     * 等待 future 完成，失败时抛出原始异常，等待被中断时取消 future
+     */
+    private static <T> T await(String operation,CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("es exec " + operation + " interrupted");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 执行方法，按 {@link RetryPolicy} 重试，最后一次失败的异常原样抛出
+     */
+    private Object execChecked(String operation,Call call,boolean releaseClient) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        //不释放client的调用由调用方继续使用该client，不能重试
+        if (policy == null || !releaseClient || !policy.isRetryable(operation)) {
+            return execOnce(operation, call, releaseClient, null);
+        }
+        policy.onCall();
+        long startNanos = System.nanoTime();
+        AtomicReference<HttpHost> selectedHost = new AtomicReference<>();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execOnce(operation, call, true, selectedHost);
+            } catch (IOException | RuntimeException e) {
+                long backoffNanos = policy.nextBackoffNanos(attempt, startNanos, e);
+                if (backoffNanos < 0) {
+                    throw e;
+                }
+                logUtil.debug("es exec {} attempt {} failed, retry after {}ms:{}", operation, attempt,
+                        TimeUnit.NANOSECONDS.toMillis(backoffNanos), e.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                avoidNode(selectedHost.getAndSet(null));
+            }
+        }
+    }
+
+    /**
+     * 重试时避开上一次失败的节点；没有开启按耗时选择节点时，RestClient 自身按轮询顺序换到下一个节点
+     */
+    private void avoidNode(HttpHost host) {
+        if (nodeLatencyTracker != null && host != null) {
+            nodeLatencyTracker.avoidNext(host);
+        }
+    }
+
+    /**
+     * 执行一次请求
+     * @param selectedHost 不为 null 时写入处理该请求的节点
+     */
+    private Object execOnce(String operation,Call call,boolean releaseClient,AtomicReference<HttpHost> selectedHost) throws IOException {
+        acquirePermit(operation);
+        org.elasticsearch.client.RestHighLevelClient restHighLevelClient;
+        try {
+            restHighLevelClient = getClient();
+        } catch (RuntimeException e) {
+            releasePermit(-1, null);
+            throw e;
+        }
+        long startNanos = fireStart();
+        Object response = null;
+        Throwable failure = null;
+        AtomicReference<HttpHost> attemptHost = new AtomicReference<>();
+        try {
+            response = callWithFailover(call, restHighLevelClient, attemptHost);
+            return response;
+        } catch (IOException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        }
         finally {
+            if (selectedHost != null) {
+                selectedHost.set(attemptHost.get());
+            }
+            releasePermit(startNanos, failure);
+            fireComplete(operation, startNanos, response, failure);
             if (releaseClient) {
                 releaseClient();
             }
         }
     }
 
+    /**
+     * 执行请求并减少选中节点的在途请求数.
+     * 开启按耗时选择节点时请求只发往选中的一个节点，RestClient 不会再换节点重试，
+     * 因此节点故障时在同一个 client 上换到还没有尝试过的节点重发，见 {@link #failoverNext}
+     * @param selectedHost 写入最后一次尝试的节点，没有开启按耗时选择节点时不写入
+     */
+    private Object callWithFailover(Call call, org.elasticsearch.client.RestHighLevelClient restHighLevelClient,
+                                    AtomicReference<HttpHost> selectedHost) throws IOException {
+        if (nodeLatencyTracker == null) {
+            return call.hanl(restHighLevelClient);
+        }
+        Set<HttpHost> tried = new HashSet<>();
+        while (true) {
+            try {
+                Object response = call.hanl(restHighLevelClient);
+                selectedHost.set(completeSelectedNode());
+                return response;
+            } catch (IOException | RuntimeException | Error e) {
+                HttpHost host = completeSelectedNode();
+                selectedHost.set(host);
+                if (!failoverNext(e, host, tried, restHighLevelClient)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 节点故障（见 {@link RetryPolicy#isNodeFailure}）时标记当前线程下一次选节点避开已经尝试过的节点，
+     * 和 RestClient 默认的换节点重试一样，所有节点都尝试过后不再重发
+     * @return 是否需要换节点重发
+     */
+    private boolean failoverNext(Throwable failure, HttpHost host, Set<HttpHost> tried,
+                                 org.elasticsearch.client.RestHighLevelClient restHighLevelClient) {
+        if (host == null || !RetryPolicy.isNodeFailure(failure) || !tried.add(host)
+                || tried.size() >= restHighLevelClient.getLowLevelClient().getNodes().size()) {
+            return false;
+        }
+        logUtil.debug("es node {} failed, send to another node:{}", host, failure.getMessage());
+        nodeLatencyTracker.avoidNext(tried);
+        return true;
+    }
+
     /**
      * 执行方法，执行前从连接池获取一个连接，该方法执行完成后将释放client到资源池
      * @param call {@link VoidCall}
@@ -116,13 +519,23 @@ public class RestHighLevelClient {
      * @param releaseClient  该方法执行完成后是否释放client到资源池
      */
     public void execReturnVoid(VoidCall call,boolean releaseClient){
-        org.elasticsearch.client.RestHighLevelClient restHighLevelClient = getClient();
+        acquirePermit(null);
+        org.elasticsearch.client.RestHighLevelClient restHighLevelClient;
+        try {
+            restHighLevelClient = getClient();
+        } catch (RuntimeException e) {
+            releasePermit(-1, null);
+            throw e;
+        }
         try {
             call.hanl(restHighLevelClient);
         } catch (IOException e) {
 
         }
         finally {
+            //回调由调用方处理，拿不到请求耗时
+            releasePermit(-1, null);
+            completeSelectedNode();
             if (releaseClient) {
                 releaseClient();
             }
@@ -131,6 +544,390 @@ public class RestHighLevelClient {
 
 
 
+    /**
+     * 异步执行方法，执行前从连接池获取一个连接（不绑定到当前线程），请求完成或失败时自动归还连接，且只归还一次.
+     * 返回的 {@link CompletableFuture} 被 cancel 时会同时取消底层的 http 请求
+     * @param call {@link AsyncCall}
+     * @return {@link CompletableFuture}
+     */
+    public <T> CompletableFuture<T> execFuture(AsyncCall<T> call) {
+        return execFuture(null, call);
+    }
+
+    /**
+     * 异步执行方法，见 {@link #execFuture(AsyncCall)}
+     * @param operation 接口名称，用于 {@link ExecListener} 统计和 {@link RetryPolicy} 判断是否重试，为 null 时不统计不重试
+     * @param call {@link AsyncCall}
+     * @return {@link CompletableFuture}
+     */
+    public <T> CompletableFuture<T> execFuture(String operation, AsyncCall<T> call) {
+        return execFuture(operation, call, true);
+    }
+
+    /**
+     * 异步执行方法，见 {@link #execFuture(AsyncCall)}
+     * @param idempotent 为 false 时不对冲也不重试，见 {@link #execRead(String, Call, AsyncCall, boolean)}
+     */
+    private <T> CompletableFuture<T> execFuture(String operation, AsyncCall<T> call, boolean idempotent) {
+        RetryPolicy policy = retryPolicy;
+        if (!idempotent || policy == null || !policy.isRetryable(operation)) {
+            return execFutureAttempt(operation, call, idempotent, new AtomicReference<>());
+        }
+        policy.onCall();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execFutureRetry(operation, call, idempotent, policy, future, 1, System.nanoTime());
+        return future;
+    }
+
+    /**
+     * 发起第 attempt 次尝试，失败后按 {@link RetryPolicy} 在后台线程上延迟发起下一次，future 被 cancel 时取消当前尝试
+     */
+    private <T> void execFutureRetry(String operation, AsyncCall<T> call, boolean idempotent, RetryPolicy policy,
+                                     CompletableFuture<T> future, int attempt, long startNanos) {
+        AtomicReference<HttpHost> selectedHost = new AtomicReference<>();
+        CompletableFuture<T> attemptFuture = execFutureAttempt(operation, call, idempotent, selectedHost);
+        future.whenComplete((response, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                attemptFuture.cancel(false);
+            }
+        });
+        attemptFuture.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                future.complete(response);
+                return;
+            }
+            Throwable failure = unwrap(throwable);
+            if (future.isDone()) {
+                return;
+            }
+            long backoffNanos = policy.nextBackoffNanos(attempt, startNanos, failure);
+            if (backoffNanos < 0) {
+                future.completeExceptionally(failure);
+                return;
+            }
+            logUtil.debug("es exec {} attempt {} failed, retry after {}ms:{}", operation, attempt,
+                    TimeUnit.NANOSECONDS.toMillis(backoffNanos), failure.getMessage());
+            policy.schedule(() -> {
+                if (!future.isDone()) {
+                    avoidNode(selectedHost.get());
+                    execFutureRetry(operation, call, idempotent, policy, future, attempt + 1, startNanos);
+                }
+            }, backoffNanos);
+        });
+    }
+
+    /**
+     * 异步执行一次尝试，开启对冲且已有足够耗时样本时按 {@link HedgePolicy} 对冲
+     * @param idempotent 为 false 时不对冲
+     * @param selectedHost 写入处理该请求的节点
+     */
+    private <T> CompletableFuture<T> execFutureAttempt(String operation, AsyncCall<T> call, boolean idempotent,
+                                                       AtomicReference<HttpHost> selectedHost) {
+        HedgePolicy policy = hedgePolicy;
+        if (!idempotent || policy == null || !policy.isHedged(operation)) {
+            return execFutureOnce(operation, call, selectedHost);
+        }
+        policy.onCall();
+        long delayNanos = policy.hedgeDelayNanos(operation);
+        if (delayNanos < 0) {
+            return execFutureOnce(operation, call, selectedHost);
+        }
+        return execFutureHedged(operation, call, policy, delayNanos, selectedHost);
+    }
+
+    /**
+     * 先发出原请求，delayNanos 后还没有返回时向另一个节点发出对冲请求.
+     * 先成功的结果生效并取消另一个请求；两个请求都失败时以最后一个失败结束
+     */
+    private <T> CompletableFuture<T> execFutureHedged(String operation, AsyncCall<T> call, HedgePolicy policy,
+                                                      long delayNanos, AtomicReference<HttpHost> selectedHost) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        //未结束的请求数，降到 0 后不再发出对冲请求
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> hedgeFuture = new AtomicReference<>();
+        AtomicReference<HttpHost> hedgeHost = new AtomicReference<>();
+        CompletableFuture<T> primaryFuture = execFutureOnce(operation, call, selectedHost);
+        BiConsumer<T, Throwable> onPrimary = (response, throwable) -> {
+            if (throwable == null) {
+                if (future.complete(response)) {
+                    cancelAttempt(hedgeFuture.get());
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                future.completeExceptionally(unwrap(throwable));
+            }
+        };
+        BiConsumer<T, Throwable> onHedge = (response, throwable) -> {
+            if (throwable == null) {
+                if (future.complete(response)) {
+                    policy.onHedgeWin();
+                    selectedHost.set(hedgeHost.get());
+                    cancelAttempt(primaryFuture);
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                future.completeExceptionally(unwrap(throwable));
+            }
+        };
+        ScheduledFuture<?> timer = policy.schedule(() -> {
+            if (future.isDone() || poolSaturated() || !policy.tryHedge()) {
+                return;
+            }
+            int current;
+            do {
+                current = pending.get();
+                if (current == 0) {
+                    return;
+                }
+            } while (!pending.compareAndSet(current, current + 1));
+            logUtil.debug("es exec {} not completed after {}ms, send hedged request", operation,
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            avoidNode(selectedHost.get());
+            CompletableFuture<T> attemptFuture = execFutureOnce(operation, call, hedgeHost);
+            hedgeFuture.set(attemptFuture);
+            if (future.isDone()) {
+                cancelAttempt(attemptFuture);
+            }
+            attemptFuture.whenComplete(onHedge);
+        }, delayNanos);
+        primaryFuture.whenComplete(onPrimary);
+        future.whenComplete((response, throwable) -> {
+            timer.cancel(false);
+            if (throwable instanceof CancellationException) {
+                cancelAttempt(primaryFuture);
+                cancelAttempt(hedgeFuture.get());
+            }
+        });
+        return future;
+    }
+
+    private static void cancelAttempt(CompletableFuture<?> attemptFuture) {
+        if (attemptFuture != null) {
+            attemptFuture.cancel(false);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * 连接池已经没有空闲 client，此时对冲只会排队等待并加重负载
+     */
+    private boolean poolSaturated() {
+        return !(elasticsearchClientPool instanceof ElasticsearchSharedClientPool)
+                && elasticsearchClientPool.getMaxTotal() >= 0
+                && elasticsearchClientPool.getNumActive() >= elasticsearchClientPool.getMaxTotal();
+    }
+
+    /**
+     * 异步执行一次请求
+     * @param selectedHost 写入处理该请求的节点
+     */
+    private <T> CompletableFuture<T> execFutureOnce(String operation, AsyncCall<T> call, AtomicReference<HttpHost> selectedHost) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            acquirePermit(operation);
+        } catch (ConcurrencyLimitExceededException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        org.elasticsearch.client.RestHighLevelClient restHighLevelClient;
+        try {
+            restHighLevelClient = borrowClient();
+        } catch (Exception e) {
+            releasePermit(-1, null);
+            future.completeExceptionally(new GetActiveClientException(e));
+            return future;
+        }
+        long startNanos = fireStart();
+        AtomicBoolean released = new AtomicBoolean(false);
+        //正常结束时反馈耗时，取消或发起失败时只释放名额
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                releasePermit(-1, null);
+                elasticsearchClientPool.returnObject(restHighLevelClient);
+            }
+        };
+        AtomicReference<Cancellable> cancellable = new AtomicReference<>();
+        try {
+            sendWithFailover(call, restHighLevelClient, new ActionListener<T>() {
+                @Override
+                public void onResponse(T response) {
+                    fireComplete(operation, startNanos, response, null);
+                    if (released.compareAndSet(false, true)) {
+                        releasePermit(startNanos, null);
+                        elasticsearchClientPool.returnObject(restHighLevelClient);
+                    }
+                    future.complete(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    fireComplete(operation, startNanos, null, e);
+                    if (released.compareAndSet(false, true)) {
+                        releasePermit(startNanos, e);
+                        elasticsearchClientPool.returnObject(restHighLevelClient);
+                    }
+                    future.completeExceptionally(e);
+                }
+            }, selectedHost, new HashSet<>(), cancellable, future);
+            future.whenComplete((response, throwable) -> {
+                if (throwable instanceof CancellationException) {
+                    cancellable.get().cancel();
+                    release.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            fireComplete(operation, startNanos, null, e);
+            release.run();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 异步发出一次尝试，见 {@link #callWithFailover}.
+     * 选节点在发起请求的线程上同步完成，请求可能已经在 I/O 线程上结束，两者都完成后才减少选中节点的在途请求数，
+     * 节点故障时在同一个 client 上换节点重发，否则把结果交给 listener
+     * @param selectedHost 写入最后一次尝试的节点
+     * @param cancellable 写入当前尝试，用于取消
+     * @param future 已经结束（如被取消）时不再换节点重发
+     */
+    private <T> void sendWithFailover(AsyncCall<T> call, org.elasticsearch.client.RestHighLevelClient restHighLevelClient,
+                                      ActionListener<T> listener, AtomicReference<HttpHost> selectedHost, Set<HttpHost> tried,
+                                      AtomicReference<Cancellable> cancellable, CompletableFuture<T> future) {
+        if (nodeLatencyTracker == null) {
+            cancellable.set(call.hanl(restHighLevelClient, listener));
+            return;
+        }
+        AtomicInteger pending = new AtomicInteger(2);
+        AtomicReference<T> response = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Runnable complete = () -> {
+            HttpHost host = selectedHost.get();
+            if (host != null) {
+                nodeLatencyTracker.onComplete(host);
+            }
+            Exception e = failure.get();
+            if (e == null) {
+                listener.onResponse(response.get());
+            } else if (!future.isDone() && failoverNext(e, host, tried, restHighLevelClient)) {
+                try {
+                    sendWithFailover(call, restHighLevelClient, listener, selectedHost, tried, cancellable, future);
+                } catch (RuntimeException sendFailure) {
+                    nodeLatencyTracker.takeAvoided();
+                    listener.onFailure(sendFailure);
+                }
+            } else {
+                listener.onFailure(e);
+            }
+        };
+        cancellable.set(call.hanl(restHighLevelClient, new ActionListener<T>() {
+            @Override
+            public void onResponse(T result) {
+                response.set(result);
+                if (pending.decrementAndGet() == 0) {
+                    complete.run();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failure.set(e);
+                if (pending.decrementAndGet() == 0) {
+                    complete.run();
+                }
+            }
+        }));
+        selectedHost.set(nodeLatencyTracker.takeSelected());
+        if (pending.decrementAndGet() == 0) {
+            complete.run();
+        }
+    }
+
+    /**
+     * 失效写入请求涉及的文档缓存和索引的搜索缓存
+     */
+    private void invalidateCached(DocWriteRequest<?> request) {
+        DocumentCache cache = documentCache;
+        if (cache != null) {
+            cache.invalidate(request.index(), request.id());
+        }
+        SearchCache search = searchCache;
+        if (search != null) {
+            search.invalidate(request.index());
+        }
+    }
+
+    private void invalidateCached(BulkRequest bulkRequest) {
+        DocumentCache cache = documentCache;
+        if (cache != null) {
+            for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                cache.invalidate(request.index(), request.id());
+            }
+        }
+        SearchCache search = searchCache;
+        if (search != null) {
+            //搜索缓存按索引失效，每个索引只失效一次
+            Set<String> indices = new HashSet<>();
+            for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                if (indices.add(request.index())) {
+                    search.invalidate(request.index());
+                }
+            }
+        }
+    }
+
+    private void invalidateCached(NdjsonBulkRequest bulkRequest) {
+        DocumentCache cache = documentCache;
+        SearchCache search = searchCache;
+        if (cache == null && search == null) {
+            return;
+        }
+        Set<String> indices = new HashSet<>();
+        bulkRequest.forEachDocument((index, id) -> {
+            if (cache != null && id != null) {
+                cache.invalidate(index, id);
+            }
+            if (search != null && indices.add(index)) {
+                search.invalidate(index);
+            }
+        });
+    }
+
+    /**
+     * 写入请求发出前失效一次；请求结束、回调执行前再失效一次，避免请求期间读到的旧结果写回缓存后被回调中的读取命中
+     */
+    private <T> ActionListener<T> invalidateCached(DocWriteRequest<?> request, ActionListener<T> listener) {
+        if (documentCache == null && searchCache == null) {
+            return listener;
+        }
+        invalidateCached(request);
+        return ActionListener.runBefore(listener, () -> invalidateCached(request));
+    }
+
+    private <T> ActionListener<T> invalidateCached(BulkRequest bulkRequest, ActionListener<T> listener) {
+        if (documentCache == null && searchCache == null) {
+            return listener;
+        }
+        invalidateCached(bulkRequest);
+        return ActionListener.runBefore(listener, () -> invalidateCached(bulkRequest));
+    }
+
+    /**
+     * 同步请求结束，减少选中节点的在途请求数
+     * @return 处理该请求的节点，没有开启按耗时选择节点时返回 null
+     */
+    private HttpHost completeSelectedNode() {
+        if (nodeLatencyTracker != null) {
+            HttpHost host = nodeLatencyTracker.takeSelected();
+            if (host != null) {
+                nodeLatencyTracker.onComplete(host);
+            }
+            return host;
+        }
+        return null;
+    }
+
     /**
      * 有参数返回的执行接口
      */
@@ -143,6 +940,12 @@ public class RestHighLevelClient {
     interface VoidCall{
         public void hanl(org.elasticsearch.client.RestHighLevelClient restHighLevelClient) throws IOException;
     }
+    /**
+     * 异步执行接口，请求结果通过 listener 回调
+     */
+    interface AsyncCall<T> {
+        public Cancellable hanl(org.elasticsearch.client.RestHighLevelClient restHighLevelClient, ActionListener<T> listener);
+    }
 
 
     /**
@@ -167,7 +970,12 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
      */
     public final BulkResponse bulk(BulkRequest bulkRequest, RequestOptions options) throws IOException {
-        return (BulkResponse)exec((r)->r.bulk(bulkRequest,options));
+        invalidateCached(bulkRequest);
+        try {
+            return (BulkResponse)execChecked("bulk",(r)->r.bulk(bulkRequest,options));
+        } finally {
+            invalidateCached(bulkRequest);
+        }
     }
 
     /**
@@ -176,21 +984,101 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
      */
     public final void bulkAsync(BulkRequest bulkRequest, RequestOptions options, ActionListener<BulkResponse> listener) {
-        execReturnVoid((r)->r.bulkAsync(bulkRequest,options,listener),false);
+        execReturnVoid((r)->r.bulkAsync(bulkRequest,options,invalidateCached(bulkRequest,listener)),false);
+    }
+
+    /**
+     * Asynchronously executes a bulk request using the Bulk API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
+     */
+    public final CompletableFuture<BulkResponse> bulkFuture(BulkRequest bulkRequest, RequestOptions options) {
+        return execFuture("bulk",(r, listener)->r.bulkAsync(bulkRequest,options,invalidateCached(bulkRequest,listener)));
+    }
+
+    /**
+     * Executes a bulk request built directly as ndjson, bypassing the {@link BulkRequest} object graph, see {@link NdjsonBulkRequest}.
+     * The pooled buffers of the request are released when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
+     */
+    public final BulkResponse bulk(NdjsonBulkRequest bulkRequest, RequestOptions options) throws IOException {
+        try {
+            invalidateCached(bulkRequest);
+            try {
+                //每次尝试使用新的请求体，请求体共享同一组 buffer，对冲请求并发发送时互不影响
+                return (BulkResponse)execChecked("bulk",(r)->parseBulkResponse(r.getLowLevelClient().performRequest(bulkRequest.toRequest(options))));
+            } finally {
+                invalidateCached(bulkRequest);
+            }
+        } finally {
+            bulkRequest.close();
+        }
+    }
+
+    /**
+     * Asynchronously executes a bulk request built directly as ndjson, see {@link #bulk(NdjsonBulkRequest, RequestOptions)}
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
+     */
+    public final CompletableFuture<BulkResponse> bulkFuture(NdjsonBulkRequest bulkRequest, RequestOptions options) {
+        invalidateCached(bulkRequest);
+        CompletableFuture<BulkResponse> future = this.<BulkResponse>execFuture("bulk",(r, listener)->r.getLowLevelClient().performRequestAsync(bulkRequest.toRequest(options),
+                responseListener(listener, RestHighLevelClient::parseBulkResponse)));
+        //请求结束后才能归还 buffer，归还在回调执行前
+        return future.whenComplete((response, e) -> {
+            invalidateCached(bulkRequest);
+            bulkRequest.close();
+        });
+    }
+
+    /**
+     * 把低级客户端的响应回调转换为 {@link ActionListener}，解析失败时回调 onFailure
+     */
+    private static <T> ResponseListener responseListener(ActionListener<T> listener, CheckedFunction<Response, T, IOException> parser) {
+        return new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                T parsed;
+                try {
+                    parsed = parser.apply(response);
+                } catch (IOException | RuntimeException e) {
+                    listener.onFailure(e);
+                    return;
+                }
+                listener.onResponse(parsed);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                listener.onFailure(exception);
+            }
+        };
+    }
+
+    private static BulkResponse parseBulkResponse(Response response) throws IOException {
+        if (response.getEntity() == null) {
+            throw new IOException("bulk response has no body");
+        }
+        try (InputStream content = response.getEntity().getContent();
+             XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                     DeprecationHandler.THROW_UNSUPPORTED_OPERATION, content)) {
+            return BulkResponse.fromXContent(parser);
+        }
     }
 
     /**
      * Pings the remote Elasticsearch cluster and returns true if the ping succeeded, false otherwise
      */
     public final boolean ping(RequestOptions options) throws IOException {
-        return (Boolean) exec((r)->r.ping(options));
+        return (Boolean) execChecked("ping",(r)->r.ping(options));
     }
 
     /**
      * Get the cluster info otherwise provided when sending an HTTP request to port 9200
      */
     public final MainResponse info(RequestOptions options) throws IOException {
-        return (MainResponse)exec((r)->r.info(options));
+        return (MainResponse)execChecked("info",(r)->r.info(options));
     }
 
     /**
@@ -199,7 +1087,19 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-get.html">Get API on elastic.co</a>
      */
     public final GetResponse get(GetRequest getRequest, RequestOptions options) throws IOException {
-        return (GetResponse)exec((r)->r.get(getRequest,options));
+        DocumentCache cache = documentCache;
+        DocumentCacheKey key = cache == null ? null : cache.keyOf(getRequest);
+        GetResponse cached = key == null ? null : cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = key == null ? 0 : cache.stamp(key);
+        GetResponse getResponse = (GetResponse)this.<GetResponse>execRead("get",(r)->r.get(getRequest,options),
+                (r, listener)->r.getAsync(getRequest,options,listener));
+        if (key != null) {
+            cache.put(key, getResponse, stamp);
+        }
+        return getResponse;
     }
 
     /**
@@ -211,13 +1111,49 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.getAsync(getRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously retrieves a document by id using the Get API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-get.html">Get API on elastic.co</a>
+     */
+    public final CompletableFuture<GetResponse> getFuture(GetRequest getRequest, RequestOptions options) {
+        DocumentCache cache = documentCache;
+        DocumentCacheKey key = cache == null ? null : cache.keyOf(getRequest);
+        if (key == null) {
+            return execFuture("get",(r, listener)->r.getAsync(getRequest,options,listener));
+        }
+        GetResponse cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = cache.stamp(key);
+        //在回调之前写入缓存，future 完成后的读取可以命中
+        return execFuture("get",(r, listener)->r.getAsync(getRequest,options,ActionListener.wrap(getResponse -> {
+            cache.put(key, getResponse, stamp);
+            listener.onResponse(getResponse);
+        }, listener::onFailure)));
+    }
+
     /**
      * Retrieves multiple documents by id using the Multi Get API
      *
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-multi-get.html">Multi Get API on elastic.co</a>
      */
     public final MultiGetResponse multiGet(MultiGetRequest multiGetRequest, RequestOptions options) throws IOException {
-        return (MultiGetResponse)exec((r)->r.multiGet(multiGetRequest,options));
+        DocumentCache cache = documentCache;
+        if (cache == null) {
+            return execMultiGet(multiGetRequest, options);
+        }
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(cache, multiGetRequest);
+        if (lookup.getMissRequest() == null) {
+            return lookup.complete();
+        }
+        return lookup.merge(execMultiGet(lookup.getMissRequest(), options));
+    }
+
+    private MultiGetResponse execMultiGet(MultiGetRequest multiGetRequest, RequestOptions options) throws IOException {
+        return (MultiGetResponse)this.<MultiGetResponse>execRead("multiGet",(r)->r.multiGet(multiGetRequest,options),
+                (r, listener)->r.multiGetAsync(multiGetRequest,options,listener));
     }
 
     /**
@@ -229,13 +1165,31 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.multiGetAsync(multiGetRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously retrieves multiple documents by id using the Multi Get API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-multi-get.html">Multi Get API on elastic.co</a>
+     */
+    public final CompletableFuture<MultiGetResponse> multiGetFuture(MultiGetRequest multiGetRequest, RequestOptions options) {
+        DocumentCache cache = documentCache;
+        if (cache == null) {
+            return execFuture("multiGet",(r, listener)->r.multiGetAsync(multiGetRequest,options,listener));
+        }
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(cache, multiGetRequest);
+        MultiGetRequest missRequest = lookup.getMissRequest();
+        if (missRequest == null) {
+            return CompletableFuture.completedFuture(lookup.complete());
+        }
+        return execFuture("multiGet",(r, listener)->r.multiGetAsync(missRequest,options,ActionListener.map(listener, lookup::merge)));
+    }
+
     /**
      * Checks for the existence of a document. Returns true if it exists, false otherwise
      *
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-get.html">Get API on elastic.co</a>
      */
     public final boolean exists(GetRequest getRequest, RequestOptions options) throws IOException {
-        return (Boolean) exec((r)->r.exists(getRequest,options));
+        return (Boolean) execChecked("exists",(r)->r.exists(getRequest,options));
     }
 
     /**
@@ -247,13 +1201,27 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.existsAsync(getRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously checks for the existence of a document, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-get.html">Get API on elastic.co</a>
+     */
+    public final CompletableFuture<Boolean> existsFuture(GetRequest getRequest, RequestOptions options) {
+        return execFuture("exists",(r, listener)->r.existsAsync(getRequest,options,listener));
+    }
+
     /**
      * Index a document using the Index API
      *
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-index_.html">Index API on elastic.co</a>
      */
     public final IndexResponse index(IndexRequest indexRequest, RequestOptions options) throws IOException {
-        return (IndexResponse)exec((r)->r.index(indexRequest,options));
+        invalidateCached(indexRequest);
+        try {
+            return (IndexResponse)execChecked("index",(r)->r.index(indexRequest,options));
+        } finally {
+            invalidateCached(indexRequest);
+        }
     }
 
     /**
@@ -262,7 +1230,16 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-index_.html">Index API on elastic.co</a>
      */
     public final void indexAsync(IndexRequest indexRequest, ActionListener<IndexResponse> listener, RequestOptions options) {
-        execReturnVoid((r)->r.indexAsync(indexRequest,options,listener),false);
+        execReturnVoid((r)->r.indexAsync(indexRequest,options,invalidateCached(indexRequest,listener)),false);
+    }
+
+    /**
+     * Asynchronously index a document using the Index API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-index_.html">Index API on elastic.co</a>
+     */
+    public final CompletableFuture<IndexResponse> indexFuture(IndexRequest indexRequest, RequestOptions options) {
+        return execFuture("index",(r, listener)->r.indexAsync(indexRequest,options,invalidateCached(indexRequest,listener)));
     }
 
     /**
@@ -271,7 +1248,12 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-update.html">Update API on elastic.co</a>
      */
     public final UpdateResponse update(UpdateRequest updateRequest, RequestOptions options) throws IOException {
-        return (UpdateResponse)exec((r)->r.update(updateRequest,options));
+        invalidateCached(updateRequest);
+        try {
+            return (UpdateResponse)execChecked("update",(r)->r.update(updateRequest,options));
+        } finally {
+            invalidateCached(updateRequest);
+        }
     }
 
     /**
@@ -280,7 +1262,16 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-update.html">Update API on elastic.co</a>
      */
     public final void updateAsync(UpdateRequest updateRequest, ActionListener<UpdateResponse> listener, RequestOptions options) {
-        execReturnVoid((r)->r.update(updateRequest,options),false);
+        execReturnVoid((r)->r.updateAsync(updateRequest,options,invalidateCached(updateRequest,listener)),false);
+    }
+
+    /**
+     * Asynchronously updates a document using the Update API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-update.html">Update API on elastic.co</a>
+     */
+    public final CompletableFuture<UpdateResponse> updateFuture(UpdateRequest updateRequest, RequestOptions options) {
+        return execFuture("update",(r, listener)->r.updateAsync(updateRequest,options,invalidateCached(updateRequest,listener)));
     }
 
     /**
@@ -289,7 +1280,12 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-delete.html">Delete API on elastic.co</a>
      */
     public final DeleteResponse delete(DeleteRequest deleteRequest, RequestOptions options) throws IOException {
-        return (DeleteResponse)exec((r)->r.delete(deleteRequest,options));
+        invalidateCached(deleteRequest);
+        try {
+            return (DeleteResponse)execChecked("delete",(r)->r.delete(deleteRequest,options));
+        } finally {
+            invalidateCached(deleteRequest);
+        }
     }
 
     /**
@@ -298,7 +1294,16 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-delete.html">Delete API on elastic.co</a>
      */
     public final void deleteAsync(DeleteRequest deleteRequest, ActionListener<DeleteResponse> listener, RequestOptions options) {
-        execReturnVoid((r)->r.deleteAsync(deleteRequest,options,listener),false);
+        execReturnVoid((r)->r.deleteAsync(deleteRequest,options,invalidateCached(deleteRequest,listener)),false);
+    }
+
+    /**
+     * Asynchronously deletes a document by id using the Delete API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-delete.html">Delete API on elastic.co</a>
+     */
+    public final CompletableFuture<DeleteResponse> deleteFuture(DeleteRequest deleteRequest, RequestOptions options) {
+        return execFuture("delete",(r, listener)->r.deleteAsync(deleteRequest,options,invalidateCached(deleteRequest,listener)));
     }
 
     /**
@@ -307,7 +1312,25 @@ public class RestHighLevelClient {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
      */
     public final SearchResponse search(SearchRequest searchRequest, RequestOptions options) throws IOException {
-        return (SearchResponse)exec((r)->r.search(searchRequest,options));
+        SearchCache cache = searchCache;
+        SearchCacheKey key = cache == null ? null : cache.keyOf(searchRequest, options);
+        if (key == null) {
+            return execSearch(searchRequest, options);
+        }
+        return await("search", cache.getOrLoad(key, () -> {
+            CompletableFuture<SearchResponse> loaded = new CompletableFuture<>();
+            try {
+                loaded.complete(execSearch(searchRequest, options));
+            } catch (IOException | RuntimeException e) {
+                loaded.completeExceptionally(e);
+            }
+            return loaded;
+        }));
+    }
+
+    private SearchResponse execSearch(SearchRequest searchRequest, RequestOptions options) throws IOException {
+        return (SearchResponse)this.<SearchResponse>execRead("search",(r)->r.search(searchRequest,options),
+                (r, listener)->r.searchAsync(searchRequest,options,listener),isIdempotent(searchRequest));
     }
 
     /**
@@ -319,6 +1342,130 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.searchAsync(searchRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously executes a search using the Search API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final CompletableFuture<SearchResponse> searchFuture(SearchRequest searchRequest, RequestOptions options) {
+        SearchCache cache = searchCache;
+        SearchCacheKey key = cache == null ? null : cache.keyOf(searchRequest, options);
+        if (key == null) {
+            return execFuture("search",(r, listener)->r.searchAsync(searchRequest,options,listener),isIdempotent(searchRequest));
+        }
+        return cache.getOrLoad(key, () -> execFuture("search",(r, listener)->r.searchAsync(searchRequest,options,listener)));
+    }
+
+    /**
+     * Executes a search and returns the response body as is, without parsing it into a {@link SearchResponse}.
+     * Aggregation names are not prefixed with their type ({@code typed_keys} is not set), the search cache is not used
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final ByteBuffer searchRaw(SearchRequest searchRequest, RequestOptions options) throws IOException {
+        return rawBody(execSearchRaw(searchRequest, options, false));
+    }
+
+    /**
+     * Executes a search and returns the response body as a stream, see {@link #searchRaw(SearchRequest, RequestOptions)}.
+     * The body is already buffered, the stream does not hold the pooled client
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final InputStream searchRawStream(SearchRequest searchRequest, RequestOptions options) throws IOException {
+        HttpEntity entity = execSearchRaw(searchRequest, options, false).getEntity();
+        return entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
+    }
+
+    /**
+     * Executes a search and writes the response body to the given stream without decoding it, see {@link #searchRaw(SearchRequest, RequestOptions)}.
+     * Nothing is written when the request fails
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final void searchRaw(SearchRequest searchRequest, RequestOptions options, OutputStream outputStream) throws IOException {
+        HttpEntity entity = execSearchRaw(searchRequest, options, false).getEntity();
+        if (entity != null) {
+            entity.writeTo(outputStream);
+        }
+    }
+
+    /**
+     * Asynchronously executes a search and returns the response body as is, see {@link #searchRaw(SearchRequest, RequestOptions)}
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final CompletableFuture<ByteBuffer> searchRawFuture(SearchRequest searchRequest, RequestOptions options) {
+        Supplier<Request> request;
+        try {
+            request = SearchRequestConverters.search(searchRequest, options, false);
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return execFuture("search",(r, listener)->r.getLowLevelClient().performRequestAsync(request.get(),
+                responseListener(listener, RestHighLevelClient::rawBody)),isIdempotent(searchRequest));
+    }
+
+    /**
+     * Executes a search and decodes the hits one at a time instead of materializing the whole {@link SearchResponse},
+     * see {@link StreamingSearchResponse}. The returned response must be closed, the search cache is not used
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final StreamingSearchResponse searchStreaming(SearchRequest searchRequest, RequestOptions options) throws IOException {
+        return streamingResponse(execSearchRaw(searchRequest, options, true));
+    }
+
+    /**
+     * Asynchronously executes a search and decodes the hits one at a time, see {@link #searchStreaming(SearchRequest, RequestOptions)}
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
+     */
+    public final CompletableFuture<StreamingSearchResponse> searchStreamingFuture(SearchRequest searchRequest, RequestOptions options) {
+        Supplier<Request> request;
+        try {
+            request = SearchRequestConverters.search(searchRequest, options, true);
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<StreamingSearchResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return execFuture("search",(r, listener)->r.getLowLevelClient().performRequestAsync(request.get(),
+                responseListener(listener, RestHighLevelClient::streamingResponse)),isIdempotent(searchRequest));
+    }
+
+    /**
+     * 结果在写出之前已完整读入内存，写出时 client 已归还，对冲、重试不会重复写出
+     */
+    private Response execSearchRaw(SearchRequest searchRequest, RequestOptions options, boolean typedKeys) throws IOException {
+        Supplier<Request> request = SearchRequestConverters.search(searchRequest, options, typedKeys);
+        return (Response)this.<Response>execRead("search",(r)->r.getLowLevelClient().performRequest(request.get()),
+                (r, listener)->r.getLowLevelClient().performRequestAsync(request.get(), responseListener(listener, response -> response)),
+                isIdempotent(searchRequest));
+    }
+
+    /**
+     * 开启 scroll 的搜索会在服务端创建 scroll 上下文，重复发出会多创建一个且不会被调用方清理
+     */
+    private static boolean isIdempotent(SearchRequest searchRequest) {
+        return searchRequest.scroll() == null;
+    }
+
+    private static StreamingSearchResponse streamingResponse(Response response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            throw new IOException("search response has no body");
+        }
+        return new StreamingSearchResponse(entity.getContent());
+    }
+
+    private static ByteBuffer rawBody(Response response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        return entity == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(EntityUtils.toByteArray(entity));
+    }
+
     /**
      * Executes a multi search using the msearch API
      *
@@ -326,7 +1473,7 @@ public class RestHighLevelClient {
      * elastic.co</a>
      */
     public final MultiSearchResponse multiSearch(MultiSearchRequest multiSearchRequest, RequestOptions options) throws IOException {
-        return (MultiSearchResponse)exec((r)->r.multiSearch(multiSearchRequest,options));
+        return (MultiSearchResponse)execChecked("multiSearch",(r)->r.multiSearch(multiSearchRequest,options));
     }
 
     /**
@@ -339,6 +1486,16 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.multiSearchAsync(searchRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously executes a multi search using the msearch API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-multi-search.html">Multi search API on
+     * elastic.co</a>
+     */
+    public final CompletableFuture<MultiSearchResponse> multiSearchFuture(MultiSearchRequest multiSearchRequest, RequestOptions options) {
+        return execFuture("multiSearch",(r, listener)->r.multiSearchAsync(multiSearchRequest,options,listener));
+    }
+
     /**
      * Executes a search using the Search Scroll API
      *
@@ -346,7 +1503,7 @@ public class RestHighLevelClient {
      * API on elastic.co</a>
      */
     public final SearchResponse searchScroll(SearchScrollRequest searchScrollRequest, RequestOptions options) throws IOException {
-        return (SearchResponse)exec((r)->r.searchScroll(searchScrollRequest,options));
+        return (SearchResponse)execChecked("searchScroll",(r)->r.searchScroll(searchScrollRequest,options));
     }
 
     /**
@@ -360,6 +1517,16 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.searchScrollAsync(searchScrollRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously executes a search using the Search Scroll API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-request-scroll.html">Search Scroll
+     * API on elastic.co</a>
+     */
+    public final CompletableFuture<SearchResponse> searchScrollFuture(SearchScrollRequest searchScrollRequest, RequestOptions options) {
+        return execFuture("searchScroll",(r, listener)->r.searchScrollAsync(searchScrollRequest,options,listener));
+    }
+
     /**
      * Clears one or more scroll ids using the Clear Scroll API
      *
@@ -367,7 +1534,7 @@ public class RestHighLevelClient {
      * Clear Scroll API on elastic.co</a>
      */
     public final ClearScrollResponse clearScroll(ClearScrollRequest clearScrollRequest, RequestOptions options) throws IOException {
-        return (ClearScrollResponse)exec((r)->r.clearScroll(clearScrollRequest,options));
+        return (ClearScrollResponse)execChecked("clearScroll",(r)->r.clearScroll(clearScrollRequest,options));
     }
 
     /**
@@ -381,6 +1548,16 @@ public class RestHighLevelClient {
         execReturnVoid((r)->r.clearScrollAsync(clearScrollRequest,options,listener),false);
     }
 
+    /**
+     * Asynchronously clears one or more scroll ids using the Clear Scroll API, the pooled client is released automatically when the request completes
+     *
+     * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-request-scroll.html#_clear_scroll_api">
+     * Clear Scroll API on elastic.co</a>
+     */
+    public final CompletableFuture<ClearScrollResponse> clearScrollFuture(ClearScrollRequest clearScrollRequest, RequestOptions options) {
+        return execFuture("clearScroll",(r, listener)->r.clearScrollAsync(clearScrollRequest,options,listener));
+    }
+
 
 
 }
@@ -0,0 +1,132 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 把 {@link SearchRequest} 转换为低级客户端的 {@link Request}，与官方 RequestConverters#search 的结果一致，
+ * 另外发送官方 client 忽略的 {@code pre_filter_shard_size}/{@code max_concurrent_shard_requests}（仅在不是默认值时）.
+ * <p>
+ * 官方的转换类不公开，直接通过低级客户端发送搜索请求（不解析响应）时使用
+ *
+ */
+final class SearchRequestConverters {
+
+    /**
+     * {@link SearchRequest#getMaxConcurrentShardRequests()} 未设置时的返回值
+     */
+    private static final int DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS = 5;
+
+    private static final ContentType REQUEST_BODY_CONTENT_TYPE = ContentType.create(XContentType.JSON.mediaTypeWithoutParameters(), "UTF-8");
+
+    private SearchRequestConverters() {
+    }
+
+    /**
+     * 请求体只序列化一次，返回的 supplier 每次创建新的请求（请求体共享同一份字节），
+     * 重试、对冲并发发送时不共享 entity 的发送状态
+     * @param typedKeys 聚合、suggest 的名称是否带类型前缀，如 {@code sterms#name}。解析为 SearchResponse 时需要，原样转发时不需要
+     */
+    static Supplier<Request> search(SearchRequest searchRequest, RequestOptions options, boolean typedKeys) throws IOException {
+        Request request = new Request("POST", endpoint(searchRequest.indices(), searchRequest.types(), "_search"));
+        if (typedKeys) {
+            request.addParameter("typed_keys", "true");
+        }
+        putParam(request, "routing", searchRequest.routing());
+        putParam(request, "preference", searchRequest.preference());
+        IndicesOptions indicesOptions = searchRequest.indicesOptions();
+        request.addParameter("ignore_unavailable", Boolean.toString(indicesOptions.ignoreUnavailable()));
+        request.addParameter("allow_no_indices", Boolean.toString(indicesOptions.allowNoIndices()));
+        request.addParameter("expand_wildcards", expandWildcards(indicesOptions));
+        request.addParameter("ignore_throttled", Boolean.toString(indicesOptions.ignoreThrottled()));
+        request.addParameter("search_type", searchRequest.searchType().name().toLowerCase(Locale.ROOT));
+        request.addParameter("ccs_minimize_roundtrips", Boolean.toString(searchRequest.isCcsMinimizeRoundtrips()));
+        //官方 client 不发送这两个参数，这里只发送调用方改过的值，默认值由服务端决定
+        if (searchRequest.getPreFilterShardSize() != SearchRequest.DEFAULT_PRE_FILTER_SHARD_SIZE) {
+            request.addParameter("pre_filter_shard_size", Integer.toString(searchRequest.getPreFilterShardSize()));
+        }
+        if (searchRequest.getMaxConcurrentShardRequests() != DEFAULT_MAX_CONCURRENT_SHARD_REQUESTS) {
+            request.addParameter("max_concurrent_shard_requests", Integer.toString(searchRequest.getMaxConcurrentShardRequests()));
+        }
+        if (searchRequest.requestCache() != null) {
+            request.addParameter("request_cache", Boolean.toString(searchRequest.requestCache()));
+        }
+        if (searchRequest.allowPartialSearchResults() != null) {
+            request.addParameter("allow_partial_search_results", Boolean.toString(searchRequest.allowPartialSearchResults()));
+        }
+        request.addParameter("batched_reduce_size", Integer.toString(searchRequest.getBatchedReduceSize()));
+        if (searchRequest.scroll() != null) {
+            request.addParameter("scroll", searchRequest.scroll().keepAlive().getStringRep());
+        }
+        BytesRef source = searchRequest.source() == null ? null
+                : XContentHelper.toXContent(searchRequest.source(), XContentType.JSON, false).toBytesRef();
+        Map<String, String> parameters = request.getParameters();
+        return () -> {
+            Request copy = new Request(request.getMethod(), request.getEndpoint());
+            copy.addParameters(parameters);
+            if (source != null) {
+                copy.setEntity(new NByteArrayEntity(source.bytes, source.offset, source.length, REQUEST_BODY_CONTENT_TYPE));
+            }
+            if (options != null) {
+                copy.setOptions(options);
+            }
+            return copy;
+        };
+    }
+
+    private static void putParam(Request request, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            request.addParameter(name, value);
+        }
+    }
+
+    private static String expandWildcards(IndicesOptions indicesOptions) {
+        if (indicesOptions.expandWildcardsOpen() && indicesOptions.expandWildcardsClosed()) {
+            return "open,closed";
+        }
+        if (indicesOptions.expandWildcardsOpen()) {
+            return "open";
+        }
+        return indicesOptions.expandWildcardsClosed() ? "closed" : "none";
+    }
+
+    /**
+     * 拼接路径，每一段按 url path 编码，多个索引用逗号连接
+     */
+    private static String endpoint(String[] indices, String[] types, String endpoint) {
+        StringBuilder builder = new StringBuilder();
+        appendPart(builder, indices);
+        appendPart(builder, types);
+        return builder.append('/').append(endpoint).toString();
+    }
+
+    private static void appendPart(StringBuilder builder, String[] part) {
+        if (part == null || part.length == 0) {
+            return;
+        }
+        builder.append('/').append(encodePart(String.join(",", part)));
+    }
+
+    private static String encodePart(String part) {
+        try {
+            //URI 不编码路径中的 /，这里单独编码，避免索引名中的 / 被当成路径分隔
+            return new URI(null, null, null, -1, "/" + part, null, null).getRawPath().substring(1).replaceAll("/", "%2F");
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Path part [" + part + "] couldn't be encoded", e);
+        }
+    }
+}
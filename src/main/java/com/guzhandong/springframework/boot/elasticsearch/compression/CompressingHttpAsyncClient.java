@@ -0,0 +1,159 @@
+package com.guzhandong.springframework.boot.elasticsearch.compression;
+
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+/**
+ * 压缩请求体、解压响应的 httpclient 包装，见 {@link HttpCompression}
+ */
+class CompressingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final CloseableHttpAsyncClient delegate;
+
+    private final HttpCompression httpCompression;
+
+    CompressingHttpAsyncClient(CloseableHttpAsyncClient delegate, HttpCompression httpCompression) {
+        this.delegate = delegate;
+        this.httpCompression = httpCompression;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        return delegate.execute(compress(requestProducer),
+                httpCompression.isAcceptEncoding() ? new DecompressingResponseConsumer<>(responseConsumer) : responseConsumer, context, callback);
+    }
+
+    /**
+     * RestClient 的 producer 每次返回同一个请求对象，这里直接替换其中的请求体，后续重试创建的 producer 会读到压缩后的请求体
+     */
+    private HttpAsyncRequestProducer compress(HttpAsyncRequestProducer requestProducer) {
+        try {
+            HttpRequest request = requestProducer.generateRequest();
+            if (httpCompression.isAcceptEncoding() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+                request.addHeader(HttpHeaders.ACCEPT_ENCODING, HttpCompression.GZIP);
+            }
+            if (!(request instanceof HttpEntityEnclosingRequest)) {
+                return requestProducer;
+            }
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (!httpCompression.shouldCompress(request, entity)) {
+                return requestProducer;
+            }
+            NByteArrayEntity compressed = httpCompression.compress(entity);
+            ((HttpEntityEnclosingRequest) request).setEntity(compressed);
+            return new GzipRequestProducer(requestProducer, compressed);
+        } catch (IOException | HttpException e) {
+            logUtil.debug("es request compression exception, send uncompressed:{}", e.getMessage());
+            return requestProducer;
+        }
+    }
+
+    /**
+     * 响应为 gzip 时替换为解压的 entity。在 consumer 中处理而不是 callback 中，
+     * RestClient 的同步接口不传 callback 而是等待 future，callback 可能在 future 返回之后才执行
+     */
+    private static final class DecompressingResponseConsumer<T> implements HttpAsyncResponseConsumer<T> {
+
+        private final HttpAsyncResponseConsumer<T> delegate;
+
+        private DecompressingResponseConsumer(HttpAsyncResponseConsumer<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void responseReceived(HttpResponse response) throws IOException, HttpException {
+            delegate.responseReceived(response);
+        }
+
+        @Override
+        public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            delegate.consumeContent(decoder, ioControl);
+        }
+
+        @Override
+        public void responseCompleted(HttpContext context) {
+            delegate.responseCompleted(context);
+            T result = delegate.getResult();
+            if (result instanceof HttpResponse) {
+                decompress((HttpResponse) result);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            delegate.failed(ex);
+        }
+
+        @Override
+        public Exception getException() {
+            return delegate.getException();
+        }
+
+        @Override
+        public T getResult() {
+            return delegate.getResult();
+        }
+
+        @Override
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean cancel() {
+            return delegate.cancel();
+        }
+
+        private static void decompress(HttpResponse response) {
+            HttpEntity entity = response.getEntity();
+            Header contentEncoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            if (entity == null || contentEncoding == null || !HttpCompression.GZIP.equalsIgnoreCase(contentEncoding.getValue())) {
+                return;
+            }
+            response.setEntity(new GzipDecompressingEntity(entity));
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        }
+    }
+}
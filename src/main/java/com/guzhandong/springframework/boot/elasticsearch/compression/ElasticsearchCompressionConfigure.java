@@ -0,0 +1,68 @@
+package com.guzhandong.springframework.boot.elasticsearch.compression;
+
+public class ElasticsearchCompressionConfigure {
+
+    public static final String PREFIX = "spring.es.compression";
+
+    private boolean enabled = false;
+
+    /**
+     * 请求体达到该字节数才压缩，小请求压缩后节省的字节不抵 gzip 头和 CPU 开销
+     */
+    private int requestThresholdBytes = 8192;
+
+    /**
+     * gzip 压缩级别 1-9，1 最快，json/ndjson 在 1 时已经有较高的压缩比
+     */
+    private int level = 1;
+
+    /**
+     * 是否发送 {@code Accept-Encoding: gzip} 并解压响应，集群需要开启 {@code http.compression}（默认开启）
+     */
+    private boolean acceptEncoding = true;
+
+    /**
+     * 压缩请求体的接口，按请求路径中的 {@code _bulk}/{@code _search}/{@code _msearch} 等片段匹配
+     */
+    private String[] endpoints = {"_bulk", "_search", "_msearch"};
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRequestThresholdBytes() {
+        return requestThresholdBytes;
+    }
+
+    public void setRequestThresholdBytes(int requestThresholdBytes) {
+        this.requestThresholdBytes = requestThresholdBytes;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public boolean isAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    public void setAcceptEncoding(boolean acceptEncoding) {
+        this.acceptEncoding = acceptEncoding;
+    }
+
+    public String[] getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(String[] endpoints) {
+        this.endpoints = endpoints;
+    }
+}
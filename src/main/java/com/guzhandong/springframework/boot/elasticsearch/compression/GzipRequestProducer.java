@@ -0,0 +1,74 @@
+package com.guzhandong.springframework.boot.elasticsearch.compression;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * 发送压缩后请求体的 producer，请求行和请求头仍由原 producer 生成
+ */
+class GzipRequestProducer implements HttpAsyncRequestProducer {
+
+    private final HttpAsyncRequestProducer delegate;
+
+    private final NByteArrayEntity compressed;
+
+    GzipRequestProducer(HttpAsyncRequestProducer delegate, NByteArrayEntity compressed) {
+        this.delegate = delegate;
+        this.compressed = compressed;
+    }
+
+    @Override
+    public HttpHost getTarget() {
+        return delegate.getTarget();
+    }
+
+    @Override
+    public HttpRequest generateRequest() throws IOException, HttpException {
+        return delegate.generateRequest();
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        compressed.produceContent(encoder, ioControl);
+        if (encoder.isCompleted()) {
+            compressed.close();
+        }
+    }
+
+    @Override
+    public void requestCompleted(HttpContext context) {
+        delegate.requestCompleted(context);
+    }
+
+    @Override
+    public void failed(Exception ex) {
+        delegate.failed(ex);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public void resetRequest() throws IOException {
+        compressed.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            compressed.close();
+        } finally {
+            delegate.close();
+        }
+    }
+}
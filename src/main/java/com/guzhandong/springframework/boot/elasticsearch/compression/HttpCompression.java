@@ -0,0 +1,153 @@
+package com.guzhandong.springframework.boot.elasticsearch.compression;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.nio.entity.NByteArrayEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * http 层的 gzip 压缩，开启方式：{@code spring.es.compression.enabled=true}.
+ * <p>
+ * 当前版本的 RestClient 不支持压缩，而 httpasyncclient 在请求拦截器执行之前就已经确定了发送的请求体，
+ * 所以在 {@link #wrap(HttpAsyncClientBuilder)} 中包装 RestClient 创建的 {@link CloseableHttpAsyncClient}：
+ * <ul>
+ *     <li>请求：路径匹配 {@code endpoints} 且请求体达到 {@code request-threshold-bytes} 时，在发起请求的线程中按 {@code level} 压缩，
+ *     不占用 I/O 线程；节点重试时复用已压缩的请求体</li>
+ *     <li>响应：发送 {@code Accept-Encoding: gzip}，响应为 gzip 时替换为边读边解压的 entity</li>
+ * </ul>
+ *
+ */
+public class HttpCompression {
+
+    static final String GZIP = "gzip";
+
+    private final int requestThresholdBytes;
+
+    private final int level;
+
+    private final boolean acceptEncoding;
+
+    private final Set<String> endpoints;
+
+    private final LongAdder compressedRequestCount = new LongAdder();
+
+    private final LongAdder requestBytes = new LongAdder();
+
+    private final LongAdder compressedRequestBytes = new LongAdder();
+
+    public HttpCompression(ElasticsearchCompressionConfigure elasticsearchCompressionConfigure) {
+        if (elasticsearchCompressionConfigure.getLevel() < Deflater.BEST_SPEED || elasticsearchCompressionConfigure.getLevel() > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("gzip level must be between 1 and 9 but was " + elasticsearchCompressionConfigure.getLevel());
+        }
+        this.requestThresholdBytes = Math.max(elasticsearchCompressionConfigure.getRequestThresholdBytes(), 0);
+        this.level = elasticsearchCompressionConfigure.getLevel();
+        this.acceptEncoding = elasticsearchCompressionConfigure.isAcceptEncoding();
+        this.endpoints = elasticsearchCompressionConfigure.getEndpoints() == null
+                ? new HashSet<>() : new HashSet<>(Arrays.asList(elasticsearchCompressionConfigure.getEndpoints()));
+    }
+
+    /**
+     * 包装 httpclient builder，RestClient 只调用 build()，其余配置都应在包装之前完成
+     */
+    public HttpAsyncClientBuilder wrap(HttpAsyncClientBuilder httpClientBuilder) {
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new CompressingHttpAsyncClient(httpClientBuilder.build(), HttpCompression.this);
+            }
+        };
+    }
+
+    boolean isAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * 请求体没有编码过、可重复读取、达到阈值且路径匹配时压缩
+     */
+    boolean shouldCompress(HttpRequest request, HttpEntity entity) {
+        if (entity == null || entity.getContentEncoding() != null || !entity.isRepeatable()) {
+            return false;
+        }
+        long length = entity.getContentLength();
+        if (length >= 0 && length < requestThresholdBytes) {
+            return false;
+        }
+        String uri = request.getRequestLine().getUri();
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        for (String segment : path.split("/")) {
+            if (endpoints.contains(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    NByteArrayEntity compress(HttpEntity entity) throws IOException {
+        long length = entity.getContentLength();
+        //ndjson 的压缩比通常在 5-10 倍，初始容量按 1/4 估计，减少扩容
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 ? (int) Math.min(length / 4 + 64, Integer.MAX_VALUE - 8) : 4096);
+        long uncompressed;
+        try (LevelGzipOutputStream gzip = new LevelGzipOutputStream(out, level)) {
+            entity.writeTo(gzip);
+            gzip.finish();
+            uncompressed = gzip.getBytesRead();
+        }
+        byte[] compressed = out.toByteArray();
+        compressedRequestCount.increment();
+        requestBytes.add(uncompressed);
+        compressedRequestBytes.add(compressed.length);
+        NByteArrayEntity compressedEntity = new NByteArrayEntity(compressed);
+        compressedEntity.setContentType(entity.getContentType());
+        compressedEntity.setContentEncoding(GZIP);
+        return compressedEntity;
+    }
+
+    /**
+     * 压缩过的请求数
+     */
+    public long getCompressedRequestCount() {
+        return compressedRequestCount.sum();
+    }
+
+    /**
+     * 压缩过的请求的原始字节数
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * 压缩过的请求压缩后的字节数
+     */
+    public long getCompressedRequestBytes() {
+        return compressedRequestBytes.sum();
+    }
+
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+        private LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+
+        /**
+         * 需要在 finish 之后、close 之前调用，close 会释放 Deflater
+         */
+        private long getBytesRead() {
+            return def.getBytesRead();
+        }
+    }
+}
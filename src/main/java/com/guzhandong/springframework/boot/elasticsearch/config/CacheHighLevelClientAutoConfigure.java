@@ -0,0 +1,67 @@
+package com.guzhandong.springframework.boot.elasticsearch.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.guzhandong.springframework.boot.elasticsearch.cache.CaffeineDocumentCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.CaffeineSearchCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.DocumentCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.ElasticsearchDocumentCacheConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.cache.ElasticsearchSearchCacheConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.cache.SearchCache;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * caffeine 存在且 {@code spring.es.near-cache.enabled=true} 时配置 {@link CaffeineDocumentCache}，
+ * {@code spring.es.search-cache.enabled=true} 时配置 {@link CaffeineSearchCache}
+ */
+@Configuration
+@ConditionalOnClass({Caffeine.class, RestHighLevelClient.class})
+@AutoConfigureAfter(HighLevelClientAutoConfigure.class)
+public class CacheHighLevelClientAutoConfigure {
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchDocumentCacheConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchDocumentCacheConfigure.class)
+    public ElasticsearchDocumentCacheConfigure elasticsearchDocumentCacheConfigure(){
+        return new ElasticsearchDocumentCacheConfigure();
+    }
+
+    @Bean
+    @ConditionalOnBean({RestHighLevelClient.class})
+    @ConditionalOnProperty(prefix = ElasticsearchDocumentCacheConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(DocumentCache.class)
+    public DocumentCache documentCache(
+            @Autowired RestHighLevelClient restHighLevelClient,
+            @Autowired ElasticsearchDocumentCacheConfigure elasticsearchDocumentCacheConfigure) {
+        DocumentCache documentCache = new CaffeineDocumentCache(elasticsearchDocumentCacheConfigure);
+        restHighLevelClient.setDocumentCache(documentCache);
+        return documentCache;
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchSearchCacheConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchSearchCacheConfigure.class)
+    public ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure(){
+        return new ElasticsearchSearchCacheConfigure();
+    }
+
+    @Bean
+    @ConditionalOnBean({RestHighLevelClient.class})
+    @ConditionalOnProperty(prefix = ElasticsearchSearchCacheConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(SearchCache.class)
+    public SearchCache searchCache(
+            @Autowired RestHighLevelClient restHighLevelClient,
+            @Autowired ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure) {
+        SearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        restHighLevelClient.setSearchCache(searchCache);
+        return searchCache;
+    }
+}
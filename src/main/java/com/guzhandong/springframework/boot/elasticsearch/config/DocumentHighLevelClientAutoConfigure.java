@@ -0,0 +1,55 @@
+package com.guzhandong.springframework.boot.elasticsearch.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.document.DocumentMapper;
+import com.guzhandong.springframework.boot.elasticsearch.document.ElasticsearchDocumentConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.document.TypedDocumentClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * jackson 存在且 {@code spring.es.document.enabled=true} 时配置 {@link TypedDocumentClient}，
+ * 存在 {@link ObjectMapper} bean 时使用它的副本（沿用应用的 jackson 配置）
+ */
+@Configuration
+@ConditionalOnClass({ObjectMapper.class, RestHighLevelClient.class})
+@AutoConfigureAfter({HighLevelClientAutoConfigure.class, JacksonAutoConfiguration.class})
+public class DocumentHighLevelClientAutoConfigure {
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchDocumentConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchDocumentConfigure.class)
+    public ElasticsearchDocumentConfigure elasticsearchDocumentConfigure(){
+        return new ElasticsearchDocumentConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchDocumentConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(DocumentMapper.class)
+    public DocumentMapper documentMapper(
+            ObjectProvider<ObjectMapper> objectMapper,
+            @Autowired ElasticsearchDocumentConfigure elasticsearchDocumentConfigure) {
+        ObjectMapper applicationObjectMapper = objectMapper.getIfUnique();
+        return applicationObjectMapper == null ? new DocumentMapper(elasticsearchDocumentConfigure)
+                : new DocumentMapper(applicationObjectMapper, elasticsearchDocumentConfigure);
+    }
+
+    @Bean
+    @ConditionalOnBean({RestHighLevelClient.class, DocumentMapper.class})
+    @ConditionalOnMissingBean(TypedDocumentClient.class)
+    public TypedDocumentClient typedDocumentClient(
+            @Autowired RestHighLevelClient restHighLevelClient,
+            @Autowired DocumentMapper documentMapper) {
+        return new TypedDocumentClient(restHighLevelClient, documentMapper);
+    }
+}
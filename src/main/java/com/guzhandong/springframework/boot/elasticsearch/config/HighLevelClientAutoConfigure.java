@@ -1,14 +1,35 @@
 package com.guzhandong.springframework.boot.elasticsearch.config;
 
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessor;
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessorConfigure;
 import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
 import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ByteBufferPool;
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkWriterConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.compression.ElasticsearchCompressionConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.compression.HttpCompression;
+import com.guzhandong.springframework.boot.elasticsearch.hedge.ElasticsearchHedgeConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.hedge.HedgePolicy;
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiter;
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiterConfigure;
 import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory;
 import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
 import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPoolConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchNodeHealthChecker;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchPoolSizeController;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchSharedClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.retry.ElasticsearchRetryConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryPolicy;
+import com.guzhandong.springframework.boot.elasticsearch.routing.LatencyAwareNodeSelector;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeCircuitBreakerConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeCircuitBreakers;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeLatencyTracker;
 import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RequestOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.*;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -55,8 +76,91 @@ public class HighLevelClientAutoConfigure {
     @ConditionalOnSingleCandidate(ElasticsearchClientConfigure.class)
     @ConditionalOnMissingBean(ElasticsearchClientFactory.class)
     public ElasticsearchClientFactory elasticsearchClientFactory(
-            @Autowired ElasticsearchClientConfigure elasticsearchClientConfigure) {
-        return new ElasticsearchClientFactory(elasticsearchClientConfigure);
+            @Autowired ElasticsearchClientConfigure elasticsearchClientConfigure,
+            ObjectProvider<ElasticsearchNodeHealthChecker> elasticsearchNodeHealthChecker,
+            ObjectProvider<NodeSelector> nodeSelector,
+            ObjectProvider<NodeLatencyTracker> nodeLatencyTracker,
+            ObjectProvider<NodeCircuitBreakers> nodeCircuitBreakers,
+            ObjectProvider<HttpCompression> httpCompression) {
+        ElasticsearchClientFactory elasticsearchClientFactory = new ElasticsearchClientFactory(elasticsearchClientConfigure);
+        elasticsearchClientFactory.setHealthChecker(elasticsearchNodeHealthChecker.getIfAvailable());
+        elasticsearchClientFactory.setNodeSelector(nodeSelector.getIfAvailable());
+        elasticsearchClientFactory.setNodeLatencyTracker(nodeLatencyTracker.getIfAvailable());
+        elasticsearchClientFactory.setNodeCircuitBreakers(nodeCircuitBreakers.getIfAvailable());
+        elasticsearchClientFactory.setHttpCompression(httpCompression.getIfAvailable());
+        return elasticsearchClientFactory;
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchCompressionConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchCompressionConfigure.class)
+    public ElasticsearchCompressionConfigure elasticsearchCompressionConfigure(){
+        return new ElasticsearchCompressionConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchCompressionConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(HttpCompression.class)
+    public HttpCompression httpCompression(@Autowired ElasticsearchCompressionConfigure elasticsearchCompressionConfigure) {
+        return new HttpCompression(elasticsearchCompressionConfigure);
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchBulkWriterConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchBulkWriterConfigure.class)
+    public ElasticsearchBulkWriterConfigure elasticsearchBulkWriterConfigure(){
+        return new ElasticsearchBulkWriterConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchBulkWriterConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(ByteBufferPool.class)
+    public ByteBufferPool byteBufferPool(@Autowired ElasticsearchBulkWriterConfigure elasticsearchBulkWriterConfigure) {
+        return new ByteBufferPool(elasticsearchBulkWriterConfigure);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchClientConfigure.PREFIX,value = {"node-selection"},havingValue = ElasticsearchClientConfigure.NODE_SELECTION_LATENCY_AWARE)
+    @ConditionalOnMissingBean(NodeLatencyTracker.class)
+    public NodeLatencyTracker nodeLatencyTracker() {
+        return new NodeLatencyTracker();
+    }
+
+    @Bean
+    @ConditionalOnBean(NodeLatencyTracker.class)
+    @ConditionalOnProperty(prefix = ElasticsearchClientConfigure.PREFIX,value = {"node-selection"},havingValue = ElasticsearchClientConfigure.NODE_SELECTION_LATENCY_AWARE)
+    @ConditionalOnMissingBean(NodeSelector.class)
+    public NodeSelector latencyAwareNodeSelector(@Autowired NodeLatencyTracker nodeLatencyTracker) {
+        return new LatencyAwareNodeSelector(nodeLatencyTracker);
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = NodeCircuitBreakerConfigure.PREFIX)
+    @ConditionalOnMissingBean(NodeCircuitBreakerConfigure.class)
+    public NodeCircuitBreakerConfigure nodeCircuitBreakerConfigure(){
+        return new NodeCircuitBreakerConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = NodeCircuitBreakerConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(NodeCircuitBreakers.class)
+    public NodeCircuitBreakers nodeCircuitBreakers(@Autowired NodeCircuitBreakerConfigure nodeCircuitBreakerConfigure) {
+        return new NodeCircuitBreakers(nodeCircuitBreakerConfigure);
+    }
+
+    @Bean
+    @ConditionalOnBean(ElasticsearchClientConfigure.class)
+    @ConditionalOnProperty(prefix = ElasticsearchClientPoolConfigure.PREFIX,value = {"health-check-enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(ElasticsearchNodeHealthChecker.class)
+    public ElasticsearchNodeHealthChecker elasticsearchNodeHealthChecker(
+            @Autowired ElasticsearchClientConfigure elasticsearchClientConfigure,
+            @Autowired ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure) {
+        ElasticsearchNodeHealthChecker elasticsearchNodeHealthChecker = new ElasticsearchNodeHealthChecker(
+                ElasticsearchClientFactory.parseHttpHosts(elasticsearchClientConfigure),
+                elasticsearchClientPoolConfigure.getHealthCheckIntervalMillis(),
+                elasticsearchClientConfigure);
+        elasticsearchNodeHealthChecker.start();
+        return elasticsearchNodeHealthChecker;
     }
 
 
@@ -67,22 +171,111 @@ public class HighLevelClientAutoConfigure {
     public ElasticsearchClientPool elasticsearchClientPool(
             @Autowired ElasticsearchClientFactory elasticsearchClientFactory,
             @Autowired ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure) {
+        if (elasticsearchClientPoolConfigure.isSharedTransport()) {
+            return new ElasticsearchSharedClientPool(elasticsearchClientFactory,elasticsearchClientPoolConfigure);
+        }
         return new ElasticsearchClientPool(elasticsearchClientFactory,elasticsearchClientPoolConfigure);
     }
 
+    @Bean
+    @ConditionalOnBean({ElasticsearchClientPool.class})
+    @ConditionalOnProperty(prefix = ElasticsearchClientPoolConfigure.PREFIX,value = {"adaptive-enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(ElasticsearchPoolSizeController.class)
+    public ElasticsearchPoolSizeController elasticsearchPoolSizeController(
+            @Autowired ElasticsearchClientPool elasticsearchClientPool,
+            @Autowired ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure) {
+        ElasticsearchPoolSizeController elasticsearchPoolSizeController = new ElasticsearchPoolSizeController(
+                elasticsearchClientPool, elasticsearchClientPoolConfigure);
+        elasticsearchPoolSizeController.start();
+        return elasticsearchPoolSizeController;
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ConcurrencyLimiterConfigure.PREFIX)
+    @ConditionalOnMissingBean(ConcurrencyLimiterConfigure.class)
+    public ConcurrencyLimiterConfigure concurrencyLimiterConfigure(){
+        return new ConcurrencyLimiterConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ConcurrencyLimiterConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(ConcurrencyLimiter.class)
+    public ConcurrencyLimiter concurrencyLimiter(@Autowired ConcurrencyLimiterConfigure concurrencyLimiterConfigure) {
+        return new ConcurrencyLimiter(concurrencyLimiterConfigure.createLimit());
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchRetryConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchRetryConfigure.class)
+    public ElasticsearchRetryConfigure elasticsearchRetryConfigure(){
+        return new ElasticsearchRetryConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchRetryConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(RetryPolicy.class)
+    public RetryPolicy retryPolicy(@Autowired ElasticsearchRetryConfigure elasticsearchRetryConfigure) {
+        return new RetryPolicy(elasticsearchRetryConfigure);
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchHedgeConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchHedgeConfigure.class)
+    public ElasticsearchHedgeConfigure elasticsearchHedgeConfigure(){
+        return new ElasticsearchHedgeConfigure();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = ElasticsearchHedgeConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(HedgePolicy.class)
+    public HedgePolicy hedgePolicy(@Autowired ElasticsearchHedgeConfigure elasticsearchHedgeConfigure,
+                                   ObjectProvider<NodeLatencyTracker> nodeLatencyTracker) {
+        //对冲请求依赖 NodeLatencyTracker 避开原请求的节点，否则可能和原请求发往同一个慢节点
+        if (nodeLatencyTracker.getIfAvailable() == null) {
+            throw new IllegalStateException(ElasticsearchHedgeConfigure.PREFIX + ".enabled requires "
+                    + ElasticsearchClientConfigure.PREFIX + ".node-selection=" + ElasticsearchClientConfigure.NODE_SELECTION_LATENCY_AWARE);
+        }
+        return new HedgePolicy(elasticsearchHedgeConfigure);
+    }
+
     @Bean
     @ConditionalOnBean({ElasticsearchClientPool.class})
     @ConditionalOnMissingBean(RestHighLevelClient.class)
     public RestHighLevelClient restHighLevelClient(
             @Autowired ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure,
-            @Autowired ElasticsearchClientPool elasticsearchClientPool) {
+            @Autowired ElasticsearchClientPool elasticsearchClientPool,
+            ObjectProvider<NodeLatencyTracker> nodeLatencyTracker,
+            ObjectProvider<ConcurrencyLimiter> concurrencyLimiter,
+            ObjectProvider<RetryPolicy> retryPolicy,
+            ObjectProvider<HedgePolicy> hedgePolicy) {
         RestHighLevelClient restHighLevelClient = new RestHighLevelClient(elasticsearchClientPool);
+        restHighLevelClient.setNodeLatencyTracker(nodeLatencyTracker.getIfAvailable());
+        restHighLevelClient.setConcurrencyLimiter(concurrencyLimiter.getIfAvailable());
+        restHighLevelClient.setRetryPolicy(retryPolicy.getIfAvailable());
+        restHighLevelClient.setHedgePolicy(hedgePolicy.getIfAvailable());
         if (elasticsearchClientPoolConfigure.getConnectionInit()) {
             poolConnectionInit(restHighLevelClient);
         }
         return restHighLevelClient;
     }
 
+    @Bean
+    @ConfigurationProperties(prefix = ElasticsearchBulkProcessorConfigure.PREFIX)
+    @ConditionalOnMissingBean(ElasticsearchBulkProcessorConfigure.class)
+    public ElasticsearchBulkProcessorConfigure elasticsearchBulkProcessorConfigure(){
+        return new ElasticsearchBulkProcessorConfigure();
+    }
+
+    @Bean
+    @ConditionalOnBean({RestHighLevelClient.class})
+    @ConditionalOnProperty(prefix = ElasticsearchBulkProcessorConfigure.PREFIX,value = {"enabled"},havingValue = "true")
+    @ConditionalOnMissingBean(ElasticsearchBulkProcessor.class)
+    public ElasticsearchBulkProcessor elasticsearchBulkProcessor(
+            @Autowired RestHighLevelClient restHighLevelClient,
+            @Autowired ElasticsearchBulkProcessorConfigure elasticsearchBulkProcessorConfigure) {
+        return new ElasticsearchBulkProcessor(restHighLevelClient,elasticsearchBulkProcessorConfigure);
+    }
+
     /**
      * pool connection init
      */
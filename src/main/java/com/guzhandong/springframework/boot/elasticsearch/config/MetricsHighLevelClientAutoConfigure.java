@@ -0,0 +1,89 @@
+package com.guzhandong.springframework.boot.elasticsearch.config;
+
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessor;
+import com.guzhandong.springframework.boot.elasticsearch.cache.DocumentCache;
+import com.guzhandong.springframework.boot.elasticsearch.cache.SearchCache;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiter;
+import com.guzhandong.springframework.boot.elasticsearch.metrics.ElasticsearchBulkProcessorMetrics;
+import com.guzhandong.springframework.boot.elasticsearch.metrics.ElasticsearchClientMetrics;
+import com.guzhandong.springframework.boot.elasticsearch.metrics.ElasticsearchConcurrencyLimiterMetrics;
+import com.guzhandong.springframework.boot.elasticsearch.metrics.ElasticsearchDocumentCacheMetrics;
+import com.guzhandong.springframework.boot.elasticsearch.metrics.ElasticsearchSearchCacheMetrics;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 存在 {@link MeterRegistry} 时配置 {@link ElasticsearchClientMetrics}、{@link ElasticsearchBulkProcessorMetrics}、{@link ElasticsearchConcurrencyLimiterMetrics}、
+ * {@link ElasticsearchDocumentCacheMetrics}、{@link ElasticsearchSearchCacheMetrics}
+ */
+@Configuration
+@ConditionalOnClass({MeterRegistry.class, RestHighLevelClient.class})
+@AutoConfigureAfter(value = {HighLevelClientAutoConfigure.class, CacheHighLevelClientAutoConfigure.class},
+        name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+public class MetricsHighLevelClientAutoConfigure {
+
+    @Bean
+    @ConditionalOnBean({MeterRegistry.class, RestHighLevelClient.class, ElasticsearchClientPool.class})
+    @ConditionalOnMissingBean(ElasticsearchClientMetrics.class)
+    public ElasticsearchClientMetrics elasticsearchClientMetrics(
+            @Autowired MeterRegistry meterRegistry,
+            @Autowired ElasticsearchClientPool elasticsearchClientPool,
+            @Autowired RestHighLevelClient restHighLevelClient) {
+        ElasticsearchClientMetrics elasticsearchClientMetrics = new ElasticsearchClientMetrics(elasticsearchClientPool, restHighLevelClient);
+        elasticsearchClientMetrics.bindTo(meterRegistry);
+        restHighLevelClient.addExecListener(elasticsearchClientMetrics);
+        return elasticsearchClientMetrics;
+    }
+
+    @Bean
+    @ConditionalOnBean({MeterRegistry.class, ElasticsearchBulkProcessor.class})
+    @ConditionalOnMissingBean(ElasticsearchBulkProcessorMetrics.class)
+    public ElasticsearchBulkProcessorMetrics elasticsearchBulkProcessorMetrics(
+            @Autowired MeterRegistry meterRegistry,
+            @Autowired ElasticsearchBulkProcessor elasticsearchBulkProcessor) {
+        ElasticsearchBulkProcessorMetrics elasticsearchBulkProcessorMetrics = new ElasticsearchBulkProcessorMetrics(elasticsearchBulkProcessor);
+        elasticsearchBulkProcessorMetrics.bindTo(meterRegistry);
+        return elasticsearchBulkProcessorMetrics;
+    }
+
+    @Bean
+    @ConditionalOnBean({MeterRegistry.class, ConcurrencyLimiter.class})
+    @ConditionalOnMissingBean(ElasticsearchConcurrencyLimiterMetrics.class)
+    public ElasticsearchConcurrencyLimiterMetrics elasticsearchConcurrencyLimiterMetrics(
+            @Autowired MeterRegistry meterRegistry,
+            @Autowired ConcurrencyLimiter concurrencyLimiter) {
+        ElasticsearchConcurrencyLimiterMetrics elasticsearchConcurrencyLimiterMetrics = new ElasticsearchConcurrencyLimiterMetrics(concurrencyLimiter);
+        elasticsearchConcurrencyLimiterMetrics.bindTo(meterRegistry);
+        return elasticsearchConcurrencyLimiterMetrics;
+    }
+
+    @Bean
+    @ConditionalOnBean({MeterRegistry.class, DocumentCache.class})
+    @ConditionalOnMissingBean(ElasticsearchDocumentCacheMetrics.class)
+    public ElasticsearchDocumentCacheMetrics elasticsearchDocumentCacheMetrics(
+            @Autowired MeterRegistry meterRegistry,
+            @Autowired DocumentCache documentCache) {
+        ElasticsearchDocumentCacheMetrics elasticsearchDocumentCacheMetrics = new ElasticsearchDocumentCacheMetrics(documentCache);
+        elasticsearchDocumentCacheMetrics.bindTo(meterRegistry);
+        return elasticsearchDocumentCacheMetrics;
+    }
+
+    @Bean
+    @ConditionalOnBean({MeterRegistry.class, SearchCache.class})
+    @ConditionalOnMissingBean(ElasticsearchSearchCacheMetrics.class)
+    public ElasticsearchSearchCacheMetrics elasticsearchSearchCacheMetrics(
+            @Autowired MeterRegistry meterRegistry,
+            @Autowired SearchCache searchCache) {
+        ElasticsearchSearchCacheMetrics elasticsearchSearchCacheMetrics = new ElasticsearchSearchCacheMetrics(searchCache);
+        elasticsearchSearchCacheMetrics.bindTo(meterRegistry);
+        return elasticsearchSearchCacheMetrics;
+    }
+}
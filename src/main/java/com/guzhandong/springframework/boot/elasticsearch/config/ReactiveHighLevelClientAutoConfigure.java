@@ -0,0 +1,29 @@
+package com.guzhandong.springframework.boot.elasticsearch.config;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.reactive.ReactiveRestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+/**
+ * reactor-core 存在时配置 {@link ReactiveRestHighLevelClient}
+ */
+@Configuration
+@ConditionalOnClass({Mono.class, RestHighLevelClient.class})
+@AutoConfigureAfter(HighLevelClientAutoConfigure.class)
+public class ReactiveHighLevelClientAutoConfigure {
+
+    @Bean
+    @ConditionalOnBean({RestHighLevelClient.class})
+    @ConditionalOnMissingBean(ReactiveRestHighLevelClient.class)
+    public ReactiveRestHighLevelClient reactiveRestHighLevelClient(
+            @Autowired RestHighLevelClient restHighLevelClient) {
+        return new ReactiveRestHighLevelClient(restHighLevelClient);
+    }
+}
@@ -0,0 +1,18 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记文档 _id 对应的字段，字段类型为 String.
+ * <p>
+ * 写入时字段为 null 由 es 生成 _id 并回填；读取时字段为 null 用命中的 _id 填充
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface DocumentId {
+}
@@ -0,0 +1,109 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 实体类与 _source 之间的转换.
+ * <p>
+ * 所有类型共享一个 {@link ObjectMapper}；每个类型第一次使用时解析索引、_id 字段，并创建 {@link com.fasterxml.jackson.databind.ObjectReader}/
+ * {@link com.fasterxml.jackson.databind.ObjectWriter}（同时解析好序列化器），之后直接复用。
+ * 读取时由 _source 的原始字节直接反序列化为实体，不经过 {@link java.util.Map}
+ *
+ */
+public class DocumentMapper {
+
+    private static final boolean AFTERBURNER_PRESENT = ClassUtils.isPresent(
+            "com.fasterxml.jackson.module.afterburner.AfterburnerModule", DocumentMapper.class.getClassLoader());
+
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<Class<?>, DocumentType<?>> types = new ConcurrentHashMap<>();
+
+    public DocumentMapper(ElasticsearchDocumentConfigure elasticsearchDocumentConfigure) {
+        this(new ObjectMapper(), elasticsearchDocumentConfigure);
+    }
+
+    /**
+     * @param objectMapper 使用它的副本，不修改原对象的配置
+     */
+    public DocumentMapper(ObjectMapper objectMapper, ElasticsearchDocumentConfigure elasticsearchDocumentConfigure) {
+        ObjectMapper copy = objectMapper.copy();
+        copy.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, elasticsearchDocumentConfigure.isFailOnUnknownProperties());
+        if (elasticsearchDocumentConfigure.isAfterburner() && AFTERBURNER_PRESENT) {
+            copy.registerModule(Afterburner.module());
+        }
+        this.objectMapper = copy;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public byte[] toSource(Object document) throws IOException {
+        return type(document.getClass()).getWriter().writeValueAsBytes(document);
+    }
+
+    /**
+     * @param id 命中的 _id，实体的 {@link DocumentId} 字段为 null 时填充
+     */
+    public <T> T fromSource(Class<T> type, BytesReference source, String id) throws IOException {
+        DocumentType<T> documentType = type(type);
+        BytesRef bytes = source.toBytesRef();
+        T document = documentType.getReader().readValue(bytes.bytes, bytes.offset, bytes.length);
+        documentType.fillId(document, id);
+        return document;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> DocumentType<T> type(Class<T> type) {
+        DocumentType<?> documentType = types.get(type);
+        if (documentType == null) {
+            documentType = types.computeIfAbsent(type, this::resolve);
+        }
+        return (DocumentType<T>) documentType;
+    }
+
+    private <T> DocumentType<T> resolve(Class<T> type) {
+        ElasticsearchDocument document = type.getAnnotation(ElasticsearchDocument.class);
+        Field idField = null;
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(DocumentId.class)) {
+                    if (field.getType() != String.class || Modifier.isStatic(field.getModifiers())) {
+                        throw new IllegalArgumentException("@DocumentId field must be a non-static String: " + field);
+                    }
+                    field.setAccessible(true);
+                    idField = field;
+                    break;
+                }
+            }
+            if (idField != null) {
+                break;
+            }
+        }
+        return new DocumentType<>(type, document == null ? null : document.index(), idField,
+                objectMapper.readerFor(type), objectMapper.writerFor(type));
+    }
+
+    /**
+     * 单独的类，没有引入 afterburner 时不会加载；返回 {@link Module}，校验 DocumentMapper 时不需要加载 AfterburnerModule
+     */
+    private static final class Afterburner {
+
+        private static Module module() {
+            return new AfterburnerModule();
+        }
+    }
+}
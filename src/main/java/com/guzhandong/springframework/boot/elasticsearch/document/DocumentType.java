@@ -0,0 +1,76 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.lang.reflect.Field;
+
+/**
+ * 一个文档类型解析后的信息：索引、_id 字段和预先解析好序列化器的 reader/writer，由 {@link DocumentMapper} 按类型缓存
+ */
+final class DocumentType<T> {
+
+    private final Class<T> type;
+
+    private final String index;
+
+    private final Field idField;
+
+    private final ObjectReader reader;
+
+    private final ObjectWriter writer;
+
+    DocumentType(Class<T> type, String index, Field idField, ObjectReader reader, ObjectWriter writer) {
+        this.type = type;
+        this.index = index;
+        this.idField = idField;
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return 类型上没有 {@link ElasticsearchDocument} 时为 null
+     */
+    String getIndex() {
+        return index;
+    }
+
+    ObjectReader getReader() {
+        return reader;
+    }
+
+    ObjectWriter getWriter() {
+        return writer;
+    }
+
+    String getId(T document) {
+        if (idField == null) {
+            return null;
+        }
+        try {
+            return (String) idField.get(document);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 字段为 null 时设置 _id
+     */
+    void fillId(T document, String id) {
+        if (idField == null || id == null) {
+            return;
+        }
+        try {
+            if (idField.get(document) == null) {
+                idField.set(document, id);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
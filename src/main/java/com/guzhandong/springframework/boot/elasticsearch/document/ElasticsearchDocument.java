@@ -0,0 +1,18 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记 {@link TypedDocumentClient} 使用的文档类型，指定文档所在的索引（或别名）
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ElasticsearchDocument {
+
+    String index();
+}
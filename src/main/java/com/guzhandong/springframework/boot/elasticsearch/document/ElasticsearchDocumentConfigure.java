@@ -0,0 +1,42 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+public class ElasticsearchDocumentConfigure {
+
+    public static final String PREFIX = "spring.es.document";
+
+    private boolean enabled = false;
+
+    /**
+     * 引入 jackson-module-afterburner 时使用字节码生成的属性访问代替反射
+     */
+    private boolean afterburner = true;
+
+    /**
+     * _source 中有实体类没有的字段时是否失败
+     */
+    private boolean failOnUnknownProperties = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isAfterburner() {
+        return afterburner;
+    }
+
+    public void setAfterburner(boolean afterburner) {
+        this.afterburner = afterburner;
+    }
+
+    public boolean isFailOnUnknownProperties() {
+        return failOnUnknownProperties;
+    }
+
+    public void setFailOnUnknownProperties(boolean failOnUnknownProperties) {
+        this.failOnUnknownProperties = failOnUnknownProperties;
+    }
+}
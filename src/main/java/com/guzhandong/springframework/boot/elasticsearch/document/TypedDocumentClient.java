@@ -0,0 +1,132 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.search.SearchHitView;
+import com.guzhandong.springframework.boot.elasticsearch.search.StreamingSearchResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按实体类读写文档，实体与 _source 的转换见 {@link DocumentMapper}.
+ * <p>
+ * 实体类通过 {@link ElasticsearchDocument} 指定索引、{@link DocumentId} 指定 _id 字段；请求经过 {@link RestHighLevelClient}，
+ * 缓存、重试、对冲等配置同样生效
+ *
+ */
+public class TypedDocumentClient {
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    private final DocumentMapper documentMapper;
+
+    public TypedDocumentClient(RestHighLevelClient restHighLevelClient, DocumentMapper documentMapper) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.documentMapper = documentMapper;
+    }
+
+    public DocumentMapper getDocumentMapper() {
+        return documentMapper;
+    }
+
+    public <T> IndexResponse index(T document) throws IOException {
+        return index(document, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * 写入文档，_id 字段为 null 时由 es 生成并回填到实体
+     */
+    public <T> IndexResponse index(T document, RequestOptions options) throws IOException {
+        @SuppressWarnings("unchecked")
+        DocumentType<T> type = documentMapper.type((Class<T>) document.getClass());
+        IndexRequest indexRequest = new IndexRequest(index(type))
+                .id(type.getId(document))
+                .source(type.getWriter().writeValueAsBytes(document), XContentType.JSON);
+        IndexResponse indexResponse = restHighLevelClient.index(indexRequest, options);
+        type.fillId(document, indexResponse.getId());
+        return indexResponse;
+    }
+
+    public <T> T get(Class<T> type, String id) throws IOException {
+        return get(type, id, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * @return 文档不存在时为 null
+     */
+    public <T> T get(Class<T> type, String id, RequestOptions options) throws IOException {
+        GetResponse getResponse = restHighLevelClient.get(new GetRequest(index(documentMapper.type(type)), id), options);
+        if (!getResponse.isExists() || getResponse.isSourceEmpty()) {
+            return null;
+        }
+        return documentMapper.fromSource(type, getResponse.getSourceAsBytesRef(), getResponse.getId());
+    }
+
+    /**
+     * 搜索并把每条命中的 _source 转换为实体，没有 _source 的命中被忽略。
+     * 请求没有指定索引时使用实体类上的索引
+     */
+    public <T> List<T> search(SearchRequest searchRequest, Class<T> type, RequestOptions options) throws IOException {
+        SearchResponse searchResponse = restHighLevelClient.search(withIndex(searchRequest, type), options);
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        List<T> documents = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            BytesReference source = hit.getSourceRef();
+            if (source != null) {
+                documents.add(documentMapper.fromSource(type, source, hit.getId()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * 逐条搜索结果转换为实体，不保留整页结果，见 {@link RestHighLevelClient#searchStreaming(SearchRequest, RequestOptions)}。
+     * 没有 _source 的命中被忽略，请求没有指定索引时使用实体类上的索引
+     * @return 处理的文档数
+     */
+    public <T> int searchStreaming(SearchRequest searchRequest, Class<T> type, RequestOptions options, Consumer<? super T> consumer) throws IOException {
+        int count = 0;
+        try (StreamingSearchResponse response = restHighLevelClient.searchStreaming(withIndex(searchRequest, type), options)) {
+            while (response.hasNext()) {
+                SearchHitView hit = response.next();
+                if (hit.hasSource()) {
+                    consumer.accept(documentMapper.fromSource(type, hit.getSourceRef(), hit.getId()));
+                    count++;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count;
+    }
+
+    /**
+     * 请求没有指定索引时复制一份并设置实体类上的索引，不修改调用方的请求
+     */
+    private SearchRequest withIndex(SearchRequest searchRequest, Class<?> type) {
+        if (searchRequest.indices() == null || searchRequest.indices().length == 0) {
+            return new SearchRequest(searchRequest).indices(index(documentMapper.type(type)));
+        }
+        return searchRequest;
+    }
+
+    private static String index(DocumentType<?> type) {
+        if (type.getIndex() == null) {
+            throw new IllegalArgumentException(type.getType().getName() + " is not annotated with @ElasticsearchDocument");
+        }
+        return type.getIndex();
+    }
+}
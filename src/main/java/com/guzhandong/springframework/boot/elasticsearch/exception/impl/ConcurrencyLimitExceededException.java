@@ -0,0 +1,24 @@
+package com.guzhandong.springframework.boot.elasticsearch.exception.impl;
+
+
+/**
+ * 在途请求数达到并发上限，请求被直接拒绝而没有排队等待连接池
+ *
+ */
+public class ConcurrencyLimitExceededException extends GetActiveClientException {
+
+    private final int limit;
+
+    public ConcurrencyLimitExceededException(int limit) {
+        super("es concurrency limit exceeded, limit:" + limit);
+        this.limit = limit;
+        this.defReturnCode = 429;
+    }
+
+    /**
+     * 拒绝时的并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,107 @@
+package com.guzhandong.springframework.boot.elasticsearch.hedge;
+
+public class ElasticsearchHedgeConfigure {
+
+    public static final String PREFIX = "spring.es.hedge";
+
+    private boolean enabled = false;
+
+    /**
+     * 允许对冲的接口，只能是幂等的读接口；开启 scroll 的 search 会创建服务端 scroll 上下文，始终不对冲
+     */
+    private String[] operations = {"get", "multiGet", "search"};
+
+    /**
+     * 请求超过该接口耗时的这个分位数还没有返回时，向另一个节点发出对冲请求
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 计算分位数使用的最近样本数
+     */
+    private int windowSize = 1000;
+
+    /**
+     * 样本数不足时不对冲，避免冷启动时分位数不准
+     */
+    private int minSamples = 100;
+
+    /**
+     * 对冲延迟的下限(ms)，避免对本身很快的请求对冲
+     */
+    private long minDelayMillis = 5L;
+
+    /**
+     * 对冲预算：对冲请求数不超过请求数的该比例，控制额外负载
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * 对冲预算：请求量很低时每秒至少允许的对冲次数
+     */
+    private int budgetMinHedgesPerSecond = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String[] getOperations() {
+        return operations;
+    }
+
+    public void setOperations(String[] operations) {
+        this.operations = operations;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    public void setMinDelayMillis(long minDelayMillis) {
+        this.minDelayMillis = minDelayMillis;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetMinHedgesPerSecond() {
+        return budgetMinHedgesPerSecond;
+    }
+
+    public void setBudgetMinHedgesPerSecond(int budgetMinHedgesPerSecond) {
+        this.budgetMinHedgesPerSecond = budgetMinHedgesPerSecond;
+    }
+}
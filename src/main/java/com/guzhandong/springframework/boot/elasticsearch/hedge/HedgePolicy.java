@@ -0,0 +1,169 @@
+package com.guzhandong.springframework.boot.elasticsearch.hedge;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ExecListener;
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryBudget;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求策略.
+ * <p>
+ * 按接口统计最近成功请求的耗时，请求超过该接口的耗时分位数（默认 p95）还没有返回时，向另一个节点发出相同的请求，
+ * 先返回的结果生效，另一个请求通过 {@link org.elasticsearch.client.Cancellable} 取消。
+ * 对冲请求数受 {@link RetryBudget} 限制，集群整体变慢时不会成倍放大流量。
+ * 作为 {@link ExecListener} 注册到 {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient} 上收集耗时
+ *
+ */
+public class HedgePolicy implements ExecListener {
+
+    private final Set<String> operations;
+
+    private final double percentile;
+
+    private final int windowSize;
+
+    private final int minSamples;
+
+    private final long minDelayNanos;
+
+    private final RetryBudget hedgeBudget;
+
+    private final ConcurrentMap<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+
+    private final LongAdder hedgeCount = new LongAdder();
+
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    public HedgePolicy(ElasticsearchHedgeConfigure elasticsearchHedgeConfigure) {
+        this(elasticsearchHedgeConfigure.getOperations(),
+                elasticsearchHedgeConfigure.getPercentile(),
+                elasticsearchHedgeConfigure.getWindowSize(),
+                elasticsearchHedgeConfigure.getMinSamples(),
+                elasticsearchHedgeConfigure.getMinDelayMillis(),
+                new RetryBudget(elasticsearchHedgeConfigure.getBudgetRatio(), elasticsearchHedgeConfigure.getBudgetMinHedgesPerSecond()));
+    }
+
+    public HedgePolicy(String[] operations, double percentile, int windowSize, int minSamples, long minDelayMillis, RetryBudget hedgeBudget) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("hedge percentile must be between 0 and 1 but was " + percentile);
+        }
+        this.operations = operations == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(operations));
+        this.percentile = percentile;
+        this.windowSize = windowSize;
+        this.minSamples = Math.max(minSamples, 1);
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minDelayMillis, 0));
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    /**
+     * 该接口是否允许对冲
+     */
+    public boolean isHedged(String operation) {
+        return operation != null && operations.contains(operation);
+    }
+
+    /**
+     * 一次调用开始，存入对冲预算
+     */
+    public void onCall() {
+        hedgeBudget.deposit();
+    }
+
+    /**
+     * 发出对冲请求前的等待时间
+     * @return 耗时分位数(ns)，不低于 min-delay-millis；样本数不足时返回 -1，不对冲
+     */
+    public long hedgeDelayNanos(String operation) {
+        LatencyWindow latencyWindow = latencyWindows.get(operation);
+        if (latencyWindow == null) {
+            return -1;
+        }
+        long nanos = latencyWindow.percentile(percentile, minSamples);
+        return nanos < 0 ? -1 : Math.max(nanos, minDelayNanos);
+    }
+
+    /**
+     * 尝试取出一次对冲的预算
+     * @return 预算不足时返回 false
+     */
+    public boolean tryHedge() {
+        if (!hedgeBudget.tryWithdraw()) {
+            budgetExhaustedCount.increment();
+            return false;
+        }
+        hedgeCount.increment();
+        return true;
+    }
+
+    /**
+     * 对冲请求先于原请求返回
+     */
+    public void onHedgeWin() {
+        hedgeWinCount.increment();
+    }
+
+    /**
+     * 在后台线程上延迟发出对冲请求，原请求先返回时取消
+     */
+    public ScheduledFuture<?> schedule(Runnable hedge, long delayNanos) {
+        return SchedulerHolder.SCHEDULER.schedule(hedge, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onComplete(String operation, long elapsedNanos, Object response, Throwable failure) {
+        //失败的请求通常很快返回，计入会拉低分位数
+        if (failure == null && isHedged(operation)) {
+            latencyWindows.computeIfAbsent(operation, o -> new LatencyWindow(windowSize)).record(elapsedNanos);
+        }
+    }
+
+    /**
+     * 已发出的对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * 对冲请求先返回的次数
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * 因预算不足放弃的对冲次数
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+
+    public RetryBudget getHedgeBudget() {
+        return hedgeBudget;
+    }
+
+    private static class SchedulerHolder {
+
+        private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "es-hedge-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            //原请求在延迟内返回是常态，取消的任务立即移出队列
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
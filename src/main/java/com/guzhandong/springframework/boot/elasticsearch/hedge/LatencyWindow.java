@@ -0,0 +1,66 @@
+package com.guzhandong.springframework.boot.elasticsearch.hedge;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 个请求耗时的滑动窗口，用于计算分位数.
+ * <p>
+ * 分位数每记录 {@value #RECOMPUTE_INTERVAL} 个样本才重新排序计算一次，读取时直接返回缓存的结果
+ *
+ */
+public class LatencyWindow {
+
+    static final int RECOMPUTE_INTERVAL = 64;
+
+    private final long[] samples;
+
+    private int count;
+
+    private int next;
+
+    private int sinceComputed;
+
+    private double computedPercentile = -1;
+
+    private long computedNanos = -1;
+
+    public LatencyWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("latency window size must be >= 1 but was " + size);
+        }
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sinceComputed++;
+    }
+
+    /**
+     * @param percentile 分位数，如 0.95
+     * @param minSamples 最少样本数
+     * @return 耗时(ns)，样本数不足时返回 -1
+     */
+    public synchronized long percentile(double percentile, int minSamples) {
+        if (count == 0 || count < minSamples) {
+            return -1;
+        }
+        if (computedNanos < 0 || computedPercentile != percentile || sinceComputed >= RECOMPUTE_INTERVAL) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            computedNanos = sorted[Math.max(0, Math.min(count - 1, index))];
+            computedPercentile = percentile;
+            sinceComputed = 0;
+        }
+        return computedNanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+}
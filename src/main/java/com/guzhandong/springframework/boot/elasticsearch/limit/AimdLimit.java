@@ -0,0 +1,46 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加性增乘性减：请求过载或耗时超过 timeout 时上限乘以 backoffRatio，否则在上限被用满一半以上时加 1
+ */
+public class AimdLimit implements ConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final long timeoutNanos;
+
+    private volatile int limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutMillis) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoff ratio must be between 0 and 1 but was " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        int current = limit;
+        if (dropped || rttNanos > timeoutNanos) {
+            limit = Math.max(minLimit, Math.min(current - 1, (int) (current * backoffRatio)));
+        } else if (inFlight * 2 >= current) {
+            //只在上限被真正用到时才增加，避免低负载时上限无限增长
+            limit = Math.min(maxLimit, current + 1);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+/**
+ * 并发上限算法，根据每个请求的耗时和是否过载调整上限
+ */
+public interface ConcurrencyLimit {
+
+    /**
+     * 当前并发上限
+     */
+    int getLimit();
+
+    /**
+     * 一个请求完成
+     * @param rttNanos 请求耗时
+     * @param inFlight 该请求结束时的在途请求数（包括该请求自身）
+     * @param dropped 请求是否因为过载失败（429、超时）
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,133 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制.
+ * <p>
+ * 在途请求数达到 {@link ConcurrencyLimit#getLimit()} 时 {@link #tryAcquire()} 直接返回 false，调用方快速失败，
+ * 而不是阻塞在连接池上排队。每个请求结束时把耗时和是否过载(429、超时)反馈给上限算法，
+ * 集群变慢或开始拒绝请求时上限随之下降，恢复后再逐步上升
+ *
+ */
+public class ConcurrencyLimiter {
+
+    private final ConcurrencyLimit limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    public ConcurrencyLimiter(ConcurrencyLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 尝试占用一个并发名额，成功后必须调用一次 {@link #release}
+     * @return 在途请求数已达上限时返回 false
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(-1);
+    }
+
+    /**
+     * 尝试占用一个并发名额，上限不超过 maxInFlight，成功后必须调用一次 {@link #release}
+     * @param maxInFlight 在途请求数的硬上限（如连接池的 maxTotal），小于 0 表示不限制
+     * @return 在途请求数已达上限时返回 false
+     */
+    public boolean tryAcquire(int maxInFlight) {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= getLimit(maxInFlight)) {
+                rejectedCount.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放并发名额并反馈请求结果
+     * @param rttNanos 请求耗时
+     * @param failure 请求异常，为 null 表示成功；非过载的异常(如参数错误、404)不参与调整上限
+     */
+    public void release(long rttNanos, Throwable failure) {
+        int current = inFlight.getAndDecrement();
+        if (failure == null) {
+            limit.onSample(rttNanos, current, false);
+        } else if (isOverload(failure)) {
+            droppedCount.increment();
+            limit.onSample(rttNanos, current, true);
+        }
+    }
+
+    /**
+     * 释放并发名额，不反馈结果（拿不到请求耗时的情况）
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 是否为集群过载导致的失败：429 或请求超时
+     */
+    public static boolean isOverload(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ElasticsearchStatusException && ((ElasticsearchStatusException) t).status() == RestStatus.TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (t instanceof ResponseException
+                    && ((ResponseException) t).getResponse().getStatusLine().getStatusCode() == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+                return true;
+            }
+            if (t instanceof SocketTimeoutException || t instanceof TimeoutException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    /**
+     * 不超过 maxInFlight 的并发上限
+     * @param maxInFlight 小于 0 表示不限制
+     */
+    public int getLimit(int maxInFlight) {
+        return maxInFlight < 0 ? limit.getLimit() : Math.min(limit.getLimit(), maxInFlight);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 因达到上限被拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * 因过载失败的请求数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
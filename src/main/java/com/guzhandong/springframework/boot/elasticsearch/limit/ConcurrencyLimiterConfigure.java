@@ -0,0 +1,130 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+public class ConcurrencyLimiterConfigure {
+
+    public static final String PREFIX = "spring.es.limiter";
+
+    public static final String ALGORITHM_AIMD = "aimd";
+
+    public static final String ALGORITHM_VEGAS = "vegas";
+
+    public static final String ALGORITHM_GRADIENT = "gradient";
+
+    private boolean enabled = false;
+
+    /**
+     * 上限算法：aimd / vegas / gradient
+     */
+    private String algorithm = ALGORITHM_GRADIENT;
+
+    private int initialLimit = 20;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 200;
+
+    /**
+     * aimd：过载时上限乘以该比例
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * aimd：耗时超过该值(ms)也按过载处理
+     */
+    private long timeoutMillis = 5000L;
+
+    /**
+     * gradient：当前耗时超过长期平均耗时的多少倍才开始收缩
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * gradient：新上限的平滑权重
+     */
+    private double smoothing = 0.2;
+
+    public ConcurrencyLimit createLimit() {
+        if (ALGORITHM_AIMD.equalsIgnoreCase(algorithm)) {
+            return new AimdLimit(initialLimit, minLimit, maxLimit, backoffRatio, timeoutMillis);
+        }
+        if (ALGORITHM_GRADIENT.equalsIgnoreCase(algorithm)) {
+            return new GradientLimit(initialLimit, minLimit, maxLimit, rttTolerance, smoothing);
+        }
+        if (ALGORITHM_VEGAS.equalsIgnoreCase(algorithm)) {
+            return new VegasLimit(initialLimit, minLimit, maxLimit);
+        }
+        throw new IllegalArgumentException("unknown concurrency limit algorithm:" + algorithm);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+}
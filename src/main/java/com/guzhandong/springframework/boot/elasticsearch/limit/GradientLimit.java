@@ -0,0 +1,71 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+/**
+ * 梯度上限：比较长期平均耗时和当前耗时，{@code gradient = clamp(tolerance * longRtt / rtt, 0.5, 1)}，
+ * 新上限为 {@code limit * gradient + sqrt(limit)}，再按 smoothing 平滑.
+ * 耗时没有上升时上限以 sqrt(limit) 的速度增长，耗时上升超过 tolerance 倍时按比例收缩；过载失败按最小梯度处理
+ */
+public class GradientLimit implements ConcurrencyLimit {
+
+    /**
+     * 长期平均耗时的窗口(采样数)
+     */
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double rttTolerance;
+
+    private final double smoothing;
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRttNanos;
+
+    private long samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing) {
+        if (rttTolerance < 1) {
+            throw new IllegalArgumentException("rtt tolerance must be >= 1 but was " + rttTolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        //前几个采样用算术平均预热，之后用指数平均
+        samples++;
+        double factor = samples < LONG_WINDOW / 10 ? 1.0 / samples : 2.0 / (LONG_WINDOW + 1);
+        longRttNanos = longRttNanos + factor * (rttNanos - longRttNanos);
+        //负载下降后长期耗时会远高于当前耗时，快速向下修正，避免上限一直保持在过高的位置
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        double current = estimatedLimit;
+        if (!dropped && inFlight * 2 < current) {
+            return;
+        }
+        double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        double next = current * gradient + Math.sqrt(current);
+        next = current * (1 - smoothing) + next * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
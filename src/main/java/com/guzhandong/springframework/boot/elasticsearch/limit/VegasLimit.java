@@ -0,0 +1,82 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * TCP Vegas 风格的上限：用空载耗时(观察到的最小耗时)估算排队长度 {@code limit * (1 - rttNoLoad / rtt)}，
+ * 排队少于 alpha 时增大上限，多于 beta 时减小上限，alpha/beta 随上限按 log10 缩放.
+ * <p>
+ * 空载耗时会随集群状态变化，每隔一段随机的采样数重置一次，避免一直使用过期的最小值
+ */
+public class VegasLimit implements ConcurrencyLimit {
+
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private long rttNoLoadNanos;
+
+    private long probeCountdown;
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+        resetProbe();
+    }
+
+    private void resetProbe() {
+        probeCountdown = (long) (PROBE_MULTIPLIER * estimatedLimit * (0.5 + ThreadLocalRandom.current().nextDouble()));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (--probeCountdown <= 0) {
+            resetProbe();
+            rttNoLoadNanos = rttNanos;
+            return;
+        }
+        if (rttNoLoadNanos == 0 || rttNanos < rttNoLoadNanos) {
+            rttNoLoadNanos = rttNanos;
+            return;
+        }
+        double current = estimatedLimit;
+        double log = Math.max(1, Math.log10(current));
+        double next;
+        if (dropped) {
+            next = current - log;
+        } else if (inFlight * 2 < current) {
+            return;
+        } else {
+            int queueSize = (int) Math.ceil(current * (1 - (double) rttNoLoadNanos / rttNanos));
+            double alpha = 3 * log;
+            double beta = 6 * log;
+            if (queueSize <= log) {
+                next = current + beta;
+            } else if (queueSize < alpha) {
+                next = current + log;
+            } else if (queueSize > beta) {
+                next = current - log;
+            } else {
+                return;
+            }
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,46 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Micrometer 统计：{@link ElasticsearchBulkProcessor} 的吞吐和积压
+ */
+public class ElasticsearchBulkProcessorMetrics implements MeterBinder {
+
+    public static final String METRIC_PREFIX = ElasticsearchClientMetrics.METRIC_PREFIX + ".bulk";
+
+    private final ElasticsearchBulkProcessor elasticsearchBulkProcessor;
+
+    private final Iterable<Tag> tags;
+
+    public ElasticsearchBulkProcessorMetrics(ElasticsearchBulkProcessor elasticsearchBulkProcessor) {
+        this(elasticsearchBulkProcessor, Tags.empty());
+    }
+
+    public ElasticsearchBulkProcessorMetrics(ElasticsearchBulkProcessor elasticsearchBulkProcessor, Iterable<Tag> tags) {
+        this.elasticsearchBulkProcessor = elasticsearchBulkProcessor;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".pending", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getPendingActions)
+                .tags(tags).description("actions buffered but not yet sent").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".in.flight", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getInFlightBulks)
+                .tags(tags).description("bulk requests in flight").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".actions", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getSucceededActions)
+                .tags(tags).tag("outcome", "SUCCESS").description("bulk actions completed").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".actions", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getFailedActions)
+                .tags(tags).tag("outcome", "FAILURE").description("bulk actions completed").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getCompletedBulks)
+                .tags(tags).tag("outcome", "SUCCESS").description("bulk requests completed").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".requests", elasticsearchBulkProcessor, ElasticsearchBulkProcessor::getFailedBulks)
+                .tags(tags).tag("outcome", "FAILURE").description("bulk requests completed").register(registry);
+    }
+}
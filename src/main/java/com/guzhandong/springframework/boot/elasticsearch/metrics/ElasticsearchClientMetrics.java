@@ -0,0 +1,142 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ExecListener;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.common.xcontent.StatusToXContentObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer 统计：连接池状态、借出等待耗时、在途请求数，以及 {@link RestHighLevelClient}
+ * 每个接口的请求耗时（按 operation、outcome、status 区分）.
+ * <p>
+ * 连接池的 JMX 为避免 MXBean 冲突被关闭（见 {@code HighLevelClientAutoConfigure#elasticsearchClientPoolConfigure}），
+ * 连接池耗尽表现为借出等待耗时和 waiters 升高。
+ * <p>
+ * 共享连接模式（{@link com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchSharedClientPool}）下不经过
+ * commons-pool，{@code pool.*} 统计不反映负载（active、idle、created 始终为 0，借出等待接近 0），
+ * 请使用 {@code requests.in.flight}；请求在 httpclient 中排队等待连接的情况只体现在请求耗时中。
+ *
+ */
+public class ElasticsearchClientMetrics implements MeterBinder, ExecListener {
+
+    public static final String METRIC_PREFIX = "es.client";
+
+    private final ElasticsearchClientPool elasticsearchClientPool;
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    private final Iterable<Tag> tags;
+
+    private volatile MeterRegistry registry;
+
+    private volatile Timer borrowTimer;
+
+    public ElasticsearchClientMetrics(ElasticsearchClientPool elasticsearchClientPool) {
+        this(elasticsearchClientPool, null, Tags.empty());
+    }
+
+    public ElasticsearchClientMetrics(ElasticsearchClientPool elasticsearchClientPool, Iterable<Tag> tags) {
+        this(elasticsearchClientPool, null, tags);
+    }
+
+    public ElasticsearchClientMetrics(ElasticsearchClientPool elasticsearchClientPool, RestHighLevelClient restHighLevelClient) {
+        this(elasticsearchClientPool, restHighLevelClient, Tags.empty());
+    }
+
+    /**
+     * @param restHighLevelClient 为 null 时不统计在途请求数
+     */
+    public ElasticsearchClientMetrics(ElasticsearchClientPool elasticsearchClientPool, RestHighLevelClient restHighLevelClient,
+                                      Iterable<Tag> tags) {
+        this.elasticsearchClientPool = elasticsearchClientPool;
+        this.restHighLevelClient = restHighLevelClient;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".pool.active", elasticsearchClientPool, ElasticsearchClientPool::getNumActive)
+                .tags(tags).description("clients currently borrowed from the pool").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".pool.idle", elasticsearchClientPool, ElasticsearchClientPool::getNumIdle)
+                .tags(tags).description("idle clients in the pool").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".pool.waiters", elasticsearchClientPool, ElasticsearchClientPool::getNumWaiters)
+                .tags(tags).description("threads blocked waiting for a client").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".pool.max", elasticsearchClientPool, ElasticsearchClientPool::getMaxTotal)
+                .tags(tags).description("maximum number of clients").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".pool.created", elasticsearchClientPool, ElasticsearchClientPool::getCreatedCount)
+                .tags(tags).description("clients created by the pool").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".pool.destroyed", elasticsearchClientPool, ElasticsearchClientPool::getDestroyedCount)
+                .tags(tags).description("clients destroyed by the pool").register(registry);
+        this.borrowTimer = Timer.builder(METRIC_PREFIX + ".pool.borrow")
+                .tags(tags).description("time spent waiting to borrow a client")
+                .publishPercentileHistogram().register(registry);
+        if (restHighLevelClient != null) {
+            Gauge.builder(METRIC_PREFIX + ".requests.in.flight", restHighLevelClient, RestHighLevelClient::getInFlightRequests)
+                    .tags(tags).description("requests currently executing through the client").register(registry);
+        }
+        this.registry = registry;
+    }
+
+    @Override
+    public void onBorrow(long waitNanos) {
+        Timer timer = borrowTimer;
+        if (timer != null) {
+            timer.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void onComplete(String operation, long elapsedNanos, Object response, Throwable failure) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        int status = status(response, failure);
+        Timer.builder(METRIC_PREFIX + ".requests")
+                .tags(tags)
+                .tag("operation", operation)
+                .tag("outcome", outcome(status, failure))
+                .tag("status", status > 0 ? String.valueOf(status) : "NONE")
+                .description("elasticsearch requests issued through the pooled client")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static int status(Object response, Throwable failure) {
+        if (failure == null) {
+            return response instanceof StatusToXContentObject ? ((StatusToXContentObject) response).status().getStatus() : 200;
+        }
+        if (failure instanceof ElasticsearchStatusException) {
+            return ((ElasticsearchStatusException) failure).status().getStatus();
+        }
+        if (failure instanceof ResponseException) {
+            return ((ResponseException) failure).getResponse().getStatusLine().getStatusCode();
+        }
+        return 0;
+    }
+
+    private static String outcome(int status, Throwable failure) {
+        if (status >= 200 && status < 300 && failure == null) {
+            return "SUCCESS";
+        }
+        if (status >= 400 && status < 500) {
+            return "CLIENT_ERROR";
+        }
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        return "UNKNOWN";
+    }
+}
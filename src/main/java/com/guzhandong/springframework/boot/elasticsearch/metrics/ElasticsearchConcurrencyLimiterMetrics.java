@@ -0,0 +1,42 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Micrometer 统计：{@link ConcurrencyLimiter} 的上限、在途请求和拒绝数
+ */
+public class ElasticsearchConcurrencyLimiterMetrics implements MeterBinder {
+
+    public static final String METRIC_PREFIX = ElasticsearchClientMetrics.METRIC_PREFIX + ".limiter";
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    private final Iterable<Tag> tags;
+
+    public ElasticsearchConcurrencyLimiterMetrics(ConcurrencyLimiter concurrencyLimiter) {
+        this(concurrencyLimiter, Tags.empty());
+    }
+
+    public ElasticsearchConcurrencyLimiterMetrics(ConcurrencyLimiter concurrencyLimiter, Iterable<Tag> tags) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_PREFIX + ".limit", concurrencyLimiter, ConcurrencyLimiter::getLimit)
+                .tags(tags).description("current concurrency limit").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".in.flight", concurrencyLimiter, ConcurrencyLimiter::getInFlight)
+                .tags(tags).description("requests holding a concurrency permit").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", concurrencyLimiter, ConcurrencyLimiter::getRejectedCount)
+                .tags(tags).description("requests rejected because the limit was reached").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".dropped", concurrencyLimiter, ConcurrencyLimiter::getDroppedCount)
+                .tags(tags).description("requests failed with 429 or timeout").register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.cache.DocumentCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Micrometer 统计：{@link DocumentCache} 的命中、未命中、淘汰和大小
+ */
+public class ElasticsearchDocumentCacheMetrics implements MeterBinder {
+
+    public static final String METRIC_PREFIX = ElasticsearchClientMetrics.METRIC_PREFIX + ".near.cache";
+
+    private final DocumentCache documentCache;
+
+    private final Iterable<Tag> tags;
+
+    public ElasticsearchDocumentCacheMetrics(DocumentCache documentCache) {
+        this(documentCache, Tags.empty());
+    }
+
+    public ElasticsearchDocumentCacheMetrics(DocumentCache documentCache, Iterable<Tag> tags) {
+        this.documentCache = documentCache;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", documentCache, DocumentCache::getHitCount)
+                .tags(tags).tag("result", "hit").description("get/multiGet items served from the near cache").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", documentCache, DocumentCache::getMissCount)
+                .tags(tags).tag("result", "miss").description("get/multiGet items sent to the cluster").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".evictions", documentCache, DocumentCache::getEvictionCount)
+                .tags(tags).description("documents evicted by size").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", documentCache, DocumentCache::getSize)
+                .tags(tags).description("cached documents").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".weight", documentCache, DocumentCache::getWeightBytes)
+                .tags(tags).baseUnit("bytes").description("estimated size of cached documents").register(registry);
+    }
+}
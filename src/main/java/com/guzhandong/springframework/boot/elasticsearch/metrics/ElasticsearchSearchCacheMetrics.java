@@ -0,0 +1,44 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.cache.SearchCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Micrometer 统计：{@link SearchCache} 的命中、未命中、共享在途请求、淘汰和大小
+ */
+public class ElasticsearchSearchCacheMetrics implements MeterBinder {
+
+    public static final String METRIC_PREFIX = ElasticsearchClientMetrics.METRIC_PREFIX + ".search.cache";
+
+    private final SearchCache searchCache;
+
+    private final Iterable<Tag> tags;
+
+    public ElasticsearchSearchCacheMetrics(SearchCache searchCache) {
+        this(searchCache, Tags.empty());
+    }
+
+    public ElasticsearchSearchCacheMetrics(SearchCache searchCache, Iterable<Tag> tags) {
+        this.searchCache = searchCache;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", searchCache, SearchCache::getHitCount)
+                .tags(tags).tag("result", "hit").description("searches served from the search cache").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", searchCache, SearchCache::getMissCount)
+                .tags(tags).tag("result", "miss").description("searches sent to the cluster").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".gets", searchCache, SearchCache::getSharedCount)
+                .tags(tags).tag("result", "shared").description("searches that waited for an identical in-flight search").register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".evictions", searchCache, SearchCache::getEvictionCount)
+                .tags(tags).description("search results evicted by size").register(registry);
+        Gauge.builder(METRIC_PREFIX + ".size", searchCache, SearchCache::getSize)
+                .tags(tags).description("cached search results").register(registry);
+    }
+}
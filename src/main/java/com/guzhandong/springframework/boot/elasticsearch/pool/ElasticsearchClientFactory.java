@@ -1,13 +1,32 @@
 package com.guzhandong.springframework.boot.elasticsearch.pool;
 
 import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.compression.HttpCompression;
+import com.guzhandong.springframework.boot.elasticsearch.routing.CircuitBreakerNodeSelector;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeCircuitBreakers;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeLatencyTracker;
 import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
@@ -16,13 +35,31 @@ import org.elasticsearch.client.RestHighLevelClient;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class ElasticsearchClientFactory implements PooledObjectFactory<RestHighLevelClient>{
 
+    private static final String NODE_LATENCY_START = "es.node.latency.start";
+
     private LogUtil logUtil = LogUtil.getLogger(getClass());
 
     private ElasticsearchClientConfigure elasticsearchClientConfigure;
 
+    private ElasticsearchNodeHealthChecker healthChecker;
+
+    private NodeSelector nodeSelector;
+
+    private NodeLatencyTracker nodeLatencyTracker;
+
+    private NodeCircuitBreakers nodeCircuitBreakers;
+
+    private HttpCompression httpCompression;
+
+    /**
+     * 所有 client 共享的节点嗅探，第一次创建 client 时创建，未开启嗅探时不加载 sniffer 相关类
+     */
+    private ElasticsearchClientSniffer sniffer;
+
     public ElasticsearchClientFactory(ElasticsearchClientConfigure elasticsearchClientConfigure) {
         this.elasticsearchClientConfigure = elasticsearchClientConfigure;
     }
@@ -50,46 +87,259 @@ public class ElasticsearchClientFactory implements PooledObjectFactory<RestHighL
     }
 
     /**
-     * 异步httpclient的连接数配置
+     * 异步httpclient配置，RestClientBuilder 只能设置一个回调，所有 httpclient 层面的配置都在这里完成
      * @param builder
      */
-    private void setMutiConnectConfig(RestClientBuilder builder) {
+    private void setHttpClientConfig(RestClientBuilder builder) {
         builder.setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
             @Override
             public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
-                if (elasticsearchClientConfigure.getMaxConnectNum()>0) {
-                    httpClientBuilder.setMaxConnTotal(elasticsearchClientConfigure.getMaxConnectNum());
+                IOReactorConfig ioReactorConfig = buildIOReactorConfig();
+                if (elasticsearchClientConfigure.getConnectionTimeToLive()>0) {
+                    httpClientBuilder.setConnectionManager(buildConnectionManager(ioReactorConfig));
+                } else {
+                    httpClientBuilder.setDefaultIOReactorConfig(ioReactorConfig);
+                    setMutiConnectConfig(httpClientBuilder);
                 }
-                if (elasticsearchClientConfigure.getMaxConnectPerRoute()>0) {
-                    httpClientBuilder.setMaxConnPerRoute(elasticsearchClientConfigure.getMaxConnectPerRoute());
-                }
-                return httpClientBuilder;
+                setKeepAliveConfig(httpClientBuilder);
+                setNodeLatencyInterceptor(httpClientBuilder);
+                setCircuitBreakerInterceptor(httpClientBuilder);
+                return httpCompression == null ? httpClientBuilder : httpCompression.wrap(httpClientBuilder);
             }
         });
     }
 
-    @Override
-    public PooledObject<RestHighLevelClient> makeObject() throws Exception {
-        Set<String > hostSet = new HashSet<String>(this.elasticsearchClientConfigure.getHosts().length+this.elasticsearchClientConfigure.getHosts().length/3);
-        for (String h:this.elasticsearchClientConfigure.getHosts()){
+    /**
+     * 异步httpclient的连接数配置
+     * @param httpClientBuilder
+     */
+    private void setMutiConnectConfig(HttpAsyncClientBuilder httpClientBuilder) {
+        if (elasticsearchClientConfigure.getMaxConnectNum()>0) {
+            httpClientBuilder.setMaxConnTotal(elasticsearchClientConfigure.getMaxConnectNum());
+        }
+        if (elasticsearchClientConfigure.getMaxConnectPerRoute()>0) {
+            httpClientBuilder.setMaxConnPerRoute(elasticsearchClientConfigure.getMaxConnectPerRoute());
+        }
+    }
+
+    /**
+     * 异步httpclient的 I/O reactor 配置
+     * @return
+     */
+    private IOReactorConfig buildIOReactorConfig() {
+        IOReactorConfig.Builder ioReactorConfigBuilder = IOReactorConfig.custom()
+                .setSoKeepAlive(elasticsearchClientConfigure.isSoKeepAlive())
+                .setTcpNoDelay(elasticsearchClientConfigure.isTcpNoDelay());
+        if (elasticsearchClientConfigure.getIoThreadCount()>0) {
+            ioReactorConfigBuilder.setIoThreadCount(elasticsearchClientConfigure.getIoThreadCount());
+        }
+        if (elasticsearchClientConfigure.getSndBufSize()>0) {
+            ioReactorConfigBuilder.setSndBufSize(elasticsearchClientConfigure.getSndBufSize());
+        }
+        if (elasticsearchClientConfigure.getRcvBufSize()>0) {
+            ioReactorConfigBuilder.setRcvBufSize(elasticsearchClientConfigure.getRcvBufSize());
+        }
+        if (elasticsearchClientConfigure.getSelectInterval()>0) {
+            ioReactorConfigBuilder.setSelectInterval(elasticsearchClientConfigure.getSelectInterval());
+        }
+        return ioReactorConfigBuilder.build();
+    }
+
+    /**
+     * 配置了连接最大存活时间时需要自行创建连接管理器，此时 httpclient builder 上的连接数、I/O reactor、SSL 配置都不再生效，
+     * 需要在连接管理器上重新设置
+     * @param ioReactorConfig
+     * @return
+     */
+    private PoolingNHttpClientConnectionManager buildConnectionManager(IOReactorConfig ioReactorConfig) {
+        try {
+            Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE)
+                    .register("https", SSLIOSessionStrategy.getSystemDefaultStrategy())
+                    .build();
+            PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig), null, registry, null, null,
+                    elasticsearchClientConfigure.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+            connectionManager.setMaxTotal(elasticsearchClientConfigure.getMaxConnectNum()>0
+                    ? elasticsearchClientConfigure.getMaxConnectNum() : RestClientBuilder.DEFAULT_MAX_CONN_TOTAL);
+            connectionManager.setDefaultMaxPerRoute(elasticsearchClientConfigure.getMaxConnectPerRoute()>0
+                    ? elasticsearchClientConfigure.getMaxConnectPerRoute() : RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE);
+            return connectionManager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("es http client create I/O reactor exception", e);
+        }
+    }
+
+    /**
+     * 空闲连接保活时间配置
+     * @param httpClientBuilder
+     */
+    private void setKeepAliveConfig(HttpAsyncClientBuilder httpClientBuilder) {
+        if (elasticsearchClientConfigure.getKeepAliveTime()>0) {
+            final long keepAliveTime = elasticsearchClientConfigure.getKeepAliveTime();
+            httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+                long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveTime) : keepAliveTime;
+            });
+        }
+    }
+
+    /**
+     * 节点耗时统计：发出请求时记录开始时间，收到响应头时按实际请求的节点记录耗时
+     * @param httpClientBuilder
+     */
+    private void setNodeLatencyInterceptor(HttpAsyncClientBuilder httpClientBuilder) {
+        if (nodeLatencyTracker != null) {
+            httpClientBuilder.addInterceptorFirst((HttpRequestInterceptor) (request, context) ->
+                    context.setAttribute(NODE_LATENCY_START, System.nanoTime()));
+            httpClientBuilder.addInterceptorLast((HttpResponseInterceptor) (response, context) -> {
+                HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+                Object startNanos = context.getAttribute(NODE_LATENCY_START);
+                if (host != null && startNanos instanceof Long) {
+                    nodeLatencyTracker.onResponse(host, System.nanoTime() - (Long) startNanos);
+                }
+            });
+        }
+    }
+
+    /**
+     * 熔断器记录响应结果：502/503/504 由 RestClient 的 FailureListener 记录为失败，其他响应记录为成功
+     * @param httpClientBuilder
+     */
+    private void setCircuitBreakerInterceptor(HttpAsyncClientBuilder httpClientBuilder) {
+        if (nodeCircuitBreakers != null) {
+            httpClientBuilder.addInterceptorLast((HttpResponseInterceptor) (response, context) -> {
+                HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+                int status = response.getStatusLine().getStatusCode();
+                if (host != null && status != 502 && status != 503 && status != 504) {
+                    nodeCircuitBreakers.onSuccess(host);
+                }
+            });
+        }
+    }
+
+    /**
+     * 熔断器记录 IO 异常和 502/503/504，RestClient 只能设置一个 FailureListener，开启嗅探时转发给失败时嗅探的监听
+     * @param builder
+     * @param delegate
+     */
+    private void setCircuitBreakerFailureListener(RestClientBuilder builder, RestClient.FailureListener delegate) {
+        if (nodeCircuitBreakers != null) {
+            builder.setFailureListener(new RestClient.FailureListener() {
+                @Override
+                public void onFailure(Node node) {
+                    nodeCircuitBreakers.onFailure(node.getHost());
+                    if (delegate != null) {
+                        delegate.onFailure(node);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 设置节点后台健康检查，设置后 {@link #validateObject(PooledObject)} 只读取检查结果，不再ping
+     * @param healthChecker
+     */
+    public void setHealthChecker(ElasticsearchNodeHealthChecker healthChecker) {
+        this.healthChecker = healthChecker;
+    }
+
+    /**
+     * 设置节点选择策略，不设置时使用 RestClient 默认的轮询
+     * @param nodeSelector
+     */
+    public void setNodeSelector(NodeSelector nodeSelector) {
+        this.nodeSelector = nodeSelector;
+    }
+
+    /**
+     * 设置节点耗时统计，设置后每个请求的耗时按实际收到响应的节点记录，见 {@link NodeLatencyTracker}
+     * @param nodeLatencyTracker
+     */
+    public void setNodeLatencyTracker(NodeLatencyTracker nodeLatencyTracker) {
+        this.nodeLatencyTracker = nodeLatencyTracker;
+    }
+
+    /**
+     * 设置节点熔断，设置后熔断中的节点不参与选择，见 {@link NodeCircuitBreakers}
+     * @param nodeCircuitBreakers
+     */
+    public void setNodeCircuitBreakers(NodeCircuitBreakers nodeCircuitBreakers) {
+        this.nodeCircuitBreakers = nodeCircuitBreakers;
+    }
+
+    /**
+     * 设置 gzip 压缩，设置后 bulk/search/msearch 的大请求体压缩发送，响应按 gzip 接收，见 {@link HttpCompression}
+     * @param httpCompression
+     */
+    public void setHttpCompression(HttpCompression httpCompression) {
+        this.httpCompression = httpCompression;
+    }
+
+    /**
+     * 解析配置的节点列表（去重）
+     * @return
+     */
+    public HttpHost[] getHttpHosts() {
+        return parseHttpHosts(elasticsearchClientConfigure);
+    }
+
+    /**
+     * 解析配置的节点列表（去重）
+     * @param elasticsearchClientConfigure
+     * @return
+     */
+    public static HttpHost[] parseHttpHosts(ElasticsearchClientConfigure elasticsearchClientConfigure) {
+        Set<String > hostSet = new HashSet<String>(elasticsearchClientConfigure.getHosts().length+elasticsearchClientConfigure.getHosts().length/3);
+        for (String h:elasticsearchClientConfigure.getHosts()){
             hostSet.add(h);
         }
-        HttpHost[] httpHosts = hostSet.stream()
+        return hostSet.stream()
                 .map(host->new HttpHost(host.split("\\:")[0], Integer.valueOf(host.split("\\:")[1]), elasticsearchClientConfigure.getSchema()))
                 .toArray(len->new HttpHost[len]);
-        RestClientBuilder clientBuilder = RestClient.builder(httpHosts);
+    }
+
+    @Override
+    public PooledObject<RestHighLevelClient> makeObject() throws Exception {
+        RestClientBuilder clientBuilder = RestClient.builder(getHttpHosts());
+        setConnectTimeOutConfig(clientBuilder);
+        setHttpClientConfig(clientBuilder);
+        if (nodeCircuitBreakers != null) {
+            clientBuilder.setNodeSelector(new CircuitBreakerNodeSelector(nodeCircuitBreakers, nodeSelector));
+        } else if (nodeSelector != null) {
+            clientBuilder.setNodeSelector(nodeSelector);
+        }
+        if (elasticsearchClientConfigure.isSniffEnabled()) {
+            ElasticsearchClientSniffer sniffer = getSniffer();
+            sniffer.configure(clientBuilder);
+            setCircuitBreakerFailureListener(clientBuilder, sniffer.getFailureListener());
+            RestHighLevelClient client = new RestHighLevelClient(clientBuilder);
+            sniffer.register(client.getLowLevelClient());
+            return new DefaultPooledObject(client);
+        }
+        setCircuitBreakerFailureListener(clientBuilder, null);
         RestHighLevelClient client = new RestHighLevelClient(clientBuilder);
         return new DefaultPooledObject(client);
 
     }
 
+    private synchronized ElasticsearchClientSniffer getSniffer() {
+        if (sniffer == null) {
+            sniffer = new ElasticsearchClientSniffer(elasticsearchClientConfigure);
+        }
+        return sniffer;
+    }
+
     @Override
     public void destroyObject(PooledObject<RestHighLevelClient> p) throws Exception {
         if (p.getObject()!=null) {
+            if (elasticsearchClientConfigure.isSniffEnabled()) {
+                getSniffer().unregister(p.getObject().getLowLevelClient());
+            }
+            //节点不可用时也要关闭，否则 I/O reactor 线程和连接不会释放
             try {
-                if (p.getObject().ping(RequestOptions.DEFAULT)) {
-                    p.getObject().close();
-                }
+                p.getObject().close();
             } catch (IOException e) {
                 logUtil.debug("es http client close exception:{}",e.getMessage());
             }
@@ -99,6 +349,9 @@ public class ElasticsearchClientFactory implements PooledObjectFactory<RestHighL
 
     @Override
     public boolean validateObject(PooledObject<RestHighLevelClient> p) {
+        if (healthChecker != null) {
+            return p.getObject()!=null && healthChecker.isAnyAlive();
+        }
         try {
             if (p.getObject()!=null && p.getObject().ping(RequestOptions.DEFAULT)) {
                 return true;
@@ -111,13 +364,7 @@ public class ElasticsearchClientFactory implements PooledObjectFactory<RestHighL
 
     @Override
     public void activateObject(PooledObject<RestHighLevelClient> p) throws Exception {
-        boolean result =false;
-        try {
-            result = p.getObject().ping(RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            logUtil.debug("http pool active client ,ping result :{}",result);
-        }
-
+        //nothing，借出时不再ping，节点存活由 testOnBorrow + 后台健康检查判断
     }
 
     @Override
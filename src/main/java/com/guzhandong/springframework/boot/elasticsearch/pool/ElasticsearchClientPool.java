@@ -1,24 +1,101 @@
 package com.guzhandong.springframework.boot.elasticsearch.pool;
 
+import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.AbandonedConfig;
+import org.apache.commons.pool2.impl.EvictionConfig;
+import org.apache.commons.pool2.impl.EvictionPolicy;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.beans.factory.DisposableBean;
 
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
 public class ElasticsearchClientPool extends GenericObjectPool<RestHighLevelClient> implements DisposableBean {
 
+    /**
+     * 累计借出等待时间，和 {@link #getBorrowedCount()} 一起可以算出任意时间窗口内的平均等待
+     */
+    private final LongAdder borrowWaitNanos = new LongAdder();
+
+    /**
+     * 累计借出超时(连接池耗尽)次数
+     */
+    private final LongAdder borrowTimeoutCount = new LongAdder();
+
     public ElasticsearchClientPool(PooledObjectFactory factory) {
         super(factory);
+        trimExcessIdleOnEvict();
     }
 
     public ElasticsearchClientPool(PooledObjectFactory factory, GenericObjectPoolConfig config) {
         super(factory, config);
+        trimExcessIdleOnEvict();
     }
 
     public ElasticsearchClientPool(PooledObjectFactory factory, GenericObjectPoolConfig config, AbandonedConfig abandonedConfig) {
         super(factory, config, abandonedConfig);
+        trimExcessIdleOnEvict();
+    }
+
+    /**
+     * 空闲数超过 maxIdle 时驱逐检查到的空闲 client，否则按配置的驱逐策略处理
+     */
+    private void trimExcessIdleOnEvict() {
+        EvictionPolicy<RestHighLevelClient> evictionPolicy = getEvictionPolicy();
+        setEvictionPolicy(new EvictionPolicy<RestHighLevelClient>() {
+            @Override
+            public boolean evict(EvictionConfig config, PooledObject<RestHighLevelClient> underTest, int idleCount) {
+                //maxIdle 为负数表示不限制
+                return (getMaxIdle() >= 0 && idleCount > getMaxIdle()) || evictionPolicy.evict(config, underTest, idleCount);
+            }
+        });
+    }
+
+    @Override
+    public RestHighLevelClient borrowObject(long borrowMaxWaitMillis) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return super.borrowObject(borrowMaxWaitMillis);
+        } catch (NoSuchElementException e) {
+            borrowTimeoutCount.increment();
+            throw e;
+        } finally {
+            borrowWaitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public long getBorrowWaitNanos() {
+        return borrowWaitNanos.sum();
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.sum();
+    }
+
+    /**
+     * 销毁超出 maxIdle 的空闲 client，用于调小连接池之后立即释放资源，而不是等它们被借出归还时才销毁.
+     * 通过驱逐完成，不经过借出流程，不影响借出统计，也不会在没有空闲 client 时创建新的 client
+     *
+     * @return 销毁的数量
+     */
+    public int trimIdle() {
+        long destroyedBefore = getDestroyedByEvictorCount();
+        //每次驱逐只检查 numTestsPerEvictionRun 个空闲 client，没有进展时停止
+        while (getMaxIdle() >= 0 && getNumIdle() > getMaxIdle() && !isClosed()) {
+            long destroyed = getDestroyedByEvictorCount();
+            try {
+                evict();
+            } catch (Exception e) {
+                break;
+            }
+            if (getDestroyedByEvictorCount() == destroyed) {
+                break;
+            }
+        }
+        return (int) (getDestroyedByEvictorCount() - destroyedBefore);
     }
 
     @Override
@@ -6,8 +6,71 @@ public class ElasticsearchClientPoolConfigure extends GenericObjectPoolConfig {
     public static final String PREFIX = "spring.es.pool";
     //初始化
     private static final boolean DEFAULT_CONNECTION_INIT = true;
+    private static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 5000L;
+    private static final int DEFAULT_ADAPTIVE_MIN_TOTAL = 2;
+    private static final int DEFAULT_ADAPTIVE_MAX_TOTAL = 64;
+    private static final long DEFAULT_ADAPTIVE_INTERVAL_MILLIS = 1000L;
+    private static final long DEFAULT_ADAPTIVE_TARGET_BORROW_WAIT_MILLIS = 5L;
+    private static final int DEFAULT_ADAPTIVE_INCREASE_STEP = 2;
+    private static final double DEFAULT_ADAPTIVE_DECREASE_FACTOR = 0.75;
+    private static final double DEFAULT_ADAPTIVE_LOW_UTILIZATION = 0.5;
     private boolean connectionInit = false;
 
+    /**
+     * 共享传输层模式：整个进程只使用一个线程安全的 client，借还操作为空操作，见 {@link ElasticsearchSharedClientPool}
+     */
+    private boolean sharedTransport = false;
+
+    /**
+     * 后台节点健康检查，开启后借出/校验 client 时不再ping，见 {@link ElasticsearchNodeHealthChecker}
+     */
+    private boolean healthCheckEnabled = false;
+
+    /**
+     * 后台节点健康检查间隔
+     */
+    private long healthCheckIntervalMillis = DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS;
+
+    /**
+     * 根据借出等待时间和使用率自动调整 maxTotal/minIdle，见 {@link ElasticsearchPoolSizeController}
+     */
+    private boolean adaptiveEnabled = false;
+
+    /**
+     * 自动调整时 maxTotal 的下限
+     */
+    private int adaptiveMinTotal = DEFAULT_ADAPTIVE_MIN_TOTAL;
+
+    /**
+     * 自动调整时 maxTotal 的上限
+     */
+    private int adaptiveMaxTotal = DEFAULT_ADAPTIVE_MAX_TOTAL;
+
+    /**
+     * 自动调整的间隔
+     */
+    private long adaptiveIntervalMillis = DEFAULT_ADAPTIVE_INTERVAL_MILLIS;
+
+    /**
+     * 一个间隔内平均借出等待超过该值时扩容
+     */
+    private long adaptiveTargetBorrowWaitMillis = DEFAULT_ADAPTIVE_TARGET_BORROW_WAIT_MILLIS;
+
+    /**
+     * 每次扩容增加的数量（加性增）
+     */
+    private int adaptiveIncreaseStep = DEFAULT_ADAPTIVE_INCREASE_STEP;
+
+    /**
+     * 每次缩容的比例（乘性减）
+     */
+    private double adaptiveDecreaseFactor = DEFAULT_ADAPTIVE_DECREASE_FACTOR;
+
+    /**
+     * 使用率持续低于该值时缩容
+     */
+    private double adaptiveLowUtilization = DEFAULT_ADAPTIVE_LOW_UTILIZATION;
+
     public ElasticsearchClientPoolConfigure() {
         connectionInit = DEFAULT_CONNECTION_INIT;
     }
@@ -22,4 +85,92 @@ public class ElasticsearchClientPoolConfigure extends GenericObjectPoolConfig {
     public void setConnectionInit(boolean connectionInit) {
         this.connectionInit = connectionInit;
     }
+
+    public boolean isSharedTransport() {
+        return sharedTransport;
+    }
+
+    public void setSharedTransport(boolean sharedTransport) {
+        this.sharedTransport = sharedTransport;
+    }
+
+    public boolean isHealthCheckEnabled() {
+        return healthCheckEnabled;
+    }
+
+    public void setHealthCheckEnabled(boolean healthCheckEnabled) {
+        this.healthCheckEnabled = healthCheckEnabled;
+    }
+
+    public long getHealthCheckIntervalMillis() {
+        return healthCheckIntervalMillis;
+    }
+
+    public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    }
+
+    public boolean isAdaptiveEnabled() {
+        return adaptiveEnabled;
+    }
+
+    public void setAdaptiveEnabled(boolean adaptiveEnabled) {
+        this.adaptiveEnabled = adaptiveEnabled;
+    }
+
+    public int getAdaptiveMinTotal() {
+        return adaptiveMinTotal;
+    }
+
+    public void setAdaptiveMinTotal(int adaptiveMinTotal) {
+        this.adaptiveMinTotal = adaptiveMinTotal;
+    }
+
+    public int getAdaptiveMaxTotal() {
+        return adaptiveMaxTotal;
+    }
+
+    public void setAdaptiveMaxTotal(int adaptiveMaxTotal) {
+        this.adaptiveMaxTotal = adaptiveMaxTotal;
+    }
+
+    public long getAdaptiveIntervalMillis() {
+        return adaptiveIntervalMillis;
+    }
+
+    public void setAdaptiveIntervalMillis(long adaptiveIntervalMillis) {
+        this.adaptiveIntervalMillis = adaptiveIntervalMillis;
+    }
+
+    public long getAdaptiveTargetBorrowWaitMillis() {
+        return adaptiveTargetBorrowWaitMillis;
+    }
+
+    public void setAdaptiveTargetBorrowWaitMillis(long adaptiveTargetBorrowWaitMillis) {
+        this.adaptiveTargetBorrowWaitMillis = adaptiveTargetBorrowWaitMillis;
+    }
+
+    public int getAdaptiveIncreaseStep() {
+        return adaptiveIncreaseStep;
+    }
+
+    public void setAdaptiveIncreaseStep(int adaptiveIncreaseStep) {
+        this.adaptiveIncreaseStep = adaptiveIncreaseStep;
+    }
+
+    public double getAdaptiveDecreaseFactor() {
+        return adaptiveDecreaseFactor;
+    }
+
+    public void setAdaptiveDecreaseFactor(double adaptiveDecreaseFactor) {
+        this.adaptiveDecreaseFactor = adaptiveDecreaseFactor;
+    }
+
+    public double getAdaptiveLowUtilization() {
+        return adaptiveLowUtilization;
+    }
+
+    public void setAdaptiveLowUtilization(double adaptiveLowUtilization) {
+        this.adaptiveLowUtilization = adaptiveLowUtilization;
+    }
 }
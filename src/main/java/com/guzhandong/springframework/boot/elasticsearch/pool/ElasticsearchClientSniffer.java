@@ -0,0 +1,168 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池内所有 client 共享的节点嗅探.
+ * <p>
+ * 定期调用 {@code _nodes/http} 获取集群中所有 http 节点并刷新每个 RestClient 的节点列表，请求失败时立即嗅探一次，
+ * 使请求分散到整个集群，而不只是 {@code spring.es.hosts} 中配置的节点。
+ * 整个连接池只有一个嗅探线程，每轮只发出一次 {@code _nodes} 请求，结果推送给所有已注册的 client；
+ * 新创建的 client 注册时直接使用最近一次的嗅探结果。没有注册的 client 时停止嗅探线程。
+ * 依赖 elasticsearch-rest-client-sniffer，只有开启 {@code spring.es.sniff-enabled} 时才会加载该类。
+ *
+ */
+class ElasticsearchClientSniffer implements Closeable {
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final ElasticsearchClientConfigure elasticsearchClientConfigure;
+
+    private final RestClient.FailureListener failureListener;
+
+    private final Set<RestClient> restClients = new CopyOnWriteArraySet<>();
+
+    private volatile List<Node> sniffedNodes;
+
+    /**
+     * 失败后触发的嗅探完成后，下一次嗅探使用 sniffAfterFailureDelayMillis
+     */
+    private volatile boolean afterFailure;
+
+    private ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> nextSniff;
+
+    ElasticsearchClientSniffer(ElasticsearchClientConfigure elasticsearchClientConfigure) {
+        this.elasticsearchClientConfigure = elasticsearchClientConfigure;
+        this.failureListener = elasticsearchClientConfigure.isSniffOnFailure() ? new RestClient.FailureListener() {
+            @Override
+            public void onFailure(Node node) {
+                afterFailure = true;
+                schedule(0);
+            }
+        } : null;
+    }
+
+    /**
+     * 创建 RestClient 之前调用，设置失败时嗅探
+     * @param builder
+     */
+    void configure(RestClientBuilder builder) {
+        if (failureListener != null) {
+            builder.setFailureListener(failureListener);
+        }
+    }
+
+    /**
+     * 失败时嗅探的监听，未开启时返回 null
+     */
+    RestClient.FailureListener getFailureListener() {
+        return failureListener;
+    }
+
+    /**
+     * 创建 RestClient 之后调用，已有嗅探结果时直接设置节点，第一个 client 注册时启动定时嗅探
+     * @param restClient
+     */
+    synchronized void register(RestClient restClient) {
+        List<Node> nodes = sniffedNodes;
+        if (nodes != null) {
+            restClient.setNodes(nodes);
+        }
+        restClients.add(restClient);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "es-client-sniffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            nextSniff = scheduler.schedule(this::sniff, nodes == null ? 0 : elasticsearchClientConfigure.getSniffIntervalMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 关闭 RestClient 之前调用，最后一个 client 注销时停止定时嗅探
+     * @param restClient
+     */
+    synchronized void unregister(RestClient restClient) {
+        restClients.remove(restClient);
+        if (restClients.isEmpty() && scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            nextSniff = null;
+        }
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (scheduler == null) {
+            return;
+        }
+        if (nextSniff != null) {
+            nextSniff.cancel(false);
+        }
+        nextSniff = scheduler.schedule(this::sniff, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sniff() {
+        synchronized (this) {
+            nextSniff = null;
+        }
+        boolean failureTriggered = afterFailure;
+        afterFailure = false;
+        try {
+            Iterator<RestClient> iterator = restClients.iterator();
+            if (iterator.hasNext()) {
+                ElasticsearchNodesSniffer.Scheme scheme = "https".equalsIgnoreCase(elasticsearchClientConfigure.getSchema())
+                        ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP;
+                List<Node> nodes = new ElasticsearchNodesSniffer(iterator.next(), ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme).sniff();
+                if (nodes.isEmpty()) {
+                    logUtil.debug("es sniff returned no nodes, keep current nodes");
+                } else {
+                    sniffedNodes = nodes;
+                    for (RestClient restClient : restClients) {
+                        restClient.setNodes(nodes);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logUtil.debug("es sniff exception:{}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                //嗅探过程中又有请求失败时已经安排了下一次嗅探
+                if (scheduler != null && nextSniff == null) {
+                    long delayMillis = failureTriggered ? elasticsearchClientConfigure.getSniffAfterFailureDelayMillis()
+                            : elasticsearchClientConfigure.getSniffIntervalMillis();
+                    nextSniff = scheduler.schedule(this::sniff, delayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        restClients.clear();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            nextSniff = null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.apache.http.HttpHost;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 节点后台健康检查.
+ * <p>
+ * 按固定间隔在后台线程中对每个配置的节点发送 {@code HEAD /}，结果记录在一个按节点下标编号的存活位图中。
+ * 连接池借出/校验 client 时只读取该位图（见 {@link ElasticsearchClientFactory#validateObject}），不再产生网络请求。
+ *
+ */
+public class ElasticsearchNodeHealthChecker implements DisposableBean {
+
+    private static final int DEFAULT_PING_TIMEOUT_MILLIS = 1000;
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final HttpHost[] hosts;
+
+    private final long intervalMillis;
+
+    private final int connectTimeoutMillis;
+
+    private final int readTimeoutMillis;
+
+    /**
+     * 存活位图，第 i 位为 1 表示 hosts[i] 存活
+     */
+    private final AtomicLongArray aliveBitmap;
+
+    private ScheduledExecutorService scheduler;
+
+    public ElasticsearchNodeHealthChecker(HttpHost[] hosts, long intervalMillis, ElasticsearchClientConfigure elasticsearchClientConfigure) {
+        this.hosts = hosts;
+        this.intervalMillis = intervalMillis;
+        this.connectTimeoutMillis = elasticsearchClientConfigure.getConnectTimeOut() > 0
+                ? elasticsearchClientConfigure.getConnectTimeOut() : DEFAULT_PING_TIMEOUT_MILLIS;
+        this.readTimeoutMillis = elasticsearchClientConfigure.getSocketTimeOut() > 0
+                ? elasticsearchClientConfigure.getSocketTimeOut() : DEFAULT_PING_TIMEOUT_MILLIS;
+        this.aliveBitmap = new AtomicLongArray((hosts.length + 63) >>> 6);
+        //首次检查完成之前乐观地认为所有节点存活
+        for (int i = 0; i < hosts.length; i++) {
+            setAlive(i, true);
+        }
+    }
+
+    /**
+     * 启动后台检查线程，首次检查立即执行
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-node-health-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void checkAll() {
+        for (int i = 0; i < hosts.length; i++) {
+            boolean alive = ping(hosts[i]);
+            if (alive != isAlive(i)) {
+                logUtil.info("es node {} health changed, alive :{}", hosts[i], alive);
+            }
+            setAlive(i, alive);
+        }
+    }
+
+    private boolean ping(HttpHost host) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(host.toURI() + "/").openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            int status = connection.getResponseCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            logUtil.debug("es node {} health check exception:{}", host, e.getMessage());
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private void setAlive(int index, boolean alive) {
+        long mask = 1L << (index & 63);
+        int word = index >>> 6;
+        long prev;
+        long next;
+        do {
+            prev = aliveBitmap.get(word);
+            next = alive ? prev | mask : prev & ~mask;
+        } while (prev != next && !aliveBitmap.compareAndSet(word, prev, next));
+    }
+
+    private boolean isAlive(int index) {
+        return (aliveBitmap.get(index >>> 6) & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * 指定节点最近一次检查是否存活，未配置的节点返回 false
+     */
+    public boolean isAlive(HttpHost host) {
+        for (int i = 0; i < hosts.length; i++) {
+            if (hosts[i].equals(host)) {
+                return isAlive(i);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否至少有一个节点存活
+     */
+    public boolean isAnyAlive() {
+        for (int i = 0; i < aliveBitmap.length(); i++) {
+            if (aliveBitmap.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<HttpHost> getAliveHosts() {
+        List<HttpHost> aliveHosts = new ArrayList<>(hosts.length);
+        for (int i = 0; i < hosts.length; i++) {
+            if (isAlive(i)) {
+                aliveHosts.add(hosts[i]);
+            }
+        }
+        return aliveHosts;
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
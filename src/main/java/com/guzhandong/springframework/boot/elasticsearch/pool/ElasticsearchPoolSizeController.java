@@ -0,0 +1,184 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池容量自动调整.
+ * <p>
+ * 按固定间隔在后台线程中观察上一个间隔内的平均借出等待、借出超时、等待线程数和活跃数，按 AIMD 方式调整 maxTotal：
+ * <ul>
+ *     <li>有线程在等待、出现借出超时或平均等待超过 {@code adaptive-target-borrow-wait-millis} 时，maxTotal 加上 {@code adaptive-increase-step}</li>
+ *     <li>连续 {@value #SHRINK_AFTER_LOW_INTERVALS} 个间隔使用率低于 {@code adaptive-low-utilization} 时，maxTotal 乘以 {@code adaptive-decrease-factor}，
+ *     并立即销毁多余的空闲 client</li>
+ * </ul>
+ * maxTotal 始终在 [{@code adaptive-min-total}, {@code adaptive-max-total}] 之间，maxIdle 跟随 maxTotal，
+ * minIdle 跟随活跃数的滑动平均（不低于启动时配置的 minIdle），使空闲 client 数量随负载变化。
+ * 共享传输层模式下连接池容量没有意义，不做调整。
+ *
+ */
+public class ElasticsearchPoolSizeController implements DisposableBean {
+
+    /**
+     * 缩容前需要连续低使用率的间隔数，避免短暂的低谷导致容量抖动
+     */
+    static final int SHRINK_AFTER_LOW_INTERVALS = 3;
+
+    /**
+     * 活跃数滑动平均的权重
+     */
+    private static final double ACTIVE_DECAY = 0.2;
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final ElasticsearchClientPool elasticsearchClientPool;
+
+    private final int minTotal;
+
+    private final int maxTotal;
+
+    private final int minIdleFloor;
+
+    private final long intervalMillis;
+
+    private final long targetBorrowWaitNanos;
+
+    private final int increaseStep;
+
+    private final double decreaseFactor;
+
+    private final double lowUtilization;
+
+    private long lastBorrowedCount;
+
+    private long lastBorrowWaitNanos;
+
+    private long lastBorrowTimeoutCount;
+
+    private double averageActive;
+
+    private int lowIntervals;
+
+    private ScheduledExecutorService scheduler;
+
+    public ElasticsearchPoolSizeController(ElasticsearchClientPool elasticsearchClientPool, ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure) {
+        if (elasticsearchClientPoolConfigure.getAdaptiveMinTotal() < 1
+                || elasticsearchClientPoolConfigure.getAdaptiveMaxTotal() < elasticsearchClientPoolConfigure.getAdaptiveMinTotal()) {
+            throw new IllegalArgumentException("invalid adaptive pool size range [" + elasticsearchClientPoolConfigure.getAdaptiveMinTotal()
+                    + ", " + elasticsearchClientPoolConfigure.getAdaptiveMaxTotal() + "]");
+        }
+        if (elasticsearchClientPoolConfigure.getAdaptiveDecreaseFactor() <= 0 || elasticsearchClientPoolConfigure.getAdaptiveDecreaseFactor() >= 1) {
+            throw new IllegalArgumentException("adaptive decrease factor must be between 0 and 1 but was "
+                    + elasticsearchClientPoolConfigure.getAdaptiveDecreaseFactor());
+        }
+        this.elasticsearchClientPool = elasticsearchClientPool;
+        this.minTotal = elasticsearchClientPoolConfigure.getAdaptiveMinTotal();
+        this.maxTotal = elasticsearchClientPoolConfigure.getAdaptiveMaxTotal();
+        this.minIdleFloor = Math.min(Math.max(elasticsearchClientPoolConfigure.getMinIdle(), 0), minTotal);
+        this.intervalMillis = elasticsearchClientPoolConfigure.getAdaptiveIntervalMillis();
+        this.targetBorrowWaitNanos = TimeUnit.MILLISECONDS.toNanos(elasticsearchClientPoolConfigure.getAdaptiveTargetBorrowWaitMillis());
+        this.increaseStep = Math.max(elasticsearchClientPoolConfigure.getAdaptiveIncreaseStep(), 1);
+        this.decreaseFactor = elasticsearchClientPoolConfigure.getAdaptiveDecreaseFactor();
+        this.lowUtilization = elasticsearchClientPoolConfigure.getAdaptiveLowUtilization();
+    }
+
+    /**
+     * 启动后台调整线程，启动时先把 maxTotal 限制到配置的范围内
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        if (elasticsearchClientPool instanceof ElasticsearchSharedClientPool) {
+            logUtil.warn("es pool adaptive sizing is ignored in shared transport mode");
+            return;
+        }
+        int initial = clamp(elasticsearchClientPool.getMaxTotal() < 0 ? maxTotal : elasticsearchClientPool.getMaxTotal(), minTotal, maxTotal);
+        elasticsearchClientPool.setMaxTotal(initial);
+        elasticsearchClientPool.setMaxIdle(initial);
+        lastBorrowedCount = elasticsearchClientPool.getBorrowedCount();
+        lastBorrowWaitNanos = elasticsearchClientPool.getBorrowWaitNanos();
+        lastBorrowTimeoutCount = elasticsearchClientPool.getBorrowTimeoutCount();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-pool-size-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjustSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void adjustSafely() {
+        try {
+            adjust();
+        } catch (Exception e) {
+            logUtil.warn("es pool adaptive sizing exception:{}", e.getMessage());
+        }
+    }
+
+    synchronized void adjust() throws Exception {
+        if (elasticsearchClientPool.isClosed()) {
+            return;
+        }
+        long borrowedCount = elasticsearchClientPool.getBorrowedCount();
+        long borrowWaitNanos = elasticsearchClientPool.getBorrowWaitNanos();
+        long borrowTimeoutCount = elasticsearchClientPool.getBorrowTimeoutCount();
+        long borrows = borrowedCount - lastBorrowedCount;
+        long timeouts = borrowTimeoutCount - lastBorrowTimeoutCount;
+        long meanWaitNanos = borrows + timeouts > 0 ? (borrowWaitNanos - lastBorrowWaitNanos) / (borrows + timeouts) : 0;
+        lastBorrowedCount = borrowedCount;
+        lastBorrowWaitNanos = borrowWaitNanos;
+        lastBorrowTimeoutCount = borrowTimeoutCount;
+
+        int active = elasticsearchClientPool.getNumActive();
+        averageActive = ACTIVE_DECAY * active + (1 - ACTIVE_DECAY) * averageActive;
+        int currentMaxTotal = elasticsearchClientPool.getMaxTotal();
+        int newMaxTotal = currentMaxTotal;
+
+        boolean pressure = elasticsearchClientPool.getNumWaiters() > 0 || timeouts > 0 || meanWaitNanos > targetBorrowWaitNanos;
+        if (pressure) {
+            lowIntervals = 0;
+            newMaxTotal = Math.min(maxTotal, currentMaxTotal + increaseStep);
+        } else if (Math.max(active, averageActive) < currentMaxTotal * lowUtilization) {
+            if (++lowIntervals >= SHRINK_AFTER_LOW_INTERVALS) {
+                lowIntervals = 0;
+                newMaxTotal = Math.max(minTotal, Math.max((int) Math.ceil(averageActive), (int) (currentMaxTotal * decreaseFactor)));
+            }
+        } else {
+            lowIntervals = 0;
+        }
+
+        if (newMaxTotal != currentMaxTotal) {
+            logUtil.info("es pool maxTotal {} -> {}, active:{}, meanBorrowWaitMillis:{}, borrowTimeouts:{}",
+                    currentMaxTotal, newMaxTotal, active, TimeUnit.NANOSECONDS.toMillis(meanWaitNanos), timeouts);
+            elasticsearchClientPool.setMaxTotal(newMaxTotal);
+            elasticsearchClientPool.setMaxIdle(newMaxTotal);
+        }
+
+        int currentMinIdle = elasticsearchClientPool.getMinIdle();
+        int newMinIdle = clamp((int) Math.ceil(averageActive), minIdleFloor, newMaxTotal);
+        if (newMinIdle != currentMinIdle) {
+            elasticsearchClientPool.setMinIdle(newMinIdle);
+        }
+        if (newMaxTotal < currentMaxTotal) {
+            elasticsearchClientPool.trimIdle();
+        } else if (newMinIdle > currentMinIdle) {
+            elasticsearchClientPool.preparePool();
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.elasticsearch.client.RestHighLevelClient;
+
+/**
+ * 共享传输层模式的连接池实现.
+ * <p>
+ * 官方 {@link RestHighLevelClient} 本身是线程安全的，底层只有一个 {@link org.elasticsearch.client.RestClient}
+ * 和一个异步 httpclient（一组 I/O reactor 线程 + 一个连接管理器）。该模式下整个进程只创建一个 client，
+ * 所有线程复用它，{@link #borrowObject()} 始终返回同一个实例，{@link #returnObject(RestHighLevelClient)} 不做任何事。
+ * 并发能力由 {@code spring.es.max-connect-num} / {@code spring.es.max-connect-per-route} 决定，而不是由 maxTotal 决定。
+ *
+ */
+public class ElasticsearchSharedClientPool extends ElasticsearchClientPool {
+
+    private final PooledObjectFactory<RestHighLevelClient> factory;
+
+    private volatile RestHighLevelClient sharedClient;
+
+    private PooledObject<RestHighLevelClient> sharedObject;
+
+    public ElasticsearchSharedClientPool(PooledObjectFactory<RestHighLevelClient> factory, GenericObjectPoolConfig config) {
+        super(factory, config);
+        this.factory = factory;
+        //共享模式下没有空闲对象需要维护，关闭驱逐线程，避免其按 minIdle 创建多余的 client
+        setMinIdle(0);
+        setTimeBetweenEvictionRunsMillis(-1);
+    }
+
+    @Override
+    public RestHighLevelClient borrowObject() throws Exception {
+        return borrowObject(getMaxWaitMillis());
+    }
+
+    @Override
+    public RestHighLevelClient borrowObject(long borrowMaxWaitMillis) throws Exception {
+        RestHighLevelClient client = sharedClient;
+        if (client == null) {
+            synchronized (this) {
+                client = sharedClient;
+                if (client == null) {
+                    if (isClosed()) {
+                        throw new IllegalStateException("Pool not open");
+                    }
+                    sharedObject = factory.makeObject();
+                    client = sharedObject.getObject();
+                    sharedClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    @Override
+    public void returnObject(RestHighLevelClient obj) {
+        //nothing
+    }
+
+    @Override
+    public void invalidateObject(RestHighLevelClient obj) throws Exception {
+        //nothing，共享 client 的节点故障由 RestClient 自身的死节点机制处理
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (sharedObject != null) {
+                try {
+                    factory.destroyObject(sharedObject);
+                } catch (Exception e) {
+                    //ignore
+                }
+                sharedObject = null;
+                sharedClient = null;
+            }
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,208 @@
+package com.guzhandong.springframework.boot.elasticsearch.reactive;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 连接池版本 {@link RestHighLevelClient} 的 Reactor 封装，只有 classpath 中存在 reactor-core 时才会自动配置.
+ * <p>
+ * 所有方法基于 {@link RestHighLevelClient} 的 CompletableFuture 接口实现，请求在订阅时发出，完成后自动释放client，
+ * 不占用额外线程；取消订阅时会取消底层的 http 请求。
+ *
+ */
+public class ReactiveRestHighLevelClient {
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    public ReactiveRestHighLevelClient(RestHighLevelClient restHighLevelClient) {
+        this.restHighLevelClient = restHighLevelClient;
+    }
+
+    private static <T> Mono<T> toMono(Supplier<CompletableFuture<T>> futureSupplier) {
+        return Mono.create(sink -> {
+            CompletableFuture<T> future = futureSupplier.get();
+            future.whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    sink.error(throwable);
+                } else {
+                    sink.success(response);
+                }
+            });
+            sink.onCancel(() -> future.cancel(true));
+        });
+    }
+
+    public Mono<BulkResponse> bulk(BulkRequest bulkRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.bulkFuture(bulkRequest, options));
+    }
+
+    public Mono<GetResponse> get(GetRequest getRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.getFuture(getRequest, options));
+    }
+
+    public Mono<MultiGetResponse> multiGet(MultiGetRequest multiGetRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.multiGetFuture(multiGetRequest, options));
+    }
+
+    public Mono<Boolean> exists(GetRequest getRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.existsFuture(getRequest, options));
+    }
+
+    public Mono<IndexResponse> index(IndexRequest indexRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.indexFuture(indexRequest, options));
+    }
+
+    public Mono<UpdateResponse> update(UpdateRequest updateRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.updateFuture(updateRequest, options));
+    }
+
+    public Mono<DeleteResponse> delete(DeleteRequest deleteRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.deleteFuture(deleteRequest, options));
+    }
+
+    public Mono<SearchResponse> search(SearchRequest searchRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.searchFuture(searchRequest, options));
+    }
+
+    public Mono<MultiSearchResponse> multiSearch(MultiSearchRequest multiSearchRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.multiSearchFuture(multiSearchRequest, options));
+    }
+
+    public Mono<SearchResponse> searchScroll(SearchScrollRequest searchScrollRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.searchScrollFuture(searchScrollRequest, options));
+    }
+
+    public Mono<ClearScrollResponse> clearScroll(ClearScrollRequest clearScrollRequest, RequestOptions options) {
+        return toMono(() -> restHighLevelClient.clearScrollFuture(clearScrollRequest, options));
+    }
+
+    /**
+     * 以 scroll 方式遍历查询结果.
+     * <p>
+     * 按订阅方的需求拉取：只有订阅方请求的命中数超过已推送的命中数时才会拉取下一页，同一时刻最多一个请求在途。
+     * 遍历结束、出错或取消订阅时自动清除 scroll。
+     * @param searchRequest 查询请求，会被设置 scroll 参数
+     * @param options
+     * @param keepAlive scroll 上下文保持时间
+     * @return
+     */
+    public Flux<SearchHit> scroll(SearchRequest searchRequest, RequestOptions options, TimeValue keepAlive) {
+        return Flux.create(sink -> {
+            ScrollPager pager = new ScrollPager(sink, searchRequest.scroll(keepAlive), options, keepAlive);
+            sink.onRequest(pager::request);
+            sink.onDispose(pager::clear);
+        });
+    }
+
+    private class ScrollPager {
+
+        private final FluxSink<SearchHit> sink;
+
+        private final SearchRequest searchRequest;
+
+        private final RequestOptions options;
+
+        private final TimeValue keepAlive;
+
+        /**
+         * 订阅方请求的命中数减去已推送的命中数
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        private final AtomicBoolean fetching = new AtomicBoolean(false);
+
+        private final AtomicBoolean cleared = new AtomicBoolean(false);
+
+        private volatile String scrollId;
+
+        private volatile boolean done;
+
+        ScrollPager(FluxSink<SearchHit> sink, SearchRequest searchRequest, RequestOptions options, TimeValue keepAlive) {
+            this.sink = sink;
+            this.searchRequest = searchRequest;
+            this.options = options;
+            this.keepAlive = keepAlive;
+        }
+
+        void request(long n) {
+            long prev;
+            long next;
+            do {
+                prev = demand.get();
+                next = prev + n < prev ? Long.MAX_VALUE : prev + n;
+            } while (!demand.compareAndSet(prev, next));
+            fetchIfNeeded();
+        }
+
+        private void fetchIfNeeded() {
+            if (done || sink.isCancelled() || demand.get() <= 0 || !fetching.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture<SearchResponse> future = scrollId == null
+                    ? restHighLevelClient.searchFuture(searchRequest, options)
+                    : restHighLevelClient.searchScrollFuture(new SearchScrollRequest(scrollId).scroll(keepAlive), options);
+            future.whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    done = true;
+                    sink.error(throwable);
+                    return;
+                }
+                scrollId = response.getScrollId();
+                if (sink.isCancelled()) {
+                    clear();
+                    return;
+                }
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) {
+                    done = true;
+                    sink.complete();
+                    return;
+                }
+                demand.addAndGet(-hits.length);
+                for (SearchHit hit : hits) {
+                    sink.next(hit);
+                }
+                fetching.set(false);
+                fetchIfNeeded();
+            });
+        }
+
+        void clear() {
+            done = true;
+            if (scrollId != null && cleared.compareAndSet(false, true)) {
+                ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+                clearScrollRequest.addScrollId(scrollId);
+                restHighLevelClient.clearScrollFuture(clearScrollRequest, RequestOptions.DEFAULT);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.guzhandong.springframework.boot.elasticsearch.retry;
+
+public class ElasticsearchRetryConfigure {
+
+    public static final String PREFIX = "spring.es.retry";
+
+    private boolean enabled = false;
+
+    /**
+     * 最大尝试次数（包括第一次）
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 退避基数(ms)，第 n 次重试前等待 [0, min(maxBackoffMillis, initialBackoffMillis * 2^(n-1))] 之间的随机时间
+     */
+    private long initialBackoffMillis = 50L;
+
+    /**
+     * 单次退避的上限(ms)
+     */
+    private long maxBackoffMillis = 1000L;
+
+    /**
+     * 单次调用（包括所有重试）的最长时间(ms)，超过后不再重试，0 表示不限制
+     */
+    private long deadlineMillis = 10000L;
+
+    /**
+     * 允许重试的接口，默认只重试幂等的读接口；开启 scroll 的 search 会创建服务端 scroll 上下文，始终不重试
+     */
+    private String[] operations = {"get", "multiGet", "exists", "search"};
+
+    /**
+     * 重试预算：重试次数不超过请求数的该比例，避免集群过载时重试放大流量
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * 重试预算：请求量很低时每秒至少允许的重试次数
+     */
+    private int budgetMinRetriesPerSecond = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public String[] getOperations() {
+        return operations;
+    }
+
+    public void setOperations(String[] operations) {
+        this.operations = operations;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetMinRetriesPerSecond() {
+        return budgetMinRetriesPerSecond;
+    }
+
+    public void setBudgetMinRetriesPerSecond(int budgetMinRetriesPerSecond) {
+        this.budgetMinRetriesPerSecond = budgetMinRetriesPerSecond;
+    }
+}
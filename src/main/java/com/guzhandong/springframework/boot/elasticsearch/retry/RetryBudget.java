@@ -0,0 +1,75 @@
+package com.guzhandong.springframework.boot.elasticsearch.retry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重试预算（令牌桶）.
+ * <p>
+ * 每个请求存入 ratio 个令牌，每次重试取出一个；另外按 minRetriesPerSecond 的速度补充令牌，保证请求量很低时也能重试。
+ * 令牌上限为 {@code minRetriesPerSecond * 10 + ratio * 1000}，避免长时间空闲后攒下大量令牌，
+ * 集群持续失败时重试次数最多是请求数的 ratio 倍加上最低补充量，不会成倍放大流量
+ *
+ */
+public class RetryBudget {
+
+    private static final int MIN_RETRIES_WINDOW_SECONDS = 10;
+
+    private static final int DEPOSIT_WINDOW_REQUESTS = 1000;
+
+    private final double ratio;
+
+    private final double minRetriesPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond) {
+        if (ratio < 0) {
+            throw new IllegalArgumentException("retry budget ratio must be >= 0 but was " + ratio);
+        }
+        int minRetries = Math.max(minRetriesPerSecond, 0);
+        this.ratio = ratio;
+        this.minRetriesPerNano = (double) minRetries / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = minRetries * MIN_RETRIES_WINDOW_SECONDS + ratio * DEPOSIT_WINDOW_REQUESTS;
+        this.tokens = minRetries * MIN_RETRIES_WINDOW_SECONDS;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 一个请求（非重试）开始
+     */
+    public synchronized void deposit() {
+        refill();
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    /**
+     * 尝试取出一次重试的令牌
+     * @return 预算不足时返回 false
+     */
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getBalance() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefillNanos;
+        lastRefillNanos = now;
+        if (elapsed > 0 && minRetriesPerNano > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * minRetriesPerNano);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.guzhandong.springframework.boot.elasticsearch.retry;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 重试策略.
+ * <p>
+ * 只重试配置中的接口（默认只有幂等的 get/multiGet/exists/search），且只在临时性失败时重试：
+ * IO 异常（连接重置、超时等）和 429/502/503/504。
+ * 第 n 次重试前等待 full jitter 退避 {@code random(0, min(maxBackoff, initialBackoff * 2^(n-1)))}，
+ * 总耗时超过 deadline 或 {@link RetryBudget} 不足时不再重试
+ *
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final long deadlineNanos;
+
+    private final Set<String> operations;
+
+    private final RetryBudget retryBudget;
+
+    private final LongAdder retryCount = new LongAdder();
+
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    public RetryPolicy(ElasticsearchRetryConfigure elasticsearchRetryConfigure) {
+        this(elasticsearchRetryConfigure.getMaxAttempts(),
+                elasticsearchRetryConfigure.getInitialBackoffMillis(),
+                elasticsearchRetryConfigure.getMaxBackoffMillis(),
+                elasticsearchRetryConfigure.getDeadlineMillis(),
+                elasticsearchRetryConfigure.getOperations(),
+                new RetryBudget(elasticsearchRetryConfigure.getBudgetRatio(), elasticsearchRetryConfigure.getBudgetMinRetriesPerSecond()));
+    }
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, long deadlineMillis,
+                       String[] operations, RetryBudget retryBudget) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("max attempts must be >= 1 but was " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(initialBackoffMillis, 0));
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxBackoffMillis, initialBackoffMillis));
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(deadlineMillis, 0));
+        this.operations = operations == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(operations));
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * 该接口是否允许重试
+     */
+    public boolean isRetryable(String operation) {
+        return operation != null && maxAttempts > 1 && operations.contains(operation);
+    }
+
+    /**
+     * 一次调用开始，存入重试预算
+     */
+    public void onCall() {
+        retryBudget.deposit();
+    }
+
+    /**
+     * 计算第 attempt 次尝试失败后是否重试以及退避时间
+     * @param attempt 已经完成的尝试次数，从 1 开始
+     * @param startNanos 调用开始时间
+     * @param failure 本次尝试的异常
+     * @return 退避时间(ns)，不重试时返回 -1
+     */
+    public long nextBackoffNanos(int attempt, long startNanos, Throwable failure) {
+        if (attempt >= maxAttempts || !isTransient(failure)) {
+            return -1;
+        }
+        long ceiling = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoffNanos) {
+            ceiling = maxBackoffNanos;
+        }
+        long backoff = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+        if (deadlineNanos > 0 && System.nanoTime() + backoff - startNanos >= deadlineNanos) {
+            return -1;
+        }
+        if (!retryBudget.tryWithdraw()) {
+            budgetExhaustedCount.increment();
+            return -1;
+        }
+        retryCount.increment();
+        return backoff;
+    }
+
+    /**
+     * 异步请求的重试在后台线程上延迟发起
+     */
+    public void schedule(Runnable retry, long delayNanos) {
+        SchedulerHolder.SCHEDULER.schedule(retry, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 是否为临时性失败：IO 异常或 429/502/503/504
+     */
+    public static boolean isTransient(Throwable failure) {
+        int status = failureStatus(failure);
+        return status == 0 || status == RestStatus.TOO_MANY_REQUESTS.getStatus() || isNodeFailureStatus(status);
+    }
+
+    /**
+     * 是否为节点故障：IO 异常或 502/503/504，和 RestClient 换节点重试的条件一致，429 是集群繁忙，换节点没有意义
+     */
+    public static boolean isNodeFailure(Throwable failure) {
+        int status = failureStatus(failure);
+        return status == 0 || isNodeFailureStatus(status);
+    }
+
+    private static boolean isNodeFailureStatus(int status) {
+        return status == RestStatus.BAD_GATEWAY.getStatus()
+                || status == RestStatus.SERVICE_UNAVAILABLE.getStatus()
+                || status == RestStatus.GATEWAY_TIMEOUT.getStatus();
+    }
+
+    /**
+     * 失败对应的 http 状态码，没有收到响应的 IO 异常返回 0，其他异常返回 -1
+     */
+    private static int failureStatus(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ElasticsearchStatusException) {
+                return ((ElasticsearchStatusException) t).status().getStatus();
+            } else if (t instanceof ResponseException) {
+                return ((ResponseException) t).getResponse().getStatusLine().getStatusCode();
+            } else if (t instanceof IOException) {
+                return 0;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * 已发起的重试次数
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * 因预算不足放弃的重试次数
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+
+    private static class SchedulerHolder {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
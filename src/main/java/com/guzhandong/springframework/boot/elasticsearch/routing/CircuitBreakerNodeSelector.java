@@ -0,0 +1,60 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 去掉熔断中的节点，再交给配置的节点选择策略（如 {@link LatencyAwareNodeSelector}）选择.
+ * 所有节点都在熔断中时不做删除，由 RestClient 按原有顺序尝试，避免直接拒绝所有请求
+ *
+ */
+public class CircuitBreakerNodeSelector implements NodeSelector {
+
+    private final NodeCircuitBreakers nodeCircuitBreakers;
+
+    private final NodeSelector delegate;
+
+    /**
+     * @param delegate 为 null 时只去掉熔断中的节点，其余节点保持 RestClient 的轮询顺序
+     */
+    public CircuitBreakerNodeSelector(NodeCircuitBreakers nodeCircuitBreakers, NodeSelector delegate) {
+        this.nodeCircuitBreakers = nodeCircuitBreakers;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        //半开状态的放行是随机的，每个节点只判断一次
+        List<Node> rejected = null;
+        boolean anyAllowed = false;
+        for (Node node : nodes) {
+            if (nodeCircuitBreakers.allowRequest(node.getHost())) {
+                anyAllowed = true;
+            } else {
+                if (rejected == null) {
+                    rejected = new ArrayList<>();
+                }
+                rejected.add(node);
+            }
+        }
+        if (anyAllowed && rejected != null) {
+            for (Iterator<Node> iterator = nodes.iterator(); iterator.hasNext(); ) {
+                if (rejected.contains(iterator.next())) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (delegate != null) {
+            delegate.select(nodes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate == null ? "CIRCUIT_BREAKER" : "CIRCUIT_BREAKER(" + delegate + ")";
+    }
+}
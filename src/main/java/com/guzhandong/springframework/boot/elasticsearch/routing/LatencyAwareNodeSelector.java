@@ -0,0 +1,73 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按节点耗时选择节点，开启方式：{@code spring.es.node-selection=latency-aware}.
+ * <p>
+ * 每次请求从可用节点中随机取两个，选择 {@link NodeLatencyTracker#score} 更低的一个（power of two choices），
+ * 避免把新请求发往变慢或正在 GC 的节点。
+ * {@link NodeSelector} 只能删除节点，RestClient 在选择之后还会轮转剩余节点的顺序，因此这里只保留选中的节点，
+ * 保证请求一定发往该节点。RestClient 因此不会再换节点重试，节点故障（IO 异常或 502/503/504）时由
+ * {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient} 在同一个 client 上换到还没有尝试过的节点重发，
+ * 和 RestClient 默认的换节点重试一致；通过 {@link NodeLatencyTracker#avoidNext} 标记的节点不参与选择（全部被标记时除外）。
+ *
+ */
+public class LatencyAwareNodeSelector implements NodeSelector {
+
+    private final NodeLatencyTracker nodeLatencyTracker;
+
+    public LatencyAwareNodeSelector(NodeLatencyTracker nodeLatencyTracker) {
+        this.nodeLatencyTracker = nodeLatencyTracker;
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        Set<HttpHost> avoided = nodeLatencyTracker.takeAvoided();
+        List<Node> candidates = new ArrayList<>();
+        for (Node node : nodes) {
+            if (avoided == null || !avoided.contains(node.getHost())) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Node node : nodes) {
+                candidates.add(node);
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+        }
+        Node chosen = candidates.get(0);
+        if (candidates.size() > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            Node a = candidates.get(first);
+            Node b = candidates.get(second);
+            chosen = nodeLatencyTracker.score(a.getHost()) <= nodeLatencyTracker.score(b.getHost()) ? a : b;
+        }
+        for (Iterator<Node> iterator = nodes.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() != chosen) {
+                iterator.remove();
+            }
+        }
+        nodeLatencyTracker.onSelected(chosen.getHost());
+    }
+
+    @Override
+    public String toString() {
+        return "LATENCY_AWARE";
+    }
+}
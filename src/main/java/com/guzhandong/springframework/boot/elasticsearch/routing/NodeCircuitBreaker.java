@@ -0,0 +1,145 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 单个节点的熔断器.
+ * <ul>
+ *     <li>CLOSED：记录最近 windowSize 个请求的结果，请求数不少于 minimumCalls 且失败率达到阈值时进入 OPEN</li>
+ *     <li>OPEN：不放行请求，openDuration 之后进入 HALF_OPEN</li>
+ *     <li>HALF_OPEN：按 (成功次数 + 1) / (halfOpenSuccessThreshold + 1) 的比例放行请求，流量随成功逐步恢复；
+ *     成功次数达到 halfOpenSuccessThreshold 后进入 CLOSED，任何一次失败重新进入 OPEN</li>
+ * </ul>
+ *
+ */
+public class NodeCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long openDurationNanos;
+
+    private final int halfOpenSuccessThreshold;
+
+    /**
+     * 最近请求的结果，true 表示失败
+     */
+    private final boolean[] outcomes;
+
+    private int next;
+
+    private int count;
+
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+
+    private long openedAtNanos;
+
+    private int halfOpenSuccesses;
+
+    public NodeCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                              long openDurationNanos, int halfOpenSuccessThreshold) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("circuit breaker window size must be >= 1 but was " + windowSize);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failure rate threshold must be in (0, 1] but was " + failureRateThreshold);
+        }
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationNanos;
+        this.halfOpenSuccessThreshold = Math.max(halfOpenSuccessThreshold, 1);
+    }
+
+    /**
+     * 是否放行本次请求
+     */
+    public boolean allowRequest() {
+        //绝大多数时间处于 CLOSED，不加锁
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                return ThreadLocalRandom.current().nextInt(halfOpenSuccessThreshold + 1) <= halfOpenSuccesses;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return 状态是否发生变化
+     */
+    public synchronized boolean onSuccess() {
+        if (state == State.CLOSED) {
+            record(false);
+        } else if (state == State.HALF_OPEN && ++halfOpenSuccesses >= halfOpenSuccessThreshold) {
+            toClosed();
+            return true;
+        }
+        //OPEN 时收到的是熔断之前发出的请求的结果，忽略
+        return false;
+    }
+
+    /**
+     * @return 状态是否发生变化
+     */
+    public synchronized boolean onFailure() {
+        if (state == State.CLOSED) {
+            record(true);
+            if (count >= minimumCalls && failures >= failureRateThreshold * count) {
+                toOpen();
+                return true;
+            }
+        } else if (state == State.HALF_OPEN) {
+            toOpen();
+            return true;
+        }
+        return false;
+    }
+
+    private void record(boolean failure) {
+        if (count == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void toOpen() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+    }
+
+    private void toClosed() {
+        state = State.CLOSED;
+        next = 0;
+        count = 0;
+        failures = 0;
+    }
+
+    public State getState() {
+        return state;
+    }
+}
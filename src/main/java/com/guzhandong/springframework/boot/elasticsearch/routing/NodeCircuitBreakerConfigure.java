@@ -0,0 +1,81 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+public class NodeCircuitBreakerConfigure {
+
+    public static final String PREFIX = "spring.es.circuit-breaker";
+
+    private boolean enabled = false;
+
+    /**
+     * 统计失败率使用的最近请求数
+     */
+    private int windowSize = 20;
+
+    /**
+     * 窗口内请求数达到该值才计算失败率
+     */
+    private int minimumCalls = 5;
+
+    /**
+     * 失败率达到该值时熔断
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * 熔断后多久(ms)开始试探恢复
+     */
+    private long openDurationMillis = 5000L;
+
+    /**
+     * 试探阶段连续成功多少次后恢复，试探阶段放行的流量随成功次数逐步增加
+     */
+    private int halfOpenSuccessThreshold = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public void setOpenDurationMillis(long openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public int getHalfOpenSuccessThreshold() {
+        return halfOpenSuccessThreshold;
+    }
+
+    public void setHalfOpenSuccessThreshold(int halfOpenSuccessThreshold) {
+        this.halfOpenSuccessThreshold = halfOpenSuccessThreshold;
+    }
+}
@@ -0,0 +1,74 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.apache.http.HttpHost;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按节点({@link HttpHost})维护的熔断器，开启方式：{@code spring.es.circuit-breaker.enabled=true}.
+ * <p>
+ * 每一次 http 请求（包括 RestClient 在同一次调用内换节点重试的请求）的结果都记录到实际处理它的节点上：
+ * IO 异常（连接失败、socket 超时）和 502/503/504 为失败，其他响应为成功。
+ * {@link CircuitBreakerNodeSelector} 选节点时去掉熔断中的节点，请求立即发往其他节点，不再等到超时后才换节点。
+ *
+ */
+public class NodeCircuitBreakers {
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final NodeCircuitBreakerConfigure nodeCircuitBreakerConfigure;
+
+    private final ConcurrentMap<HttpHost, NodeCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public NodeCircuitBreakers(NodeCircuitBreakerConfigure nodeCircuitBreakerConfigure) {
+        this.nodeCircuitBreakerConfigure = nodeCircuitBreakerConfigure;
+    }
+
+    private NodeCircuitBreaker breaker(HttpHost host) {
+        return breakers.computeIfAbsent(host, h -> new NodeCircuitBreaker(
+                nodeCircuitBreakerConfigure.getWindowSize(),
+                nodeCircuitBreakerConfigure.getMinimumCalls(),
+                nodeCircuitBreakerConfigure.getFailureRateThreshold(),
+                TimeUnit.MILLISECONDS.toNanos(nodeCircuitBreakerConfigure.getOpenDurationMillis()),
+                nodeCircuitBreakerConfigure.getHalfOpenSuccessThreshold()));
+    }
+
+    /**
+     * 是否允许向该节点发送请求
+     */
+    public boolean allowRequest(HttpHost host) {
+        NodeCircuitBreaker breaker = breakers.get(host);
+        return breaker == null || breaker.allowRequest();
+    }
+
+    public void onSuccess(HttpHost host) {
+        NodeCircuitBreaker breaker = breaker(host);
+        if (breaker.onSuccess()) {
+            logUtil.info("es node {} circuit breaker state changed:{}", host, breaker.getState());
+        }
+    }
+
+    public void onFailure(HttpHost host) {
+        NodeCircuitBreaker breaker = breaker(host);
+        if (breaker.onFailure()) {
+            logUtil.warn("es node {} circuit breaker state changed:{}", host, breaker.getState());
+        }
+    }
+
+    /**
+     * 节点的熔断状态，没有请求过的节点为 CLOSED
+     */
+    public NodeCircuitBreaker.State getState(HttpHost host) {
+        NodeCircuitBreaker breaker = breakers.get(host);
+        return breaker == null ? NodeCircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    public Map<HttpHost, NodeCircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+}
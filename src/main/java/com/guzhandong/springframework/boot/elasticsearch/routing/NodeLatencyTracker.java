@@ -0,0 +1,163 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import org.apache.http.HttpHost;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按节点统计请求耗时(EWMA)和在途请求数.
+ * <p>
+ * {@link LatencyAwareNodeSelector} 选中节点时调用 {@link #onSelected(HttpHost)} 把节点记录在当前线程上（选节点发生在发请求的线程），
+ * {@link com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient} 执行完请求后通过 {@link #takeSelected()}
+ * 取回该节点，再调用 {@link #onComplete(HttpHost)} 减少在途请求数。
+ * 耗时样本不依赖选择结果，由 httpclient 拦截器按实际收到响应的节点调用 {@link #onResponse(HttpHost, long)} 记录，
+ * 见 {@link com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory#setNodeLatencyTracker}。
+ *
+ */
+public class NodeLatencyTracker {
+
+    private static final double DEFAULT_DECAY = 0.3;
+
+    /**
+     * 新样本的权重
+     */
+    private final double decay;
+
+    private final ConcurrentMap<HttpHost, NodeStats> nodeStats = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<HttpHost> selected = new ThreadLocal<>();
+
+    private final ThreadLocal<Set<HttpHost>> avoided = new ThreadLocal<>();
+
+    public NodeLatencyTracker() {
+        this(DEFAULT_DECAY);
+    }
+
+    public NodeLatencyTracker(double decay) {
+        if (decay <= 0 || decay > 1) {
+            throw new IllegalArgumentException("decay must be in (0, 1]");
+        }
+        this.decay = decay;
+    }
+
+    private NodeStats stats(HttpHost host) {
+        return nodeStats.computeIfAbsent(host, h -> new NodeStats());
+    }
+
+    /**
+     * 节点被选中，在途请求数加一
+     */
+    public void onSelected(HttpHost host) {
+        HttpHost abandoned = selected.get();
+        if (abandoned != null) {
+            //上一次选中的节点没有被取回（请求没有经过连接池版本的client），视为已结束
+            onComplete(abandoned);
+        }
+        stats(host).inFlight.incrementAndGet();
+        selected.set(host);
+    }
+
+    /**
+     * 取回并清除当前线程最近一次选中的节点
+     * @return 没有选中节点时返回 null
+     */
+    public HttpHost takeSelected() {
+        HttpHost host = selected.get();
+        if (host != null) {
+            selected.remove();
+        }
+        return host;
+    }
+
+    /**
+     * 当前线程的下一次选节点尽量避开该节点，用于失败后重试到其他节点
+     */
+    public void avoidNext(HttpHost host) {
+        avoidNext(host == null ? Collections.<HttpHost>emptySet() : Collections.singleton(host));
+    }
+
+    /**
+     * 当前线程的下一次选节点尽量避开这些节点，用于节点故障后换到还没有尝试过的节点
+     */
+    public void avoidNext(Collection<HttpHost> hosts) {
+        if (hosts.isEmpty()) {
+            avoided.remove();
+        } else {
+            avoided.set(new HashSet<>(hosts));
+        }
+    }
+
+    /**
+     * 取回并清除当前线程需要避开的节点
+     * @return 没有需要避开的节点时返回 null
+     */
+    public Set<HttpHost> takeAvoided() {
+        Set<HttpHost> hosts = avoided.get();
+        if (hosts != null) {
+            avoided.remove();
+        }
+        return hosts;
+    }
+
+    /**
+     * 请求结束，在途请求数减一
+     */
+    public void onComplete(HttpHost host) {
+        stats(host).inFlight.decrementAndGet();
+    }
+
+    /**
+     * 节点返回响应，记录从发出请求到收到响应头的耗时
+     */
+    public void onResponse(HttpHost host, long elapsedNanos) {
+        stats(host).record(elapsedNanos, decay);
+    }
+
+    /**
+     * 节点评分，越小越好：EWMA 耗时 * (在途请求数 + 1)；没有样本的节点评分为 0，会被优先尝试
+     */
+    public double score(HttpHost host) {
+        NodeStats stats = nodeStats.get(host);
+        if (stats == null) {
+            return 0;
+        }
+        return stats.ewmaNanos * (Math.max(0, stats.inFlight.get()) + 1);
+    }
+
+    /**
+     * EWMA 耗时(ns)，没有样本时返回 0
+     */
+    public double getLatencyNanos(HttpHost host) {
+        NodeStats stats = nodeStats.get(host);
+        return stats == null ? 0 : stats.ewmaNanos;
+    }
+
+    public int getInFlight(HttpHost host) {
+        NodeStats stats = nodeStats.get(host);
+        return stats == null ? 0 : stats.inFlight.get();
+    }
+
+    private static class NodeStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile double ewmaNanos;
+
+        private boolean sampled;
+
+        synchronized void record(long elapsedNanos, double decay) {
+            if (!sampled) {
+                ewmaNanos = elapsedNanos;
+                sampled = true;
+            } else {
+                ewmaNanos = ewmaNanos + decay * (elapsedNanos - ewmaNanos);
+            }
+        }
+    }
+}
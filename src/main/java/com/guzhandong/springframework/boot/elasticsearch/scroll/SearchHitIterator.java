@@ -0,0 +1,223 @@
+package com.guzhandong.springframework.boot.elasticsearch.scroll;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.utils.LogUtil;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 逐条遍历查询结果的迭代器，内部完成 search → searchScroll → clearScroll（或 search_after）的翻页.
+ * <p>
+ * 每拿到一页结果立即异步请求下一页，翻页请求与当前页的处理重叠进行；请求通过 {@link RestHighLevelClient} 的 CompletableFuture 接口发出，
+ * 不绑定当前线程。使用完成后必须调用 {@link #close()}（或关闭 {@link #stream()} 返回的流），scroll 方式下会保证清除 scroll 上下文。
+ * <p>
+ * 非线程安全，只能由一个线程使用。
+ *
+ */
+public class SearchHitIterator implements Iterator<SearchHit>, Closeable {
+
+    /**
+     * 未指定 size 时 es 默认每页返回的条数
+     */
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
+    private LogUtil logUtil = LogUtil.getLogger(getClass());
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    private final SearchRequest searchRequest;
+
+    private final RequestOptions options;
+
+    /**
+     * scroll 上下文保持时间，为 null 时使用 search_after 方式翻页
+     */
+    private final TimeValue keepAlive;
+
+    private CompletableFuture<SearchResponse> nextPage;
+
+    private SearchHit[] hits = new SearchHit[0];
+
+    private int cursor;
+
+    private String scrollId;
+
+    private boolean finished;
+
+    private boolean closed;
+
+    private SearchHitIterator(RestHighLevelClient restHighLevelClient, SearchRequest searchRequest,
+                              RequestOptions options, TimeValue keepAlive) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.searchRequest = searchRequest;
+        this.options = options;
+        this.keepAlive = keepAlive;
+        this.nextPage = restHighLevelClient.searchFuture(searchRequest, options);
+    }
+
+    /**
+     * 使用 scroll 方式遍历
+     * @param restHighLevelClient
+     * @param searchRequest 查询请求，每页大小由 source 的 size 决定
+     * @param options
+     * @param keepAlive scroll 上下文保持时间
+     * @return
+     */
+    public static SearchHitIterator scroll(RestHighLevelClient restHighLevelClient, SearchRequest searchRequest,
+                                           RequestOptions options, TimeValue keepAlive) {
+        SearchRequest request = new SearchRequest(searchRequest);
+        request.scroll(keepAlive);
+        return new SearchHitIterator(restHighLevelClient, request, options, keepAlive);
+    }
+
+    /**
+     * 使用 search_after 方式遍历，不占用服务端 scroll 上下文；查询必须指定排序，且排序字段组合唯一（一般以 _id 或唯一字段兜底）
+     * @param restHighLevelClient
+     * @param searchRequest 查询请求，每页大小由 source 的 size 决定
+     * @param options
+     * @return
+     */
+    public static SearchHitIterator searchAfter(RestHighLevelClient restHighLevelClient, SearchRequest searchRequest,
+                                                RequestOptions options) {
+        SearchSourceBuilder source = searchRequest.source();
+        if (source == null || source.sorts() == null || source.sorts().isEmpty()) {
+            throw new IllegalArgumentException("search_after requires the search source to define a sort");
+        }
+        SearchRequest request = new SearchRequest(searchRequest);
+        //浅拷贝 source，翻页时修改 search_after 不影响调用方的请求
+        request.source(source.copyWithNewSlice(source.slice()));
+        return new SearchHitIterator(restHighLevelClient, request, options, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (cursor >= hits.length) {
+            if (finished || closed) {
+                return false;
+            }
+            SearchResponse response = awaitNextPage();
+            hits = response.getHits().getHits();
+            cursor = 0;
+            if (keepAlive != null) {
+                scrollId = response.getScrollId();
+            }
+            if (hits.length == 0 || (keepAlive == null && hits.length < pageSize())) {
+                finished = true;
+                nextPage = null;
+            } else {
+                nextPage = fetchNextPage(hits[hits.length - 1]);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return hits[cursor++];
+    }
+
+    /**
+     * 以流的方式遍历，关闭流时自动调用 {@link #close()}
+     * @return
+     */
+    public Stream<SearchHit> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    private int pageSize() {
+        SearchSourceBuilder source = searchRequest.source();
+        return source == null || source.size() < 0 ? DEFAULT_PAGE_SIZE : source.size();
+    }
+
+    private CompletableFuture<SearchResponse> fetchNextPage(SearchHit lastHit) {
+        if (keepAlive != null) {
+            return restHighLevelClient.searchScrollFuture(new SearchScrollRequest(scrollId).scroll(keepAlive), options);
+        }
+        searchRequest.source().searchAfter(lastHit.getSortValues());
+        return restHighLevelClient.searchFuture(searchRequest, options);
+    }
+
+    private SearchResponse awaitNextPage() {
+        try {
+            return nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new ElasticsearchException("interrupted while waiting for the next page", e);
+        } catch (ExecutionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw new ElasticsearchException(cause);
+        }
+    }
+
+    /**
+     * 结束遍历，scroll 方式下清除 scroll 上下文（包括正在预取的页）
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (keepAlive == null) {
+            if (nextPage != null) {
+                nextPage.cancel(true);
+            }
+            return;
+        }
+        final String currentScrollId = scrollId;
+        if (nextPage != null) {
+            //预取的页（无论是否已经返回）若带回了新的 scrollId 也需要清除
+            nextPage.whenComplete((response, throwable) -> {
+                if (response != null && response.getScrollId() != null && !response.getScrollId().equals(currentScrollId)) {
+                    clearScroll(response.getScrollId());
+                }
+            });
+        }
+        if (currentScrollId != null) {
+            clearScroll(currentScrollId);
+        }
+    }
+
+    private void clearScroll(String id) {
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(id);
+        try {
+            restHighLevelClient.clearScrollFuture(clearScrollRequest, options).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            logUtil.warn("es clear scroll exception:{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.guzhandong.springframework.boot.elasticsearch.scroll;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 并行分片 scroll 导出.
+ * <p>
+ * 将一个查询拆成 N 个 slice 子 scroll，在有界线程池中并行遍历（每个 slice 使用一个 {@link SearchHitIterator}，自带翻页预取），
+ * 所有 slice 的命中合并交给同一个回调或有界队列。返回的 {@link CompletableFuture} 在全部 slice 遍历完成后返回命中总数；
+ * 任一 slice 失败或调用方 cancel 时中断其余 slice，每个 slice 的 scroll 上下文都会被清除。
+ *
+ */
+public class SlicedScrollExecutor implements Closeable {
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    private final ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    /**
+     * @param restHighLevelClient
+     * @param executor 执行 slice 的线程池，由调用方负责关闭
+     */
+    public SlicedScrollExecutor(RestHighLevelClient restHighLevelClient, ExecutorService executor) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.executor = executor;
+        this.ownExecutor = false;
+    }
+
+    /**
+     * @param restHighLevelClient
+     * @param maxThreads 同时执行的 slice 数上限
+     */
+    public SlicedScrollExecutor(RestHighLevelClient restHighLevelClient, int maxThreads) {
+        this.restHighLevelClient = restHighLevelClient;
+        this.executor = Executors.newFixedThreadPool(maxThreads, r -> {
+            Thread thread = new Thread(r, "es-sliced-scroll-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ownExecutor = true;
+    }
+
+    /**
+     * 并行遍历，命中交给回调处理
+     * @param searchRequest 查询请求，每页大小由 source 的 size 决定
+     * @param options
+     * @param keepAlive scroll 上下文保持时间
+     * @param slices slice 数，一般不超过索引的分片数
+     * @param consumer 命中回调，会被多个线程并发调用，需要线程安全
+     * @return 全部完成后返回命中总数
+     */
+    public CompletableFuture<Long> execute(SearchRequest searchRequest, RequestOptions options, TimeValue keepAlive,
+                                           int slices, Consumer<SearchHit> consumer) {
+        if (slices < 1) {
+            throw new IllegalArgumentException("slices must be greater than 0");
+        }
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        AtomicLong hitCount = new AtomicLong();
+        AtomicInteger remaining = new AtomicInteger(slices);
+        List<Future<?>> tasks = new ArrayList<>(slices);
+        try {
+            for (int i = 0; i < slices; i++) {
+                SearchRequest sliceRequest = sliceRequest(searchRequest, i, slices);
+                tasks.add(executor.submit(() -> {
+                    try (SearchHitIterator iterator = SearchHitIterator.scroll(restHighLevelClient, sliceRequest, options, keepAlive)) {
+                        while (!result.isDone() && iterator.hasNext()) {
+                            consumer.accept(iterator.next());
+                            hitCount.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        //回调抛出的 Error 也要结束 future，否则调用方会一直等待
+                        result.completeExceptionally(e);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            result.complete(hitCount.get());
+                        }
+                    }
+                }));
+            }
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        //失败或被取消时中断其余 slice，slice 线程退出时会关闭各自的 iterator 并清除 scroll
+        result.whenComplete((count, throwable) -> {
+            if (throwable != null) {
+                for (Future<?> task : tasks) {
+                    task.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 并行遍历，命中放入有界队列，队列满时 slice 线程阻塞等待
+     * @param searchRequest 查询请求，每页大小由 source 的 size 决定
+     * @param options
+     * @param keepAlive scroll 上下文保持时间
+     * @param slices slice 数，一般不超过索引的分片数
+     * @param queue 命中队列
+     * @return 全部完成后返回命中总数
+     */
+    public CompletableFuture<Long> execute(SearchRequest searchRequest, RequestOptions options, TimeValue keepAlive,
+                                           int slices, BlockingQueue<SearchHit> queue) {
+        return execute(searchRequest, options, keepAlive, slices, hit -> {
+            try {
+                queue.put(hit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("sliced scroll interrupted");
+            }
+        });
+    }
+
+    private static SearchRequest sliceRequest(SearchRequest searchRequest, int id, int max) {
+        SearchRequest sliceRequest = new SearchRequest(searchRequest);
+        SearchSourceBuilder source = searchRequest.source() == null ? new SearchSourceBuilder() : searchRequest.source();
+        //slice 的 max 必须大于 1
+        sliceRequest.source(source.copyWithNewSlice(max > 1 ? new SliceBuilder(id, max) : null));
+        return sliceRequest;
+    }
+
+    /**
+     * 关闭自行创建的线程池，外部传入的线程池不做处理
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+}
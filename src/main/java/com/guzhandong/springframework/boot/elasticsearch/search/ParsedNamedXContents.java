@@ -0,0 +1,45 @@
+package com.guzhandong.springframework.boot.elasticsearch.search;
+
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 高级客户端解析聚合、suggest 结果使用的 {@link NamedXContentRegistry}.
+ * <p>
+ * 高级客户端注册 Parsed* 聚合类型的方法不公开，这里通过反射获取一次后缓存
+ *
+ */
+public final class ParsedNamedXContents {
+
+    private static volatile NamedXContentRegistry registry;
+
+    private ParsedNamedXContents() {
+    }
+
+    public static NamedXContentRegistry registry() {
+        NamedXContentRegistry current = registry;
+        if (current == null) {
+            current = load();
+            registry = current;
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NamedXContentRegistry load() {
+        List<NamedXContentRegistry.Entry> entries = new ArrayList<>();
+        try {
+            for (String name : new String[]{"getDefaultNamedXContents", "getProvidedNamedXContents"}) {
+                Method method = org.elasticsearch.client.RestHighLevelClient.class.getDeclaredMethod(name);
+                method.setAccessible(true);
+                entries.addAll((List<NamedXContentRegistry.Entry>) method.invoke(null));
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("can not load named xcontents of the high level client", e);
+        }
+        return new NamedXContentRegistry(entries);
+    }
+}
@@ -0,0 +1,224 @@
+package com.guzhandong.springframework.boot.elasticsearch.search;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@link StreamingSearchResponse} 中当前命中的文档，每条命中复用同一个对象，读取下一条后内容被覆盖.
+ * <p>
+ * _source、fields、highlight、sort 保存为原始 json 字节，调用对应的方法时才解析；需要保留时请复制需要的字段
+ *
+ */
+public class SearchHitView {
+
+    private final StreamingSearchResponse.HitBuffer buffer;
+
+    private String index;
+
+    private String type;
+
+    private String id;
+
+    private String routing;
+
+    private float score;
+
+    private long version;
+
+    private long seqNo;
+
+    private long primaryTerm;
+
+    private final int[] source = new int[2];
+
+    private final int[] fields = new int[2];
+
+    private final int[] highlight = new int[2];
+
+    private final int[] sort = new int[2];
+
+    SearchHitView(StreamingSearchResponse.HitBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void reset() {
+        index = null;
+        type = null;
+        id = null;
+        routing = null;
+        score = Float.NaN;
+        version = -1;
+        seqNo = -2;
+        primaryTerm = 0;
+        source[1] = -1;
+        fields[1] = -1;
+        highlight[1] = -1;
+        sort[1] = -1;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRouting() {
+        return routing;
+    }
+
+    void setRouting(String routing) {
+        this.routing = routing;
+    }
+
+    /**
+     * @return 没有评分时为 {@link Float#NaN}
+     */
+    public float getScore() {
+        return score;
+    }
+
+    void setScore(float score) {
+        this.score = score;
+    }
+
+    /**
+     * @return 请求没有设置 version=true 时为 -1
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return 请求没有设置 seq_no_primary_term=true 时为 -2
+     */
+    public long getSeqNo() {
+        return seqNo;
+    }
+
+    void setSeqNo(long seqNo) {
+        this.seqNo = seqNo;
+    }
+
+    public long getPrimaryTerm() {
+        return primaryTerm;
+    }
+
+    void setPrimaryTerm(long primaryTerm) {
+        this.primaryTerm = primaryTerm;
+    }
+
+    int[] source() {
+        return source;
+    }
+
+    int[] fields() {
+        return fields;
+    }
+
+    int[] highlight() {
+        return highlight;
+    }
+
+    int[] sort() {
+        return sort;
+    }
+
+    public boolean hasSource() {
+        return source[1] >= 0;
+    }
+
+    /**
+     * @return _source 的原始 json，没有 _source 时为 null。引用内部缓冲，读取下一条后失效
+     */
+    public BytesReference getSourceRef() {
+        return ref(source);
+    }
+
+    public String getSourceAsString() {
+        return hasSource() ? new String(buffer.array(), source[0], source[1], StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 解析 _source，没有 _source 时返回空 map
+     */
+    public Map<String, Object> getSourceAsMap() {
+        return asMap(source);
+    }
+
+    /**
+     * @return fields（docvalue_fields、stored_fields、script_fields）的原始 json，没有时为 null
+     */
+    public BytesReference getFieldsRef() {
+        return ref(fields);
+    }
+
+    public Map<String, Object> getFieldsAsMap() {
+        return asMap(fields);
+    }
+
+    /**
+     * @return highlight 的原始 json，没有时为 null
+     */
+    public BytesReference getHighlightRef() {
+        return ref(highlight);
+    }
+
+    public Map<String, Object> getHighlightAsMap() {
+        return asMap(highlight);
+    }
+
+    /**
+     * @return sort 值的原始 json 数组，没有时为 null
+     */
+    public BytesReference getSortRef() {
+        return ref(sort);
+    }
+
+    private BytesReference ref(int[] range) {
+        return range[1] < 0 ? null : new BytesArray(buffer.array(), range[0], range[1]);
+    }
+
+    private Map<String, Object> asMap(int[] range) {
+        if (range[1] < 0) {
+            return Collections.emptyMap();
+        }
+        return XContentHelper.convertToMap(ref(range), false, XContentType.JSON).v2();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHitView{" +
+                "index='" + index + '\'' +
+                ", id='" + id + '\'' +
+                ", score=" + score +
+                '}';
+    }
+}
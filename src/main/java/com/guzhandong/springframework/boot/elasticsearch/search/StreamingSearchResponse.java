@@ -0,0 +1,482 @@
+package com.guzhandong.springframework.boot.elasticsearch.search;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.suggest.Suggest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * 逐条解析的搜索结果，不创建 {@link org.elasticsearch.action.search.SearchResponse}/{@link org.elasticsearch.search.SearchHit}.
+ * <p>
+ * 创建时只解析到 hits 数组之前的部分（took、_shards、total 等），之后每次 {@link #next()} 用 pull parser 解析一条命中到同一个
+ * {@link SearchHitView}；_source 等字段保存为原始字节，按需解析。
+ * 响应体已由 RestClient 整体读入内存，这里省下的是每条命中的 SearchHit 对象和解析出的 _source 等结构，
+ * 内存占用仍随每页条数增长，超大的页应改用 scroll 或 search_after 分页。
+ * <p>
+ * 聚合和 suggest 在响应中位于 hits 之后，调用 {@link #getAggregations()} 时跳过剩余的命中（不解析）再解析聚合。
+ * 非线程安全，使用完成后需要 {@link #close()}
+ *
+ */
+public class StreamingSearchResponse implements Iterator<SearchHitView>, Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    private final HitBuffer hitBuffer = new HitBuffer();
+
+    private final JsonGenerator hitGenerator;
+
+    private final SearchHitView hit = new SearchHitView(hitBuffer);
+
+    /**
+     * 当前位于 hits 数组中
+     */
+    private boolean inHits;
+
+    /**
+     * 已读到下一条命中，还没有通过 next 返回
+     */
+    private boolean hitReady;
+
+    private int hitCount;
+
+    private String scrollId;
+
+    private long took = -1;
+
+    private boolean timedOut;
+
+    private Boolean terminatedEarly;
+
+    private int totalShards;
+
+    private int successfulShards;
+
+    private int skippedShards;
+
+    private int failedShards;
+
+    private long totalHits = -1;
+
+    private String totalHitsRelation;
+
+    private float maxScore = Float.NaN;
+
+    private BytesReference aggregationsRef;
+
+    private BytesReference suggestRef;
+
+    private Aggregations aggregations;
+
+    private Suggest suggest;
+
+    public StreamingSearchResponse(InputStream content) throws IOException {
+        this.parser = JSON_FACTORY.createParser(content);
+        this.hitGenerator = JSON_FACTORY.createGenerator(hitBuffer);
+        //多个字段依次写入同一个缓冲，字段之间不加分隔
+        this.hitGenerator.setRootValueSeparator(null);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("search response is not a json object");
+            }
+            inHits = readTopLevel();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hitReady) {
+            return true;
+        }
+        if (!inHits) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                readHit();
+                hitReady = true;
+                hitCount++;
+                return true;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("unexpected token in hits: " + token);
+            }
+            finishHits();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return 复用的命中对象，下一次调用后内容被覆盖
+     */
+    @Override
+    public SearchHitView next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hitReady = false;
+        return hit;
+    }
+
+    /**
+     * 依次处理剩余的每条命中
+     */
+    public void forEachHit(Consumer<SearchHitView> consumer) {
+        while (hasNext()) {
+            consumer.accept(next());
+        }
+    }
+
+    /**
+     * 已读取的命中数
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public String getScrollId() {
+        return scrollId;
+    }
+
+    /**
+     * @return 毫秒
+     */
+    public long getTook() {
+        return took;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public Boolean isTerminatedEarly() {
+        return terminatedEarly;
+    }
+
+    public int getTotalShards() {
+        return totalShards;
+    }
+
+    public int getSuccessfulShards() {
+        return successfulShards;
+    }
+
+    public int getSkippedShards() {
+        return skippedShards;
+    }
+
+    public int getFailedShards() {
+        return failedShards;
+    }
+
+    /**
+     * @return 请求设置 track_total_hits=false 时为 -1
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return eq 或 gte
+     */
+    public String getTotalHitsRelation() {
+        return totalHitsRelation;
+    }
+
+    public float getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * 解析聚合结果，还有没读取的命中时直接跳过
+     * @return 没有聚合时为 null
+     */
+    public Aggregations getAggregations() throws IOException {
+        skipRemainingHits();
+        if (aggregations == null && aggregationsRef != null) {
+            try (XContentParser aggregationsParser = createParser(aggregationsRef)) {
+                aggregationsParser.nextToken();
+                aggregations = Aggregations.fromXContent(aggregationsParser);
+            }
+        }
+        return aggregations;
+    }
+
+    /**
+     * @return 聚合的原始 json，没有聚合时为 null
+     */
+    public BytesReference getAggregationsRef() throws IOException {
+        skipRemainingHits();
+        return aggregationsRef;
+    }
+
+    /**
+     * 解析 suggest 结果，还有没读取的命中时直接跳过
+     * @return 没有 suggest 时为 null
+     */
+    public Suggest getSuggest() throws IOException {
+        skipRemainingHits();
+        if (suggest == null && suggestRef != null) {
+            try (XContentParser suggestParser = createParser(suggestRef)) {
+                suggestParser.nextToken();
+                suggest = Suggest.fromXContent(suggestParser);
+            }
+        }
+        return suggest;
+    }
+
+    @Override
+    public void close() {
+        inHits = false;
+        hitReady = false;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            //忽略
+        }
+    }
+
+    private static XContentParser createParser(BytesReference bytes) throws IOException {
+        return XContentType.JSON.xContent().createParser(ParsedNamedXContents.registry(),
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, bytes.streamInput());
+    }
+
+    /**
+     * 读取顶层字段，遇到 hits 数组时停止
+     * @return 是否停在 hits 数组中，false 表示已读完整个响应
+     */
+    private boolean readTopLevel() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "_scroll_id":
+                    scrollId = parser.getText();
+                    break;
+                case "took":
+                    took = parser.getLongValue();
+                    break;
+                case "timed_out":
+                    timedOut = parser.getBooleanValue();
+                    break;
+                case "terminated_early":
+                    terminatedEarly = token == JsonToken.VALUE_NULL ? null : parser.getBooleanValue();
+                    break;
+                case "_shards":
+                    readShards();
+                    break;
+                case "hits":
+                    if (token == JsonToken.START_OBJECT && readHitsObject()) {
+                        return true;
+                    }
+                    break;
+                case "aggregations":
+                    aggregationsRef = copyStructure();
+                    break;
+                case "suggest":
+                    suggestRef = copyStructure();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取 hits 对象中的字段，遇到 hits 数组时停止
+     * @return 是否停在 hits 数组中，false 表示 hits 对象已结束
+     */
+    private boolean readHitsObject() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("total".equals(name)) {
+                readTotal(token);
+            } else if ("max_score".equals(name)) {
+                maxScore = token == JsonToken.VALUE_NULL ? Float.NaN : parser.getFloatValue();
+            } else if ("hits".equals(name) && token == JsonToken.START_ARRAY) {
+                return true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private void readTotal(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            //rest_total_hits_as_int=true
+            totalHits = parser.getLongValue();
+            totalHitsRelation = "eq";
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("value".equals(name)) {
+                totalHits = parser.getLongValue();
+            } else if ("relation".equals(name)) {
+                totalHitsRelation = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readShards() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "total":
+                    totalShards = parser.getIntValue();
+                    break;
+                case "successful":
+                    successfulShards = parser.getIntValue();
+                    break;
+                case "skipped":
+                    skippedShards = parser.getIntValue();
+                    break;
+                case "failed":
+                    failedShards = parser.getIntValue();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private void readHit() throws IOException {
+        hit.reset();
+        hitBuffer.reset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "_index":
+                    hit.setIndex(parser.getText());
+                    break;
+                case "_type":
+                    hit.setType(parser.getText());
+                    break;
+                case "_id":
+                    hit.setId(parser.getText());
+                    break;
+                case "_routing":
+                    hit.setRouting(parser.getText());
+                    break;
+                case "_score":
+                    hit.setScore(token == JsonToken.VALUE_NULL ? Float.NaN : parser.getFloatValue());
+                    break;
+                case "_version":
+                    hit.setVersion(parser.getLongValue());
+                    break;
+                case "_seq_no":
+                    hit.setSeqNo(parser.getLongValue());
+                    break;
+                case "_primary_term":
+                    hit.setPrimaryTerm(parser.getLongValue());
+                    break;
+                case "_source":
+                    copyToHitBuffer(hit.source());
+                    break;
+                case "fields":
+                    copyToHitBuffer(hit.fields());
+                    break;
+                case "highlight":
+                    copyToHitBuffer(hit.highlight());
+                    break;
+                case "sort":
+                    copyToHitBuffer(hit.sort());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * 把当前值写入命中的缓冲
+     * @param range 写入的 {偏移, 长度}
+     */
+    private void copyToHitBuffer(int[] range) throws IOException {
+        hitGenerator.flush();
+        int start = hitBuffer.size();
+        hitGenerator.copyCurrentStructure(parser);
+        hitGenerator.flush();
+        range[0] = start;
+        range[1] = hitBuffer.size() - start;
+    }
+
+    private BytesReference copyStructure() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return new BytesArray(out.toByteArray());
+    }
+
+    /**
+     * hits 数组结束，继续读取之后的字段
+     */
+    private void finishHits() throws IOException {
+        inHits = false;
+        if (readHitsObject()) {
+            //hits 对象中不会出现第二个 hits 数组
+            parser.skipChildren();
+        }
+        readTopLevel();
+    }
+
+    private void skipRemainingHits() throws IOException {
+        hitReady = false;
+        while (inHits) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+            } else if (token == JsonToken.END_ARRAY) {
+                finishHits();
+            } else {
+                throw new IOException("unexpected token in hits: " + token);
+            }
+        }
+    }
+
+    /**
+     * 单条命中的字段缓冲，读取下一条时清空，容量保持为最大的一条命中
+     */
+    static final class HitBuffer extends ByteArrayOutputStream {
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 后台批量写入：按条数合并提交，关闭时提交剩余操作，请求完成后归还连接
+ */
+public class ElasticsearchBulkProcessorTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private ElasticsearchBulkProcessorConfigure configure;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(2);
+        fixture.start();
+        pool = fixture.getPool();
+        configure = new ElasticsearchBulkProcessorConfigure();
+        configure.setBulkActions(10);
+        configure.setBulkSizeBytes(-1);
+        //不按时间提交，只由条数和关闭触发
+        configure.setFlushIntervalMillis(0);
+        configure.setBackoffMaxRetries(0);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static IndexRequest index(int id) {
+        return new IndexRequest("fake").id(String.valueOf(id)).source("{\"seq\":" + id + "}", XContentType.JSON);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void flushesByActionCountAndOnClose() throws Exception {
+        ElasticsearchBulkProcessor bulkProcessor = new ElasticsearchBulkProcessor(fixture.getClient(), configure);
+        for (int i = 0; i < 25; i++) {
+            bulkProcessor.add(index(i));
+        }
+        awaitTrue(() -> bulkProcessor.getCompletedBulks() == 2);
+        assertEquals(2, server.getRequestCount(FakeEndpoint.BULK));
+        assertEquals(5, bulkProcessor.getPendingActions());
+
+        bulkProcessor.destroy();
+        assertEquals(3, server.getRequestCount(FakeEndpoint.BULK));
+        assertEquals(25, bulkProcessor.getSubmittedActions());
+        assertEquals(0, bulkProcessor.getPendingActions());
+        assertEquals(25, bulkProcessor.getSucceededActions());
+        assertEquals(0, bulkProcessor.getFailedActions());
+        assertEquals(0, bulkProcessor.getInFlightBulks());
+        awaitTrue(() -> pool.getNumActive() == 0);
+    }
+
+    @Test
+    public void failedBulkIsCountedAndReleasesClient() throws Exception {
+        server.setRejectionRate(1.0);
+        ElasticsearchBulkProcessor bulkProcessor = new ElasticsearchBulkProcessor(fixture.getClient(), configure);
+        for (int i = 0; i < 10; i++) {
+            bulkProcessor.add(index(i));
+        }
+        awaitTrue(() -> bulkProcessor.getFailedBulks() == 1);
+        assertEquals(10, bulkProcessor.getFailedActions());
+        assertEquals(0, bulkProcessor.getSucceededActions());
+        assertEquals(0, bulkProcessor.getInFlightBulks());
+        bulkProcessor.destroy();
+        awaitTrue(() -> pool.getNumActive() == 0);
+    }
+}
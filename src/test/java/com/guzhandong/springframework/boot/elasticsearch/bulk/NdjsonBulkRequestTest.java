@@ -0,0 +1,143 @@
+package com.guzhandong.springframework.boot.elasticsearch.bulk;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeRequest;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NDJSON bulk 请求的编码、发送和 buffer 归还
+ */
+public class NdjsonBulkRequestTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    /**
+     * 最小的 chunk，覆盖跨 buffer 的写入
+     */
+    private final ByteBufferPool byteBufferPool = new ByteBufferPool(1024, 16);
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setRecordRequests(true);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void bulkRoundTrip() throws Exception {
+        String escapedId = "quote\"back\\slash\ttab";
+        String unicodeId = "文档-é-😀";
+        StringBuilder large = new StringBuilder("{\"text\":\"");
+        for (int i = 0; i < 300; i++) {
+            large.append("长文本-").append(i);
+        }
+        String largeSource = large.append("\"}").toString();
+        NdjsonBulkRequest bulkRequest = new NdjsonBulkRequest(byteBufferPool)
+                .index("idx", escapedId, utf8("{\"name\":\"first\"}"))
+                .index("idx", unicodeId, null, ByteBuffer.wrap(utf8("{\"name\":\"第二\"}")))
+                .create("idx", "3", utf8(largeSource))
+                .update("idx", "3", utf8("{\"doc\":{\"name\":\"updated\"}}"))
+                .delete("idx", "4")
+                .setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+        assertEquals(5, bulkRequest.numberOfActions());
+        long size = bulkRequest.estimatedSizeInBytes();
+
+        BulkResponse bulkResponse = client.bulk(bulkRequest, RequestOptions.DEFAULT);
+
+        BulkItemResponse[] items = bulkResponse.getItems();
+        assertEquals(5, items.length);
+        assertEquals(escapedId, items[0].getId());
+        assertEquals(unicodeId, items[1].getId());
+        assertEquals(DocWriteRequest.OpType.CREATE, items[2].getOpType());
+        assertEquals(DocWriteRequest.OpType.UPDATE, items[3].getOpType());
+        assertEquals(DocWriteRequest.OpType.DELETE, items[4].getOpType());
+        assertFalse(items[0].isFailed());
+        assertTrue(server.containsDocument("idx", escapedId));
+        assertTrue(server.containsDocument("idx", unicodeId));
+        assertTrue(server.containsDocument("idx", "3"));
+
+        FakeRequest request = server.getRecordedRequests().stream()
+                .filter(r -> r.getEndpoint() == FakeEndpoint.BULK).findFirst().get();
+        assertEquals("wait_for", request.getParam("refresh"));
+        String expected = "{\"index\":{\"_index\":\"idx\",\"_id\":\"quote\\\"back\\\\slash\\u0009tab\"}}\n"
+                + "{\"name\":\"first\"}\n"
+                + "{\"index\":{\"_index\":\"idx\",\"_id\":\"" + unicodeId + "\"}}\n"
+                + "{\"name\":\"第二\"}\n"
+                + "{\"create\":{\"_index\":\"idx\",\"_id\":\"3\"}}\n"
+                + largeSource + "\n"
+                + "{\"update\":{\"_index\":\"idx\",\"_id\":\"3\"}}\n"
+                + "{\"doc\":{\"name\":\"updated\"}}\n"
+                + "{\"delete\":{\"_index\":\"idx\",\"_id\":\"4\"}}\n";
+        assertEquals(expected, request.getBody());
+        assertEquals(utf8(expected).length, size);
+
+        //发送完成后 buffer 已归还，请求不能再次发送
+        assertTrue(byteBufferPool.getPooledCount() > 0);
+        assertThrows(IllegalStateException.class, () -> bulkRequest.toRequest(RequestOptions.DEFAULT));
+    }
+
+    @Test
+    public void bulkFutureReleasesBuffers() throws Exception {
+        NdjsonBulkRequest bulkRequest = new NdjsonBulkRequest(byteBufferPool);
+        for (int i = 0; i < 50; i++) {
+            bulkRequest.index("idx", String.valueOf(i), utf8("{\"i\":" + i + "}"));
+        }
+        BulkResponse bulkResponse = client.bulkFuture(bulkRequest, RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS);
+        assertEquals(50, bulkResponse.getItems().length);
+        assertFalse(bulkResponse.hasFailures());
+        assertEquals(50, server.getBulkItemCount());
+        assertTrue(byteBufferPool.getAllocatedCount() > 1);
+        assertEquals(byteBufferPool.getAllocatedCount(), byteBufferPool.getPooledCount());
+    }
+
+    @Test
+    public void itemRejectionsAreReported() throws Exception {
+        server.setBulkItemRejectionRate(1);
+        List<String> ids = Arrays.asList("a", "b");
+        NdjsonBulkRequest bulkRequest = new NdjsonBulkRequest(byteBufferPool);
+        for (String id : ids) {
+            bulkRequest.index("idx", id, utf8("{}"));
+        }
+        BulkResponse bulkResponse = client.bulk(bulkRequest, RequestOptions.DEFAULT);
+        assertTrue(bulkResponse.hasFailures());
+        for (BulkItemResponse item : bulkResponse.getItems()) {
+            assertEquals(429, item.getFailure().getStatus().getStatus());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Get/MultiGet 文档缓存和 Search 结果缓存在本 client 写入后失效
+ */
+public class CacheInvalidationTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setGenerateMissingDocuments(false);
+        server.setRecordRequests(true);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private long docReads() {
+        return server.getRecordedRequests().stream()
+                .filter(request -> request.getEndpoint() == FakeEndpoint.DOC && "GET".equals(request.getMethod()))
+                .count();
+    }
+
+    @Test
+    public void documentCacheIsInvalidatedByWrites() throws Exception {
+        ElasticsearchDocumentCacheConfigure elasticsearchDocumentCacheConfigure = new ElasticsearchDocumentCacheConfigure();
+        elasticsearchDocumentCacheConfigure.setExpireAfterWriteMillis(60000);
+        CaffeineDocumentCache documentCache = new CaffeineDocumentCache(elasticsearchDocumentCacheConfigure);
+        client.setDocumentCache(documentCache);
+
+        client.index(new IndexRequest("idx").id("1").source("{\"v\":1}", XContentType.JSON), RequestOptions.DEFAULT);
+        assertEquals("{\"v\":1}", client.get(new GetRequest("idx", "1"), RequestOptions.DEFAULT).getSourceAsString());
+        assertEquals("{\"v\":1}", client.get(new GetRequest("idx", "1"), RequestOptions.DEFAULT).getSourceAsString());
+        assertEquals(1, docReads());
+        assertEquals(1, documentCache.getHitCount());
+
+        //单文档写入失效
+        client.index(new IndexRequest("idx").id("1").source("{\"v\":2}", XContentType.JSON), RequestOptions.DEFAULT);
+        assertEquals("{\"v\":2}", client.get(new GetRequest("idx", "1"), RequestOptions.DEFAULT).getSourceAsString());
+        assertEquals(2, docReads());
+
+        //multiGet 命中缓存，只请求缺失的文档
+        client.index(new IndexRequest("idx").id("2").source("{\"v\":3}", XContentType.JSON), RequestOptions.DEFAULT);
+        MultiGetResponse multiGetResponse = client.multiGet(new MultiGetRequest().add("idx", "1").add("idx", "2"), RequestOptions.DEFAULT);
+        assertEquals("{\"v\":2}", multiGetResponse.getResponses()[0].getResponse().getSourceAsString());
+        assertEquals("{\"v\":3}", multiGetResponse.getResponses()[1].getResponse().getSourceAsString());
+        assertEquals(1, server.getRequestCount(FakeEndpoint.MGET));
+
+        //bulk 写入失效
+        client.bulk(new BulkRequest().add(new DeleteRequest("idx", "1")), RequestOptions.DEFAULT);
+        GetResponse deleted = client.get(new GetRequest("idx", "1"), RequestOptions.DEFAULT);
+        assertFalse(deleted.isExists());
+        assertEquals(3, docReads());
+    }
+
+    @Test
+    public void searchCacheIsInvalidatedByWrites() throws Exception {
+        ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure = new ElasticsearchSearchCacheConfigure();
+        elasticsearchSearchCacheConfigure.setExpireAfterWriteMillis(60000);
+        elasticsearchSearchCacheConfigure.setWriteGraceMillis(200);
+        CaffeineSearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        client.setSearchCache(searchCache);
+
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(1, searchCache.getHitCount());
+
+        //写入其他索引不影响
+        client.index(new IndexRequest("other").id("1").source("{}", XContentType.JSON), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+
+        //写入之后的宽限期内不缓存
+        client.index(new IndexRequest("idx").id("1").source("{}", XContentType.JSON), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(3, server.getRequestCount(FakeEndpoint.SEARCH));
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(4, server.getRequestCount(FakeEndpoint.SEARCH));
+
+        //scroll 请求不缓存
+        client.search(new SearchRequest("idx").scroll("1m"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("idx").scroll("1m"), RequestOptions.DEFAULT);
+        assertEquals(6, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertTrue(searchCache.getSize() > 0);
+    }
+
+    @Test
+    public void searchCacheReturnsCopyPerHit() throws Exception {
+        server.setResponder(FakeEndpoint.SEARCH, request -> FakeResponse.ok("{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},\"max_score\":1.0,"
+                + "\"hits\":[{\"_index\":\"idx\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"tag\":\"a\"}}]},"
+                + "\"aggregations\":{\"sterms#tags\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,"
+                + "\"buckets\":[{\"key\":\"a\",\"doc_count\":1}]}}}"));
+        ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure = new ElasticsearchSearchCacheConfigure();
+        elasticsearchSearchCacheConfigure.setExpireAfterWriteMillis(60000);
+        CaffeineSearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        client.setSearchCache(searchCache);
+
+        SearchResponse first = client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        //调用方修改返回的结果不影响缓存
+        first.getHits().getHits()[0].getSourceAsMap().put("tag", "changed");
+        SearchResponse second = client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        SearchResponse third = client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(2, searchCache.getHitCount());
+        assertNotSame(second, third);
+        assertNotSame(second.getHits().getHits()[0], third.getHits().getHits()[0]);
+        assertEquals("a", second.getHits().getHits()[0].getSourceAsMap().get("tag"));
+        assertEquals(1, second.getHits().getTotalHits().value);
+        Terms tags = second.getAggregations().get("tags");
+        assertEquals("a", tags.getBuckets().get(0).getKeyAsString());
+    }
+}
@@ -0,0 +1,104 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.get.GetResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MultiGet 部分命中时只请求缺失的条目并按原顺序合并，要求 refresh 的请求不读写缓存
+ */
+public class MultiGetCacheLookupTest {
+
+    private CaffeineDocumentCache documentCache;
+
+    @BeforeEach
+    public void setUp() {
+        ElasticsearchDocumentCacheConfigure elasticsearchDocumentCacheConfigure = new ElasticsearchDocumentCacheConfigure();
+        elasticsearchDocumentCacheConfigure.setExpireAfterWriteMillis(60000);
+        documentCache = new CaffeineDocumentCache(elasticsearchDocumentCacheConfigure);
+    }
+
+    private static MultiGetItemResponse found(String id) {
+        return new MultiGetItemResponse(new GetResponse(new GetResult("idx", "_doc", id, 0, 1, 1, true,
+                new BytesArray("{\"id\":\"" + id + "\"}"), Collections.emptyMap(), Collections.emptyMap())), null);
+    }
+
+    private static MultiGetItemResponse failed(String id) {
+        return new MultiGetItemResponse(null, new MultiGetResponse.Failure("idx", "_doc", id, new IllegalStateException("shard failure")));
+    }
+
+    private void cache(String id) {
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(documentCache, new MultiGetRequest().add("idx", id));
+        lookup.merge(new MultiGetResponse(new MultiGetItemResponse[]{found(id)}));
+    }
+
+    @Test
+    public void partialHitRequestsOnlyMissesAndMergesInOrder() {
+        cache("2");
+
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(documentCache,
+                new MultiGetRequest().add("idx", "1").add("idx", "2").add("idx", "3"));
+        MultiGetRequest missRequest = lookup.getMissRequest();
+        assertNotNull(missRequest);
+        assertEquals(2, missRequest.getItems().size());
+        assertEquals("1", missRequest.getItems().get(0).id());
+        assertEquals("3", missRequest.getItems().get(1).id());
+
+        MultiGetResponse merged = lookup.merge(new MultiGetResponse(new MultiGetItemResponse[]{found("1"), failed("3")}));
+        MultiGetItemResponse[] responses = merged.getResponses();
+        assertEquals(3, responses.length);
+        assertEquals("1", responses[0].getResponse().getId());
+        assertEquals("2", responses[1].getResponse().getId());
+        assertEquals("{\"id\":\"2\"}", responses[1].getResponse().getSourceAsString());
+        assertTrue(responses[2].isFailed());
+        assertEquals("3", responses[2].getFailure().getId());
+
+        //成功的条目写入缓存，失败的不写入
+        MultiGetCacheLookup next = new MultiGetCacheLookup(documentCache,
+                new MultiGetRequest().add("idx", "1").add("idx", "2").add("idx", "3"));
+        assertEquals(1, next.getMissRequest().getItems().size());
+        assertEquals("3", next.getMissRequest().getItems().get(0).id());
+    }
+
+    @Test
+    public void allHitsNeedNoRequest() {
+        cache("1");
+        cache("2");
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(documentCache, new MultiGetRequest().add("idx", "2").add("idx", "1"));
+        assertNull(lookup.getMissRequest());
+        MultiGetItemResponse[] responses = lookup.complete().getResponses();
+        assertEquals("2", responses[0].getResponse().getId());
+        assertEquals("1", responses[1].getResponse().getId());
+    }
+
+    @Test
+    public void refreshBypassesCache() {
+        cache("1");
+        long hits = documentCache.getHitCount();
+
+        MultiGetRequest multiGetRequest = new MultiGetRequest().add("idx", "1").add("idx", "2").refresh(true);
+        MultiGetCacheLookup lookup = new MultiGetCacheLookup(documentCache, multiGetRequest);
+        assertSame(multiGetRequest, lookup.getMissRequest());
+        assertEquals(hits, documentCache.getHitCount());
+
+        MultiGetResponse merged = lookup.merge(new MultiGetResponse(new MultiGetItemResponse[]{found("1"), found("2")}));
+        assertEquals("1", merged.getResponses()[0].getResponse().getId());
+        assertEquals("2", merged.getResponses()[1].getResponse().getId());
+        //refresh 读到的结果不写入缓存
+        MultiGetCacheLookup next = new MultiGetCacheLookup(documentCache, new MultiGetRequest().add("idx", "2"));
+        assertNotNull(next.getMissRequest());
+    }
+}
@@ -0,0 +1,190 @@
+package com.guzhandong.springframework.boot.elasticsearch.cache;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Search 结果缓存：相同请求只发出一次、规范化的 key 和按索引的有效时间
+ */
+public class SearchCacheTest {
+
+    private static final int CALLERS = 8;
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private ElasticsearchSearchCacheConfigure elasticsearchSearchCacheConfigure;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.start();
+        client = fixture.getClient();
+        elasticsearchSearchCacheConfigure = new ElasticsearchSearchCacheConfigure();
+        elasticsearchSearchCacheConfigure.setExpireAfterWriteMillis(60000);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private CountDownLatch blockSearches() {
+        CountDownLatch released = new CountDownLatch(1);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        return released;
+    }
+
+    private static SearchSourceBuilder scriptSource(Map<String, Object> params) {
+        return new SearchSourceBuilder().query(QueryBuilders.scriptQuery(
+                new Script(ScriptType.INLINE, "painless", "doc['v'].value > params.a + params.b", params)));
+    }
+
+    @Test
+    public void concurrentIdenticalSearchesShareOneRequest() throws Exception {
+        CaffeineSearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        client.setSearchCache(searchCache);
+        CountDownLatch released = blockSearches();
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(client.searchFuture(new SearchRequest("idx"), RequestOptions.DEFAULT));
+            }
+        } finally {
+            released.countDown();
+        }
+        for (CompletableFuture<SearchResponse> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS).getHits());
+        }
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(1, searchCache.getMissCount());
+        assertEquals(CALLERS - 1, searchCache.getSharedCount());
+        //每个调用方各自解码出一份结果
+        assertFalse(futures.get(1).get() == futures.get(2).get());
+    }
+
+    @Test
+    public void cancellingOneCallerDoesNotFailOthers() throws Exception {
+        CaffeineSearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        client.setSearchCache(searchCache);
+        CountDownLatch released = blockSearches();
+        CompletableFuture<SearchResponse> loading;
+        CompletableFuture<SearchResponse> shared;
+        CompletableFuture<SearchResponse> waiting;
+        try {
+            loading = client.searchFuture(new SearchRequest("idx"), RequestOptions.DEFAULT);
+            shared = client.searchFuture(new SearchRequest("idx"), RequestOptions.DEFAULT);
+            waiting = client.searchFuture(new SearchRequest("idx"), RequestOptions.DEFAULT);
+            //发起请求的调用方和等待共享结果的调用方都可以单独取消
+            assertTrue(loading.cancel(true));
+            assertTrue(shared.cancel(true));
+        } finally {
+            released.countDown();
+        }
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS).getHits());
+        assertTrue(loading.isCancelled());
+        assertTrue(shared.isCancelled());
+
+        //取消不影响在途的请求，结果仍然写入缓存
+        client.search(new SearchRequest("idx"), RequestOptions.DEFAULT);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(1, searchCache.getHitCount());
+    }
+
+    @Test
+    public void keyIgnoresFieldOrder() {
+        Map<String, Object> ab = new LinkedHashMap<>();
+        ab.put("a", 1);
+        ab.put("b", 2);
+        Map<String, Object> ba = new LinkedHashMap<>();
+        ba.put("b", 2);
+        ba.put("a", 1);
+        SearchCacheKey first = SearchCacheKey.of(new SearchRequest("x", "y").source(scriptSource(ab)), RequestOptions.DEFAULT);
+        SearchCacheKey second = SearchCacheKey.of(new SearchRequest("y", "x").source(scriptSource(ba)), RequestOptions.DEFAULT);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+
+        Map<String, Object> changed = new LinkedHashMap<>(ab);
+        changed.put("b", 3);
+        assertNotEquals(first, SearchCacheKey.of(new SearchRequest("x", "y").source(scriptSource(changed)), RequestOptions.DEFAULT));
+    }
+
+    @Test
+    public void keyDependsOnHeaders() {
+        SearchRequest searchRequest = new SearchRequest("idx").source(new SearchSourceBuilder().size(10));
+        RequestOptions.Builder alice = RequestOptions.DEFAULT.toBuilder();
+        alice.addHeader("Authorization", "Basic YWxpY2U6");
+        RequestOptions.Builder bob = RequestOptions.DEFAULT.toBuilder();
+        bob.addHeader("Authorization", "Basic Ym9iOg==");
+
+        SearchCacheKey anonymous = SearchCacheKey.of(searchRequest, RequestOptions.DEFAULT);
+        SearchCacheKey aliceKey = SearchCacheKey.of(searchRequest, alice.build());
+        assertNotEquals(anonymous, aliceKey);
+        assertNotEquals(aliceKey, SearchCacheKey.of(searchRequest, bob.build()));
+        assertEquals(aliceKey, SearchCacheKey.of(searchRequest, alice.build()));
+        //scroll 请求不缓存
+        assertNull(SearchCacheKey.of(new SearchRequest("idx").scroll("1m"), RequestOptions.DEFAULT));
+    }
+
+    @Test
+    public void shortestIndexExpireAfterWriteApplies() throws Exception {
+        elasticsearchSearchCacheConfigure.setWriteGraceMillis(0);
+        elasticsearchSearchCacheConfigure.getIndexExpireAfterWriteMillis().put("short-*", 100L);
+        elasticsearchSearchCacheConfigure.getIndexExpireAfterWriteMillis().put("never", 0L);
+        CaffeineSearchCache searchCache = new CaffeineSearchCache(elasticsearchSearchCacheConfigure);
+        client.setSearchCache(searchCache);
+        //有效时间为 0 的索引不缓存
+        assertNull(searchCache.keyOf(new SearchRequest("long", "never"), RequestOptions.DEFAULT));
+        assertNotNull(searchCache.keyOf(new SearchRequest("long"), RequestOptions.DEFAULT));
+
+        client.search(new SearchRequest("long", "short-1"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("long"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("long", "short-1"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("long"), RequestOptions.DEFAULT);
+        assertEquals(2, server.getRequestCount(FakeEndpoint.SEARCH));
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        //包含 short-* 的请求按较短的有效时间过期，只请求 long 的仍然命中
+        client.search(new SearchRequest("long", "short-1"), RequestOptions.DEFAULT);
+        client.search(new SearchRequest("long"), RequestOptions.DEFAULT);
+        assertEquals(3, server.getRequestCount(FakeEndpoint.SEARCH));
+    }
+}
@@ -0,0 +1,92 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.exception.impl.ConcurrencyLimitExceededException;
+import com.guzhandong.springframework.boot.elasticsearch.limit.AimdLimit;
+import com.guzhandong.springframework.boot.elasticsearch.limit.ConcurrencyLimiter;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发限制：上限不超过连接池 maxTotal，过载时上限下降
+ */
+public class RestHighLevelClientConcurrencyLimitTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(2);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    @Test
+    public void limitIsCappedByPoolMaxTotal() throws Exception {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(new AimdLimit(100, 1, 100, 0.5, 5000));
+        client.setConcurrencyLimiter(concurrencyLimiter);
+        CountDownLatch blocked = new CountDownLatch(1);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        CompletableFuture<SearchResponse> first = client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT);
+        CompletableFuture<SearchResponse> second = client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT);
+
+        //连接池的两个 client 都在使用中，第三个请求快速失败而不是阻塞在连接池上
+        long start = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ConcurrencyLimitExceededException);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, concurrencyLimiter.getRejectedCount());
+
+        blocked.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    public void limitDecreasesOnRejection() {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(new AimdLimit(20, 1, 100, 0.5, 5000));
+        client.setConcurrencyLimiter(concurrencyLimiter);
+        server.setRejectionRate(1.0);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(Exception.class, () -> client.search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+        }
+        assertEquals(3, concurrencyLimiter.getDroppedCount());
+        assertTrue(concurrencyLimiter.getLimit() < 20);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+}
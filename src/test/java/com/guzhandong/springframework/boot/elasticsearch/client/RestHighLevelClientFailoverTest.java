@@ -0,0 +1,100 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.routing.LatencyAwareNodeSelector;
+import com.guzhandong.springframework.boot.elasticsearch.routing.NodeLatencyTracker;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.apache.http.HttpHost;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按耗时选择节点时，节点故障换到其他节点重发
+ */
+public class RestHighLevelClientFailoverTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer good;
+
+    private FakeElasticsearchServer bad;
+
+    private NodeLatencyTracker nodeLatencyTracker;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture(2);
+        good = fixture.getServer(0);
+        bad = fixture.getServer(1);
+        bad.setAvailable(false);
+        nodeLatencyTracker = new NodeLatencyTracker();
+        fixture.getFactory().setNodeLatencyTracker(nodeLatencyTracker);
+        fixture.getFactory().setNodeSelector(new LatencyAwareNodeSelector(nodeLatencyTracker));
+        fixture.getPoolConfigure().setMaxTotal(2);
+        fixture.start();
+        client = fixture.getClient();
+        client.setNodeLatencyTracker(nodeLatencyTracker);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    @Test
+    public void syncRequestsFailOverToHealthyNode() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            client.search(new SearchRequest("fake"), RequestOptions.DEFAULT);
+            client.index(new IndexRequest("fake").id(String.valueOf(i)).source("{}", XContentType.JSON), RequestOptions.DEFAULT);
+        }
+        assertEquals(10, good.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(10, good.getRequestCount(FakeEndpoint.DOC));
+        assertInFlightReleased();
+    }
+
+    @Test
+    public void futureRequestsFailOverToHealthyNode() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS);
+            client.indexFuture(new IndexRequest("fake").id(String.valueOf(i)).source("{}", XContentType.JSON), RequestOptions.DEFAULT)
+                    .get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(10, good.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(10, good.getRequestCount(FakeEndpoint.DOC));
+        assertInFlightReleased();
+    }
+
+    @Test
+    public void failsWhenAllNodesHaveBeenTried() {
+        good.setAvailable(false);
+        assertThrows(ElasticsearchStatusException.class, () -> client.search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ElasticsearchStatusException);
+        //每个节点只尝试一次
+        assertEquals(4, good.getRequestCount(FakeEndpoint.SEARCH) + bad.getRequestCount(FakeEndpoint.SEARCH));
+        assertInFlightReleased();
+    }
+
+    private void assertInFlightReleased() {
+        for (HttpHost host : fixture.getFactory().getHttpHosts()) {
+            assertEquals(0, nodeLatencyTracker.getInFlight(host), host.toString());
+        }
+    }
+}
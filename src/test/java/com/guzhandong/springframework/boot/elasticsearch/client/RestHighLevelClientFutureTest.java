@@ -0,0 +1,115 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CompletableFuture 接口：完成、失败或取消时各归还一次连接
+ */
+public class RestHighLevelClientFutureTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(2);
+        fixture.start();
+        pool = fixture.getPool();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private void assertReleased() throws InterruptedException {
+        BooleanSupplier released = () -> pool.getNumActive() == 0 && pool.getReturnedCount() == pool.getBorrowedCount();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!released.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(0, pool.getNumActive());
+        assertEquals(pool.getBorrowedCount(), pool.getReturnedCount());
+    }
+
+    @Test
+    public void completedFuturesReleaseClients() throws Exception {
+        server.setTotalHits(5);
+        //请求数超过连接池容量，每个请求结束后归还的连接被后续请求复用
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT));
+        }
+        for (CompletableFuture<SearchResponse> future : futures) {
+            assertEquals(5, future.get(5, TimeUnit.SECONDS).getHits().getHits().length);
+        }
+        client.indexFuture(new IndexRequest("fake").id("1").source("{}", XContentType.JSON), RequestOptions.DEFAULT)
+                .get(5, TimeUnit.SECONDS);
+        GetResponse getResponse = client.getFuture(new GetRequest("fake", "1"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS);
+        assertTrue(getResponse.isExists());
+        assertReleased();
+    }
+
+    @Test
+    public void failedFutureReleasesClient() throws Exception {
+        server.setAvailable(false);
+        assertThrows(ExecutionException.class,
+                () -> client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS));
+        assertReleased();
+    }
+
+    @Test
+    public void cancelledFutureReleasesClient() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        try {
+            CompletableFuture<SearchResponse> future = client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT);
+            assertEquals(1, pool.getNumActive());
+            assertTrue(future.cancel(true));
+            //不等请求返回，取消时立即归还
+            assertReleased();
+        } finally {
+            blocked.countDown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.hedge.HedgePolicy;
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryBudget;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 对冲，开启 scroll 的搜索不对冲
+ */
+public class RestHighLevelClientHedgeTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(4);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    @Test
+    public void slowSearchIsHedgedButScrollSearchIsNot() throws Exception {
+        HedgePolicy hedgePolicy = new HedgePolicy(new String[]{"search"}, 0.5, 100, 5, 0, new RetryBudget(1.0, 1000));
+        client.setHedgePolicy(hedgePolicy);
+        for (int i = 0; i < 5; i++) {
+            client.search(new SearchRequest("fake"), RequestOptions.DEFAULT);
+        }
+        //下一个 search 请求在服务端卡住 1s
+        AtomicBoolean slow = new AtomicBoolean(true);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            if (slow.compareAndSet(true, false)) {
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return null;
+        });
+        server.reset();
+
+        long start = System.nanoTime();
+        client.search(new SearchRequest("fake"), RequestOptions.DEFAULT);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(800), "hedged request should win");
+        assertEquals(2, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(1, hedgePolicy.getHedgeCount());
+
+        slow.set(true);
+        server.reset();
+        start = System.nanoTime();
+        client.search(new SearchRequest("fake").scroll("1m"), RequestOptions.DEFAULT);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "scroll search should wait for the only request");
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(1, server.getOpenScrollCount());
+        assertEquals(1, hedgePolicy.getHedgeCount());
+    }
+}
@@ -0,0 +1,83 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryBudget;
+import com.guzhandong.springframework.boot.elasticsearch.retry.RetryPolicy;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeResponse;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 重试，开启 scroll 的搜索不重试
+ */
+public class RestHighLevelClientRetryTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(4);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    /**
+     * 前 count 次 search 返回 429
+     */
+    private void rejectSearches(int count) {
+        AtomicInteger rejections = new AtomicInteger(count);
+        server.setResponder(FakeEndpoint.SEARCH, request -> rejections.getAndDecrement() > 0 ? FakeResponse.rejected() : null);
+    }
+
+    @Test
+    public void searchIsRetriedAfterRejection() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 10, 5000, new String[]{"search"}, new RetryBudget(0.1, 100));
+        client.setRetryPolicy(retryPolicy);
+        rejectSearches(2);
+        SearchResponse searchResponse = client.search(new SearchRequest("fake"), RequestOptions.DEFAULT);
+        assertEquals(10, searchResponse.getHits().getHits().length);
+        assertEquals(3, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(2, retryPolicy.getRetryCount());
+
+        rejectSearches(1);
+        client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS);
+        assertEquals(5, server.getRequestCount(FakeEndpoint.SEARCH));
+    }
+
+    @Test
+    public void scrollSearchIsNotRetried() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 10, 5000, new String[]{"search"}, new RetryBudget(0.1, 100));
+        client.setRetryPolicy(retryPolicy);
+        rejectSearches(1);
+        ElasticsearchStatusException e = assertThrows(ElasticsearchStatusException.class,
+                () -> client.search(new SearchRequest("fake").scroll("1m"), RequestOptions.DEFAULT));
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, e.status());
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(0, retryPolicy.getRetryCount());
+    }
+}
@@ -0,0 +1,155 @@
+package com.guzhandong.springframework.boot.elasticsearch.client;
+
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeRequest;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 不解析响应的 search 接口：请求和官方 client 一致（不带 typed_keys），响应体原样返回
+ */
+public class RestHighLevelClientSearchRawTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setTotalHits(30);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static SearchRequest searchRequest() {
+        SearchRequest searchRequest = new SearchRequest("idx-a", "idx-b")
+                .source(new SearchSourceBuilder().query(QueryBuilders.termQuery("field", "value")).size(10))
+                .routing("r1")
+                .preference("_local")
+                .searchType(SearchType.DFS_QUERY_THEN_FETCH)
+                .scroll(TimeValue.timeValueMinutes(1));
+        searchRequest.requestCache(false);
+        searchRequest.allowPartialSearchResults(true);
+        return searchRequest;
+    }
+
+    private static String utf8(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void requestMatchesHighLevelClient() throws Exception {
+        server.setRecordRequests(true);
+        client.search(searchRequest(), RequestOptions.DEFAULT);
+        client.searchRaw(searchRequest(), RequestOptions.DEFAULT);
+
+        List<FakeRequest> requests = server.getRecordedRequests();
+        assertEquals(2, requests.size());
+        FakeRequest parsed = requests.get(0);
+        FakeRequest raw = requests.get(1);
+        assertEquals(parsed.getMethod(), raw.getMethod());
+        assertEquals(parsed.getPath(), raw.getPath());
+        assertEquals(parsed.getBody(), raw.getBody());
+        //原样返回时聚合名称不需要类型前缀
+        Map<String, String> expected = new HashMap<>(parsed.getParams());
+        assertEquals("true", expected.remove("typed_keys"));
+        assertEquals(expected, raw.getParams());
+    }
+
+    @Test
+    public void changedShardParamsAreSent() throws Exception {
+        server.setRecordRequests(true);
+        SearchRequest searchRequest = searchRequest();
+        searchRequest.setMaxConcurrentShardRequests(3);
+        client.searchRaw(searchRequest, RequestOptions.DEFAULT);
+        FakeRequest raw = server.getRecordedRequests().get(0);
+        assertEquals("3", raw.getParam("max_concurrent_shard_requests"));
+        //默认值不发送
+        assertNull(raw.getParam("pre_filter_shard_size"));
+    }
+
+    @Test
+    public void allVariantsReturnTheSameBody() throws Exception {
+        SearchRequest searchRequest = new SearchRequest("fake").source(new SearchSourceBuilder().size(10));
+        String body = utf8(client.searchRaw(searchRequest, RequestOptions.DEFAULT));
+        assertTrue(body.contains("\"hits\""));
+        assertEquals(10, client.search(searchRequest, RequestOptions.DEFAULT).getHits().getHits().length);
+
+        try (InputStream in = client.searchRawStream(searchRequest, RequestOptions.DEFAULT)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            assertEquals(body, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        client.searchRaw(searchRequest, RequestOptions.DEFAULT, out);
+        assertEquals(body, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(body, utf8(client.searchRawFuture(searchRequest, RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void failedSearchWritesNothing() {
+        server.setErrorRate(1.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(Exception.class, () -> client.searchRaw(new SearchRequest("fake"), RequestOptions.DEFAULT, out));
+        assertEquals(0, out.size());
+        assertEquals(0, fixture.getPool().getNumActive());
+    }
+
+    @Test
+    public void supplierCreatesIndependentRequests() throws Exception {
+        SearchRequest searchRequest = new SearchRequest("a/b", "c")
+                .source(new SearchSourceBuilder().size(1));
+        Supplier<Request> supplier = SearchRequestConverters.search(searchRequest, RequestOptions.DEFAULT, true);
+        Request first = supplier.get();
+        Request second = supplier.get();
+        //索引名中的 / 被编码，多个索引用逗号连接
+        assertEquals("/a%2Fb,c/_search", first.getEndpoint());
+        assertEquals("true", first.getParameters().get("typed_keys"));
+        assertNull(first.getParameters().get("scroll"));
+        assertNotSame(first, second);
+        assertNotSame(first.getEntity(), second.getEntity());
+        assertEquals(EntityUtils.toString(first.getEntity()), EntityUtils.toString(second.getEntity()));
+        assertEquals("{\"size\":1}", EntityUtils.toString(first.getEntity()));
+    }
+}
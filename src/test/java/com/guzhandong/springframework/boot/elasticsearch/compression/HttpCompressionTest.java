@@ -0,0 +1,266 @@
+package com.guzhandong.springframework.boot.elasticsearch.compression;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeRequest;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * gzip 压缩：阈值和接口匹配、替换请求体、节点重试复用压缩后的请求体、经过 fake server 的往返
+ */
+public class HttpCompressionTest {
+
+    private static HttpCompression httpCompression(int requestThresholdBytes) {
+        ElasticsearchCompressionConfigure elasticsearchCompressionConfigure = new ElasticsearchCompressionConfigure();
+        elasticsearchCompressionConfigure.setEnabled(true);
+        elasticsearchCompressionConfigure.setRequestThresholdBytes(requestThresholdBytes);
+        return new HttpCompression(elasticsearchCompressionConfigure);
+    }
+
+    private static BasicHttpEntityEnclosingRequest post(String uri, HttpEntity entity) {
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", uri);
+        request.setEntity(entity);
+        return request;
+    }
+
+    private static NStringEntity json(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append('a');
+        }
+        return new NStringEntity(sb.toString(), ContentType.APPLICATION_JSON);
+    }
+
+    private static String ndjson(int docs) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < docs; i++) {
+            sb.append("{\"index\":{\"_index\":\"fake\",\"_id\":\"").append(i).append("\"}}\n");
+            sb.append("{\"message\":\"compressible message body\",\"seq\":").append(i).append("}\n");
+        }
+        return sb.toString();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void compressesOnlyMatchingEndpointsAboveThreshold() {
+        HttpCompression httpCompression = httpCompression(1024);
+        assertTrue(httpCompression.shouldCompress(post("/_bulk", json(1024)), json(1024)));
+        assertTrue(httpCompression.shouldCompress(post("/idx/_search?typed_keys=true", json(4096)), json(4096)));
+        assertTrue(httpCompression.shouldCompress(post("/_msearch", json(4096)), json(4096)));
+        //阈值以下
+        assertFalse(httpCompression.shouldCompress(post("/_bulk", json(1023)), json(1023)));
+        //按路径片段匹配，不匹配查询参数和片段的一部分
+        assertFalse(httpCompression.shouldCompress(post("/idx/_doc/1", json(4096)), json(4096)));
+        assertFalse(httpCompression.shouldCompress(post("/idx/_doc/1?q=_bulk", json(4096)), json(4096)));
+        assertFalse(httpCompression.shouldCompress(post("/idx/_bulk_x", json(4096)), json(4096)));
+        //没有请求体或已经编码过
+        assertFalse(httpCompression.shouldCompress(post("/_bulk", null), null));
+        NStringEntity encoded = json(4096);
+        encoded.setContentEncoding(HttpCompression.GZIP);
+        assertFalse(httpCompression.shouldCompress(post("/_bulk", encoded), encoded));
+    }
+
+    @Test
+    public void compressedEntityRoundTrips() throws Exception {
+        HttpCompression httpCompression = httpCompression(0);
+        String body = ndjson(100);
+        NStringEntity entity = new NStringEntity(body, ContentType.APPLICATION_JSON);
+        NByteArrayEntity compressed = httpCompression.compress(entity);
+
+        assertEquals(HttpCompression.GZIP, compressed.getContentEncoding().getValue());
+        assertEquals(entity.getContentType().getValue(), compressed.getContentType().getValue());
+        assertTrue(compressed.getContentLength() < body.length());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressed.writeTo(out);
+        assertEquals(body, new String(gunzip(out.toByteArray()), StandardCharsets.UTF_8));
+        assertEquals(1, httpCompression.getCompressedRequestCount());
+        assertEquals(body.length(), httpCompression.getRequestBytes());
+        assertEquals(compressed.getContentLength(), httpCompression.getCompressedRequestBytes());
+    }
+
+    @Test
+    public void producerSendsCompressedBodyWithOriginalRequest() throws Exception {
+        HttpCompression httpCompression = httpCompression(0);
+        String body = ndjson(50);
+        BasicHttpEntityEnclosingRequest request = post("/_bulk", new NStringEntity(body, ContentType.APPLICATION_JSON));
+        NByteArrayEntity compressed = httpCompression.compress(request.getEntity());
+        request.setEntity(compressed);
+        GzipRequestProducer producer = new GzipRequestProducer(new BasicAsyncRequestProducer(new HttpHost("localhost", 9200), request), compressed);
+
+        //请求行和请求头由原 producer 生成
+        HttpRequest generated = producer.generateRequest();
+        assertSame(request, generated);
+        assertEquals("/_bulk", generated.getRequestLine().getUri());
+
+        byte[] first = produce(producer);
+        assertEquals(body, new String(gunzip(first), StandardCharsets.UTF_8));
+        //重发时从头发送同一份压缩后的请求体
+        assertTrue(producer.isRepeatable());
+        producer.resetRequest();
+        assertArrayEquals(first, produce(producer));
+        producer.close();
+    }
+
+    @Test
+    public void bulkAndSearchRoundTripThroughServer() throws Exception {
+        try (FakeElasticsearchFixture fixture = new FakeElasticsearchFixture()) {
+            FakeElasticsearchServer server = fixture.getServer();
+            server.setTotalHits(20);
+            server.setRecordRequests(true);
+            HttpCompression httpCompression = httpCompression(1024);
+            fixture.getFactory().setHttpCompression(httpCompression);
+            RestHighLevelClient client = fixture.start().getClient();
+
+            BulkRequest bulkRequest = new BulkRequest();
+            for (int i = 0; i < 100; i++) {
+                bulkRequest.add(new IndexRequest("fake").id(String.valueOf(i))
+                        .source("{\"message\":\"compressible message body\",\"seq\":" + i + "}", XContentType.JSON));
+            }
+            BulkResponse bulkResponse = client.bulk(bulkRequest, RequestOptions.DEFAULT);
+            assertFalse(bulkResponse.hasFailures());
+            assertEquals(100, bulkResponse.getItems().length);
+
+            //请求体小于阈值，不压缩；响应按 gzip 接收并解压
+            SearchResponse searchResponse = client.search(new SearchRequest("fake").source(new SearchSourceBuilder().size(20)),
+                    RequestOptions.DEFAULT);
+            assertEquals(20, searchResponse.getHits().getHits().length);
+
+            FakeRequest bulk = recorded(server, FakeEndpoint.BULK);
+            assertEquals(HttpCompression.GZIP, bulk.getContentEncoding());
+            assertTrue(bulk.getReceivedLength() < bulk.getBody().length());
+            assertTrue(bulk.getBody().contains("\"seq\":99"));
+            FakeRequest search = recorded(server, FakeEndpoint.SEARCH);
+            assertNull(search.getContentEncoding());
+            assertEquals(1, httpCompression.getCompressedRequestCount());
+            assertEquals(bulk.getBody().length(), httpCompression.getRequestBytes());
+            assertEquals(bulk.getReceivedLength(), httpCompression.getCompressedRequestBytes());
+        }
+    }
+
+    @Test
+    public void nodeRetryReusesCompressedBody() throws Exception {
+        try (FakeElasticsearchFixture fixture = new FakeElasticsearchFixture(2)) {
+            FakeElasticsearchServer first = fixture.getServer(0);
+            FakeElasticsearchServer second = fixture.getServer(1);
+            first.setRecordRequests(true);
+            second.setRecordRequests(true);
+            first.setAvailable(false);
+            HttpCompression httpCompression = httpCompression(0);
+            fixture.getFactory().setHttpCompression(httpCompression);
+            //只有一个 client，两个请求依次从不同节点开始轮询，其中一个先发到不可用的节点后在另一个节点重试
+            fixture.getPoolConfigure().setMaxTotal(1);
+            RestHighLevelClient client = fixture.start().getClient();
+
+            String body = ndjson(20);
+            for (int i = 0; i < 2; i++) {
+                BulkRequest bulkRequest = new BulkRequest();
+                bulkRequest.add(body.getBytes(StandardCharsets.UTF_8), 0, body.length(), XContentType.JSON);
+                assertFalse(client.bulk(bulkRequest, RequestOptions.DEFAULT).hasFailures());
+            }
+
+            assertEquals(1, first.getRequestCount(FakeEndpoint.BULK));
+            assertEquals(2, second.getRequestCount(FakeEndpoint.BULK));
+            //重试没有再次压缩，两个节点收到的是同一份压缩后的请求体
+            assertEquals(2, httpCompression.getCompressedRequestCount());
+            FakeRequest failed = recorded(first, FakeEndpoint.BULK);
+            assertEquals(HttpCompression.GZIP, failed.getContentEncoding());
+            for (FakeRequest request : second.getRecordedRequests()) {
+                if (request.getEndpoint() == FakeEndpoint.BULK) {
+                    assertEquals(HttpCompression.GZIP, request.getContentEncoding());
+                    assertEquals(failed.getReceivedLength(), request.getReceivedLength());
+                    assertEquals(failed.getBody(), request.getBody());
+                }
+            }
+        }
+    }
+
+    private static FakeRequest recorded(FakeElasticsearchServer server, FakeEndpoint endpoint) {
+        List<FakeRequest> requests = server.getRecordedRequests();
+        for (FakeRequest request : requests) {
+            if (request.getEndpoint() == endpoint) {
+                return request;
+            }
+        }
+        throw new AssertionError("no " + endpoint + " request in " + requests);
+    }
+
+    private static byte[] produce(GzipRequestProducer producer) throws IOException {
+        BufferEncoder encoder = new BufferEncoder();
+        while (!encoder.isCompleted()) {
+            producer.produceContent(encoder, null);
+        }
+        return encoder.out.toByteArray();
+    }
+
+    private static final class BufferEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private boolean completed;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = Math.min(src.remaining(), 256);
+            for (int i = 0; i < n; i++) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.guzhandong.springframework.boot.elasticsearch.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeRequest;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按实体类读写文档：_source 与实体直接转换，_id 回填，没有 _source 的命中被忽略
+ */
+public class TypedDocumentClientTest {
+
+    /**
+     * 最近一次反序列化 name 字段时的字节位置，经过 Map 中转时没有原始字节位置（-1）
+     */
+    private static final AtomicLong NAME_OFFSET = new AtomicLong();
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private DocumentMapper documentMapper;
+
+    private TypedDocumentClient typedDocumentClient;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setGenerateMissingDocuments(false);
+        server.setRecordRequests(true);
+        fixture.start();
+        documentMapper = new DocumentMapper(new ElasticsearchDocumentConfigure());
+        typedDocumentClient = new TypedDocumentClient(fixture.getClient(), documentMapper);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    @ElasticsearchDocument(index = "people")
+    public static class Person {
+
+        @DocumentId
+        @JsonIgnore
+        public String id;
+
+        @JsonDeserialize(using = OffsetRecordingDeserializer.class)
+        public String name;
+
+        public int age;
+    }
+
+    public static class OffsetRecordingDeserializer extends JsonDeserializer<String> {
+
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            NAME_OFFSET.set(p.getTokenLocation().getByteOffset());
+            return p.getValueAsString();
+        }
+    }
+
+    public static class NonStringId {
+
+        @DocumentId
+        public Long id;
+    }
+
+    public static class StaticId {
+
+        @DocumentId
+        public static String id;
+    }
+
+    private static Person person(String id, String name, int age) {
+        Person person = new Person();
+        person.id = id;
+        person.name = name;
+        person.age = age;
+        return person;
+    }
+
+    private void respondWithHitsMissingSource() {
+        server.setResponder(FakeEndpoint.SEARCH, request -> FakeResponse.ok("{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":3,\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":["
+                + "{\"_index\":\"people\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"name\":\"a\",\"age\":1}},"
+                + "{\"_index\":\"people\",\"_type\":\"_doc\",\"_id\":\"2\",\"_score\":1.0},"
+                + "{\"_index\":\"people\",\"_type\":\"_doc\",\"_id\":\"3\",\"_score\":1.0,\"_source\":{\"name\":\"c\",\"age\":3}}]}}"));
+    }
+
+    @Test
+    public void indexWritesSourceAndFillsGeneratedId() throws Exception {
+        Person generated = person(null, "alice", 30);
+        IndexResponse indexResponse = typedDocumentClient.index(generated);
+        assertEquals(indexResponse.getId(), generated.id);
+        assertTrue(server.containsDocument("people", generated.id));
+
+        FakeRequest request = server.getRecordedRequests().get(0);
+        assertEquals("/people/_doc", request.getPath());
+        //_id 字段不写入 _source
+        assertEquals("{\"name\":\"alice\",\"age\":30}", request.getBody());
+
+        //指定了 _id 时按该 _id 写入，不被覆盖
+        Person given = person("p1", "bob", 40);
+        typedDocumentClient.index(given);
+        assertEquals("p1", given.id);
+        assertTrue(server.containsDocument("people", "p1"));
+    }
+
+    @Test
+    public void getMapsSourceDirectly() throws Exception {
+        assertNull(typedDocumentClient.get(Person.class, "missing"));
+
+        typedDocumentClient.index(person("p1", "alice", 30));
+        NAME_OFFSET.set(-1);
+        Person person = typedDocumentClient.get(Person.class, "p1");
+        assertEquals("p1", person.id);
+        assertEquals("alice", person.name);
+        assertEquals(30, person.age);
+        //由 _source 的原始字节直接反序列化
+        assertTrue(NAME_OFFSET.get() > 0);
+    }
+
+    @Test
+    public void searchSkipsHitsWithoutSource() throws Exception {
+        respondWithHitsMissingSource();
+        List<Person> people = typedDocumentClient.search(new SearchRequest(), Person.class, RequestOptions.DEFAULT);
+        assertEquals(2, people.size());
+        assertEquals("1", people.get(0).id);
+        assertEquals("a", people.get(0).name);
+        assertEquals("3", people.get(1).id);
+        assertEquals(3, people.get(1).age);
+
+        List<Person> streamed = new ArrayList<>();
+        assertEquals(2, typedDocumentClient.searchStreaming(new SearchRequest(), Person.class, RequestOptions.DEFAULT, streamed::add));
+        assertEquals("1", streamed.get(0).id);
+        assertEquals("c", streamed.get(1).name);
+    }
+
+    @Test
+    public void withIndexDoesNotModifyCallerRequest() throws Exception {
+        SearchRequest searchRequest = new SearchRequest().source(new SearchSourceBuilder().size(5));
+        typedDocumentClient.search(searchRequest, Person.class, RequestOptions.DEFAULT);
+        typedDocumentClient.searchStreaming(searchRequest, Person.class, RequestOptions.DEFAULT, person -> { });
+        assertEquals(0, searchRequest.indices().length);
+        for (FakeRequest request : server.getRecordedRequests()) {
+            assertEquals("/people/_search", request.getPath());
+        }
+        assertEquals(2, server.getRecordedRequests().size());
+
+        //请求已经指定索引时按请求的索引
+        typedDocumentClient.search(new SearchRequest("archive"), Person.class, RequestOptions.DEFAULT);
+        assertEquals("/archive/_search", server.getRecordedRequests().get(2).getPath());
+    }
+
+    @Test
+    public void documentIdMustBeNonStaticString() {
+        assertThrows(IllegalArgumentException.class, () -> documentMapper.toSource(new NonStringId()));
+        assertThrows(IllegalArgumentException.class, () -> documentMapper.toSource(new StaticId()));
+    }
+}
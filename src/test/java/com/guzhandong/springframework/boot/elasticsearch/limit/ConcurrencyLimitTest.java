@@ -0,0 +1,77 @@
+package com.guzhandong.springframework.boot.elasticsearch.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vegas 和 Gradient 上限算法：直接输入采样，检查上限的调整方向和上下限
+ */
+public class ConcurrencyLimitTest {
+
+    private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 在途请求数等于当前上限，即上限被用满
+     */
+    private static void sample(ConcurrencyLimit limit, int count, long rttNanos, boolean dropped) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(rttNanos, limit.getLimit(), dropped);
+        }
+    }
+
+    @Test
+    public void vegasGrowsWithoutQueueingAndShrinksWhenQueueing() {
+        VegasLimit limit = new VegasLimit(20, 5, 100);
+        //第一个采样只记录空载耗时
+        sample(limit, 1, RTT_NANOS, false);
+        assertEquals(20, limit.getLimit());
+
+        //耗时等于空载耗时，没有排队，上限增大直到 maxLimit
+        sample(limit, 1, RTT_NANOS, false);
+        assertTrue(limit.getLimit() > 20);
+        sample(limit, 20, RTT_NANOS, false);
+        assertEquals(100, limit.getLimit());
+
+        //上限没有被用满时不调整
+        limit.onSample(4 * RTT_NANOS, 10, false);
+        assertEquals(100, limit.getLimit());
+
+        //耗时是空载的 4 倍，估算的排队远多于 beta，上限减小
+        sample(limit, 10, 4 * RTT_NANOS, false);
+        int queued = limit.getLimit();
+        assertTrue(queued < 100);
+
+        //过载失败时减小，不低于 minLimit
+        sample(limit, 1, RTT_NANOS, true);
+        assertTrue(limit.getLimit() < queued);
+        sample(limit, 100, RTT_NANOS, true);
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void gradientShrinksWhenLatencyRises() {
+        GradientLimit limit = new GradientLimit(20, 5, 100, 2.0, 0.2);
+        //耗时稳定时按 sqrt(limit) 增长，不超过 maxLimit
+        sample(limit, 100, RTT_NANOS, false);
+        assertEquals(100, limit.getLimit());
+
+        //长期平均耗时仍接近 10ms，当前耗时上升到 10 倍，上限按梯度收缩
+        sample(limit, 5, 10 * RTT_NANOS, false);
+        int slow = limit.getLimit();
+        assertTrue(slow < 100);
+        sample(limit, 5, 10 * RTT_NANOS, false);
+        assertTrue(limit.getLimit() < slow);
+
+        //过载失败按最小梯度收缩，不低于 minLimit
+        sample(limit, 200, RTT_NANOS, true);
+        assertEquals(5, limit.getLimit());
+
+        //耗时恢复后重新增长
+        sample(limit, 20, RTT_NANOS, false);
+        assertTrue(limit.getLimit() > 5);
+    }
+}
@@ -0,0 +1,194 @@
+package com.guzhandong.springframework.boot.elasticsearch.metrics;
+
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessor;
+import com.guzhandong.springframework.boot.elasticsearch.bulk.ElasticsearchBulkProcessorConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchSharedClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 连接池、借出等待、在途请求数、每个接口请求耗时和批量写入的统计
+ */
+public class ElasticsearchClientMetricsTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.getPoolConfigure().setMaxTotal(3);
+        fixture.start();
+        client = fixture.getClient();
+        registry = new SimpleMeterRegistry();
+        ElasticsearchClientMetrics metrics = new ElasticsearchClientMetrics(fixture.getPool(), client);
+        metrics.bindTo(registry);
+        client.addExecListener(metrics);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private CountDownLatch blockSearches() {
+        CountDownLatch released = new CountDownLatch(1);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        return released;
+    }
+
+    private double inFlight(SimpleMeterRegistry meterRegistry) {
+        return meterRegistry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".requests.in.flight").gauge().value();
+    }
+
+    private Timer requests(String operation, String outcome, String status) {
+        return registry.find(ElasticsearchClientMetrics.METRIC_PREFIX + ".requests")
+                .tag("operation", operation).tag("outcome", outcome).tag("status", status).timer();
+    }
+
+    @Test
+    public void requestsAreTimedByOperationAndOutcome() throws Exception {
+        client.search(new SearchRequest("fake"), RequestOptions.DEFAULT);
+        client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT).get(5, TimeUnit.SECONDS);
+        server.setAvailable(false);
+        assertThrows(Exception.class, () -> client.search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+
+        assertEquals(2, requests("search", "SUCCESS", "200").count());
+        assertEquals(1, requests("search", "SERVER_ERROR", "503").count());
+        assertNull(requests("bulk", "SUCCESS", "200"));
+        assertEquals(3, registry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".pool.borrow").timer().count());
+        assertEquals(0, registry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".pool.active").gauge().value());
+        assertEquals(3, registry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".pool.max").gauge().value());
+        assertTrue(registry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".pool.created").functionCounter().count() >= 1);
+    }
+
+    @Test
+    public void inFlightRequestsAreCounted() throws Exception {
+        CountDownLatch released = blockSearches();
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                futures.add(client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT));
+            }
+            assertEquals(3, inFlight(registry));
+            assertEquals(3, client.getInFlightRequests());
+        } finally {
+            released.countDown();
+        }
+        for (CompletableFuture<SearchResponse> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        awaitTrue(() -> inFlight(registry) == 0);
+
+        //失败和取消的请求同样结束计数
+        server.setAvailable(false);
+        assertThrows(Exception.class, () -> client.search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+        assertEquals(0, inFlight(registry));
+        server.setAvailable(true);
+        CountDownLatch blocked = blockSearches();
+        try {
+            CompletableFuture<SearchResponse> future = client.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT);
+            assertEquals(1, inFlight(registry));
+            future.cancel(true);
+            awaitTrue(() -> inFlight(registry) == 0);
+        } finally {
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void inFlightRequestsAreCountedInSharedMode() throws Exception {
+        //共享连接模式不经过 commons-pool，连接池统计始终为 0，只有在途请求数反映负载
+        ElasticsearchSharedClientPool sharedPool = new ElasticsearchSharedClientPool(fixture.getFactory(), fixture.getPoolConfigure());
+        try {
+            RestHighLevelClient sharedClient = new RestHighLevelClient(sharedPool);
+            SimpleMeterRegistry sharedRegistry = new SimpleMeterRegistry();
+            ElasticsearchClientMetrics metrics = new ElasticsearchClientMetrics(sharedPool, sharedClient);
+            metrics.bindTo(sharedRegistry);
+            sharedClient.addExecListener(metrics);
+
+            CountDownLatch released = blockSearches();
+            List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+            try {
+                for (int i = 0; i < 5; i++) {
+                    futures.add(sharedClient.searchFuture(new SearchRequest("fake"), RequestOptions.DEFAULT));
+                }
+                assertEquals(5, inFlight(sharedRegistry));
+                assertEquals(0, sharedRegistry.get(ElasticsearchClientMetrics.METRIC_PREFIX + ".pool.active").gauge().value());
+            } finally {
+                released.countDown();
+            }
+            for (CompletableFuture<SearchResponse> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            awaitTrue(() -> inFlight(sharedRegistry) == 0);
+        } finally {
+            sharedPool.close();
+        }
+    }
+
+    @Test
+    public void bulkProcessorCountsActions() throws Exception {
+        ElasticsearchBulkProcessorConfigure configure = new ElasticsearchBulkProcessorConfigure();
+        configure.setBulkActions(5);
+        configure.setFlushIntervalMillis(0);
+        ElasticsearchBulkProcessor bulkProcessor = new ElasticsearchBulkProcessor(client, configure);
+        new ElasticsearchBulkProcessorMetrics(bulkProcessor).bindTo(registry);
+        for (int i = 0; i < 7; i++) {
+            bulkProcessor.add(new IndexRequest("fake").id(String.valueOf(i)).source("{}", XContentType.JSON));
+        }
+        bulkProcessor.destroy();
+
+        assertEquals(7, registry.get(ElasticsearchBulkProcessorMetrics.METRIC_PREFIX + ".actions")
+                .tag("outcome", "SUCCESS").functionCounter().count());
+        assertEquals(2, registry.get(ElasticsearchBulkProcessorMetrics.METRIC_PREFIX + ".requests")
+                .tag("outcome", "SUCCESS").functionCounter().count());
+        assertEquals(0, registry.get(ElasticsearchBulkProcessorMetrics.METRIC_PREFIX + ".pending").gauge().value());
+        assertEquals(2, requests("bulk", "SUCCESS", "200").count());
+    }
+}
@@ -0,0 +1,110 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.apache.commons.pool2.PooledObject;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 超时和连接配置在创建的 client 上生效
+ */
+public class ElasticsearchClientConnectionConfigTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private CountDownLatch released;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        released = new CountDownLatch(1);
+        server.setResponder(FakeEndpoint.SEARCH, request -> {
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void stop() {
+        released.countDown();
+        fixture.close();
+    }
+
+    private PooledObject<RestHighLevelClient> makeObject() throws Exception {
+        return fixture.getFactory().makeObject();
+    }
+
+    @Test
+    public void socketTimeOutIsApplied() throws Exception {
+        fixture.getClientConfigure().setSocketTimeOut(200);
+        PooledObject<RestHighLevelClient> pooledObject = makeObject();
+        try {
+            long start = System.nanoTime();
+            assertThrows(SocketTimeoutException.class, () -> pooledObject.getObject().search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        } finally {
+            fixture.getFactory().destroyObject(pooledObject);
+        }
+    }
+
+    @Test
+    public void connectionManagerWithTimeToLiveKeepsConnectionLimits() throws Exception {
+        ElasticsearchClientConfigure elasticsearchClientConfigure = fixture.getClientConfigure();
+        //配置连接存活时间时自建连接管理器，每个节点的连接数和获取连接超时仍然生效
+        elasticsearchClientConfigure.setConnectionTimeToLive(60000);
+        elasticsearchClientConfigure.setKeepAliveTime(30000);
+        elasticsearchClientConfigure.setMaxConnectPerRoute(1);
+        elasticsearchClientConfigure.setConnectionRequestTimeOut(200);
+        elasticsearchClientConfigure.setIoThreadCount(1);
+        PooledObject<RestHighLevelClient> pooledObject = makeObject();
+        try {
+            RestHighLevelClient client = pooledObject.getObject();
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            client.searchAsync(new SearchRequest("fake"), RequestOptions.DEFAULT, ActionListener.wrap(
+                    response -> done.countDown(), e -> {
+                        failure.set(e);
+                        done.countDown();
+                    }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.getRequestCount(FakeEndpoint.SEARCH) < 1 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            //唯一的连接被占用，第二个请求等待连接超时
+            assertThrows(Exception.class, () -> client.search(new SearchRequest("fake"), RequestOptions.DEFAULT));
+            assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+
+            released.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertNull(failure.get());
+            assertTrue(client.ping(RequestOptions.DEFAULT));
+        } finally {
+            fixture.getFactory().destroyObject(pooledObject);
+        }
+    }
+}
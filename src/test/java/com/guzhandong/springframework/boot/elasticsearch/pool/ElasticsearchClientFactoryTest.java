@@ -0,0 +1,126 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.apache.commons.pool2.PooledObject;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 节点嗅探和 client 销毁，使用 {@link FakeElasticsearchServer} 的 _nodes 接口
+ */
+public class ElasticsearchClientFactoryTest {
+
+    private FakeElasticsearchServer first;
+
+    private FakeElasticsearchServer second;
+
+    @BeforeEach
+    public void start() throws Exception {
+        first = new FakeElasticsearchServer().start();
+        second = new FakeElasticsearchServer().start();
+        first.setPublishAddresses(first.getHost(), second.getHost());
+    }
+
+    @AfterEach
+    public void stop() {
+        first.close();
+        second.close();
+    }
+
+    private ElasticsearchClientConfigure configure(boolean sniffEnabled) {
+        ElasticsearchClientConfigure elasticsearchClientConfigure = new ElasticsearchClientConfigure();
+        elasticsearchClientConfigure.setHosts(new String[]{first.getHost()});
+        elasticsearchClientConfigure.setSniffEnabled(sniffEnabled);
+        elasticsearchClientConfigure.setSniffIntervalMillis(60000);
+        return elasticsearchClientConfigure;
+    }
+
+    @Test
+    public void sniffedNodesArePushedToEveryClient() throws Exception {
+        ElasticsearchClientFactory factory = new ElasticsearchClientFactory(configure(true));
+        PooledObject<RestHighLevelClient> a = factory.makeObject();
+        PooledObject<RestHighLevelClient> b = factory.makeObject();
+        try {
+            Set<String> expected = new HashSet<>();
+            expected.add(first.getHost());
+            expected.add(second.getHost());
+            awaitTrue(() -> expected.equals(hosts(a)) && expected.equals(hosts(b)));
+            //一个连接池只有一个嗅探，每轮只请求一次 _nodes
+            assertEquals(1, first.getRequestCount(FakeEndpoint.NODES) + second.getRequestCount(FakeEndpoint.NODES));
+
+            //后创建的 client 直接使用已有的嗅探结果
+            PooledObject<RestHighLevelClient> c = factory.makeObject();
+            assertEquals(expected, hosts(c));
+            factory.destroyObject(c);
+            assertEquals(1, first.getRequestCount(FakeEndpoint.NODES) + second.getRequestCount(FakeEndpoint.NODES));
+        } finally {
+            factory.destroyObject(a);
+            factory.destroyObject(b);
+        }
+    }
+
+    @Test
+    public void sniffOnFailureRefreshesNodes() throws Exception {
+        ElasticsearchClientConfigure elasticsearchClientConfigure = configure(true);
+        elasticsearchClientConfigure.setSniffOnFailure(true);
+        ElasticsearchClientFactory factory = new ElasticsearchClientFactory(elasticsearchClientConfigure);
+        PooledObject<RestHighLevelClient> pooledObject = factory.makeObject();
+        try {
+            awaitTrue(() -> hosts(pooledObject).size() == 2);
+            long sniffCount = first.getRequestCount(FakeEndpoint.NODES);
+            second.setAvailable(false);
+            for (int i = 0; i < 4; i++) {
+                try {
+                    pooledObject.getObject().getLowLevelClient().performRequest(new Request("GET", "/fake/_search"));
+                } catch (Exception e) {
+                    //ignore
+                }
+            }
+            awaitTrue(() -> first.getRequestCount(FakeEndpoint.NODES) > sniffCount);
+        } finally {
+            factory.destroyObject(pooledObject);
+        }
+    }
+
+    @Test
+    public void destroyClosesClientWhenNodesAreDown() throws Exception {
+        ElasticsearchClientFactory factory = new ElasticsearchClientFactory(configure(false));
+        PooledObject<RestHighLevelClient> pooledObject = factory.makeObject();
+        first.setAvailable(false);
+        factory.destroyObject(pooledObject);
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> pooledObject.getObject().getLowLevelClient().performRequest(new Request("GET", "/")));
+        assertTrue(e.getMessage().contains("STOPPED"), e.getMessage());
+    }
+
+    private static Set<String> hosts(PooledObject<RestHighLevelClient> pooledObject) {
+        Set<String> hosts = new HashSet<>();
+        for (Node node : pooledObject.getObject().getLowLevelClient().getNodes()) {
+            hosts.add(node.getHost().toHostString());
+        }
+        return hosts;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in 5s");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
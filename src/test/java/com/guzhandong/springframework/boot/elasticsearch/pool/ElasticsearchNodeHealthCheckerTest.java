@@ -0,0 +1,104 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 后台健康检查记录节点存活，校验 client 时只读存活位图不发请求
+ */
+public class ElasticsearchNodeHealthCheckerTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer good;
+
+    private FakeElasticsearchServer bad;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture(2);
+        good = fixture.getServer(0);
+        bad = fixture.getServer(1);
+        bad.setAvailable(false);
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static HttpHost host(FakeElasticsearchServer server) {
+        return HttpHost.create(server.getHost());
+    }
+
+    @Test
+    public void checkRecordsAliveNodes() {
+        ElasticsearchNodeHealthChecker healthChecker = new ElasticsearchNodeHealthChecker(
+                new HttpHost[]{host(good), host(bad)}, 60000, new ElasticsearchClientConfigure());
+        //首次检查之前认为所有节点存活
+        assertTrue(healthChecker.isAlive(host(bad)));
+
+        healthChecker.checkAll();
+        assertTrue(healthChecker.isAlive(host(good)));
+        assertFalse(healthChecker.isAlive(host(bad)));
+        assertEquals(Collections.singletonList(host(good)), healthChecker.getAliveHosts());
+
+        good.setAvailable(false);
+        healthChecker.checkAll();
+        assertFalse(healthChecker.isAnyAlive());
+
+        bad.setAvailable(true);
+        healthChecker.checkAll();
+        assertTrue(healthChecker.isAlive(host(bad)));
+        assertTrue(healthChecker.isAnyAlive());
+    }
+
+    @Test
+    public void bitmapCoversMoreThan64Nodes() {
+        HttpHost[] hosts = new HttpHost[65];
+        for (int i = 0; i < 64; i++) {
+            hosts[i] = host(bad);
+        }
+        hosts[64] = host(good);
+        ElasticsearchNodeHealthChecker healthChecker = new ElasticsearchNodeHealthChecker(hosts, 60000, new ElasticsearchClientConfigure());
+        healthChecker.checkAll();
+        assertTrue(healthChecker.isAnyAlive());
+        assertEquals(Collections.singletonList(host(good)), healthChecker.getAliveHosts());
+    }
+
+    @Test
+    public void validateReadsHealthWithoutPing() throws Exception {
+        ElasticsearchNodeHealthChecker healthChecker = new ElasticsearchNodeHealthChecker(
+                new HttpHost[]{host(good), host(bad)}, 60000, new ElasticsearchClientConfigure());
+        ElasticsearchClientFactory factory = fixture.getFactory();
+        factory.setHealthChecker(healthChecker);
+        healthChecker.checkAll();
+        long pings = good.getRequestCount(FakeEndpoint.MAIN) + bad.getRequestCount(FakeEndpoint.MAIN);
+
+        PooledObject<RestHighLevelClient> pooledObject = factory.makeObject();
+        try {
+            assertTrue(factory.validateObject(pooledObject));
+            assertEquals(pings, good.getRequestCount(FakeEndpoint.MAIN) + bad.getRequestCount(FakeEndpoint.MAIN));
+
+            good.setAvailable(false);
+            healthChecker.checkAll();
+            assertFalse(factory.validateObject(pooledObject));
+        } finally {
+            factory.destroyObject(pooledObject);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.guzhandong.springframework.boot.elasticsearch.pool;
+
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 连接池容量自动调整，缩容时立即销毁多余的空闲 client
+ */
+public class ElasticsearchPoolSizeControllerTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private ElasticsearchClientPoolConfigure elasticsearchClientPoolConfigure;
+
+    private ElasticsearchClientPool pool;
+
+    private ElasticsearchPoolSizeController controller;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        elasticsearchClientPoolConfigure = fixture.getPoolConfigure();
+        elasticsearchClientPoolConfigure.setMaxTotal(8);
+        elasticsearchClientPoolConfigure.setMaxIdle(8);
+        elasticsearchClientPoolConfigure.setMinIdle(0);
+        elasticsearchClientPoolConfigure.setMaxWaitMillis(10);
+        elasticsearchClientPoolConfigure.setAdaptiveMinTotal(1);
+        elasticsearchClientPoolConfigure.setAdaptiveMaxTotal(16);
+        elasticsearchClientPoolConfigure.setAdaptiveIncreaseStep(2);
+        elasticsearchClientPoolConfigure.setAdaptiveDecreaseFactor(0.5);
+        //后台线程不触发，测试中直接调用 adjust
+        elasticsearchClientPoolConfigure.setAdaptiveIntervalMillis(3600000);
+        pool = fixture.start().getPool();
+    }
+
+    @AfterEach
+    public void stop() {
+        if (controller != null) {
+            controller.destroy();
+        }
+        fixture.close();
+    }
+
+    private List<RestHighLevelClient> borrow(int count) throws Exception {
+        List<RestHighLevelClient> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            clients.add(pool.borrowObject());
+        }
+        return clients;
+    }
+
+    private void giveBack(List<RestHighLevelClient> clients) {
+        clients.forEach(pool::returnObject);
+    }
+
+    @Test
+    public void trimIdleDestroysExcessIdleWithoutBorrowing() throws Exception {
+        giveBack(borrow(8));
+        assertEquals(8, pool.getNumIdle());
+        long borrowed = pool.getBorrowedCount();
+        long created = pool.getCreatedCount();
+
+        pool.setMaxIdle(3);
+        assertEquals(5, pool.trimIdle());
+        assertEquals(3, pool.getNumIdle());
+        assertEquals(borrowed, pool.getBorrowedCount());
+        assertEquals(created, pool.getCreatedCount());
+        //没有多余的空闲 client 时不做任何事
+        assertEquals(0, pool.trimIdle());
+        assertEquals(3, pool.getNumIdle());
+    }
+
+    @Test
+    public void shrinksAfterLowUtilizationAndTrimsIdle() throws Exception {
+        giveBack(borrow(8));
+        controller = new ElasticsearchPoolSizeController(pool, elasticsearchClientPoolConfigure);
+        controller.start();
+        for (int i = 0; i < ElasticsearchPoolSizeController.SHRINK_AFTER_LOW_INTERVALS - 1; i++) {
+            controller.adjust();
+            assertEquals(8, pool.getMaxTotal());
+        }
+        controller.adjust();
+        assertEquals(4, pool.getMaxTotal());
+        assertEquals(4, pool.getMaxIdle());
+        assertEquals(4, pool.getNumIdle());
+    }
+
+    @Test
+    public void growsOnBorrowTimeout() throws Exception {
+        controller = new ElasticsearchPoolSizeController(pool, elasticsearchClientPoolConfigure);
+        controller.start();
+        List<RestHighLevelClient> clients = borrow(8);
+        assertThrows(NoSuchElementException.class, () -> pool.borrowObject());
+        controller.adjust();
+        assertEquals(10, pool.getMaxTotal());
+        giveBack(clients);
+    }
+}
@@ -0,0 +1,116 @@
+package com.guzhandong.springframework.boot.elasticsearch.reactive;
+
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reactor 封装：订阅时才发请求，scroll 按需拉取，结束或取消订阅时清除 scroll
+ */
+public class ReactiveRestHighLevelClientTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private ElasticsearchClientPool pool;
+
+    private ReactiveRestHighLevelClient reactiveClient;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setTotalHits(95);
+        fixture.start();
+        pool = fixture.getPool();
+        reactiveClient = new ReactiveRestHighLevelClient(fixture.getClient());
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static SearchRequest searchRequest() {
+        return new SearchRequest("fake").source(new SearchSourceBuilder().size(10));
+    }
+
+    @Test
+    public void requestIsSentOnSubscribe() {
+        Mono<SearchResponse> mono = reactiveClient.search(searchRequest(), RequestOptions.DEFAULT);
+        assertEquals(0, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(10, mono.block(Duration.ofSeconds(5)).getHits().getHits().length);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void scrollReadsAllHitsAndClearsContext() throws Exception {
+        Long count = reactiveClient.scroll(searchRequest(), RequestOptions.DEFAULT, TimeValue.timeValueMinutes(1))
+                .count().block(Duration.ofSeconds(10));
+        assertEquals(95L, count);
+        awaitTrue(() -> server.getOpenScrollCount() == 0);
+        awaitTrue(() -> pool.getNumActive() == 0);
+    }
+
+    @Test
+    public void scrollFetchesOnDemandAndClearsOnCancel() throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        BaseSubscriber<SearchHit> subscriber = new BaseSubscriber<SearchHit>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(5);
+            }
+
+            @Override
+            protected void hookOnNext(SearchHit value) {
+                received.incrementAndGet();
+            }
+        };
+        reactiveClient.scroll(searchRequest(), RequestOptions.DEFAULT, TimeValue.timeValueMinutes(1)).subscribe(subscriber);
+        awaitTrue(() -> received.get() == 5);
+        //一页已经满足需求，多出的命中缓存在 sink 中，不再拉取下一页
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SEARCH));
+        assertEquals(0, server.getRequestCount(FakeEndpoint.SCROLL));
+        assertEquals(1, server.getOpenScrollCount());
+
+        //缓存的 5 条不够，拉取下一页
+        subscriber.request(10);
+        awaitTrue(() -> received.get() == 15);
+        assertEquals(1, server.getRequestCount(FakeEndpoint.SCROLL));
+
+        subscriber.dispose();
+        awaitTrue(() -> server.getOpenScrollCount() == 0);
+    }
+}
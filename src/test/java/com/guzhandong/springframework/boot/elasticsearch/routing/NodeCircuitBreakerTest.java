@@ -0,0 +1,109 @@
+package com.guzhandong.springframework.boot.elasticsearch.routing;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 熔断器状态转换：CLOSED -> OPEN -> HALF_OPEN -> OPEN/CLOSED
+ */
+public class NodeCircuitBreakerTest {
+
+    private static final long OPEN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void opensWhenFailureRateReachesThreshold() {
+        NodeCircuitBreaker breaker = new NodeCircuitBreaker(10, 4, 0.5, OPEN_NANOS, 2);
+        //请求数不足 minimumCalls 时不熔断
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertEquals(NodeCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.onFailure());
+        assertEquals(NodeCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void staysClosedBelowThreshold() {
+        NodeCircuitBreaker breaker = new NodeCircuitBreaker(10, 4, 0.5, OPEN_NANOS, 2);
+        for (int i = 0; i < 20; i++) {
+            breaker.onSuccess();
+            breaker.onSuccess();
+            assertFalse(breaker.onFailure());
+        }
+        assertEquals(NodeCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenFailureReopens() throws InterruptedException {
+        NodeCircuitBreaker breaker = open();
+        TimeUnit.NANOSECONDS.sleep(OPEN_NANOS * 2);
+        breaker.allowRequest();
+        assertEquals(NodeCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.onFailure());
+        assertEquals(NodeCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void halfOpenSuccessesClose() throws InterruptedException {
+        NodeCircuitBreaker breaker = open();
+        //OPEN 时收到的是熔断之前发出的请求的结果，不影响状态
+        assertFalse(breaker.onSuccess());
+        TimeUnit.NANOSECONDS.sleep(OPEN_NANOS * 2);
+        breaker.allowRequest();
+        assertEquals(NodeCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.onSuccess());
+        assertTrue(breaker.onSuccess());
+        assertEquals(NodeCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        //关闭后重新开始统计
+        assertFalse(breaker.onFailure());
+    }
+
+    @Test
+    public void selectorSkipsOpenNodesUnlessAllAreOpen() {
+        NodeCircuitBreakerConfigure nodeCircuitBreakerConfigure = new NodeCircuitBreakerConfigure();
+        nodeCircuitBreakerConfigure.setWindowSize(4);
+        nodeCircuitBreakerConfigure.setMinimumCalls(2);
+        nodeCircuitBreakerConfigure.setFailureRateThreshold(0.5);
+        nodeCircuitBreakerConfigure.setOpenDurationMillis(60000);
+        NodeCircuitBreakers breakers = new NodeCircuitBreakers(nodeCircuitBreakerConfigure);
+        HttpHost a = new HttpHost("a", 9200);
+        HttpHost b = new HttpHost("b", 9200);
+        breakers.onFailure(a);
+        breakers.onFailure(a);
+        assertEquals(NodeCircuitBreaker.State.OPEN, breakers.getState(a));
+
+        CircuitBreakerNodeSelector selector = new CircuitBreakerNodeSelector(breakers, null);
+        List<Node> nodes = new ArrayList<>(Arrays.asList(new Node(a), new Node(b)));
+        selector.select(nodes);
+        assertEquals(1, nodes.size());
+        assertEquals(b, nodes.get(0).getHost());
+
+        breakers.onFailure(b);
+        breakers.onFailure(b);
+        nodes = new ArrayList<>(Arrays.asList(new Node(a), new Node(b)));
+        selector.select(nodes);
+        assertEquals(2, nodes.size());
+    }
+
+    private static NodeCircuitBreaker open() {
+        NodeCircuitBreaker breaker = new NodeCircuitBreaker(4, 2, 0.5, OPEN_NANOS, 2);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(NodeCircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
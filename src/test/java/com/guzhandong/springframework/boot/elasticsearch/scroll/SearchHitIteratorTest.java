@@ -0,0 +1,84 @@
+package com.guzhandong.springframework.boot.elasticsearch.scroll;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeEndpoint;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * scroll / search_after 遍历，结束后清除 scroll 上下文
+ */
+public class SearchHitIteratorTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setTotalHits(95);
+        fixture.getPoolConfigure().setMaxTotal(4);
+        fixture.start();
+        client = fixture.getClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        fixture.close();
+    }
+
+    @Test
+    public void scrollReadsAllHitsAndClearsContext() {
+        SearchRequest searchRequest = new SearchRequest("fake").source(new SearchSourceBuilder().size(10));
+        try (SearchHitIterator iterator = SearchHitIterator.scroll(client, searchRequest, RequestOptions.DEFAULT, TimeValue.timeValueMinutes(1))) {
+            assertEquals(95, iterator.stream().count());
+        }
+        assertEquals(0, server.getOpenScrollCount());
+    }
+
+    @Test
+    public void closeClearsScrollIdOfCompletedPrefetch() throws Exception {
+        server.setRotateScrollIds(true);
+        SearchRequest searchRequest = new SearchRequest("fake").source(new SearchSourceBuilder().size(10));
+        SearchHitIterator iterator = SearchHitIterator.scroll(client, searchRequest, RequestOptions.DEFAULT, TimeValue.timeValueMinutes(1));
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        //等待预取的第二页返回，它带回的新 scrollId 替换了当前页的 scrollId
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRequestCount(FakeEndpoint.SCROLL) < 1 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+        iterator.close();
+        assertEquals(0, server.getOpenScrollCount());
+    }
+
+    @Test
+    public void searchAfterReadsAllHitsWithoutScroll() {
+        SearchRequest searchRequest = new SearchRequest("fake")
+                .source(new SearchSourceBuilder().size(10).sort("_id", SortOrder.ASC));
+        try (SearchHitIterator iterator = SearchHitIterator.searchAfter(client, searchRequest, RequestOptions.DEFAULT)) {
+            assertEquals(95, iterator.stream().count());
+        }
+        assertEquals(0, server.getRequestCount(FakeEndpoint.SCROLL));
+        //调用方的请求不被修改
+        assertEquals(null, searchRequest.source().searchAfter());
+    }
+}
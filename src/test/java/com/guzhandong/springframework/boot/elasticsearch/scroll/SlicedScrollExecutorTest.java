@@ -0,0 +1,79 @@
+package com.guzhandong.springframework.boot.elasticsearch.scroll;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchServer;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * sliced scroll 并行遍历，任一 slice 失败时结束并清除所有 scroll
+ */
+public class SlicedScrollExecutorTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private SlicedScrollExecutor slicedScrollExecutor;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        server.setTotalHits(50);
+        fixture.getPoolConfigure().setMaxTotal(8);
+        fixture.start();
+        client = fixture.getClient();
+        slicedScrollExecutor = new SlicedScrollExecutor(client, 4);
+    }
+
+    @AfterEach
+    public void stop() {
+        slicedScrollExecutor.close();
+        fixture.close();
+    }
+
+    @Test
+    public void allSlicesAreRead() throws Exception {
+        AtomicLong consumed = new AtomicLong();
+        long count = slicedScrollExecutor.execute(new SearchRequest("fake").source(new SearchSourceBuilder().size(10)),
+                RequestOptions.DEFAULT, TimeValue.timeValueMinutes(1), 3, hit -> consumed.incrementAndGet())
+                .get(10, TimeUnit.SECONDS);
+        //fake server 不区分 slice，每个 slice 都返回全部命中
+        assertEquals(150, count);
+        assertEquals(150, consumed.get());
+        assertEquals(0, server.getOpenScrollCount());
+    }
+
+    @Test
+    public void errorInConsumerCompletesExceptionally() throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> slicedScrollExecutor.execute(
+                new SearchRequest("fake").source(new SearchSourceBuilder().size(10)), RequestOptions.DEFAULT,
+                TimeValue.timeValueMinutes(1), 3, hit -> {
+                    throw new AssertionError("consumer failed");
+                }).get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof AssertionError);
+        //slice 线程退出时关闭 iterator 并清除 scroll
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getOpenScrollCount() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(0, server.getOpenScrollCount());
+    }
+}
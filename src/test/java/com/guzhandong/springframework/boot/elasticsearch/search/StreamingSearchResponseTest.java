@@ -0,0 +1,134 @@
+package com.guzhandong.springframework.boot.elasticsearch.search;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.test.FakeElasticsearchFixture;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 逐条解析搜索结果
+ */
+public class StreamingSearchResponseTest {
+
+    private static final String RESPONSE = "{\"_scroll_id\":\"scroll-1\",\"took\":7,\"timed_out\":false,\"terminated_early\":true,"
+            + "\"_shards\":{\"total\":5,\"successful\":4,\"skipped\":1,\"failed\":1},"
+            + "\"hits\":{\"total\":{\"value\":1234,\"relation\":\"gte\"},\"max_score\":2.5,\"hits\":["
+            + "{\"_index\":\"idx\",\"_type\":\"_doc\",\"_id\":\"1\",\"_routing\":\"r1\",\"_version\":3,\"_seq_no\":10,\"_primary_term\":2,"
+            + "\"_score\":2.5,\"_source\":{\"name\":\"名字\",\"nested\":{\"a\":[1,2]}},\"highlight\":{\"name\":[\"<em>名字</em>\"]},\"sort\":[2.5,\"1\"]},"
+            + "{\"_index\":\"idx\",\"_type\":\"_doc\",\"_id\":\"2\",\"_score\":null,\"fields\":{\"f\":[\"v\"]}}"
+            + "]},"
+            + "\"aggregations\":{\"sterms#by_name\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,"
+            + "\"buckets\":[{\"key\":\"a\",\"doc_count\":3,\"max#top\":{\"value\":9.0}}]}}}";
+
+    private static StreamingSearchResponse parse(String json) throws IOException {
+        return new StreamingSearchResponse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parsesHeaderHitsAndAggregations() throws IOException {
+        try (StreamingSearchResponse response = parse(RESPONSE)) {
+            assertEquals("scroll-1", response.getScrollId());
+            assertEquals(7, response.getTook());
+            assertFalse(response.isTimedOut());
+            assertEquals(Boolean.TRUE, response.isTerminatedEarly());
+            assertEquals(5, response.getTotalShards());
+            assertEquals(4, response.getSuccessfulShards());
+            assertEquals(1, response.getSkippedShards());
+            assertEquals(1, response.getFailedShards());
+            assertEquals(1234, response.getTotalHits());
+            assertEquals("gte", response.getTotalHitsRelation());
+            assertEquals(2.5f, response.getMaxScore());
+
+            assertTrue(response.hasNext());
+            SearchHitView first = response.next();
+            assertEquals("idx", first.getIndex());
+            assertEquals("1", first.getId());
+            assertEquals("r1", first.getRouting());
+            assertEquals(3, first.getVersion());
+            assertEquals(10, first.getSeqNo());
+            assertEquals(2, first.getPrimaryTerm());
+            assertEquals(2.5f, first.getScore());
+            assertTrue(first.hasSource());
+            assertEquals("名字", first.getSourceAsMap().get("name"));
+            assertEquals("<em>名字</em>", ((List<?>) first.getHighlightAsMap().get("name")).get(0));
+
+            SearchHitView second = response.next();
+            assertEquals("2", second.getId());
+            assertTrue(Float.isNaN(second.getScore()));
+            assertFalse(second.hasSource());
+            assertEquals("v", ((List<?>) second.getFieldsAsMap().get("f")).get(0));
+
+            assertFalse(response.hasNext());
+            assertThrows(NoSuchElementException.class, response::next);
+            assertEquals(2, response.getHitCount());
+
+            Terms terms = response.getAggregations().get("by_name");
+            assertEquals(1, terms.getBuckets().size());
+            assertEquals(3, terms.getBuckets().get(0).getDocCount());
+            Max max = terms.getBuckets().get(0).getAggregations().get("top");
+            assertEquals(9.0, max.getValue());
+        }
+    }
+
+    @Test
+    public void aggregationsSkipUnreadHits() throws IOException {
+        try (StreamingSearchResponse response = parse(RESPONSE)) {
+            assertTrue(response.hasNext());
+            Terms terms = response.getAggregations().get("by_name");
+            assertEquals("a", terms.getBuckets().get(0).getKeyAsString());
+            assertFalse(response.hasNext());
+        }
+    }
+
+    @Test
+    public void emptyHits() throws IOException {
+        try (StreamingSearchResponse response = parse("{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]}}")) {
+            assertFalse(response.hasNext());
+            assertEquals(0, response.getTotalHits());
+            assertNull(response.getScrollId());
+            assertNull(response.getAggregations());
+        }
+    }
+
+    @Test
+    public void matchesSearchResponseFromServer() throws Exception {
+        try (FakeElasticsearchFixture fixture = new FakeElasticsearchFixture()) {
+            fixture.getServer().setTotalHits(500);
+            RestHighLevelClient client = fixture.start().getClient();
+            SearchRequest searchRequest = new SearchRequest("idx").source(new SearchSourceBuilder().size(200));
+            SearchResponse searchResponse = client.search(searchRequest, RequestOptions.DEFAULT);
+            List<String> expected = new ArrayList<>();
+            for (SearchHit hit : searchResponse.getHits().getHits()) {
+                expected.add(hit.getId() + hit.getSourceAsString());
+            }
+            List<String> actual = new ArrayList<>();
+            try (StreamingSearchResponse response = client.searchStreaming(searchRequest, RequestOptions.DEFAULT)) {
+                assertEquals(searchResponse.getHits().getTotalHits().value, response.getTotalHits());
+                response.forEachHit(hit -> actual.add(hit.getId() + hit.getSourceAsString()));
+            }
+            assertEquals(200, actual.size());
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.ElasticsearchClientConfigure;
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientFactory;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPool;
+import com.guzhandong.springframework.boot.elasticsearch.pool.ElasticsearchClientPoolConfigure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试共用的环境：启动若干个 {@link FakeElasticsearchServer}，并创建连接到它们的连接池和 {@link RestHighLevelClient}.
+ * <p>
+ * 创建后可以先修改 {@link #getClientConfigure()}、{@link #getPoolConfigure()} 或 {@link #getFactory()}，
+ * 再调用 {@link #start()} 创建连接池和 client；{@link #close()} 关闭连接池和所有 server
+ *
+ */
+public class FakeElasticsearchFixture implements Closeable {
+
+    private final List<FakeElasticsearchServer> servers = new ArrayList<>();
+
+    private final ElasticsearchClientConfigure clientConfigure = new ElasticsearchClientConfigure();
+
+    private final ElasticsearchClientPoolConfigure poolConfigure = new ElasticsearchClientPoolConfigure();
+
+    private ElasticsearchClientFactory factory;
+
+    private ElasticsearchClientPool pool;
+
+    private RestHighLevelClient client;
+
+    public FakeElasticsearchFixture() throws IOException {
+        this(1);
+    }
+
+    /**
+     * @param serverCount 启动的 server 数，client 配置的 hosts 依次为每个 server 的地址
+     */
+    public FakeElasticsearchFixture(int serverCount) throws IOException {
+        String[] hosts = new String[serverCount];
+        try {
+            for (int i = 0; i < serverCount; i++) {
+                FakeElasticsearchServer server = new FakeElasticsearchServer().start();
+                servers.add(server);
+                hosts[i] = server.getHost();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        clientConfigure.setHosts(hosts);
+    }
+
+    /**
+     * 创建连接池和 client
+     */
+    public FakeElasticsearchFixture start() {
+        pool = new ElasticsearchClientPool(getFactory(), poolConfigure);
+        client = new RestHighLevelClient(pool);
+        return this;
+    }
+
+    public FakeElasticsearchServer getServer() {
+        return getServer(0);
+    }
+
+    public FakeElasticsearchServer getServer(int index) {
+        return servers.get(index);
+    }
+
+    public ElasticsearchClientConfigure getClientConfigure() {
+        return clientConfigure;
+    }
+
+    public ElasticsearchClientPoolConfigure getPoolConfigure() {
+        return poolConfigure;
+    }
+
+    /**
+     * 第一次调用时按 {@link #getClientConfigure()} 创建
+     */
+    public ElasticsearchClientFactory getFactory() {
+        if (factory == null) {
+            factory = new ElasticsearchClientFactory(clientConfigure);
+        }
+        return factory;
+    }
+
+    public ElasticsearchClientPool getPool() {
+        return pool;
+    }
+
+    public RestHighLevelClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+        for (FakeElasticsearchServer server : servers) {
+            server.close();
+        }
+    }
+}
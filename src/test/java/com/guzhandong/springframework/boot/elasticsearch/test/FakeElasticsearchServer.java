@@ -0,0 +1,835 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 可嵌入的 es http 替身，用于不依赖真实集群的集成测试和压测
+ * <p>
+ * 默认响应按请求生成：search/scroll/search_after 按 {@link #setTotalHits(long)} 分页返回合成文档，
+ * _doc/_bulk/_mget 读写内存中的文档，不存在的文档默认按 id 合成。
+ * 可以通过 {@link #setResponder(FakeEndpoint, FakeResponder)} 替换任意接口的响应，
+ * 并注入延迟、500 错误、429 拒绝和 bulk 单条拒绝。
+ * 和 es 的 http.compression 一样，接收 gzip 请求体，请求带 {@code Accept-Encoding: gzip} 时压缩响应。
+ * <pre>
+ * try (FakeElasticsearchServer server = new FakeElasticsearchServer().start()) {
+ *     server.setLatencyMillis(1, 5);
+ *     server.setRejectionRate(0.1);
+ *     elasticsearchClientConfigure.setHosts(new String[]{server.getHost()});
+ *     ...
+ * }
+ * </pre>
+ */
+public class FakeElasticsearchServer implements Closeable {
+
+    static {
+        //jdk http server 默认开启 nagle，响应头和响应体分两次写会碰上延迟 ack
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private static final String DEFAULT_INDEX = "fake";
+
+    private static final String SCROLL_ID_PREFIX = "fake_scroll_";
+
+    private static final Pattern BULK_ACTION = Pattern.compile("^\\s*\\{\\s*\"(index|create|update|delete)\"\\s*:\\s*(\\{.*\\})\\s*\\}\\s*$");
+
+    private static final String MAIN_RESPONSE = "{\"name\":\"fake\",\"cluster_name\":\"fake\",\"cluster_uuid\":\"fake\","
+            + "\"version\":{\"number\":\"7.5.2\",\"build_flavor\":\"default\",\"build_type\":\"tar\",\"build_hash\":\"fake\","
+            + "\"build_date\":\"2020-01-15T12:11:52.313576Z\",\"build_snapshot\":false,\"lucene_version\":\"8.3.0\","
+            + "\"minimum_wire_compatibility_version\":\"6.8.0\",\"minimum_index_compatibility_version\":\"6.0.0-beta1\"},"
+            + "\"tagline\":\"You Know, for Search\"}";
+
+    private static final String SHARDS = "{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}";
+
+    private static final String WRITE_SHARDS = "{\"total\":1,\"successful\":1,\"failed\":0}";
+
+    private final int port;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private final Map<FakeEndpoint, FakeResponder> responders = new ConcurrentHashMap<>();
+
+    private final Map<FakeEndpoint, AtomicLong> requestCounts = new EnumMap<>(FakeEndpoint.class);
+
+    private final AtomicLong bulkItemCount = new AtomicLong();
+
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    private final Map<String, StoredDocument> documents = new ConcurrentHashMap<>();
+
+    private final Map<String, ScrollState> scrolls = new ConcurrentHashMap<>();
+
+    private final AtomicInteger scrollSequence = new AtomicInteger();
+
+    private final AtomicLong seqNo = new AtomicLong();
+
+    private final Queue<FakeRequest> recordedRequests = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean recordRequests = false;
+
+    private volatile boolean available = true;
+
+    private volatile long minLatencyMillis = 0;
+
+    private volatile long maxLatencyMillis = 0;
+
+    private volatile double tailLatencyRate = 0;
+
+    private volatile long tailLatencyMillis = 0;
+
+    private volatile double errorRate = 0;
+
+    private volatile double rejectionRate = 0;
+
+    private volatile double bulkItemRejectionRate = 0;
+
+    private volatile long totalHits = 10;
+
+    private volatile boolean generateMissingDocuments = true;
+
+    private volatile boolean rotateScrollIds = false;
+
+    private volatile String documentSource;
+
+    private volatile List<String> publishAddresses;
+
+    private volatile boolean compressionEnabled = true;
+
+    private volatile int compressionLevel = 3;
+
+    public FakeElasticsearchServer() {
+        this(0);
+    }
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     */
+    public FakeElasticsearchServer(int port) {
+        this.port = port;
+        for (FakeEndpoint endpoint : FakeEndpoint.values()) {
+            requestCounts.put(endpoint, new AtomicLong());
+        }
+    }
+
+    public synchronized FakeElasticsearchServer start() throws IOException {
+        if (server != null) {
+            return this;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        AtomicInteger threadIndex = new AtomicInteger();
+        //注入的延迟通过 sleep 实现，使用不限大小的线程池避免慢请求排队影响其他请求
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-es-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * host:port 格式的地址，可直接用于 spring.es.hosts
+     */
+    public String getHost() {
+        return server.getAddress().getHostString() + ":" + getPort();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 替换某个接口的响应，responder 返回 null 时仍使用默认响应
+     */
+    public void setResponder(FakeEndpoint endpoint, FakeResponder responder) {
+        if (responder == null) {
+            responders.remove(endpoint);
+        } else {
+            responders.put(endpoint, responder);
+        }
+    }
+
+    /**
+     * 设置为不可用后所有请求(包括 HEAD /)返回 503，用于模拟节点宕机
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /**
+     * 每个请求在 [min, max] 毫秒之间随机延迟
+     */
+    public void setLatencyMillis(long minLatencyMillis, long maxLatencyMillis) {
+        if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+            throw new IllegalArgumentException("invalid latency range [" + minLatencyMillis + ", " + maxLatencyMillis + "]");
+        }
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * 按 rate 的比例给请求额外增加 latencyMillis 的延迟，用于模拟长尾
+     */
+    public void setTailLatency(double rate, long latencyMillis) {
+        this.tailLatencyRate = checkRate(rate);
+        this.tailLatencyMillis = latencyMillis;
+    }
+
+    /**
+     * 按比例返回 500，不影响 GET/HEAD /
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = checkRate(errorRate);
+    }
+
+    /**
+     * 按比例返回 429，不影响 GET/HEAD /
+     */
+    public void setRejectionRate(double rejectionRate) {
+        this.rejectionRate = checkRate(rejectionRate);
+    }
+
+    /**
+     * bulk 中按比例拒绝单条操作(item 状态 429)，整个请求仍返回 200
+     */
+    public void setBulkItemRejectionRate(double bulkItemRejectionRate) {
+        this.bulkItemRejectionRate = checkRate(bulkItemRejectionRate);
+    }
+
+    /**
+     * search/scroll 命中的文档总数
+     */
+    public void setTotalHits(long totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    /**
+     * 开启后每次 scroll 翻页返回新的 scrollId，旧的 scrollId 失效，和 es 允许的行为一致
+     */
+    public void setRotateScrollIds(boolean rotateScrollIds) {
+        this.rotateScrollIds = rotateScrollIds;
+    }
+
+    /**
+     * get/mget 不存在的文档时是否按 id 合成文档返回，关闭后返回 found=false
+     */
+    public void setGenerateMissingDocuments(boolean generateMissingDocuments) {
+        this.generateMissingDocuments = generateMissingDocuments;
+    }
+
+    /**
+     * 合成文档使用的 _source，为 null 时按 id 生成
+     */
+    public void setDocumentSource(String documentSource) {
+        this.documentSource = documentSource;
+    }
+
+    /**
+     * _nodes 返回的 http 节点地址(host:port)，为 null 时只返回当前 server 自身，用于测试节点嗅探
+     */
+    public void setPublishAddresses(String... publishAddresses) {
+        this.publishAddresses = publishAddresses == null ? null : new ArrayList<>(Arrays.asList(publishAddresses));
+    }
+
+    /**
+     * 请求带 {@code Accept-Encoding: gzip} 时是否压缩响应，默认和 es 一样开启，压缩级别 3
+     */
+    public void setCompression(boolean compressionEnabled, int compressionLevel) {
+        if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("gzip level must be between 1 and 9 but was " + compressionLevel);
+        }
+        this.compressionEnabled = compressionEnabled;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * 开启后记录收到的请求，可通过 {@link #getRecordedRequests()} 读取
+     */
+    public void setRecordRequests(boolean recordRequests) {
+        this.recordRequests = recordRequests;
+    }
+
+    public List<FakeRequest> getRecordedRequests() {
+        return Collections.unmodifiableList(new ArrayList<>(recordedRequests));
+    }
+
+    public long getRequestCount(FakeEndpoint endpoint) {
+        return requestCounts.get(endpoint).get();
+    }
+
+    public long getRequestCount() {
+        long total = 0;
+        for (AtomicLong count : requestCounts.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public long getBulkItemCount() {
+        return bulkItemCount.get();
+    }
+
+    /**
+     * 收到的请求体字节数(压缩时为压缩后的字节数)，不含请求头
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * 发送的响应体字节数(压缩时为压缩后的字节数)，不含响应头
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * 已创建但未清理的 scroll 数
+     */
+    public int getOpenScrollCount() {
+        return scrolls.size();
+    }
+
+    /**
+     * 是否存在写入过的文档
+     */
+    public boolean containsDocument(String index, String id) {
+        return documents.containsKey(key(index, id));
+    }
+
+    /**
+     * 清空计数、记录的请求、文档和 scroll，注入的故障配置保持不变
+     */
+    public void reset() {
+        for (AtomicLong count : requestCounts.values()) {
+            count.set(0);
+        }
+        bulkItemCount.set(0);
+        receivedBytes.set(0);
+        sentBytes.set(0);
+        recordedRequests.clear();
+        documents.clear();
+        scrolls.clear();
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("rate must be between 0 and 1 but was " + rate);
+        }
+        return rate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = readAll(in);
+            }
+            receivedBytes.addAndGet(body.length);
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            FakeRequest request = new FakeRequest(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    exchange.getRequestURI().getRawQuery(), decode(body, contentEncoding), contentEncoding, body.length);
+            requestCounts.get(request.getEndpoint()).incrementAndGet();
+            if (recordRequests) {
+                recordedRequests.add(request);
+            }
+            FakeResponse response = respond(request);
+            byte[] bytes = response.getBody() == null ? new byte[0] : response.getBody().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (compressionEnabled && bytes.length > 0 && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                bytes = gzip(bytes, compressionLevel);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            sentBytes.addAndGet(bytes.length);
+            if ("HEAD".equals(request.getMethod()) || bytes.length == 0) {
+                exchange.sendResponseHeaders(response.getStatus(), -1);
+            } else {
+                exchange.sendResponseHeaders(response.getStatus(), bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String decode(byte[] body, String contentEncoding) throws IOException {
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = readAll(in);
+            }
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] bytes, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private FakeResponse respond(FakeRequest request) throws InterruptedException {
+        if (!available) {
+            return FakeResponse.error(503, "fake_unavailable_exception", "fake elasticsearch server is unavailable");
+        }
+        delay();
+        if (request.getEndpoint() != FakeEndpoint.MAIN) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (rejectionRate > 0 && random.nextDouble() < rejectionRate) {
+                return FakeResponse.rejected();
+            }
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                return FakeResponse.error(500, "fake_exception", "injected failure");
+            }
+        }
+        FakeResponder responder = responders.get(request.getEndpoint());
+        if (responder != null) {
+            FakeResponse response = responder.respond(request);
+            if (response != null) {
+                return response;
+            }
+        }
+        switch (request.getEndpoint()) {
+            case MAIN:
+                return FakeResponse.ok(MAIN_RESPONSE);
+            case BULK:
+                return bulk(request);
+            case SEARCH:
+                return search(request);
+            case SCROLL:
+                return scroll(request);
+            case CLEAR_SCROLL:
+                return clearScroll(request);
+            case DOC:
+                return doc(request);
+            case MGET:
+                return multiGet(request);
+            case MSEARCH:
+                return multiSearch(request);
+            case NODES:
+                return nodes();
+            default:
+                return FakeResponse.error(404, "fake_not_found_exception", "no handler found for " + request);
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long latency = minLatencyMillis;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (maxLatencyMillis > minLatencyMillis) {
+            latency += random.nextLong(maxLatencyMillis - minLatencyMillis + 1);
+        }
+        if (tailLatencyRate > 0 && random.nextDouble() < tailLatencyRate) {
+            latency += tailLatencyMillis;
+        }
+        if (latency > 0) {
+            TimeUnit.MILLISECONDS.sleep(latency);
+        }
+    }
+
+    private FakeResponse bulk(FakeRequest request) {
+        long start = System.nanoTime();
+        String[] lines = request.getBody().split("\n");
+        List<String> items = new ArrayList<>();
+        boolean errors = false;
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].trim().isEmpty()) {
+                continue;
+            }
+            Matcher matcher = BULK_ACTION.matcher(lines[i]);
+            if (!matcher.matches()) {
+                return FakeResponse.error(400, "illegal_argument_exception", "Malformed action/metadata line [" + (i + 1) + "]");
+            }
+            String action = matcher.group(1);
+            String metadata = matcher.group(2);
+            String source = null;
+            if (!"delete".equals(action) && i + 1 < lines.length) {
+                source = lines[++i];
+            }
+            String index = FakeJson.stringField(metadata, "_index");
+            if (index == null) {
+                index = request.getIndex() == null ? DEFAULT_INDEX : request.getIndex();
+            }
+            String id = FakeJson.stringField(metadata, "_id");
+            bulkItemCount.incrementAndGet();
+            if (bulkItemRejectionRate > 0 && ThreadLocalRandom.current().nextDouble() < bulkItemRejectionRate) {
+                errors = true;
+                items.add("{\"" + action + "\":{\"_index\":" + FakeJson.quote(index) + ",\"_type\":\"_doc\",\"_id\":" + FakeJson.quote(id)
+                        + ",\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected execution by fake elasticsearch server\"}}}");
+                continue;
+            }
+            WriteResult result;
+            switch (action) {
+                case "delete":
+                    result = delete(index, id);
+                    break;
+                case "update":
+                    result = update(index, id);
+                    break;
+                default:
+                    result = index(index, id, source, "create".equals(action));
+            }
+            if (result.status >= 400) {
+                errors = true;
+            }
+            items.add("{\"" + action + "\":" + result.toJson(true) + "}");
+        }
+        long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return FakeResponse.ok("{\"took\":" + took + ",\"errors\":" + errors + ",\"items\":[" + String.join(",", items) + "]}");
+    }
+
+    private FakeResponse doc(FakeRequest request) {
+        String index = request.getIndex() == null ? DEFAULT_INDEX : request.getIndex();
+        String id = request.getId();
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            String document = document(index, id);
+            return new FakeResponse(document.contains("\"found\":true") ? 200 : 404, document);
+        }
+        if ("DELETE".equals(method)) {
+            WriteResult result = delete(index, id);
+            return new FakeResponse(result.status, result.toJson(false));
+        }
+        WriteResult result;
+        if (request.getPath().contains("/_update/")) {
+            result = update(index, id);
+        } else {
+            result = index(index, id, request.getBody(), request.getPath().contains("/_create/")
+                    || "create".equals(request.getParam("op_type")));
+        }
+        return new FakeResponse(result.status, result.toJson(false));
+    }
+
+    private WriteResult index(String index, String id, String source, boolean create) {
+        if (id == null) {
+            id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        String key = key(index, id);
+        if (create) {
+            StoredDocument stored = new StoredDocument(source, 1);
+            if (documents.putIfAbsent(key, stored) != null) {
+                return WriteResult.error(index, id, 409, "version_conflict_engine_exception", "[" + id + "]: version conflict, document already exists");
+            }
+            return new WriteResult(index, id, 1, "created", 201, seqNo.getAndIncrement());
+        }
+        StoredDocument stored = documents.compute(key, (k, old) -> new StoredDocument(source, old == null ? 1 : old.version + 1));
+        return new WriteResult(index, id, stored.version, stored.version == 1 ? "created" : "updated",
+                stored.version == 1 ? 201 : 200, seqNo.getAndIncrement());
+    }
+
+    private WriteResult update(String index, String id) {
+        String key = key(index, id);
+        StoredDocument stored = documents.computeIfPresent(key, (k, old) -> new StoredDocument(old.source, old.version + 1));
+        if (stored == null) {
+            if (!generateMissingDocuments) {
+                return WriteResult.error(index, id, 404, "document_missing_exception", "[_doc][" + id + "]: document missing");
+            }
+            stored = documents.compute(key, (k, old) -> new StoredDocument(old == null ? generatedSource(id) : old.source, old == null ? 2 : old.version + 1));
+        }
+        return new WriteResult(index, id, stored.version, "updated", 200, seqNo.getAndIncrement());
+    }
+
+    private WriteResult delete(String index, String id) {
+        StoredDocument removed = documents.remove(key(index, id));
+        if (removed == null) {
+            return new WriteResult(index, id, 1, "not_found", 404, seqNo.getAndIncrement());
+        }
+        return new WriteResult(index, id, removed.version + 1, "deleted", 200, seqNo.getAndIncrement());
+    }
+
+    private String document(String index, String id) {
+        StoredDocument stored = documents.get(key(index, id));
+        String source;
+        long version;
+        if (stored != null) {
+            source = stored.source;
+            version = stored.version;
+        } else if (generateMissingDocuments) {
+            source = generatedSource(id);
+            version = 1;
+        } else {
+            return "{\"_index\":" + FakeJson.quote(index) + ",\"_type\":\"_doc\",\"_id\":" + FakeJson.quote(id) + ",\"found\":false}";
+        }
+        return "{\"_index\":" + FakeJson.quote(index) + ",\"_type\":\"_doc\",\"_id\":" + FakeJson.quote(id)
+                + ",\"_version\":" + version + ",\"_seq_no\":0,\"_primary_term\":1,\"found\":true,\"_source\":" + source + "}";
+    }
+
+    private FakeResponse multiGet(FakeRequest request) {
+        String defaultIndex = request.getIndex() == null ? DEFAULT_INDEX : request.getIndex();
+        List<String> docs = new ArrayList<>();
+        List<String> items = FakeJson.objectArrayField(request.getBody(), "docs");
+        if (items.isEmpty()) {
+            for (String id : FakeJson.stringArrayField(request.getBody(), "ids")) {
+                docs.add(document(defaultIndex, id));
+            }
+        } else {
+            for (String item : items) {
+                String index = FakeJson.stringField(item, "_index");
+                docs.add(document(index == null ? defaultIndex : index, FakeJson.stringField(item, "_id")));
+            }
+        }
+        return FakeResponse.ok("{\"docs\":[" + String.join(",", docs) + "]}");
+    }
+
+    private FakeResponse search(FakeRequest request) {
+        String index = request.getIndex() == null ? DEFAULT_INDEX : request.getIndex();
+        String body = request.getBody();
+        long from = param(request, body, "from", 0);
+        long size = param(request, body, "size", 10);
+        Long searchAfter = FakeJson.longField(body, "search_after");
+        if (searchAfter != null) {
+            from = searchAfter + 1;
+        }
+        String scrollId = null;
+        if (request.getParam("scroll") != null) {
+            scrollId = SCROLL_ID_PREFIX + scrollSequence.incrementAndGet();
+            scrolls.put(scrollId, new ScrollState(index, from + size, size));
+        }
+        return FakeResponse.ok(searchResponse(index, from, size, scrollId));
+    }
+
+    private static long param(FakeRequest request, String body, String name, long defaultValue) {
+        String value = request.getParam(name);
+        if (value != null) {
+            return Long.parseLong(value);
+        }
+        Long field = FakeJson.longField(body, name);
+        return field == null ? defaultValue : field;
+    }
+
+    private FakeResponse scroll(FakeRequest request) {
+        String scrollId = FakeJson.stringField(request.getBody(), "scroll_id");
+        if (scrollId == null) {
+            scrollId = request.getParam("scroll_id");
+        }
+        ScrollState state = scrollId == null ? null : scrolls.get(scrollId);
+        if (state == null) {
+            return FakeResponse.error(404, "search_context_missing_exception", "No search context found for id [" + scrollId + "]");
+        }
+        long from = state.offset.getAndAdd(state.size);
+        if (rotateScrollIds && scrolls.remove(scrollId, state)) {
+            scrollId = SCROLL_ID_PREFIX + scrollSequence.incrementAndGet();
+            scrolls.put(scrollId, state);
+        }
+        return FakeResponse.ok(searchResponse(state.index, from, state.size, scrollId));
+    }
+
+    private FakeResponse clearScroll(FakeRequest request) {
+        List<String> scrollIds = FakeJson.stringArrayField(request.getBody(), "scroll_id");
+        int freed = 0;
+        if (scrollIds.contains("_all") || request.getPath().endsWith("/_all")) {
+            freed = scrolls.size();
+            scrolls.clear();
+        } else {
+            for (String scrollId : scrollIds) {
+                if (scrolls.remove(scrollId) != null) {
+                    freed++;
+                }
+            }
+        }
+        return FakeResponse.ok("{\"succeeded\":true,\"num_freed\":" + freed + "}");
+    }
+
+    private FakeResponse multiSearch(FakeRequest request) {
+        String[] lines = request.getBody().split("\n");
+        List<String> responses = new ArrayList<>();
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            String index = FakeJson.stringArrayField(lines[i], "index").stream().findFirst()
+                    .orElse(request.getIndex() == null ? DEFAULT_INDEX : request.getIndex());
+            Long from = FakeJson.longField(lines[i + 1], "from");
+            Long size = FakeJson.longField(lines[i + 1], "size");
+            String response = searchResponse(index, from == null ? 0 : from, size == null ? 10 : size, null);
+            responses.add(response.substring(0, response.length() - 1) + ",\"status\":200}");
+        }
+        return FakeResponse.ok("{\"took\":1,\"responses\":[" + String.join(",", responses) + "]}");
+    }
+
+    private FakeResponse nodes() {
+        List<String> addresses = publishAddresses;
+        if (addresses == null) {
+            addresses = Collections.singletonList(getHost());
+        }
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < addresses.size(); i++) {
+            String address = addresses.get(i);
+            String host = address.substring(0, address.lastIndexOf(':'));
+            nodes.add(FakeJson.quote("fake_node_" + i) + ":{\"name\":" + FakeJson.quote("fake-" + i) + ",\"host\":" + FakeJson.quote(host)
+                    + ",\"ip\":" + FakeJson.quote(host) + ",\"version\":\"7.5.2\",\"roles\":[\"ingest\",\"master\",\"data\"],\"attributes\":{},"
+                    + "\"http\":{\"bound_address\":[" + FakeJson.quote(address) + "],\"publish_address\":" + FakeJson.quote(address) + "}}");
+        }
+        return FakeResponse.ok("{\"_nodes\":{\"total\":" + nodes.size() + ",\"successful\":" + nodes.size() + ",\"failed\":0},"
+                + "\"cluster_name\":\"fake\",\"nodes\":{" + String.join(",", nodes) + "}}");
+    }
+
+    private String searchResponse(String index, long from, long size, String scrollId) {
+        long total = totalHits;
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{");
+        if (scrollId != null) {
+            sb.append("\"_scroll_id\":").append(FakeJson.quote(scrollId)).append(',');
+        }
+        sb.append("\"took\":1,\"timed_out\":false,\"_shards\":").append(SHARDS)
+                .append(",\"hits\":{\"total\":{\"value\":").append(total).append(",\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":[");
+        for (long i = from; i < Math.min(from + size, total); i++) {
+            if (i > from) {
+                sb.append(',');
+            }
+            String id = String.valueOf(i);
+            sb.append("{\"_index\":").append(FakeJson.quote(index)).append(",\"_type\":\"_doc\",\"_id\":").append(FakeJson.quote(id))
+                    .append(",\"_score\":1.0,\"_source\":").append(generatedSource(id)).append(",\"sort\":[").append(i).append("]}");
+        }
+        return sb.append("]}}").toString();
+    }
+
+    private String generatedSource(String id) {
+        String source = documentSource;
+        return source != null ? source : "{\"id\":" + FakeJson.quote(id) + ",\"field\":\"value\"}";
+    }
+
+    private static String key(String index, String id) {
+        return index + '\u0000' + id;
+    }
+
+    private static class StoredDocument {
+
+        final String source;
+
+        final long version;
+
+        StoredDocument(String source, long version) {
+            this.source = source;
+            this.version = version;
+        }
+    }
+
+    private static class ScrollState {
+
+        final String index;
+
+        final AtomicLong offset;
+
+        final long size;
+
+        ScrollState(String index, long offset, long size) {
+            this.index = index;
+            this.offset = new AtomicLong(offset);
+            this.size = size;
+        }
+    }
+
+    private static class WriteResult {
+
+        final String index;
+
+        final String id;
+
+        final long version;
+
+        final String result;
+
+        final int status;
+
+        final long seqNo;
+
+        final String error;
+
+        WriteResult(String index, String id, long version, String result, int status, long seqNo) {
+            this(index, id, version, result, status, seqNo, null);
+        }
+
+        private WriteResult(String index, String id, long version, String result, int status, long seqNo, String error) {
+            this.index = index;
+            this.id = id;
+            this.version = version;
+            this.result = result;
+            this.status = status;
+            this.seqNo = seqNo;
+            this.error = error;
+        }
+
+        static WriteResult error(String index, String id, int status, String type, String reason) {
+            return new WriteResult(index, id, 0, null, status, 0,
+                    "{\"type\":" + FakeJson.quote(type) + ",\"reason\":" + FakeJson.quote(reason) + "}");
+        }
+
+        /**
+         * @param bulkItem bulk 的 item 带 status 字段，单文档接口的响应不带
+         */
+        String toJson(boolean bulkItem) {
+            String prefix = "{\"_index\":" + FakeJson.quote(index) + ",\"_type\":\"_doc\",\"_id\":" + FakeJson.quote(id);
+            if (error != null) {
+                return bulkItem ? prefix + ",\"status\":" + status + ",\"error\":" + error + "}"
+                        : "{\"error\":" + error + ",\"status\":" + status + "}";
+            }
+            return prefix + ",\"_version\":" + version + ",\"result\":" + FakeJson.quote(result) + ",\"_shards\":" + WRITE_SHARDS
+                    + ",\"_seq_no\":" + seqNo + ",\"_primary_term\":1" + (bulkItem ? ",\"status\":" + status : "") + "}";
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+import com.guzhandong.springframework.boot.elasticsearch.client.RestHighLevelClient;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * es 替身本身的行为：故障注入、文档读写、响应压缩和 reset
+ */
+public class FakeElasticsearchServerTest {
+
+    private FakeElasticsearchFixture fixture;
+
+    private FakeElasticsearchServer server;
+
+    private RestHighLevelClient client;
+
+    private RestClient restClient;
+
+    @BeforeEach
+    public void start() throws Exception {
+        fixture = new FakeElasticsearchFixture();
+        server = fixture.getServer();
+        fixture.start();
+        client = fixture.getClient();
+        restClient = RestClient.builder(HttpHost.create(server.getHost())).build();
+    }
+
+    @AfterEach
+    public void stop() throws IOException {
+        restClient.close();
+        fixture.close();
+    }
+
+    private int status(String method, String endpoint) throws IOException {
+        try {
+            return restClient.performRequest(new Request(method, endpoint)).getStatusLine().getStatusCode();
+        } catch (ResponseException e) {
+            return e.getResponse().getStatusLine().getStatusCode();
+        }
+    }
+
+    @Test
+    public void injectedFailures() throws Exception {
+        assertEquals(200, status("HEAD", "/"));
+
+        server.setErrorRate(1.0);
+        assertEquals(500, status("POST", "/fake/_search"));
+        //故障率不影响 HEAD /
+        assertEquals(200, status("HEAD", "/"));
+        server.setErrorRate(0);
+
+        server.setRejectionRate(1.0);
+        assertEquals(429, status("POST", "/fake/_search"));
+        server.setRejectionRate(0);
+
+        server.setAvailable(false);
+        assertEquals(503, status("HEAD", "/"));
+        server.setAvailable(true);
+        assertEquals(200, status("POST", "/fake/_search"));
+        assertEquals(404, status("GET", "/_unknown_endpoint"));
+    }
+
+    @Test
+    public void bulkItemRejectionKeepsRequestStatus() throws Exception {
+        server.setBulkItemRejectionRate(1.0);
+        BulkResponse bulkResponse = client.bulk(new BulkRequest()
+                .add(new IndexRequest("fake").id("1").source("{}", XContentType.JSON))
+                .add(new IndexRequest("fake").id("2").source("{}", XContentType.JSON)), RequestOptions.DEFAULT);
+        assertTrue(bulkResponse.hasFailures());
+        for (BulkItemResponse item : bulkResponse.getItems()) {
+            assertEquals(RestStatus.TOO_MANY_REQUESTS, item.status());
+        }
+        assertEquals(2, server.getBulkItemCount());
+    }
+
+    @Test
+    public void writtenDocumentsAreReadBack() throws Exception {
+        server.setGenerateMissingDocuments(false);
+        client.index(new IndexRequest("fake").id("1").source("{\"name\":\"a\"}", XContentType.JSON), RequestOptions.DEFAULT);
+        assertTrue(server.containsDocument("fake", "1"));
+        assertEquals("{\"name\":\"a\"}", client.get(new GetRequest("fake", "1"), RequestOptions.DEFAULT).getSourceAsString());
+        assertFalse(client.get(new GetRequest("fake", "2"), RequestOptions.DEFAULT).isExists());
+
+        server.setGenerateMissingDocuments(true);
+        assertTrue(client.get(new GetRequest("fake", "2"), RequestOptions.DEFAULT).isExists());
+    }
+
+    @Test
+    public void responsesAreCompressedOnlyWhenAccepted() throws Exception {
+        Request request = new Request("POST", "/fake/_search");
+        assertNull(restClient.performRequest(request).getHeader("Content-Encoding"));
+
+        RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+        options.addHeader("Accept-Encoding", "gzip");
+        request.setOptions(options);
+        Response response = restClient.performRequest(request);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+
+        server.setCompression(false, 1);
+        assertNull(restClient.performRequest(request).getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void resetClearsStateButKeepsFaults() throws Exception {
+        server.setRecordRequests(true);
+        client.index(new IndexRequest("fake").id("1").source("{}", XContentType.JSON), RequestOptions.DEFAULT);
+        server.setRejectionRate(1.0);
+
+        server.reset();
+        assertEquals(0, server.getRequestCount());
+        assertEquals(0, server.getReceivedBytes());
+        assertTrue(server.getRecordedRequests().isEmpty());
+        assertFalse(server.containsDocument("fake", "1"));
+        assertEquals(429, status("POST", "/fake/_search"));
+    }
+}
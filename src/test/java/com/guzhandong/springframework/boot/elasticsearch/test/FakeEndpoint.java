@@ -0,0 +1,85 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+/**
+ * {@link FakeElasticsearchServer} 能识别的接口
+ */
+public enum FakeEndpoint {
+
+    /**
+     * GET / 和 HEAD /
+     */
+    MAIN,
+
+    /**
+     * _bulk
+     */
+    BULK,
+
+    /**
+     * _search
+     */
+    SEARCH,
+
+    /**
+     * GET/POST _search/scroll
+     */
+    SCROLL,
+
+    /**
+     * DELETE _search/scroll
+     */
+    CLEAR_SCROLL,
+
+    /**
+     * _doc/_create/_update 单文档操作
+     */
+    DOC,
+
+    /**
+     * _mget
+     */
+    MGET,
+
+    /**
+     * _msearch
+     */
+    MSEARCH,
+
+    /**
+     * GET _nodes，节点嗅探使用
+     */
+    NODES,
+
+    /**
+     * 无法识别的路径，默认返回404
+     */
+    UNKNOWN;
+
+    static FakeEndpoint resolve(String method, String path) {
+        if ("/".equals(path) || path.isEmpty()) {
+            return MAIN;
+        }
+        if (path.startsWith("/_nodes")) {
+            return NODES;
+        }
+        if (path.endsWith("/_search/scroll") || path.contains("/_search/scroll/")) {
+            return "DELETE".equals(method) ? CLEAR_SCROLL : SCROLL;
+        }
+        if (path.endsWith("/_search")) {
+            return SEARCH;
+        }
+        if (path.endsWith("/_msearch")) {
+            return MSEARCH;
+        }
+        if (path.endsWith("/_mget")) {
+            return MGET;
+        }
+        if (path.endsWith("/_bulk")) {
+            return BULK;
+        }
+        if (path.contains("/_doc") || path.contains("/_create/") || path.contains("/_update/")) {
+            return DOC;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,137 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 拼装和提取 json 片段的工具，只覆盖 rest client 发出的请求格式，不是通用的 json 解析器
+ */
+final class FakeJson {
+
+    private static final Pattern QUOTED = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private FakeJson() {
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String unquote(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    default:
+                        sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 第一个名为 field 的字符串字段的值
+     */
+    static String stringField(String json, String field) {
+        Matcher matcher = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"").matcher(json);
+        return matcher.find() ? unquote(matcher.group(1)) : null;
+    }
+
+    /**
+     * 第一个名为 field 的整数字段的值，字段是数组时取第一个元素
+     */
+    static Long longField(String json, String field) {
+        Matcher matcher = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\\[?\\s*\"?(-?\\d+)").matcher(json);
+        return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * 名为 field 的数组中的全部字符串，字段不是数组时返回它自身的字符串值
+     */
+    static List<String> stringArrayField(String json, String field) {
+        List<String> values = new ArrayList<>();
+        Matcher matcher = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*(\\[[^\\]]*\\]|\"(?:[^\"\\\\]|\\\\.)*\")").matcher(json);
+        if (matcher.find()) {
+            Matcher quoted = QUOTED.matcher(matcher.group(1));
+            while (quoted.find()) {
+                values.add(unquote(quoted.group(1)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 名为 field 的数组中不含嵌套的对象
+     */
+    static List<String> objectArrayField(String json, String field) {
+        List<String> values = new ArrayList<>();
+        int start = json.indexOf("\"" + field + "\"");
+        if (start < 0) {
+            return values;
+        }
+        Matcher matcher = Pattern.compile("\\{[^{}]*\\}").matcher(json);
+        int from = json.indexOf('[', start);
+        int end = json.indexOf(']', from);
+        if (from < 0 || end < 0) {
+            return values;
+        }
+        matcher.region(from, end);
+        while (matcher.find()) {
+            values.add(matcher.group());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,126 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link FakeElasticsearchServer} 收到的请求
+ */
+public class FakeRequest {
+
+    private final String method;
+
+    private final String path;
+
+    private final Map<String, String> params;
+
+    private final String body;
+
+    private final String contentEncoding;
+
+    private final int receivedLength;
+
+    private final FakeEndpoint endpoint;
+
+    FakeRequest(String method, String path, String rawQuery, String body, String contentEncoding, int receivedLength) {
+        this.method = method;
+        this.path = path;
+        this.params = parseQuery(rawQuery);
+        this.body = body;
+        this.contentEncoding = contentEncoding;
+        this.receivedLength = receivedLength;
+        this.endpoint = FakeEndpoint.resolve(method, path);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int index = pair.indexOf('=');
+            try {
+                if (index < 0) {
+                    params.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    params.put(URLDecoder.decode(pair.substring(0, index), "UTF-8"), URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+                }
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return Collections.unmodifiableMap(params);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public String getParam(String name) {
+        return params.get(name);
+    }
+
+    /**
+     * 解压后的请求体
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * 请求头 {@code Content-Encoding}，没有时返回 null
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * 实际收到的请求体字节数，压缩的请求体为压缩后的字节数
+     */
+    public int getReceivedLength() {
+        return receivedLength;
+    }
+
+    public FakeEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 路径中的索引名，路径以 _ 开头的接口(如 /_bulk)返回 null
+     */
+    public String getIndex() {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        String first = end < 0 ? path.substring(start) : path.substring(start, end);
+        return first.isEmpty() || first.startsWith("_") ? null : first;
+    }
+
+    /**
+     * 单文档操作路径中的 id
+     */
+    public String getId() {
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            if ("_doc".equals(segments[i]) || "_create".equals(segments[i]) || "_update".equals(segments[i])) {
+                return segments[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + (params.isEmpty() ? "" : " " + params);
+    }
+}
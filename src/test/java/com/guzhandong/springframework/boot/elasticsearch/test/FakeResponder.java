@@ -0,0 +1,10 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+/**
+ * 自定义某个接口的响应，返回 null 时使用默认生成的响应
+ */
+@FunctionalInterface
+public interface FakeResponder {
+
+    FakeResponse respond(FakeRequest request);
+}
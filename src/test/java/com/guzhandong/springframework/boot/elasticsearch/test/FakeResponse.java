@@ -0,0 +1,44 @@
+package com.guzhandong.springframework.boot.elasticsearch.test;
+
+/**
+ * {@link FakeElasticsearchServer} 返回的响应
+ */
+public class FakeResponse {
+
+    private final int status;
+
+    private final String body;
+
+    public FakeResponse(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public static FakeResponse ok(String body) {
+        return new FakeResponse(200, body);
+    }
+
+    /**
+     * 按 es 的错误格式构造响应
+     */
+    public static FakeResponse error(int status, String type, String reason) {
+        String error = "{\"type\":" + FakeJson.quote(type) + ",\"reason\":" + FakeJson.quote(reason) + "}";
+        return new FakeResponse(status, "{\"error\":{\"root_cause\":[" + error + "],\"type\":" + FakeJson.quote(type)
+                + ",\"reason\":" + FakeJson.quote(reason) + "},\"status\":" + status + "}");
+    }
+
+    /**
+     * 线程池队列满时 es 返回的 429
+     */
+    public static FakeResponse rejected() {
+        return error(429, "es_rejected_execution_exception", "rejected execution by fake elasticsearch server");
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}